@@ -16,7 +16,12 @@ package org.springframework.integration.aggregator;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.logging.Log;
@@ -40,6 +45,7 @@ import org.springframework.integration.store.SimpleMessageStore;
 import org.springframework.integration.util.DefaultLockRegistry;
 import org.springframework.integration.util.LockRegistry;
 import org.springframework.integration.util.UUIDConverter;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
@@ -58,6 +64,10 @@ import org.springframework.util.CollectionUtils;
  * By default the {@link CorrelationStrategy} will be a
  * {@link HeaderAttributeCorrelationStrategy} and the {@link ReleaseStrategy} will be a
  * {@link SequenceSizeReleaseStrategy}.
+ * <p>
+ * Incomplete groups can be expired by a {@link org.springframework.integration.store.MessageGroupStoreReaper},
+ * which scans the whole store, or by setting a {@link #setGroupTimeout(long) group timeout}, for which only
+ * the groups that are due are visited.
  *
  * @author Iwein Fuld
  * @author Dave Syer
@@ -95,6 +105,11 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageH
 
 	private volatile long minimumTimeoutForEmptyGroups;
 
+	private volatile long groupTimeout;
+
+	private final ConcurrentMap<Object, ScheduledFuture<?>> groupTimeoutTasks =
+			new ConcurrentHashMap<Object, ScheduledFuture<?>>();
+
 	public AbstractCorrelatingMessageHandler(MessageGroupProcessor processor, MessageGroupStore store,
 									 CorrelationStrategy correlationStrategy, ReleaseStrategy releaseStrategy) {
 		Assert.notNull(processor);
@@ -163,6 +178,10 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageH
 		 * (checked in the setter).
 		 */
 		this.lockRegistrySet = true;
+		if (this.groupTimeout > 0) {
+			Assert.state(this.getTaskScheduler() != null, "a TaskScheduler is required for a 'groupTimeout'");
+			this.scheduleStoredGroupTimeouts();
+		}
 	}
 
 	public void setDiscardChannel(MessageChannel discardChannel) {
@@ -192,6 +211,29 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageH
 		this.minimumTimeoutForEmptyGroups = minimumTimeoutForEmptyGroups;
 	}
 
+	/**
+	 * Expire an incomplete group when no message has been added to it for this number
+	 * of milliseconds, in the same way as the expiry callback of the message store: the
+	 * group is released if the release strategy allows, or else sent as a partial result
+	 * or discarded according to {@link #setSendPartialResultOnExpiry(boolean)}, and then
+	 * removed.
+	 * <p>
+	 * A task is scheduled on the {@link TaskScheduler} when a group receives its first
+	 * message; when it runs, the group is expired if it has been idle for the timeout, or
+	 * else the task is rescheduled for the deadline implied by the group's last modified
+	 * time. The scheduler's queue is thus a deadline-ordered index of the open groups,
+	 * and only the groups that are due are read from the store. On initialization, the
+	 * groups already in the message store (for a persistent store) are scheduled from
+	 * their last modified time, so the message store should not be shared with other
+	 * correlating handlers. Default 0: no group timeout.
+	 *
+	 * @param groupTimeout the timeout in milliseconds.
+	 * @since 3.0
+	 */
+	public void setGroupTimeout(long groupTimeout) {
+		this.groupTimeout = groupTimeout;
+	}
+
 	public void setReleasePartialSequences(boolean releasePartialSequences){
 		Assert.isInstanceOf(SequenceSizeReleaseStrategy.class, this.releaseStrategy,
 				"Release strategy of type [" + this.releaseStrategy.getClass().getSimpleName()
@@ -222,12 +264,9 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageH
 
 		lock.lockInterruptibly();
 		try {
-			MessageGroup messageGroup = messageStore.getMessageGroup(correlationKey);
-			if (this.sequenceAware){
-				messageGroup = new SequenceAwareMessageGroup(messageGroup);
-			}
+			MessageGroup messageGroup = this.getMessageGroup(correlationKey);
 
-			if (!messageGroup.isComplete() && messageGroup.canAdd(message)) {
+			if (!messageGroup.isComplete() && this.canAdd(messageGroup, message)) {
 				if (logger.isTraceEnabled()) {
 					logger.trace("Adding message to group [ " + messageGroup + "]");
 				}
@@ -244,6 +283,9 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageH
 						this.afterRelease(messageGroup, completedMessages);
 					}
 				}
+				else if (this.groupTimeout > 0) {
+					this.scheduleGroupTimeout(correlationKey, this.groupTimeout);
+				}
 			}
 			else {
 				discardChannel.send(message);
@@ -336,6 +378,89 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageH
 		}
 	}
 
+	/**
+	 * Schedule the timeout task of the group, unless it is already scheduled; must be
+	 * called with the group's lock held.
+	 */
+	private void scheduleGroupTimeout(final Object groupId, long delay) {
+		if (this.groupTimeoutTasks.containsKey(groupId)) {
+			return;
+		}
+		TaskScheduler taskScheduler = this.getTaskScheduler();
+		ScheduledFuture<?> task = taskScheduler.schedule(new Runnable() {
+
+			public void run() {
+				processGroupTimeout(groupId);
+			}
+
+		}, new Date(System.currentTimeMillis() + delay));
+		this.groupTimeoutTasks.put(groupId, task);
+	}
+
+	private void scheduleStoredGroupTimeouts() {
+		Iterator<MessageGroup> groups = this.messageStore.iterator();
+		long now = System.currentTimeMillis();
+		while (groups.hasNext()) {
+			MessageGroup group = groups.next();
+			if (group.size() > 0 && !group.isComplete()) {
+				Object groupId = group.getGroupId();
+				Lock lock = this.lockRegistry.obtain(UUIDConverter.getUUID(groupId).toString());
+				lock.lock();
+				try {
+					this.scheduleGroupTimeout(groupId, Math.max(0, this.groupDeadline(group) - now));
+				}
+				finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	private long groupDeadline(MessageGroup group) {
+		long lastModified = group.getLastModified();
+		return (lastModified > 0 ? lastModified : group.getTimestamp()) + this.groupTimeout;
+	}
+
+	private void processGroupTimeout(Object groupId) {
+		Lock lock = this.lockRegistry.obtain(UUIDConverter.getUUID(groupId).toString());
+		try {
+			lock.lockInterruptibly();
+			try {
+				this.groupTimeoutTasks.remove(groupId);
+				MessageGroup group = this.messageStore.getMessageGroup(groupId);
+				if (group.size() == 0 || group.isComplete()) {
+					// released (or removed) since the task was scheduled
+					return;
+				}
+				long remaining = this.groupDeadline(group) - System.currentTimeMillis();
+				if (remaining > 0) {
+					this.scheduleGroupTimeout(groupId, remaining);
+					return;
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Group timeout for group with correlationKey [" + groupId + "]");
+				}
+				try {
+					if (this.releaseStrategy.canRelease(group)) {
+						this.completeGroup(groupId, group);
+					}
+					else {
+						this.expireGroup(groupId, group);
+					}
+				}
+				finally {
+					this.remove(group);
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	void remove(MessageGroup group) {
 		Object correlationKey = group.getGroupId();
 		messageStore.removeMessageGroup(correlationKey);
@@ -350,7 +475,34 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageH
 		return lastReleasedMessage.getHeaders().getSequenceNumber();
 	}
 
-	private MessageGroup store(Object correlationKey, Message<?> message) {
+	/**
+	 * Return the group a new message is checked against. Called with the group's lock held.
+	 */
+	MessageGroup getMessageGroup(Object correlationKey) {
+		return messageStore.getMessageGroup(correlationKey);
+	}
+
+	/**
+	 * Determine whether the message may be added to the (stored) group; when the release
+	 * strategy is sequence aware, a message is rejected if it does not belong to the
+	 * sequence or duplicates a message of the group. Called with the group's lock held.
+	 */
+	boolean canAdd(MessageGroup group, Message<?> message) {
+		if (this.sequenceAware) {
+			return new SequenceAwareMessageGroup(group).canAdd(message);
+		}
+		return group.canAdd(message);
+	}
+
+	boolean isSequenceAware() {
+		return this.sequenceAware;
+	}
+
+	/**
+	 * Add the message to its group in the message store and return the group that is
+	 * passed to the release strategy. Called with the group's lock held.
+	 */
+	MessageGroup store(Object correlationKey, Message<?> message) {
 		return messageStore.addMessageToGroup(correlationKey, message);
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -24,6 +24,10 @@ import org.springframework.integration.store.MessageGroup;
 
 /**
  * This class implements all the strategy interfaces needed for a default resequencer.
+ * <p>
+ * Releases the messages of the group in sequence number order, up to the first gap. When
+ * the group is indexed by a {@link ResequencingMessageHandler}, these are the messages that
+ * follow the last released sequence number, and the group is not sorted.
  *
  * @author Iwein Fuld
  * @author Dave Syer
@@ -35,6 +39,13 @@ public class ResequencingMessageGroupProcessor implements MessageGroupProcessor
 	private final Comparator<Message<?>> comparator = new SequenceNumberComparator();
 
 	public Object processMessageGroup(MessageGroup group) {
+		if (group instanceof SequenceIndex.IndexedMessageGroup) {
+			List<Message<?>> partialSequence = ((SequenceIndex.IndexedMessageGroup) group).getIndex().getNextInSequence();
+			if (!partialSequence.isEmpty()) {
+				return partialSequence;
+			}
+			// a sequence that does not start right after the last released message
+		}
 		Collection<Message<?>> messages = group.getMessages();
 
 		if (messages.size() > 0) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -14,20 +14,33 @@
 package org.springframework.integration.aggregator;
 
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.integration.Message;
 import org.springframework.integration.store.MessageGroup;
 import org.springframework.integration.store.MessageGroupStore;
+import org.springframework.integration.store.SimpleMessageStore;
 
 /**
  * Resequencer specific implementation of {@link AbstractCorrelatingMessageHandler}. 
  * Will remove {@link MessageGroup}s only if 'sequenceSize' is provided and reached. 
+ * <p>
+ * When the release strategy is a {@link SequenceSizeReleaseStrategy}, the messages of
+ * each group that have not been released yet are indexed by sequence number, so that the
+ * release strategy and the {@link ResequencingMessageGroupProcessor} can find the next
+ * contiguous messages without sorting the group, and the group is not read back from the
+ * message store for each message. This only applies to a {@link SimpleMessageStore}; with
+ * any other store the group may be changed by another instance sharing the store, so the
+ * index is rebuilt from the group as read from the store for each message.
  *
  * @author Oleg Zhurakousky
  * @since 2.1
  */
 public class ResequencingMessageHandler extends AbstractCorrelatingMessageHandler {
 
+	private final ConcurrentMap<Object, SequenceIndex> indexes = new ConcurrentHashMap<Object, SequenceIndex>();
+
 	public ResequencingMessageHandler(MessageGroupProcessor processor,
 			MessageGroupStore store, CorrelationStrategy correlationStrategy,
 			ReleaseStrategy releaseStrategy) {
@@ -45,10 +58,85 @@ public class ResequencingMessageHandler extends AbstractCorrelatingMessageHandle
 		super(processor);
 	}
 	
+	/**
+	 * Return the view of the group as last stored, rather than reading the group from the
+	 * message store, if the index is still current.
+	 */
+	@Override
+	MessageGroup getMessageGroup(Object correlationKey) {
+		if (this.isSequenceAware() && this.isIndexReusable()) {
+			SequenceIndex index = this.indexes.get(correlationKey);
+			if (index != null && index.isViewCurrent()
+					&& index.size() == this.messageStore.messageGroupSize(correlationKey)) {
+				return index.getView();
+			}
+		}
+		return super.getMessageGroup(correlationKey);
+	}
+
+	@Override
+	boolean canAdd(MessageGroup group, Message<?> message) {
+		if (this.isSequenceAware()) {
+			SequenceIndex index;
+			if (group instanceof SequenceIndex.IndexedMessageGroup) {
+				index = ((SequenceIndex.IndexedMessageGroup) group).getIndex();
+			}
+			else {
+				index = this.isIndexReusable() ? this.indexes.get(group.getGroupId()) : null;
+				if (index == null || !index.isCurrent(group)) {
+					index = this.createIndex(group);
+				}
+			}
+			if (index != null) {
+				return index.canAdd(message);
+			}
+		}
+		return super.canAdd(group, message);
+	}
+
+	@Override
+	MessageGroup store(Object correlationKey, Message<?> message) {
+		MessageGroup group = super.store(correlationKey, message);
+		if (!this.isSequenceAware()) {
+			return group;
+		}
+		SequenceIndex index = this.isIndexReusable() ? this.indexes.get(correlationKey) : null;
+		if (index == null || group.size() != index.size() + 1 || !index.add(message)) {
+			index = this.createIndex(group);
+		}
+		return (index != null ? index.view(group) : group);
+	}
+
+	@Override
+	void remove(MessageGroup group) {
+		this.indexes.remove(group.getGroupId());
+		super.remove(group);
+	}
+
+	/**
+	 * Only the groups of a {@link SimpleMessageStore} are live objects that are not shared
+	 * with other instances; a group in any other store may have been changed in a way that
+	 * neither its size nor its last modified time (which has millisecond precision) reveals.
+	 */
+	private boolean isIndexReusable() {
+		return this.messageStore instanceof SimpleMessageStore;
+	}
+
+	private SequenceIndex createIndex(MessageGroup group) {
+		SequenceIndex index = SequenceIndex.create(group);
+		if (index != null) {
+			this.indexes.put(group.getGroupId(), index);
+		}
+		else {
+			this.indexes.remove(group.getGroupId());
+		}
+		return index;
+	}
+
 	@Override
 	protected void afterRelease(MessageGroup messageGroup, Collection<Message<?>> completedMessages) {
 			
-		int size = messageGroup.getMessages().size();
+		int size = messageGroup.size();
 		int sequenceSize = 0;
 		Message<?> message = messageGroup.getOne();
 		if (message != null){
@@ -60,7 +148,15 @@ public class ResequencingMessageHandler extends AbstractCorrelatingMessageHandle
 		}
 		else {
 			if (completedMessages != null){ 
-				int lastReleasedSequenceNumber = this.findLastReleasedSequenceNumber(messageGroup.getGroupId(), completedMessages);
+				int lastReleasedSequenceNumber;
+				if (messageGroup instanceof SequenceIndex.IndexedMessageGroup) {
+					lastReleasedSequenceNumber = ((SequenceIndex.IndexedMessageGroup) messageGroup).getIndex()
+							.release(completedMessages);
+				}
+				else {
+					lastReleasedSequenceNumber = this.findLastReleasedSequenceNumber(messageGroup.getGroupId(),
+							completedMessages);
+				}
 				messageStore.setLastReleasedSequenceNumberForGroup(messageGroup.getGroupId(), lastReleasedSequenceNumber);
 				for (Message<?> msg : completedMessages) {
 					this.messageStore.removeMessageFromGroup(messageGroup.getGroupId(), msg);
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.aggregator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.store.MessageGroup;
+
+/**
+ * The messages of a group that have not been released yet, indexed by sequence number,
+ * together with the last released sequence number. Used by the
+ * {@link ResequencingMessageHandler} so that checking whether the next message of the
+ * sequence is present costs O(1) and releasing a contiguous run of k messages costs O(k),
+ * instead of sorting the whole group for each message.
+ * <p>
+ * An index is only created for a group in which every message has a distinct positive
+ * sequence number; it is not thread-safe and is only accessed with the group's lock held.
+ *
+ * @since 3.0
+ */
+class SequenceIndex {
+
+	private final Map<Integer, Message<?>> pending = new HashMap<Integer, Message<?>>();
+
+	private int lastReleasedSequenceNumber;
+
+	private int sequenceSize;
+
+	private volatile IndexedMessageGroup view;
+
+	private SequenceIndex(int lastReleasedSequenceNumber) {
+		this.lastReleasedSequenceNumber = lastReleasedSequenceNumber;
+	}
+
+	/**
+	 * Index the messages of the group.
+	 * @return the index, or null if the group contains a message without a (positive)
+	 * sequence number or two messages with the same sequence number.
+	 */
+	static SequenceIndex create(MessageGroup group) {
+		SequenceIndex index = new SequenceIndex(group.getLastReleasedMessageSequenceNumber());
+		for (Message<?> message : group.getMessages()) {
+			if (!index.add(message)) {
+				return null;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Add a message that has been added to the group.
+	 * @return false if the message cannot be indexed, in which case the index must be discarded.
+	 */
+	boolean add(Message<?> message) {
+		int sequenceNumber = message.getHeaders().getSequenceNumber();
+		if (sequenceNumber <= 0 || this.pending.containsKey(sequenceNumber)) {
+			return false;
+		}
+		if (this.pending.isEmpty()) {
+			this.sequenceSize = message.getHeaders().getSequenceSize();
+		}
+		this.pending.put(sequenceNumber, message);
+		return true;
+	}
+
+	int size() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Whether the index still reflects the given (stored) group: the group may have been
+	 * changed by another component sharing the message store.
+	 */
+	boolean isCurrent(MessageGroup group) {
+		return this.pending.size() == group.size()
+				&& this.lastReleasedSequenceNumber == group.getLastReleasedMessageSequenceNumber();
+	}
+
+	/**
+	 * The same rule as the sequence-aware group of the {@link AbstractCorrelatingMessageHandler}:
+	 * a message is rejected if its sequence size differs from that of the group, or if a message
+	 * with the same sequence number is pending.
+	 */
+	boolean canAdd(Message<?> message) {
+		if (this.pending.isEmpty()) {
+			return true;
+		}
+		int sequenceNumber = message.getHeaders().getSequenceNumber();
+		if (sequenceNumber > 0) {
+			if (message.getHeaders().getSequenceSize() != this.sequenceSize) {
+				return false;
+			}
+			return !this.pending.containsKey(sequenceNumber);
+		}
+		return true;
+	}
+
+	boolean hasNextInSequence() {
+		return this.pending.containsKey(this.lastReleasedSequenceNumber + 1);
+	}
+
+	/**
+	 * @return the pending messages that follow the last released one without a gap, in order.
+	 */
+	List<Message<?>> getNextInSequence() {
+		List<Message<?>> sequence = new ArrayList<Message<?>>();
+		int sequenceNumber = this.lastReleasedSequenceNumber + 1;
+		Message<?> message = this.pending.get(sequenceNumber);
+		while (message != null) {
+			sequence.add(message);
+			message = this.pending.get(++sequenceNumber);
+		}
+		return sequence;
+	}
+
+	/**
+	 * Remove released messages from the index.
+	 * @return the highest sequence number released, which is now the last released sequence number.
+	 */
+	int release(Collection<Message<?>> messages) {
+		for (Message<?> message : messages) {
+			int sequenceNumber = message.getHeaders().getSequenceNumber();
+			this.pending.remove(sequenceNumber);
+			if (sequenceNumber > this.lastReleasedSequenceNumber) {
+				this.lastReleasedSequenceNumber = sequenceNumber;
+			}
+		}
+		return this.lastReleasedSequenceNumber;
+	}
+
+	/**
+	 * @return a view of the (stored) group that exposes this index to the release strategy
+	 * and the message group processor.
+	 */
+	MessageGroup view(MessageGroup group) {
+		this.view = new IndexedMessageGroup(group);
+		return this.view;
+	}
+
+	/**
+	 * @return the view of the group as it was last stored, or null if there is none yet.
+	 */
+	MessageGroup getView() {
+		return this.view;
+	}
+
+	/**
+	 * Whether there is a view and the index still reflects the group it delegates to; only
+	 * meaningful when that group is the live group of the message store.
+	 */
+	boolean isViewCurrent() {
+		IndexedMessageGroup view = this.view;
+		return view != null && this.isCurrent(view.delegate);
+	}
+
+
+	/**
+	 * A {@link MessageGroup} that delegates to the stored group and carries its index.
+	 */
+	class IndexedMessageGroup implements MessageGroup {
+
+		private final MessageGroup delegate;
+
+		private IndexedMessageGroup(MessageGroup delegate) {
+			this.delegate = delegate;
+		}
+
+		SequenceIndex getIndex() {
+			return SequenceIndex.this;
+		}
+
+		public boolean canAdd(Message<?> message) {
+			return SequenceIndex.this.canAdd(message);
+		}
+
+		public Collection<Message<?>> getMessages() {
+			return this.delegate.getMessages();
+		}
+
+		public Object getGroupId() {
+			return this.delegate.getGroupId();
+		}
+
+		public int getLastReleasedMessageSequenceNumber() {
+			return lastReleasedSequenceNumber;
+		}
+
+		public boolean isComplete() {
+			return this.delegate.isComplete();
+		}
+
+		public void complete() {
+			this.delegate.complete();
+		}
+
+		public int getSequenceSize() {
+			return this.delegate.getSequenceSize();
+		}
+
+		public int size() {
+			return this.delegate.size();
+		}
+
+		public Message<?> getOne() {
+			return this.delegate.getOne();
+		}
+
+		public long getTimestamp() {
+			return this.delegate.getTimestamp();
+		}
+
+		public long getLastModified() {
+			return this.delegate.getLastModified();
+		}
+
+		@Override
+		public String toString() {
+			return this.delegate.toString();
+		}
+
+	}
+
+}
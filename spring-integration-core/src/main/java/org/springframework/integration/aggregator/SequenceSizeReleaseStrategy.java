@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,9 @@
 
 package org.springframework.integration.aggregator;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -74,15 +72,18 @@ public class SequenceSizeReleaseStrategy implements ReleaseStrategy {
 			if (logger.isTraceEnabled()) {
 				logger.trace("Considering partial release of group [" + messageGroup + "]");
 			}
-			List<Message<?>> sorted = new ArrayList<Message<?>>(messages);
-			Collections.sort(sorted, comparator);
-			
-			int nextSequenceNumber = sorted.get(0).getHeaders().getSequenceNumber();
-			int lastReleasedMessageSequence = messageGroup.getLastReleasedMessageSequenceNumber();
-			
-			if (nextSequenceNumber - lastReleasedMessageSequence == 1){
-				canRelease = true;;
-			}	
+			if (messageGroup instanceof SequenceIndex.IndexedMessageGroup) {
+				canRelease = ((SequenceIndex.IndexedMessageGroup) messageGroup).getIndex().hasNextInSequence();
+			}
+			else {
+				Message<?> first = Collections.min(messages, comparator);
+				int nextSequenceNumber = first.getHeaders().getSequenceNumber();
+				int lastReleasedMessageSequence = messageGroup.getLastReleasedMessageSequenceNumber();
+
+				if (nextSequenceNumber - lastReleasedMessageSequence == 1){
+					canRelease = true;
+				}
+			}
 		}
 		else {
 			int size = messages.size();
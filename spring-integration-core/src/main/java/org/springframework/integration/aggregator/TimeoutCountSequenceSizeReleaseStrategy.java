@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,7 +13,6 @@
 
 package org.springframework.integration.aggregator;
 
-import org.springframework.integration.Message;
 import org.springframework.integration.store.MessageGroup;
 
 /**
@@ -22,7 +21,8 @@ import org.springframework.integration.store.MessageGroup;
  * <ul>
  * <li>The sequence is complete (if there is one).</li>
  * <li>There are more messages than a threshold set by the user.</li>
- * <li>The time elapsed since the earliest message, according to their timestamps, exceeds a timeout set by the user.</li>
+ * <li>The time elapsed since the group was created, that is since its first message was added, exceeds a
+ * timeout set by the user.</li>
  * </ul>
  * 
  * @author Dave Syer
@@ -59,23 +59,17 @@ public class TimeoutCountSequenceSizeReleaseStrategy implements ReleaseStrategy
 	}
 
 	public boolean canRelease(MessageGroup messages) {
-		long elapsedTime = System.currentTimeMillis() - findEarliestTimestamp(messages);
-		return messages.isComplete() || messages.getMessages().size() >= threshold || elapsedTime > timeout;
+		return messages.isComplete() || messages.size() >= threshold || hasTimedOut(messages);
 	}
 
 	/**
+	 * Uses the timestamp of the group rather than those of its messages, so that the
+	 * check does not depend on the size of the group.
 	 * @param messages the message group
-	 * @return the earliest timestamp or Long.MAX_VALUE
+	 * @return true if the group is not empty and older than the timeout
 	 */
-	private long findEarliestTimestamp(MessageGroup messages) {
-		long result = Long.MAX_VALUE;
-		for (Message<?> message : messages.getMessages()) {
-			long timestamp = message.getHeaders().getTimestamp();
-			if (timestamp < result) {
-				result = timestamp;
-			}
-		}
-		return result;
+	private boolean hasTimedOut(MessageGroup messages) {
+		return messages.size() > 0 && messages.getTimestamp() < System.currentTimeMillis() - timeout;
 	}
 
 }
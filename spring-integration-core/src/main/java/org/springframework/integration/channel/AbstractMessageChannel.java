@@ -240,6 +240,13 @@ public abstract class AbstractMessageChannel extends IntegrationObjectSupport im
 			return this.interceptors.add(interceptor);
 		}
 
+		/**
+		 * @since 3.0
+		 */
+		public boolean isEmpty() {
+			return this.interceptors.isEmpty();
+		}
+
 		public Message<?> preSend(Message<?> message, MessageChannel channel) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("preSend on channel '" + channel + "', message: " + message);
@@ -16,6 +16,7 @@
 
 package org.springframework.integration.channel;
 
+import org.springframework.integration.Message;
 import org.springframework.integration.context.IntegrationProperties;
 import org.springframework.integration.dispatcher.LoadBalancingStrategy;
 import org.springframework.integration.dispatcher.RoundRobinLoadBalancingStrategy;
@@ -37,6 +38,8 @@ public class DirectChannel extends AbstractSubscribableChannel {
 
 	private volatile Integer maxSubscribers;
 
+	private volatile Boolean flattenDispatch;
+
 	/**
 	 * Create a channel with default {@link RoundRobinLoadBalancingStrategy}
 	 */
@@ -71,6 +74,56 @@ public class DirectChannel extends AbstractSubscribableChannel {
 		this.dispatcher.setMaxSubscribers(maxSubscribers);
 	}
 
+	/**
+	 * Specify whether a pipeline of channels with flattened dispatch should run as a
+	 * loop rather than as nested calls. When a reply-producing handler subscribed to
+	 * such a channel sends its reply to another such channel, the send is deferred until
+	 * the handler has returned, so the stack depth no longer grows with each hop. Only
+	 * applies to channels with a single subscriber and no interceptors; the order of the
+	 * sends and the exceptions seen by the sender are unchanged. By default, the
+	 * {@link IntegrationProperties#CHANNELS_FLATTEN_DIRECT_DISPATCH} property, which is
+	 * false unless overridden.
+	 * @param flattenDispatch true to flatten the dispatch.
+	 * @see DispatchTrampoline
+	 * @since 3.0
+	 */
+	public void setFlattenDispatch(boolean flattenDispatch) {
+		this.flattenDispatch = flattenDispatch;
+	}
+
+	/**
+	 * @return true if a handler may defer a send to this channel.
+	 */
+	boolean isFlattenable() {
+		return Boolean.TRUE.equals(this.flattenDispatch) && this.getInterceptors().isEmpty()
+				&& this.dispatcher.getHandlerCount() == 1;
+	}
+
+	@Override
+	protected boolean doSend(Message<?> message, long timeout) {
+		if (!Boolean.TRUE.equals(this.flattenDispatch)) {
+			return super.doSend(message, timeout);
+		}
+		DispatchTrampoline trampoline = DispatchTrampoline.current();
+		if (trampoline.startHop(this)) {
+			// a deferred send: the loop that performs it sends the next hop
+			return this.doSendArmed(trampoline, message, timeout);
+		}
+		boolean sent = this.doSendArmed(trampoline, message, timeout);
+		trampoline.runPending();
+		return sent;
+	}
+
+	private boolean doSendArmed(DispatchTrampoline trampoline, Message<?> message, long timeout) {
+		trampoline.arm(this.dispatcher.getSingleHandler());
+		try {
+			return super.doSend(message, timeout);
+		}
+		finally {
+			trampoline.disarm();
+		}
+	}
+
 	@Override
 	protected UnicastingDispatcher getDispatcher() {
 		return this.dispatcher;
@@ -83,6 +136,9 @@ public class DirectChannel extends AbstractSubscribableChannel {
 			Integer maxSubscribers = this.getIntegrationProperty(IntegrationProperties.CHANNELS_MAX_UNICAST_SUBSCRIBERS, Integer.class);
 			this.setMaxSubscribers(maxSubscribers);
 		}
+		if (this.flattenDispatch == null) {
+			this.flattenDispatch = this.getIntegrationProperty(IntegrationProperties.CHANNELS_FLATTEN_DIRECT_DISPATCH, Boolean.class);
+		}
 	}
 
 }
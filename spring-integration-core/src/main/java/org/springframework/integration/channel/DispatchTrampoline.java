@@ -0,0 +1,154 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.core.MessageHandler;
+
+/**
+ * Runs a pipeline of {@link DirectChannel}s with flattened dispatch as a loop rather than
+ * as nested calls. A flattened channel that dispatches to its single subscriber
+ * <em>arms</em> the trampoline of the current thread with that subscriber. A handler
+ * that {@link #claim(MessageHandler) claims} the arm on entry was invoked directly by
+ * the channel, so when its last action is to send a reply to another flattened channel,
+ * it may {@link #defer(MessageChannel, Message) defer} the send; the handler returns, and
+ * the send is performed by the loop of the channel that dispatched to it (or of the
+ * channel at the start of the pipeline) once the dispatch has completed. Since nothing
+ * happens on the way back from the handler to the loop, the stack depth of the pipeline
+ * no longer grows with the number of hops, while the order of the sends and the
+ * exceptions seen by the original sender are unchanged.
+ * <p>
+ * Sends that are not the last action of a handler (for example a send from the code of
+ * a service) are never deferred: each one runs its own loop, so the pipeline downstream
+ * of it has completed when it returns.
+ *
+ * @since 3.0
+ */
+public final class DispatchTrampoline {
+
+	private static final ThreadLocal<DispatchTrampoline> current = new ThreadLocal<DispatchTrampoline>() {
+
+		@Override
+		protected DispatchTrampoline initialValue() {
+			return new DispatchTrampoline();
+		}
+
+	};
+
+	/**
+	 * Set once any channel uses flattened dispatch, so that handlers do not need to
+	 * look up the trampoline otherwise.
+	 */
+	private static volatile boolean enabled;
+
+	private MessageHandler armedHandler;
+
+	private DirectChannel hopChannel;
+
+	private DirectChannel pendingChannel;
+
+	private Message<?> pendingMessage;
+
+
+	private DispatchTrampoline() {
+	}
+
+	/**
+	 * To be called by a handler on entry, before it invokes anything else.
+	 * @param handler the handler.
+	 * @return true if the handler was invoked directly by a channel with flattened
+	 * dispatch, in which case it may {@link #defer(MessageChannel, Message) defer} a
+	 * send that is its last action.
+	 */
+	public static boolean claim(MessageHandler handler) {
+		if (!enabled) {
+			return false;
+		}
+		DispatchTrampoline trampoline = current.get();
+		MessageHandler armedHandler = trampoline.armedHandler;
+		trampoline.armedHandler = null;
+		return armedHandler == handler;
+	}
+
+	/**
+	 * Defer the send of the message to the channel until the handler, which must have
+	 * {@link #claim(MessageHandler) claimed} its invocation, has returned. Nothing may
+	 * happen in the handler after a send has been deferred.
+	 * @param channel the channel.
+	 * @param message the message.
+	 * @return true if the send has been deferred; false if the channel does not use
+	 * flattened dispatch, in which case the message must be sent as usual.
+	 */
+	public static boolean defer(MessageChannel channel, Message<?> message) {
+		if (!(channel instanceof DirectChannel) || !((DirectChannel) channel).isFlattenable()) {
+			return false;
+		}
+		DispatchTrampoline trampoline = current.get();
+		trampoline.pendingChannel = (DirectChannel) channel;
+		trampoline.pendingMessage = message;
+		return true;
+	}
+
+	static DispatchTrampoline current() {
+		enabled = true;
+		return current.get();
+	}
+
+	void arm(MessageHandler handler) {
+		this.armedHandler = handler;
+	}
+
+	void disarm() {
+		this.armedHandler = null;
+	}
+
+	/**
+	 * @return true if the channel is sending a message that was deferred, in which case
+	 * it must not run a loop of its own.
+	 */
+	boolean startHop(DirectChannel channel) {
+		if (this.hopChannel == channel) {
+			this.hopChannel = null;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Perform the deferred sends until the last handler of the pipeline has returned
+	 * without deferring one.
+	 */
+	void runPending() {
+		try {
+			while (this.pendingChannel != null) {
+				DirectChannel channel = this.pendingChannel;
+				Message<?> message = this.pendingMessage;
+				this.pendingChannel = null;
+				this.pendingMessage = null;
+				this.hopChannel = channel;
+				channel.send(message);
+			}
+		}
+		finally {
+			this.hopChannel = null;
+			this.pendingChannel = null;
+			this.pendingMessage = null;
+		}
+	}
+
+}
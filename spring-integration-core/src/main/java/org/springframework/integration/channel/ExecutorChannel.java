@@ -19,10 +19,12 @@ package org.springframework.integration.channel;
 import java.util.concurrent.Executor;
 
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.aggregator.CorrelationStrategy;
 import org.springframework.integration.context.IntegrationProperties;
 import org.springframework.integration.dispatcher.LoadBalancingStrategy;
 import org.springframework.integration.dispatcher.RoundRobinLoadBalancingStrategy;
 import org.springframework.integration.dispatcher.UnicastingDispatcher;
+import org.springframework.integration.dispatcher.WorkStealingDispatcher;
 import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
 import org.springframework.integration.util.ErrorHandlingTaskExecutor;
 import org.springframework.util.Assert;
@@ -39,6 +41,11 @@ import org.springframework.util.ErrorHandler;
  * uses another Thread for the dispatch.</em> (SyncTaskExecutor is an
  * exception but would provide no value for this channel. If synchronous
  * dispatching is required, a DirectChannel should be used instead).
+ * <p>
+ * When configured with {@link #setWorkQueues(int) work queues}, the channel uses a
+ * {@link WorkStealingDispatcher}, which queues the Messages and has them handled in
+ * batches, optionally in order per partition key, rather than submitting a task to
+ * the Executor for each Message.
  *
  * @author Mark Fisher
  * @author Gary Russell
@@ -57,6 +64,16 @@ public class ExecutorChannel extends AbstractSubscribableChannel {
 
 	private volatile LoadBalancingStrategy loadBalancingStrategy;
 
+	private volatile int workQueues;
+
+	private volatile int batchSize = WorkStealingDispatcher.DEFAULT_BATCH_SIZE;
+
+	private volatile int workQueueCapacity = Integer.MAX_VALUE;
+
+	private volatile long workQueueFullTimeout = -1;
+
+	private volatile CorrelationStrategy partitionKeyStrategy;
+
 
 	/**
 	 * Create an ExecutorChannel that delegates to the provided
@@ -104,6 +121,75 @@ public class ExecutorChannel extends AbstractSubscribableChannel {
 		this.dispatcher.setMaxSubscribers(maxSubscribers);
 	}
 
+	/**
+	 * Specify the number of work queues of a {@link WorkStealingDispatcher}, which is
+	 * then used instead of submitting a task for each Message. By default, 0: no work
+	 * queues.
+	 * @param workQueues the number of work queues.
+	 * @since 3.0
+	 */
+	public void setWorkQueues(int workQueues) {
+		Assert.isTrue(workQueues >= 0, "workQueues must not be negative");
+		this.workQueues = workQueues;
+	}
+
+	/**
+	 * Specify the maximum number of Messages handled from a work queue before the
+	 * thread is yielded to other tasks. Only applies with work queues.
+	 * @param batchSize the batch size.
+	 * @see WorkStealingDispatcher#setBatchSize(int)
+	 * @since 3.0
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Specify the maximum number of Messages waiting in each work queue. Unbounded by
+	 * default. Only applies with work queues.
+	 * @param workQueueCapacity the capacity of each work queue.
+	 * @see WorkStealingDispatcher#setQueueCapacity(int)
+	 * @since 3.0
+	 */
+	public void setWorkQueueCapacity(int workQueueCapacity) {
+		Assert.isTrue(workQueueCapacity > 0, "workQueueCapacity must be greater than 0");
+		this.workQueueCapacity = workQueueCapacity;
+	}
+
+	/**
+	 * Specify how long a send waits for room in a full work queue, in milliseconds,
+	 * before it returns false. By default, it waits indefinitely. Only applies with a
+	 * work queue capacity.
+	 * @param workQueueFullTimeout the timeout.
+	 * @see WorkStealingDispatcher#setQueueFullTimeout(long)
+	 * @since 3.0
+	 */
+	public void setWorkQueueFullTimeout(long workQueueFullTimeout) {
+		this.workQueueFullTimeout = workQueueFullTimeout;
+	}
+
+	/**
+	 * Specify the strategy that determines the partition key of a Message; Messages
+	 * with the same key are handled in order. Only applies with work queues.
+	 * @param partitionKeyStrategy the strategy.
+	 * @see WorkStealingDispatcher#setPartitionKeyStrategy(CorrelationStrategy)
+	 * @since 3.0
+	 */
+	public void setPartitionKeyStrategy(CorrelationStrategy partitionKeyStrategy) {
+		this.partitionKeyStrategy = partitionKeyStrategy;
+	}
+
+	/**
+	 * @return the dispatcher, which provides the queue depth and batch size metrics,
+	 * if the channel is configured with work queues; otherwise null.
+	 * @since 3.0
+	 */
+	public WorkStealingDispatcher getWorkStealingDispatcher() {
+		UnicastingDispatcher dispatcher = this.dispatcher;
+		return dispatcher instanceof WorkStealingDispatcher ? (WorkStealingDispatcher) dispatcher : null;
+	}
+
 	@Override
 	protected UnicastingDispatcher getDispatcher() {
 		return this.dispatcher;
@@ -111,12 +197,28 @@ public class ExecutorChannel extends AbstractSubscribableChannel {
 
 	@Override
 	public final void onInit() {
-		if (!(this.executor instanceof ErrorHandlingTaskExecutor)) {
-			ErrorHandler errorHandler = new MessagePublishingErrorHandler(
+		ErrorHandler errorHandler;
+		if (this.executor instanceof ErrorHandlingTaskExecutor) {
+			errorHandler = ((ErrorHandlingTaskExecutor) this.executor).getErrorHandler();
+		}
+		else {
+			errorHandler = new MessagePublishingErrorHandler(
 					new BeanFactoryChannelResolver(this.getBeanFactory()));
 			this.executor = new ErrorHandlingTaskExecutor(this.executor, errorHandler);
 		}
-		this.dispatcher = new UnicastingDispatcher(this.executor);
+		if (this.workQueues > 0) {
+			WorkStealingDispatcher workStealingDispatcher = new WorkStealingDispatcher(this.executor, this.workQueues);
+			workStealingDispatcher.setBatchSize(this.batchSize);
+			workStealingDispatcher.setQueueCapacity(this.workQueueCapacity);
+			workStealingDispatcher.setQueueFullTimeout(this.workQueueFullTimeout);
+			workStealingDispatcher.setPartitionKeyStrategy(this.partitionKeyStrategy);
+			// the same handler as the executor's, which may be user-supplied
+			workStealingDispatcher.setErrorHandler(errorHandler);
+			this.dispatcher = workStealingDispatcher;
+		}
+		else {
+			this.dispatcher = new UnicastingDispatcher(this.executor);
+		}
 		this.dispatcher.setFailover(this.failover);
 		if (this.maxSubscribers == null) {
 			this.maxSubscribers = this.getIntegrationProperty(IntegrationProperties.CHANNELS_MAX_UNICAST_SUBSCRIBERS, Integer.class);
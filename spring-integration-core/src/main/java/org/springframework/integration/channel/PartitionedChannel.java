@@ -0,0 +1,518 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageDeliveryException;
+import org.springframework.integration.aggregator.CorrelationStrategy;
+import org.springframework.integration.context.IntegrationProperties;
+import org.springframework.integration.dispatcher.PartitionSelector;
+import org.springframework.integration.dispatcher.RoundRobinLoadBalancingStrategy;
+import org.springframework.integration.dispatcher.UnicastingDispatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * A point-to-point channel that hashes the partition key of each Message to one of a
+ * fixed number of <em>lanes</em>. Each lane is a bounded queue drained by a single
+ * long-running task of the {@link #setTaskExecutor(TaskExecutor) task executor}, which
+ * invokes the subscribed handler(s) with the same load-balancing and failover as a
+ * {@link DirectChannel}. Messages with the same key are therefore handled one at a time,
+ * in the order they were sent, while Messages with different keys are handled by up to
+ * as many threads as there are lanes.
+ * <p>
+ * The partition key is determined by a {@link CorrelationStrategy}; for example a
+ * {@link org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy}
+ * or an {@link org.springframework.integration.aggregator.ExpressionEvaluatingCorrelationStrategy}.
+ * Messages with a null key, and all Messages if there is no strategy, are distributed
+ * over the lanes in turn.
+ * <p>
+ * When the lane of a Message is full, the sender blocks until there is room or, when
+ * sending with a timeout, the timeout elapses, in which case the send returns false.
+ * Since Messages are handled after the send has returned, exceptions are passed to the
+ * {@link #setErrorHandler(ErrorHandler) error handler}, by default a
+ * {@link MessagePublishingErrorHandler}.
+ * <p>
+ * The lane tasks are submitted when the channel is {@link #start() started}, which
+ * happens on the first send if it has not been started by then and auto-startup is
+ * enabled; while the channel is stopped, Messages wait in the lanes. When the channel
+ * is destroyed, Messages still waiting are discarded, and sends that are waiting for
+ * room in a lane, or that are made afterwards, fail.
+ *
+ * @since 3.0
+ */
+public class PartitionedChannel extends AbstractSubscribableChannel implements SmartLifecycle, DisposableBean {
+
+	public static final int DEFAULT_LANE_CAPACITY = 1000;
+
+	/**
+	 * How often, in milliseconds, the lane tasks check whether the channel has been
+	 * stopped, and senders waiting for room whether it has been destroyed.
+	 */
+	private static final long LIFECYCLE_CHECK_INTERVAL = 100;
+
+	private final UnicastingDispatcher dispatcher = new UnicastingDispatcher();
+
+	private final Lane[] lanes;
+
+	private final PartitionSelector partitionSelector;
+
+	private final Object lifecycleMonitor = new Object();
+
+	private volatile ErrorHandler errorHandler;
+
+	private volatile TaskExecutor taskExecutor;
+
+	private volatile Integer maxSubscribers;
+
+	private volatile boolean autoStartup = true;
+
+	private volatile int phase;
+
+	private volatile boolean started;
+
+	private volatile boolean running;
+
+	private volatile boolean destroyed;
+
+	/**
+	 * Incremented on each start and stop; a lane task stops when it is no longer
+	 * the generation the task was submitted for.
+	 */
+	private volatile int generation;
+
+
+	/**
+	 * Create a channel with lanes that hold up to {@value #DEFAULT_LANE_CAPACITY}
+	 * Messages.
+	 * @param laneCount the number of lanes.
+	 */
+	public PartitionedChannel(int laneCount) {
+		this(laneCount, DEFAULT_LANE_CAPACITY);
+	}
+
+	/**
+	 * @param laneCount the number of lanes, which is the maximum number of Messages
+	 * handled concurrently.
+	 * @param laneCapacity the maximum number of Messages waiting in a lane.
+	 */
+	public PartitionedChannel(int laneCount, int laneCapacity) {
+		Assert.isTrue(laneCount > 0, "laneCount must be greater than 0");
+		Assert.isTrue(laneCapacity > 0, "laneCapacity must be greater than 0");
+		this.lanes = new Lane[laneCount];
+		for (int i = 0; i < laneCount; i++) {
+			this.lanes[i] = new Lane(laneCapacity);
+		}
+		this.partitionSelector = new PartitionSelector(laneCount);
+		this.dispatcher.setLoadBalancingStrategy(new RoundRobinLoadBalancingStrategy());
+	}
+
+
+	@Override
+	public String getComponentType() {
+		return "partitioned-channel";
+	}
+
+	/**
+	 * Specify the strategy that determines the partition key of a Message.
+	 * @param partitionKeyStrategy the strategy.
+	 */
+	public void setPartitionKeyStrategy(CorrelationStrategy partitionKeyStrategy) {
+		this.partitionSelector.setPartitionKeyStrategy(partitionKeyStrategy);
+	}
+
+	/**
+	 * Specify the handler for exceptions thrown while handling a Message. By default,
+	 * a {@link MessagePublishingErrorHandler}.
+	 * @param errorHandler the error handler.
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Specify the executor that runs the lane tasks; it must be able to run one
+	 * long-running task per lane concurrently. By default, a
+	 * {@link SimpleAsyncTaskExecutor} with daemon threads named after the channel.
+	 * @param taskExecutor the task executor.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Specify whether the channel's dispatcher should have failover enabled.
+	 * By default, it will. Set this value to 'false' to disable it.
+	 */
+	public void setFailover(boolean failover) {
+		this.dispatcher.setFailover(failover);
+	}
+
+	/**
+	 * Specify the maximum number of subscribers supported by the
+	 * channel's dispatcher.
+	 * @param maxSubscribers
+	 */
+	public void setMaxSubscribers(int maxSubscribers) {
+		this.maxSubscribers = maxSubscribers;
+		this.dispatcher.setMaxSubscribers(maxSubscribers);
+	}
+
+	public void setAutoStartup(boolean autoStartup) {
+		this.autoStartup = autoStartup;
+	}
+
+	public boolean isAutoStartup() {
+		return this.autoStartup;
+	}
+
+	public void setPhase(int phase) {
+		this.phase = phase;
+	}
+
+	public int getPhase() {
+		return this.phase;
+	}
+
+	@Override
+	protected UnicastingDispatcher getDispatcher() {
+		return this.dispatcher;
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		if (this.maxSubscribers == null) {
+			Integer maxSubscribers = this.getIntegrationProperty(IntegrationProperties.CHANNELS_MAX_UNICAST_SUBSCRIBERS, Integer.class);
+			this.setMaxSubscribers(maxSubscribers);
+		}
+	}
+
+	/**
+	 * Add the Message to its lane, waiting for room if the lane is full.
+	 */
+	@Override
+	protected boolean doSend(Message<?> message, long timeout) {
+		if (!this.started && this.autoStartup) {
+			this.start();
+		}
+		this.assertNotDestroyed(message);
+		Lane lane = this.lanes[this.partitionSelector.selectPartition(message)];
+		if (!lane.offer(message, timeout)) {
+			return false;
+		}
+		if (this.destroyed && lane.discard(message)) {
+			// destroyed while the Message was added; it would never be handled
+			this.assertNotDestroyed(message);
+		}
+		return true;
+	}
+
+	private void assertNotDestroyed(Message<?> message) {
+		if (this.destroyed) {
+			throw new MessageDeliveryException(message, "Channel '" + this.getFullChannelName()
+					+ "' has been destroyed.");
+		}
+	}
+
+	/**
+	 * Submit a task for each lane to the task executor.
+	 */
+	public void start() {
+		synchronized (this.lifecycleMonitor) {
+			if (this.running || this.destroyed) {
+				return;
+			}
+			if (this.errorHandler == null) {
+				MessagePublishingErrorHandler errorHandler = new MessagePublishingErrorHandler();
+				if (this.getBeanFactory() != null) {
+					errorHandler.setBeanFactory(this.getBeanFactory());
+				}
+				this.errorHandler = errorHandler;
+			}
+			if (this.taskExecutor == null) {
+				String name = this.getComponentName();
+				SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(
+						(name != null ? name : "partitioned-channel") + "-lane-");
+				taskExecutor.setDaemon(true);
+				this.taskExecutor = taskExecutor;
+			}
+			int generation = ++this.generation;
+			try {
+				for (Lane lane : this.lanes) {
+					this.taskExecutor.execute(lane.newTask(generation));
+				}
+			}
+			catch (RuntimeException e) {
+				// stop the tasks already submitted
+				this.generation++;
+				throw e;
+			}
+			this.started = true;
+			this.running = true;
+		}
+	}
+
+	/**
+	 * Stop the lane tasks once they have handled their current Message; Messages
+	 * still waiting are handled when the channel is started again.
+	 */
+	public void stop() {
+		synchronized (this.lifecycleMonitor) {
+			if (this.running) {
+				this.generation++;
+				this.running = false;
+			}
+		}
+	}
+
+	public void stop(Runnable callback) {
+		this.stop();
+		callback.run();
+	}
+
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Stop the lane tasks; Messages still waiting are discarded, and senders waiting
+	 * for room in a lane fail.
+	 */
+	public void destroy() {
+		synchronized (this.lifecycleMonitor) {
+			this.destroyed = true;
+			this.stop();
+			int discarded = this.getDepth();
+			if (discarded > 0 && logger.isWarnEnabled()) {
+				logger.warn("Channel '" + this.getFullChannelName() + "' destroyed with " + discarded
+						+ " Message(s) not handled.");
+			}
+		}
+	}
+
+	public int getLaneCount() {
+		return this.lanes.length;
+	}
+
+	/**
+	 * @param lane the index of the lane.
+	 * @return the number of Messages waiting in the lane.
+	 */
+	public int getLaneDepth(int lane) {
+		return this.lanes[lane].getDepth();
+	}
+
+	/**
+	 * @param lane the index of the lane.
+	 * @return the number of Messages the lane can accept without blocking.
+	 */
+	public int getLaneRemainingCapacity(int lane) {
+		return this.lanes[lane].queue.remainingCapacity();
+	}
+
+	/**
+	 * @param lane the index of the lane.
+	 * @return the number of Messages that have been handled by the lane, successfully
+	 * or not.
+	 */
+	public long getLaneHandledCount(int lane) {
+		return this.lanes[lane].handledCount.get();
+	}
+
+	/**
+	 * @param lane the index of the lane.
+	 * @return the number of sends that found the lane full and had to wait.
+	 */
+	public long getLaneBlockedCount(int lane) {
+		return this.lanes[lane].blockedCount.get();
+	}
+
+	/**
+	 * @param lane the index of the lane.
+	 * @return the number of sends that timed out because the lane was full.
+	 */
+	public long getLaneTimeoutCount(int lane) {
+		return this.lanes[lane].timeoutCount.get();
+	}
+
+	/**
+	 * @return the number of Messages waiting in all the lanes.
+	 */
+	public int getDepth() {
+		int depth = 0;
+		for (Lane lane : this.lanes) {
+			depth += lane.getDepth();
+		}
+		return depth;
+	}
+
+
+	/**
+	 * A bounded queue of Messages, drained by a single task at a time.
+	 */
+	private class Lane {
+
+		private final BlockingQueue<Message<?>> queue;
+
+		/**
+		 * Held by the task draining the lane; a task submitted by a restart waits for
+		 * the task of the previous generation to finish its current Message.
+		 */
+		private final Lock drainLock = new ReentrantLock();
+
+		/**
+		 * A Message taken from the queue by a task that was then stopped; handled
+		 * first by the next task.
+		 */
+		private volatile Message<?> pending;
+
+		private final AtomicLong handledCount = new AtomicLong();
+
+		private final AtomicLong blockedCount = new AtomicLong();
+
+		private final AtomicLong timeoutCount = new AtomicLong();
+
+		private Lane(int capacity) {
+			this.queue = new ArrayBlockingQueue<Message<?>>(capacity);
+		}
+
+		private boolean offer(Message<?> message, long timeout) {
+			if (this.queue.offer(message)) {
+				return true;
+			}
+			this.blockedCount.incrementAndGet();
+			long deadline = System.currentTimeMillis() + timeout;
+			try {
+				while (true) {
+					assertNotDestroyed(message);
+					long wait = LIFECYCLE_CHECK_INTERVAL;
+					if (timeout >= 0) {
+						wait = Math.min(deadline - System.currentTimeMillis(), wait);
+						if (wait <= 0) {
+							this.timeoutCount.incrementAndGet();
+							return false;
+						}
+					}
+					if (this.queue.offer(message, wait, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		private int getDepth() {
+			return this.queue.size() + (this.pending != null ? 1 : 0);
+		}
+
+		/**
+		 * Remove the Message if it has not been handled yet.
+		 */
+		private boolean discard(Message<?> message) {
+			if (this.queue.remove(message)) {
+				return true;
+			}
+			this.drainLock.lock();
+			try {
+				if (this.pending == message) {
+					this.pending = null;
+					return true;
+				}
+				return false;
+			}
+			finally {
+				this.drainLock.unlock();
+			}
+		}
+
+		private Runnable newTask(final int generation) {
+			return new Runnable() {
+
+				public void run() {
+					drain(generation);
+				}
+
+			};
+		}
+
+		private void drain(int generation) {
+			this.drainLock.lock();
+			try {
+				while (generation == PartitionedChannel.this.generation) {
+					Message<?> message = this.pending;
+					this.pending = null;
+					if (message == null) {
+						try {
+							message = this.queue.poll(LIFECYCLE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+						}
+						catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+						if (message == null) {
+							continue;
+						}
+					}
+					if (generation != PartitionedChannel.this.generation) {
+						// stopped while waiting for the Message
+						this.pending = message;
+						return;
+					}
+					this.handle(message);
+				}
+			}
+			finally {
+				this.drainLock.unlock();
+			}
+		}
+
+		private void handle(Message<?> message) {
+			try {
+				dispatcher.dispatch(message);
+			}
+			catch (Throwable t) {
+				try {
+					errorHandler.handleError(t);
+				}
+				catch (Throwable errorHandlerFailure) {
+					logger.error("Error handler failed to handle failure of Message " + message,
+							errorHandlerFailure);
+				}
+			}
+			finally {
+				this.handledCount.incrementAndGet();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.codec;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.support.converter.MessageConverter;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link MessageConverter} that converts messages to and from byte arrays with a
+ * {@link MessageCodec}, for example for a <code>MessageConvertingTcpMessageMapper</code>
+ * to send whole messages (headers included) over TCP.
+ *
+ * @since 3.0
+ */
+public class CodecMessageConverter implements MessageConverter {
+
+	private final MessageCodec codec;
+
+	public CodecMessageConverter() {
+		this(new MessageCodec());
+	}
+
+	public CodecMessageConverter(MessageCodec codec) {
+		Assert.notNull(codec, "'codec' must not be null");
+		this.codec = codec;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <P> Message<P> toMessage(Object object) {
+		Assert.isInstanceOf(byte[].class, object, "This converter only converts byte arrays");
+		return (Message<P>) this.codec.decode((byte[]) object);
+	}
+
+	public <P> Object fromMessage(Message<P> message) {
+		return this.codec.encode(message);
+	}
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.Date;
+import java.util.UUID;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+
+/**
+ * A {@link Serializer} and {@link Deserializer} that writes the common value types
+ * (String, the primitive wrappers, byte[], {@link UUID} and {@link Date}) as a type tag
+ * followed by a compact encoding of the value, and any other {@link Serializable} value
+ * with Java serialization. Used by the {@link MessageCodec} for header values and, by
+ * default, for payloads; it can also be used by the payload serializing and deserializing
+ * transformers.
+ *
+ * @since 3.0
+ */
+public class CompactSerializer implements Serializer<Object>, Deserializer<Object> {
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte INTEGER = 2;
+
+	private static final byte LONG = 3;
+
+	private static final byte TRUE = 4;
+
+	private static final byte FALSE = 5;
+
+	private static final byte DOUBLE = 6;
+
+	private static final byte FLOAT = 7;
+
+	private static final byte SHORT = 8;
+
+	private static final byte BYTE = 9;
+
+	private static final byte CHARACTER = 10;
+
+	private static final byte BYTE_ARRAY = 11;
+
+	private static final byte UUID_VALUE = 12;
+
+	private static final byte DATE = 13;
+
+	private static final byte SERIALIZED = 14;
+
+	private static final String CHARSET = "UTF-8";
+
+	private final ClassLoader classLoader;
+
+	public CompactSerializer() {
+		this(null);
+	}
+
+	/**
+	 * @param classLoader the class loader used to resolve the classes of values written
+	 * with Java serialization; the default class loader if null.
+	 */
+	public CompactSerializer(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	public void serialize(Object object, OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		this.write(object, out);
+		out.flush();
+	}
+
+	public Object deserialize(InputStream inputStream) throws IOException {
+		return this.read(new DataInputStream(inputStream));
+	}
+
+	/**
+	 * @return whether the value can be written: it is null, of one of the common types or
+	 * {@link Serializable}.
+	 */
+	public boolean canSerialize(Object value) {
+		return value == null || value instanceof Serializable;
+	}
+
+	void write(Object value, DataOutputStream out) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString((String) value, out);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			writeVarLong(zigZag((Integer) value), out);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG);
+			writeVarLong(zigZag((Long) value), out);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(((Boolean) value) ? TRUE : FALSE);
+		}
+		else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			out.writeByte(CHARACTER);
+			out.writeChar((Character) value);
+		}
+		else if (value instanceof byte[]) {
+			out.writeByte(BYTE_ARRAY);
+			writeBytes((byte[]) value, out);
+		}
+		else if (value instanceof UUID) {
+			out.writeByte(UUID_VALUE);
+			out.writeLong(((UUID) value).getMostSignificantBits());
+			out.writeLong(((UUID) value).getLeastSignificantBits());
+		}
+		else if (value.getClass() == Date.class) {
+			out.writeByte(DATE);
+			out.writeLong(((Date) value).getTime());
+		}
+		else if (value instanceof Serializable) {
+			out.writeByte(SERIALIZED);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes);
+			objectOutputStream.writeObject(value);
+			objectOutputStream.flush();
+			writeBytes(bytes.toByteArray(), out);
+		}
+		else {
+			throw new NotSerializableException(value.getClass().getName());
+		}
+	}
+
+	Object read(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(in);
+			case INTEGER:
+				return (int) unZigZag(readVarLong(in));
+			case LONG:
+				return unZigZag(readVarLong(in));
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case DOUBLE:
+				return in.readDouble();
+			case FLOAT:
+				return in.readFloat();
+			case SHORT:
+				return in.readShort();
+			case BYTE:
+				return in.readByte();
+			case CHARACTER:
+				return in.readChar();
+			case BYTE_ARRAY:
+				return readBytes(in);
+			case UUID_VALUE:
+				return new UUID(in.readLong(), in.readLong());
+			case DATE:
+				return new Date(in.readLong());
+			case SERIALIZED:
+				ConfigurableObjectInputStream objectInputStream =
+						new ConfigurableObjectInputStream(new ByteArrayInputStream(readBytes(in)), this.classLoader);
+				try {
+					return objectInputStream.readObject();
+				}
+				catch (ClassNotFoundException e) {
+					IOException exception = new IOException("Failed to deserialize value: " + e.getMessage());
+					exception.initCause(e);
+					throw exception;
+				}
+			default:
+				throw new StreamCorruptedException("Unknown value type " + type);
+		}
+	}
+
+	static void writeString(String value, DataOutputStream out) throws IOException {
+		writeBytes(value.getBytes(CHARSET), out);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		return new String(readBytes(in), CHARSET);
+	}
+
+	static void writeBytes(byte[] bytes, DataOutputStream out) throws IOException {
+		writeVarLong(bytes.length, out);
+		out.write(bytes);
+	}
+
+	static byte[] readBytes(DataInputStream in) throws IOException {
+		long length = readVarLong(in);
+		if (length < 0 || length > Integer.MAX_VALUE) {
+			throw new StreamCorruptedException("Invalid length " + length);
+		}
+		byte[] bytes = new byte[(int) length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Write an unsigned value in groups of 7 bits, least significant first, with the high
+	 * bit of each byte set if more bytes follow.
+	 */
+	static void writeVarLong(long value, DataOutputStream out) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Invalid variable-length value");
+	}
+
+	/**
+	 * Map signed values to unsigned ones so that small negative values are also short.
+	 */
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.history.MessageHistory;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * A compact binary {@link Serializer} and {@link Deserializer} for messages, for use by
+ * persistent message stores (for example with their <code>setSerializer()</code> and
+ * <code>setDeserializer()</code> methods), and by the {@link CodecMessageConverter}.
+ * <p>
+ * The id and timestamp are written as fixed fields, as are the correlation id, sequence
+ * number, sequence size, expiration date and priority when present; the name of any other
+ * header is written as its index in the header name dictionary if it has one (see
+ * {@link #setHeaderNames(List)}), otherwise as a string. Header values are written by a
+ * {@link CompactSerializer}; as with Java serialization of {@link MessageHeaders}, headers
+ * with values that cannot be serialized are not written. The payload is written by the
+ * {@link #setPayloadSerializer(Serializer) payloadSerializer}, a {@link CompactSerializer}
+ * by default. Messages whose encoding exceeds the {@link #setCompressionThreshold(int)
+ * compressionThreshold} are compressed.
+ * <p>
+ * A message must be decoded by a codec with the same header names and payload
+ * deserializer as the codec that encoded it. The decoded message has the id and timestamp
+ * of the encoded message.
+ *
+ * @since 3.0
+ */
+public class MessageCodec implements Serializer<Message<?>>, Deserializer<Message<?>> {
+
+	/**
+	 * The first byte of an encoded message; Java serialization streams start with 0xAC.
+	 */
+	private static final byte MAGIC = (byte) 0xC5;
+
+	private static final byte COMPRESSED = 1;
+
+	private static final int CORRELATION_ID = 1;
+
+	private static final int SEQUENCE_NUMBER = 2;
+
+	private static final int SEQUENCE_SIZE = 4;
+
+	private static final int EXPIRATION_DATE = 8;
+
+	private static final int PRIORITY = 16;
+
+	/**
+	 * The header names in the dictionary of every codec, before the configured names.
+	 */
+	private static final List<String> DEFAULT_HEADER_NAMES = Collections.unmodifiableList(Arrays.asList(
+			MessageHeaders.REPLY_CHANNEL, MessageHeaders.ERROR_CHANNEL, MessageHeaders.SEQUENCE_DETAILS,
+			MessageHeaders.CONTENT_TYPE, MessageHeaders.POSTPROCESS_RESULT, MessageHistory.HEADER_NAME));
+
+	private static final Field HEADERS_FIELD = ReflectionUtils.findField(MessageHeaders.class, "headers");
+
+	static {
+		ReflectionUtils.makeAccessible(HEADERS_FIELD);
+	}
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final CompactSerializer valueSerializer;
+
+	private volatile List<String> headerNames = DEFAULT_HEADER_NAMES;
+
+	private volatile Map<String, Integer> headerIndexes = indexes(DEFAULT_HEADER_NAMES);
+
+	private volatile Serializer<Object> payloadSerializer;
+
+	private volatile Deserializer<Object> payloadDeserializer;
+
+	private volatile int compressionThreshold = Integer.MAX_VALUE;
+
+	public MessageCodec() {
+		this(null);
+	}
+
+	/**
+	 * @param classLoader the class loader used to resolve the classes of values written
+	 * with Java serialization; the default class loader if null.
+	 */
+	public MessageCodec(ClassLoader classLoader) {
+		this.valueSerializer = new CompactSerializer(classLoader);
+		this.payloadSerializer = this.valueSerializer;
+		this.payloadDeserializer = this.valueSerializer;
+	}
+
+	/**
+	 * Header names that are written as their index in the dictionary instead of as
+	 * strings, in addition to the standard header names that are not written as fixed
+	 * fields. Names may be added to the end of the list without affecting the decoding of
+	 * messages that were encoded before, but not removed or reordered.
+	 */
+	public void setHeaderNames(List<String> headerNames) {
+		Assert.notNull(headerNames, "'headerNames' must not be null");
+		List<String> names = new ArrayList<String>(DEFAULT_HEADER_NAMES);
+		names.addAll(headerNames);
+		this.headerIndexes = indexes(names);
+		this.headerNames = names;
+	}
+
+	/**
+	 * The serializer for payloads. Default {@link CompactSerializer}.
+	 */
+	public void setPayloadSerializer(Serializer<Object> payloadSerializer) {
+		Assert.notNull(payloadSerializer, "'payloadSerializer' must not be null");
+		this.payloadSerializer = payloadSerializer;
+	}
+
+	/**
+	 * The deserializer for payloads; it may read the input stream to its end. Default
+	 * {@link CompactSerializer}.
+	 */
+	public void setPayloadDeserializer(Deserializer<Object> payloadDeserializer) {
+		Assert.notNull(payloadDeserializer, "'payloadDeserializer' must not be null");
+		this.payloadDeserializer = payloadDeserializer;
+	}
+
+	/**
+	 * The size in bytes above which an encoded message is compressed (with
+	 * {@link Deflater#BEST_SPEED}). Default {@link Integer#MAX_VALUE} (no compression).
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		Assert.isTrue(compressionThreshold >= 0, "'compressionThreshold' must not be negative");
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	public byte[] encode(Message<?> message) {
+		return this.encode(message, null);
+	}
+
+	/**
+	 * Encode the message as if it had the additional headers, without building a new
+	 * message; the additional headers do not replace the id or timestamp.
+	 */
+	public byte[] encode(Message<?> message, Map<String, ?> additionalHeaders) {
+		Assert.notNull(message, "'message' must not be null");
+		try {
+			return this.toBytes(message, additionalHeaders);
+		}
+		catch (IOException e) {
+			throw new SerializationFailedException("Failed to encode message " + message.getHeaders().getId(), e);
+		}
+	}
+
+	public Message<?> decode(byte[] bytes) {
+		Assert.notNull(bytes, "'bytes' must not be null");
+		try {
+			return this.deserialize(new ByteArrayInputStream(bytes));
+		}
+		catch (IOException e) {
+			throw new SerializationFailedException("Failed to decode message", e);
+		}
+	}
+
+	/**
+	 * @return whether the bytes start like a message encoded by this codec.
+	 */
+	public boolean isEncodedMessage(byte[] bytes) {
+		return bytes != null && bytes.length > 2 && bytes[0] == MAGIC;
+	}
+
+	public void serialize(Message<?> message, OutputStream outputStream) throws IOException {
+		Assert.notNull(message, "'message' must not be null");
+		outputStream.write(this.toBytes(message, null));
+	}
+
+	public Message<?> deserialize(InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		if (in.readByte() != MAGIC) {
+			throw new StreamCorruptedException("Not an encoded message");
+		}
+		if ((in.readByte() & COMPRESSED) != 0) {
+			in = new DataInputStream(new InflaterInputStream(in));
+		}
+		return this.readMessage(in);
+	}
+
+	private byte[] toBytes(Message<?> message, Map<String, ?> additionalHeaders) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(MAGIC);
+		out.writeByte(0);
+		this.writeMessage(message, additionalHeaders, out);
+		out.flush();
+		if (bytes.size() > this.compressionThreshold) {
+			return this.compress(bytes.toByteArray());
+		}
+		return bytes.toByteArray();
+	}
+
+	private void writeMessage(Message<?> message, Map<String, ?> additionalHeaders, DataOutputStream out)
+			throws IOException {
+		MessageHeaders headers = message.getHeaders();
+		UUID id = headers.getId();
+		out.writeLong(id.getMostSignificantBits());
+		out.writeLong(id.getLeastSignificantBits());
+		out.writeLong(headers.getTimestamp());
+		Object correlationId = headers.getCorrelationId();
+		Object sequenceNumber = headers.get(MessageHeaders.SEQUENCE_NUMBER);
+		Object sequenceSize = headers.get(MessageHeaders.SEQUENCE_SIZE);
+		Object expirationDate = headers.get(MessageHeaders.EXPIRATION_DATE);
+		Object priority = headers.get(MessageHeaders.PRIORITY);
+		int fields = 0;
+		if (correlationId != null && this.valueSerializer.canSerialize(correlationId)) {
+			fields |= CORRELATION_ID;
+		}
+		if (sequenceNumber instanceof Integer) {
+			fields |= SEQUENCE_NUMBER;
+		}
+		if (sequenceSize instanceof Integer) {
+			fields |= SEQUENCE_SIZE;
+		}
+		if (expirationDate instanceof Long) {
+			fields |= EXPIRATION_DATE;
+		}
+		if (priority instanceof Integer) {
+			fields |= PRIORITY;
+		}
+		out.writeByte(fields);
+		if ((fields & CORRELATION_ID) != 0) {
+			this.valueSerializer.write(correlationId, out);
+		}
+		if ((fields & SEQUENCE_NUMBER) != 0) {
+			CompactSerializer.writeVarLong((Integer) sequenceNumber & 0xFFFFFFFFL, out);
+		}
+		if ((fields & SEQUENCE_SIZE) != 0) {
+			CompactSerializer.writeVarLong((Integer) sequenceSize & 0xFFFFFFFFL, out);
+		}
+		if ((fields & EXPIRATION_DATE) != 0) {
+			out.writeLong((Long) expirationDate);
+		}
+		if ((fields & PRIORITY) != 0) {
+			CompactSerializer.writeVarLong((Integer) priority & 0xFFFFFFFFL, out);
+		}
+
+		List<Entry<String, ?>> otherHeaders = new ArrayList<Entry<String, ?>>(headers.size());
+		for (Entry<String, Object> header : headers.entrySet()) {
+			if (!isFixedField(header.getKey(), fields)
+					&& (additionalHeaders == null || !additionalHeaders.containsKey(header.getKey()))) {
+				this.addHeader(header, otherHeaders);
+			}
+		}
+		if (additionalHeaders != null) {
+			for (Entry<String, ?> header : additionalHeaders.entrySet()) {
+				if (!MessageHeaders.ID.equals(header.getKey()) && !MessageHeaders.TIMESTAMP.equals(header.getKey())) {
+					this.addHeader(header, otherHeaders);
+				}
+			}
+		}
+		CompactSerializer.writeVarLong(otherHeaders.size(), out);
+		for (Entry<String, ?> header : otherHeaders) {
+			Integer index = this.headerIndexes.get(header.getKey());
+			if (index != null) {
+				CompactSerializer.writeVarLong(index + 1, out);
+			}
+			else {
+				out.writeByte(0);
+				CompactSerializer.writeString(header.getKey(), out);
+			}
+			this.valueSerializer.write(header.getValue(), out);
+		}
+		this.payloadSerializer.serialize(message.getPayload(), out);
+	}
+
+	private void addHeader(Entry<String, ?> header, List<Entry<String, ?>> headers) {
+		if (this.valueSerializer.canSerialize(header.getValue())) {
+			headers.add(header);
+		}
+		else if (logger.isInfoEnabled()) {
+			logger.info("removing non-serializable header: " + header.getKey());
+		}
+	}
+
+	private static boolean isFixedField(String name, int fields) {
+		return MessageHeaders.ID.equals(name) || MessageHeaders.TIMESTAMP.equals(name)
+				|| ((fields & CORRELATION_ID) != 0 && MessageHeaders.CORRELATION_ID.equals(name))
+				|| ((fields & SEQUENCE_NUMBER) != 0 && MessageHeaders.SEQUENCE_NUMBER.equals(name))
+				|| ((fields & SEQUENCE_SIZE) != 0 && MessageHeaders.SEQUENCE_SIZE.equals(name))
+				|| ((fields & EXPIRATION_DATE) != 0 && MessageHeaders.EXPIRATION_DATE.equals(name))
+				|| ((fields & PRIORITY) != 0 && MessageHeaders.PRIORITY.equals(name));
+	}
+
+	private Message<?> readMessage(DataInputStream in) throws IOException {
+		UUID id = new UUID(in.readLong(), in.readLong());
+		long timestamp = in.readLong();
+		int fields = in.readUnsignedByte();
+		Map<String, Object> headers = new HashMap<String, Object>();
+		if ((fields & CORRELATION_ID) != 0) {
+			headers.put(MessageHeaders.CORRELATION_ID, this.valueSerializer.read(in));
+		}
+		if ((fields & SEQUENCE_NUMBER) != 0) {
+			headers.put(MessageHeaders.SEQUENCE_NUMBER, (int) CompactSerializer.readVarLong(in));
+		}
+		if ((fields & SEQUENCE_SIZE) != 0) {
+			headers.put(MessageHeaders.SEQUENCE_SIZE, (int) CompactSerializer.readVarLong(in));
+		}
+		if ((fields & EXPIRATION_DATE) != 0) {
+			headers.put(MessageHeaders.EXPIRATION_DATE, in.readLong());
+		}
+		if ((fields & PRIORITY) != 0) {
+			headers.put(MessageHeaders.PRIORITY, (int) CompactSerializer.readVarLong(in));
+		}
+		List<String> headerNames = this.headerNames;
+		long count = CompactSerializer.readVarLong(in);
+		for (long i = 0; i < count; i++) {
+			long index = CompactSerializer.readVarLong(in);
+			String name;
+			if (index == 0) {
+				name = CompactSerializer.readString(in);
+			}
+			else if (index <= headerNames.size()) {
+				name = headerNames.get((int) index - 1);
+			}
+			else {
+				throw new StreamCorruptedException("Unknown header name index " + index
+						+ "; the message was encoded with different header names");
+			}
+			headers.put(name, this.valueSerializer.read(in));
+		}
+		Object payload = this.payloadDeserializer.deserialize(in);
+		GenericMessage<Object> message = new GenericMessage<Object>(payload, headers);
+		@SuppressWarnings("unchecked")
+		Map<String, Object> innerMap = (Map<String, Object>) ReflectionUtils.getField(HEADERS_FIELD, message.getHeaders());
+		// the id and timestamp are generated when MessageHeaders are created
+		innerMap.put(MessageHeaders.ID, id);
+		innerMap.put(MessageHeaders.TIMESTAMP, timestamp);
+		return message;
+	}
+
+	private byte[] compress(byte[] bytes) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2);
+		compressed.write(MAGIC);
+		compressed.write(COMPRESSED);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater);
+			out.write(bytes, 2, bytes.length - 2);
+			out.finish();
+		}
+		finally {
+			deflater.end();
+		}
+		return compressed.toByteArray();
+	}
+
+	private static Map<String, Integer> indexes(List<String> names) {
+		Map<String, Integer> indexes = new HashMap<String, Integer>();
+		for (int i = 0; i < names.size(); i++) {
+			indexes.put(names.get(i), i);
+		}
+		return indexes;
+	}
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Provides classes for the compact binary encoding of messages.
+ */
+package org.springframework.integration.codec;
\ No newline at end of file
@@ -49,6 +49,7 @@ import org.springframework.integration.config.xml.ChannelInitializer.AutoCreateC
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.context.IntegrationProperties;
 import org.springframework.integration.expression.IntegrationEvaluationContextAwareBeanPostProcessor;
+import org.springframework.integration.support.channel.ChannelResolverCache;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
@@ -85,6 +86,7 @@ public abstract class AbstractIntegrationNamespaceHandler implements NamespaceHa
 		this.registerIntegrationEvaluationContext(parserContext);
 		this.registerIntegrationProperties(parserContext);
 		this.registerHeaderChannelRegistry(parserContext);
+		this.registerChannelResolverCache(parserContext);
 		this.registerBuiltInBeans(parserContext);
 		this.registerDefaultConfiguringBeanFactoryPostProcessorIfNecessary(parserContext);
 		return this.delegate.parse(element, parserContext);
@@ -297,6 +299,20 @@ public abstract class AbstractIntegrationNamespaceHandler implements NamespaceHa
 		}
 	}
 
+	/**
+	 * Register a ChannelResolverCache in the given BeanDefinitionRegistry, if necessary. Unlike
+	 * other infrastructure beans, it is not inherited from a parent context.
+	 */
+	private void registerChannelResolverCache(ParserContext parserContext) {
+		String beanName = IntegrationContextUtils.INTEGRATION_CHANNEL_RESOLVER_CACHE_BEAN_NAME;
+		if (!parserContext.getRegistry().containsBeanDefinition(beanName)) {
+			RootBeanDefinition cacheDefinition = new RootBeanDefinition(ChannelResolverCache.class);
+			cacheDefinition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+			BeanDefinitionReaderUtils.registerBeanDefinition(new BeanDefinitionHolder(cacheDefinition, beanName),
+					parserContext.getRegistry());
+		}
+	}
+
 
 	protected final void registerBeanDefinitionDecorator(String elementName, BeanDefinitionDecorator decorator) {
 		this.delegate.doRegisterBeanDefinitionDecorator(elementName, decorator);
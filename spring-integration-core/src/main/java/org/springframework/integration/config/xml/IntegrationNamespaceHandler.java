@@ -31,6 +31,7 @@ public class IntegrationNamespaceHandler extends AbstractIntegrationNamespaceHan
 	public void init() {
 		registerBeanDefinitionParser("channel", new PointToPointChannelParser());
 		registerBeanDefinitionParser("publish-subscribe-channel", new PublishSubscribeChannelParser());
+		registerBeanDefinitionParser("partitioned-channel", new PartitionedChannelParser());
 		registerBeanDefinitionParser("service-activator", new ServiceActivatorParser());
 		registerBeanDefinitionParser("transformer", new TransformerParser());
 		registerBeanDefinitionParser("enricher", new EnricherParser());
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.config.xml;
+
+import org.w3c.dom.Element;
+
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.integration.aggregator.ExpressionEvaluatingCorrelationStrategy;
+import org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy;
+import org.springframework.integration.channel.PartitionedChannel;
+import org.springframework.util.StringUtils;
+
+/**
+ * Parser for the &lt;partitioned-channel&gt; element.
+ *
+ * @since 3.0
+ */
+public class PartitionedChannelParser extends AbstractChannelParser {
+
+	@Override
+	protected BeanDefinitionBuilder buildBeanDefinition(Element element, ParserContext parserContext) {
+		BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(PartitionedChannel.class);
+		builder.addConstructorArgValue(element.getAttribute("lanes"));
+		String laneCapacity = element.getAttribute("lane-capacity");
+		builder.addConstructorArgValue(StringUtils.hasText(laneCapacity)
+				? laneCapacity : PartitionedChannel.DEFAULT_LANE_CAPACITY);
+		String partitionKeyHeader = element.getAttribute("partition-key-header");
+		String partitionKeyExpression = element.getAttribute("partition-key-expression");
+		if (StringUtils.hasText(partitionKeyHeader) && StringUtils.hasText(partitionKeyExpression)) {
+			parserContext.getReaderContext().error(
+					"The 'partition-key-header' and 'partition-key-expression' attributes are mutually exclusive.",
+					element);
+		}
+		else if (StringUtils.hasText(partitionKeyHeader)) {
+			builder.addPropertyValue("partitionKeyStrategy", BeanDefinitionBuilder
+					.genericBeanDefinition(HeaderAttributeCorrelationStrategy.class)
+					.addConstructorArgValue(partitionKeyHeader)
+					.getBeanDefinition());
+		}
+		else if (StringUtils.hasText(partitionKeyExpression)) {
+			builder.addPropertyValue("partitionKeyStrategy", BeanDefinitionBuilder
+					.genericBeanDefinition(ExpressionEvaluatingCorrelationStrategy.class)
+					.addConstructorArgValue(partitionKeyExpression)
+					.getBeanDefinition());
+		}
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "error-handler");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "task-executor");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "failover");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "max-subscribers");
+		return builder;
+	}
+
+}
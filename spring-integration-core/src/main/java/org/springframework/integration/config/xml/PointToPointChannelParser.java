@@ -23,12 +23,14 @@ import org.w3c.dom.Element;
 import org.springframework.beans.factory.config.TypedStringValue;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.ExecutorChannel;
 import org.springframework.integration.channel.PriorityChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.channel.RendezvousChannel;
 import org.springframework.integration.store.MessageGroupQueue;
+import org.springframework.integration.store.SpillingMessageQueue;
 import org.springframework.util.StringUtils;
 import org.springframework.util.xml.DomUtils;
 
@@ -55,7 +57,18 @@ public class PointToPointChannelParser extends AbstractChannelParser {
 			builder = BeanDefinitionBuilder.genericBeanDefinition(QueueChannel.class);
 			boolean hasStoreRef = this.parseStoreRef(builder, queueElement, element.getAttribute(ID_ATTRIBUTE));
 			boolean hasQueueRef = this.parseQueueRef(builder, queueElement);
-			if (!hasStoreRef) {
+			boolean hasSpillDirectory = StringUtils.hasText(queueElement.getAttribute("spill-directory"));
+			if (hasSpillDirectory) {
+				if (hasStoreRef || hasQueueRef) {
+					parserContext.getReaderContext().error(
+							"The 'spill-directory' attribute is not allowed"
+									+ " with a 'message-store' or a 'ref' to a custom queue.", element);
+				}
+				else {
+					this.parseSpillDirectory(builder, queueElement);
+				}
+			}
+			else if (!hasStoreRef) {
 				boolean hasCapacity = this.parseQueueCapacity(builder, queueElement);
 				if (hasCapacity && hasQueueRef) {
 					parserContext.getReaderContext().error(
@@ -130,9 +143,18 @@ public class PointToPointChannelParser extends AbstractChannelParser {
 			if (StringUtils.hasText(taskExecutor)) {
 				builder = BeanDefinitionBuilder.genericBeanDefinition(ExecutorChannel.class);
 				builder.addConstructorArgReference(taskExecutor);
+				this.parseWorkQueues(builder, dispatcherElement);
 			}
 			else {
 				builder = BeanDefinitionBuilder.genericBeanDefinition(DirectChannel.class);
+				if (dispatcherElement.hasAttribute("work-queues") || dispatcherElement.hasAttribute("batch-size")
+						|| dispatcherElement.hasAttribute("work-queue-capacity")
+						|| dispatcherElement.hasAttribute("work-queue-full-timeout")
+						|| dispatcherElement.hasAttribute("partition-key-header")) {
+					parserContext.getReaderContext().error(
+							"The 'work-queues', 'batch-size', 'work-queue-capacity', 'work-queue-full-timeout'"
+									+ " and 'partition-key-header' attributes require a 'task-executor'.", element);
+				}
 			}
 			// unless the 'load-balancer' attribute is explicitly set to 'none',
 			// configure the default RoundRobinLoadBalancingStrategy
@@ -146,6 +168,20 @@ public class PointToPointChannelParser extends AbstractChannelParser {
 		return builder;
 	}
 
+	private void parseWorkQueues(BeanDefinitionBuilder builder, Element dispatcherElement) {
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, dispatcherElement, "work-queues");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, dispatcherElement, "batch-size");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, dispatcherElement, "work-queue-capacity");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, dispatcherElement, "work-queue-full-timeout");
+		String partitionKeyHeader = dispatcherElement.getAttribute("partition-key-header");
+		if (StringUtils.hasText(partitionKeyHeader)) {
+			builder.addPropertyValue("partitionKeyStrategy", BeanDefinitionBuilder
+					.genericBeanDefinition(HeaderAttributeCorrelationStrategy.class)
+					.addConstructorArgValue(partitionKeyHeader)
+					.getBeanDefinition());
+		}
+	}
+
 	private boolean parseQueueCapacity(BeanDefinitionBuilder builder, Element queueElement) {
 		String capacity = queueElement.getAttribute("capacity");
 		if (StringUtils.hasText(capacity)) {
@@ -164,6 +200,14 @@ public class PointToPointChannelParser extends AbstractChannelParser {
 		return false;
 	}
 
+	private void parseSpillDirectory(BeanDefinitionBuilder builder, Element queueElement) {
+		BeanDefinitionBuilder queueBuilder = BeanDefinitionBuilder
+				.genericBeanDefinition(SpillingMessageQueue.class);
+		queueBuilder.addConstructorArgValue(queueElement.getAttribute("spill-directory"));
+		parseQueueCapacity(queueBuilder, queueElement);
+		builder.addConstructorArgValue(queueBuilder.getBeanDefinition());
+	}
+
 	private boolean parseStoreRef(BeanDefinitionBuilder builder, Element queueElement, String channel) {
 		String storeRef = queueElement.getAttribute("message-store");
 		if (StringUtils.hasText(storeRef)) {
@@ -51,6 +51,8 @@ public abstract class IntegrationContextUtils {
 
 	public static final String INTEGRATION_GLOBAL_PROPERTIES_BEAN_NAME = "integrationGlobalProperties";
 
+	public static final String INTEGRATION_CHANNEL_RESOLVER_CACHE_BEAN_NAME = "integrationChannelResolverCache";
+
 	/**
 	 * Return the {@link MetadataStore} bean whose name is "metadataStore".
 	 * @param beanFactory BeanFactory for lookup, must not be null.
@@ -53,6 +53,13 @@ public final class IntegrationProperties {
 	 */
 	public static final String CHANNELS_MAX_BROADCAST_SUBSCRIBERS = "channels.maxBroadcastSubscribers";
 
+	/**
+	 * Specifies whether {@link org.springframework.integration.channel.DirectChannel}s use flattened dispatch
+	 * (see {@link org.springframework.integration.channel.DirectChannel#setFlattenDispatch}), if it isn't
+	 * configured on the channel component.
+	 */
+	public static final String CHANNELS_FLATTEN_DIRECT_DISPATCH = "channels.flattenDirectDispatch";
+
 	/**
 	 * Specifies the value of {@link org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler#poolSize}
 	 * for {@code taskScheduler} bean initialized but Integration infrastructure.
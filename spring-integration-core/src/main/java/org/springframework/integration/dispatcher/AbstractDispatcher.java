@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,6 +47,8 @@ public abstract class AbstractDispatcher implements MessageDispatcher {
 	private final OrderedAwareCopyOnWriteArraySet<MessageHandler> handlers =
 			new OrderedAwareCopyOnWriteArraySet<MessageHandler>();
 
+	private volatile MessageHandler[] handlerArray = new MessageHandler[0];
+
 	/**
 	 * Set the maximum subscribers allowed by this dispatcher.
 	 * @param maxSubscribers
@@ -63,6 +65,16 @@ public abstract class AbstractDispatcher implements MessageDispatcher {
 		return handlers.asUnmodifiableSet();
 	}
 
+	/**
+	 * Returns a snapshot of this dispatcher's handlers, in order, that is replaced
+	 * rather than modified when a handler is added or removed, so it can be used
+	 * without locking or copying. The array must not be modified.
+	 * @since 3.0
+	 */
+	protected MessageHandler[] getHandlerArray() {
+		return this.handlerArray;
+	}
+
 	/**
 	 * Add the handler to the internal Set.
 	 *
@@ -70,8 +82,12 @@ public abstract class AbstractDispatcher implements MessageDispatcher {
 	 */
 	public boolean addHandler(MessageHandler handler) {
 		Assert.notNull(handler, "handler must not be null");
-		Assert.isTrue(this.handlers.size() < this.maxSubscribers, "Maximum subscribers exceeded");
-		return this.handlers.add(handler);
+		synchronized (this.handlers) {
+			Assert.isTrue(this.handlers.size() < this.maxSubscribers, "Maximum subscribers exceeded");
+			boolean added = this.handlers.add(handler);
+			this.handlerArray = this.handlers.toArray(new MessageHandler[0]);
+			return added;
+		}
 	}
 
 	/**
@@ -81,7 +97,11 @@ public abstract class AbstractDispatcher implements MessageDispatcher {
 	 */
 	public boolean removeHandler(MessageHandler handler) {
 		Assert.notNull(handler, "handler must not be null");
-		return this.handlers.remove(handler);
+		synchronized (this.handlers) {
+			boolean removed = this.handlers.remove(handler);
+			this.handlerArray = this.handlers.toArray(new MessageHandler[0]);
+			return removed;
+		}
 	}
 
 	@Override
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.dispatcher;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.aggregator.CorrelationStrategy;
+import org.springframework.util.Assert;
+
+/**
+ * Selects one of a fixed number of partitions for a Message by hashing its partition
+ * key, so that Messages with the same key always get the same partition. Messages with
+ * a null key, and all Messages if there is no
+ * {@link #setPartitionKeyStrategy(CorrelationStrategy) partition key strategy}, are
+ * distributed over the partitions in turn.
+ *
+ * @since 3.0
+ */
+public class PartitionSelector {
+
+	private final int partitionCount;
+
+	private final AtomicInteger nextPartition = new AtomicInteger();
+
+	private volatile CorrelationStrategy partitionKeyStrategy;
+
+
+	/**
+	 * @param partitionCount the number of partitions.
+	 */
+	public PartitionSelector(int partitionCount) {
+		Assert.isTrue(partitionCount > 0, "partitionCount must be greater than 0");
+		this.partitionCount = partitionCount;
+	}
+
+
+	/**
+	 * Set the strategy that determines the partition key of a Message.
+	 * @param partitionKeyStrategy the strategy; for example a
+	 * {@link org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy}.
+	 */
+	public void setPartitionKeyStrategy(CorrelationStrategy partitionKeyStrategy) {
+		this.partitionKeyStrategy = partitionKeyStrategy;
+	}
+
+	public int getPartitionCount() {
+		return this.partitionCount;
+	}
+
+	/**
+	 * @param message the Message.
+	 * @return the index of the partition of the Message, from 0 to the number of
+	 * partitions, exclusive.
+	 */
+	public int selectPartition(Message<?> message) {
+		CorrelationStrategy partitionKeyStrategy = this.partitionKeyStrategy;
+		Object key = partitionKeyStrategy == null ? null : partitionKeyStrategy.getCorrelationKey(message);
+		int hash;
+		if (key == null) {
+			hash = this.nextPartition.getAndIncrement();
+		}
+		else {
+			hash = key.hashCode();
+			// spread the high bits, which are otherwise lost for small partition counts
+			hash ^= (hash >>> 16);
+		}
+		return (hash & Integer.MAX_VALUE) % this.partitionCount;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -82,9 +82,10 @@ public class RoundRobinLoadBalancingStrategy implements LoadBalancingStrategy {
 	/**
 	 * Keeps track of the last index over multiple dispatches. Each invocation
 	 * of this method will increment the index by one, overflowing at
-	 * <code>size</code>.
+	 * <code>size</code>. Also used directly by the {@link UnicastingDispatcher},
+	 * which then iterates over its handlers in place.
 	 */
-	private int getNextHandlerStartIndex(int size) {
+	int getNextHandlerStartIndex(int size) {
 		if (size > 0){
 			int indexTail = currentHandlerIndex.getAndIncrement() % size;
 			return indexTail < 0 ? indexTail + size : indexTail;
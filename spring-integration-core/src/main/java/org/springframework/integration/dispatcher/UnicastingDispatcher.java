@@ -19,9 +19,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Executor;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageDeliveryException;
@@ -42,6 +39,9 @@ import org.springframework.integration.core.MessageHandler;
  * <p>
  * A load-balancing strategy may be provided to this class to control the order in
  * which the handlers will be tried.
+ * <p>
+ * Handlers are dispatched to from a snapshot that is replaced whenever a handler is
+ * subscribed or unsubscribed, so a dispatch never waits for a subscription change.
  *
  * @author Iwein Fuld
  * @author Mark Fisher
@@ -52,7 +52,6 @@ import org.springframework.integration.core.MessageHandler;
 public class UnicastingDispatcher extends AbstractDispatcher {
 
 	private volatile boolean failover = true;
-	private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
 	private volatile LoadBalancingStrategy loadBalancingStrategy;
 
 	private final Executor executor;
@@ -80,17 +79,19 @@ public class UnicastingDispatcher extends AbstractDispatcher {
 	 * Provide a {@link LoadBalancingStrategy} for this dispatcher.
 	 */
 	public void setLoadBalancingStrategy(LoadBalancingStrategy loadBalancingStrategy) {
-		Lock lock = rwLock.writeLock();
-		lock.lock();
-		try {
-			this.loadBalancingStrategy = loadBalancingStrategy;
-		}
-		finally {
-			lock.unlock();
-		}
+		this.loadBalancingStrategy = loadBalancingStrategy;
+	}
+
+	/**
+	 * @return the handler if this dispatcher has exactly one, otherwise null.
+	 * @since 3.0
+	 */
+	public MessageHandler getSingleHandler() {
+		MessageHandler[] handlers = this.getHandlerArray();
+		return handlers.length == 1 ? handlers[0] : null;
 	}
 
-	public final boolean dispatch(final Message<?> message) {
+	public boolean dispatch(final Message<?> message) {
 		if (this.executor != null) {
 			this.executor.execute(new Runnable() {
 				public void run() {
@@ -102,13 +103,55 @@ public class UnicastingDispatcher extends AbstractDispatcher {
 		return this.doDispatch(message);
 	}
 
+	/**
+	 * Dispatches to the handlers from a snapshot of the handler array; with no
+	 * load-balancing strategy or a {@link RoundRobinLoadBalancingStrategy} (but not a
+	 * subclass of it), the handlers are tried in place, so dispatching requires neither
+	 * a lock nor, unless a handler fails, any allocation.
+	 */
 	private boolean doDispatch(Message<?> message) {
+		MessageHandler[] handlers = this.getHandlerArray();
+		int size = handlers.length;
+		if (size == 0) {
+			throw new MessageDispatchingException(message, "Dispatcher has no subscribers");
+		}
+		LoadBalancingStrategy loadBalancingStrategy = this.loadBalancingStrategy;
+		int startIndex = 0;
+		if (loadBalancingStrategy != null && loadBalancingStrategy.getClass() == RoundRobinLoadBalancingStrategy.class) {
+			startIndex = ((RoundRobinLoadBalancingStrategy) loadBalancingStrategy).getNextHandlerStartIndex(size);
+		}
+		else if (loadBalancingStrategy != null) {
+			return this.doDispatch(message, loadBalancingStrategy.getHandlerIterator(message, this.getHandlers()));
+		}
+		List<RuntimeException> exceptions = null;
+		for (int i = 0; i < size; i++) {
+			int index = startIndex + i;
+			MessageHandler handler = handlers[index < size ? index : index - size];
+			try {
+				handler.handleMessage(message);
+				return true; // we have a winner.
+			}
+			catch (Exception e) {
+				if (exceptions == null) {
+					exceptions = new ArrayList<RuntimeException>(size);
+				}
+				exceptions.add(this.toRuntimeException(e, message));
+				this.handleExceptions(exceptions, message, i == size - 1);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Dispatches to the handlers in the order determined by a custom
+	 * {@link LoadBalancingStrategy}.
+	 */
+	private boolean doDispatch(Message<?> message, Iterator<MessageHandler> handlerIterator) {
 		boolean success = false;
-		Iterator<MessageHandler> handlerIterator = this.getHandlerIterator(message);
 		if (!handlerIterator.hasNext()) {
 			throw new MessageDispatchingException(message, "Dispatcher has no subscribers");
 		}
-		List<RuntimeException> exceptions = new ArrayList<RuntimeException>();
+		List<RuntimeException> exceptions = null;
 		while (success == false && handlerIterator.hasNext()) {
 			MessageHandler handler = handlerIterator.next();
 			try {
@@ -116,37 +159,26 @@ public class UnicastingDispatcher extends AbstractDispatcher {
 				success = true; // we have a winner.
 			}
 			catch (Exception e) {
-				RuntimeException runtimeException = (e instanceof RuntimeException)
-						? (RuntimeException) e
-						: new MessageDeliveryException(message,
-								"Dispatcher failed to deliver Message.", e);
-				if (e instanceof MessagingException &&
-						((MessagingException) e).getFailedMessage() == null) {
-					((MessagingException) e).setFailedMessage(message);
+				if (exceptions == null) {
+					exceptions = new ArrayList<RuntimeException>();
 				}
-				exceptions.add(runtimeException);
+				exceptions.add(this.toRuntimeException(e, message));
 				this.handleExceptions(exceptions, message, !handlerIterator.hasNext());
 			}
 		}
 		return success;
 	}
 
-	/**
-	 * Returns the iterator that will be used to loop over the handlers.
-	 * Delegates to a {@link LoadBalancingStrategy} if available. Otherwise,
-	 * it simply returns the Iterator for the existing handler List.
-	 */
-	private Iterator<MessageHandler> getHandlerIterator(Message<?> message) {
-		Lock lock = rwLock.readLock();
-		lock.lock();
-		try {
-			if (this.loadBalancingStrategy != null) {
-				return this.loadBalancingStrategy.getHandlerIterator(message, this.getHandlers());
-			}
-		} finally {
-			lock.unlock();
+	private RuntimeException toRuntimeException(Exception e, Message<?> message) {
+		RuntimeException runtimeException = (e instanceof RuntimeException)
+				? (RuntimeException) e
+				: new MessageDeliveryException(message,
+						"Dispatcher failed to deliver Message.", e);
+		if (e instanceof MessagingException &&
+				((MessagingException) e).getFailedMessage() == null) {
+			((MessagingException) e).setFailedMessage(message);
 		}
-		return this.getHandlers().iterator();
+		return runtimeException;
 	}
 
 	/**
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.dispatcher;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.aggregator.CorrelationStrategy;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * A {@link UnicastingDispatcher} that, rather than submitting a task to its
+ * {@link Executor} for each Message, adds the Message to one of a fixed number of work
+ * queues. Each queue is drained by at most one task at a time, in batches of up to
+ * {@link #setBatchSize(int) batchSize} Messages; a task is only submitted to the Executor
+ * when a queue becomes non-empty, or to resume draining after a full batch. A task that
+ * has drained its own queue steals any other queue whose task is still waiting for a
+ * thread of the Executor, so idle threads pick up work that would otherwise wait behind
+ * a busy one.
+ * <p>
+ * By default, Messages are distributed over the queues in turn and may be handled in any
+ * order. With a {@link #setPartitionKeyStrategy(CorrelationStrategy) partition key
+ * strategy}, Messages with the same key (for example the correlation id) always go to
+ * the same queue and are therefore handled in the order they were dispatched; Messages
+ * with a null key are distributed in turn.
+ * <p>
+ * The queues are unbounded by default. With a {@link #setQueueCapacity(int) capacity},
+ * {@link #dispatch(Message)} waits for room in a full queue for up to the
+ * {@link #setQueueFullTimeout(long) queue full timeout}, indefinitely by default, and
+ * otherwise returns false, so that senders are slowed down to the rate at which the
+ * Messages are handled.
+ * <p>
+ * Since the Messages are handled after {@link #dispatch(Message)} has returned,
+ * exceptions are passed to the {@link #setErrorHandler(ErrorHandler) error handler}, if
+ * any, and otherwise logged; the rest of the batch is still handled.
+ *
+ * @since 3.0
+ */
+public class WorkStealingDispatcher extends UnicastingDispatcher {
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private static final int IDLE = 0;
+
+	private static final int SCHEDULED = 1;
+
+	private static final int RUNNING = 2;
+
+	private final Executor executor;
+
+	private final WorkQueue[] queues;
+
+	private final PartitionSelector partitionSelector;
+
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+	private volatile int queueCapacity = Integer.MAX_VALUE;
+
+	private volatile long queueFullTimeout = -1;
+
+	private volatile ErrorHandler errorHandler;
+
+	private final AtomicLong batchCount = new AtomicLong();
+
+	private final AtomicLong batchedMessageCount = new AtomicLong();
+
+	private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+	private final AtomicLong stealCount = new AtomicLong();
+
+
+	/**
+	 * Create a dispatcher with one work queue per available processor.
+	 * @param executor the executor that runs the tasks draining the queues.
+	 */
+	public WorkStealingDispatcher(Executor executor) {
+		this(executor, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param executor the executor that runs the tasks draining the queues.
+	 * @param queueCount the number of work queues, which is the maximum number of
+	 * Messages handled concurrently.
+	 */
+	public WorkStealingDispatcher(Executor executor, int queueCount) {
+		Assert.notNull(executor, "executor must not be null");
+		Assert.isTrue(queueCount > 0, "queueCount must be greater than 0");
+		this.executor = executor;
+		this.partitionSelector = new PartitionSelector(queueCount);
+		this.queues = new WorkQueue[queueCount];
+		for (int i = 0; i < queueCount; i++) {
+			this.queues[i] = new WorkQueue(i);
+		}
+	}
+
+
+	/**
+	 * Set the maximum number of Messages a task handles from a queue before it yields
+	 * its thread to other tasks of the Executor. Default {@value #DEFAULT_BATCH_SIZE}.
+	 * @param batchSize the batch size.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the maximum number of Messages waiting in each queue. Unbounded by default.
+	 * Must be set before the first Message is dispatched.
+	 * @param queueCapacity the capacity of each queue.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than 0");
+		this.queueCapacity = queueCapacity;
+		for (WorkQueue queue : this.queues) {
+			queue.permits = queueCapacity == Integer.MAX_VALUE ? null : new Semaphore(queueCapacity);
+		}
+	}
+
+	/**
+	 * Set how long {@link #dispatch(Message)} waits for room in a full queue, in
+	 * milliseconds. A negative value, the default, waits indefinitely, and 0 returns
+	 * false immediately. Only applies with a {@link #setQueueCapacity(int) capacity};
+	 * note that a handler dispatching to the same queue must not wait indefinitely.
+	 * @param queueFullTimeout the timeout.
+	 */
+	public void setQueueFullTimeout(long queueFullTimeout) {
+		this.queueFullTimeout = queueFullTimeout;
+	}
+
+	/**
+	 * Set the strategy that determines the partition key of a Message. Messages with
+	 * the same key are handled in the order they were dispatched. By default, Messages
+	 * are not partitioned and may be handled in any order.
+	 * @param partitionKeyStrategy the strategy; for example a
+	 * {@link org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy}.
+	 */
+	public void setPartitionKeyStrategy(CorrelationStrategy partitionKeyStrategy) {
+		this.partitionSelector.setPartitionKeyStrategy(partitionKeyStrategy);
+	}
+
+	/**
+	 * Set the handler for exceptions thrown while handling a Message. By default,
+	 * they are logged.
+	 * @param errorHandler the error handler.
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Add the Message to a work queue; it is handled by a task of the Executor.
+	 * @return true, unless the queue is still full when the
+	 * {@link #setQueueFullTimeout(long) queue full timeout} elapses or the thread is
+	 * interrupted while waiting. If the Executor rejects the task that drains the queue,
+	 * and no other task has taken the queue meanwhile, the exception is thrown and the
+	 * Message is not handled.
+	 */
+	@Override
+	public boolean dispatch(Message<?> message) {
+		return this.selectQueue(message).add(message);
+	}
+
+	private WorkQueue selectQueue(Message<?> message) {
+		return this.queues[this.partitionSelector.selectPartition(message)];
+	}
+
+	/**
+	 * Handle the Message on the current thread, with the failover and load-balancing
+	 * of the {@link UnicastingDispatcher}.
+	 */
+	private void handle(Message<?> message) {
+		try {
+			super.dispatch(message);
+		}
+		catch (Throwable t) {
+			ErrorHandler errorHandler = this.errorHandler;
+			if (errorHandler == null) {
+				logger.error("Failed to handle Message " + message, t);
+				return;
+			}
+			try {
+				errorHandler.handleError(t);
+			}
+			catch (Throwable errorHandlerFailure) {
+				logger.error("Error handler failed to handle failure of Message " + message, errorHandlerFailure);
+			}
+		}
+	}
+
+	/**
+	 * Drain the queues after the given one whose tasks have not started yet.
+	 */
+	private void steal(int index) {
+		for (int i = 1; i < this.queues.length; i++) {
+			WorkQueue queue = this.queues[(index + i) % this.queues.length];
+			if (queue.state.get() == SCHEDULED && queue.depth.get() > 0
+					&& queue.state.compareAndSet(SCHEDULED, RUNNING)) {
+				this.stealCount.incrementAndGet();
+				queue.drain();
+			}
+		}
+	}
+
+	private void recordBatch(int size) {
+		this.batchCount.incrementAndGet();
+		this.batchedMessageCount.addAndGet(size);
+		int max;
+		while (size > (max = this.maxBatchSize.get()) && !this.maxBatchSize.compareAndSet(max, size)) {
+		}
+	}
+
+	public int getQueueCount() {
+		return this.queues.length;
+	}
+
+	public int getQueueCapacity() {
+		return this.queueCapacity;
+	}
+
+	/**
+	 * @return the number of Messages waiting in all the queues.
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (WorkQueue queue : this.queues) {
+			depth += queue.depth.get();
+		}
+		return depth;
+	}
+
+	/**
+	 * @param index the index of the queue.
+	 * @return the number of Messages waiting in the queue.
+	 */
+	public int getQueueDepth(int index) {
+		return this.queues[index].depth.get();
+	}
+
+	/**
+	 * @return the number of batches that have been handled.
+	 */
+	public long getBatchCount() {
+		return this.batchCount.get();
+	}
+
+	/**
+	 * @return the number of Messages that have been handled.
+	 */
+	public long getBatchedMessageCount() {
+		return this.batchedMessageCount.get();
+	}
+
+	public double getMeanBatchSize() {
+		long batches = this.batchCount.get();
+		return batches == 0 ? 0 : (double) this.batchedMessageCount.get() / batches;
+	}
+
+	public int getMaxBatchSize() {
+		return this.maxBatchSize.get();
+	}
+
+	/**
+	 * @return the number of times a task drained a queue whose own task had not
+	 * started yet.
+	 */
+	public long getStealCount() {
+		return this.stealCount.get();
+	}
+
+
+	/**
+	 * A queue of Messages, which is also the task that drains it. Its state is
+	 * {@link WorkStealingDispatcher#IDLE} when no task is submitted to drain it,
+	 * {@link WorkStealingDispatcher#SCHEDULED} when a task has been submitted and
+	 * {@link WorkStealingDispatcher#RUNNING} while a thread, which may be one stealing
+	 * the work, drains it.
+	 */
+	private final class WorkQueue implements Runnable {
+
+		private final int index;
+
+		private final Queue<Message<?>> messages = new ConcurrentLinkedQueue<Message<?>>();
+
+		private final AtomicInteger depth = new AtomicInteger();
+
+		private final AtomicInteger state = new AtomicInteger(IDLE);
+
+		/**
+		 * Room left in the queue; null if it is unbounded.
+		 */
+		private volatile Semaphore permits;
+
+		private WorkQueue(int index) {
+			this.index = index;
+		}
+
+		private boolean add(Message<?> message) {
+			Semaphore permits = this.permits;
+			if (permits != null && !this.acquire(permits)) {
+				return false;
+			}
+			this.messages.offer(message);
+			this.depth.incrementAndGet();
+			if (this.state.compareAndSet(IDLE, SCHEDULED)) {
+				try {
+					executor.execute(this);
+				}
+				catch (RuntimeException e) {
+					// unless a stealing task has taken the queue, and with it the Message, meanwhile
+					if (this.state.compareAndSet(SCHEDULED, IDLE)) {
+						if (this.messages.remove(message)) {
+							this.depth.decrementAndGet();
+							this.release();
+						}
+						this.rescheduleAfterRejection();
+						throw e;
+					}
+				}
+			}
+			return true;
+		}
+
+		private boolean acquire(Semaphore permits) {
+			if (permits.tryAcquire()) {
+				return true;
+			}
+			long timeout = queueFullTimeout;
+			try {
+				if (timeout < 0) {
+					permits.acquire();
+					return true;
+				}
+				return timeout > 0 && permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		private void release() {
+			Semaphore permits = this.permits;
+			if (permits != null) {
+				permits.release();
+			}
+		}
+
+		/**
+		 * Messages added by other threads while the rejected task was scheduled did
+		 * not submit a task of their own; try once more to have them handled.
+		 */
+		private void rescheduleAfterRejection() {
+			if (this.messages.isEmpty() || !this.state.compareAndSet(IDLE, SCHEDULED)) {
+				return;
+			}
+			try {
+				executor.execute(this);
+			}
+			catch (RuntimeException e) {
+				if (this.state.compareAndSet(SCHEDULED, IDLE) && logger.isWarnEnabled()) {
+					logger.warn(this.depth.get() + " Message(s) of work queue " + this.index
+							+ " wait for the next dispatch, the Executor rejected the task: " + e);
+				}
+			}
+		}
+
+		public void run() {
+			if (this.state.compareAndSet(SCHEDULED, RUNNING)) {
+				this.drain();
+			}
+			steal(this.index);
+		}
+
+		/**
+		 * Handle the Messages of this queue, which must be in the running state, until
+		 * it is empty or a full batch has been handled.
+		 */
+		private void drain() {
+			int batchSize = WorkStealingDispatcher.this.batchSize;
+			while (true) {
+				int batch = 0;
+				Message<?> message;
+				while (batch < batchSize && (message = this.messages.poll()) != null) {
+					this.depth.decrementAndGet();
+					this.release();
+					batch++;
+					handle(message);
+				}
+				if (batch > 0) {
+					recordBatch(batch);
+				}
+				if (batch == batchSize && !this.messages.isEmpty()) {
+					// yield the thread to other tasks and resume with the next batch
+					this.state.set(SCHEDULED);
+					try {
+						executor.execute(this);
+						return;
+					}
+					catch (RuntimeException e) {
+						// rejected; carry on with this thread unless the work has been stolen
+						if (!this.state.compareAndSet(SCHEDULED, RUNNING)) {
+							return;
+						}
+						continue;
+					}
+				}
+				this.state.set(IDLE);
+				// a Message added before the state was reset did not submit a task
+				if (this.messages.isEmpty() || !this.state.compareAndSet(IDLE, RUNNING)) {
+					return;
+				}
+			}
+		}
+
+	}
+
+}
@@ -51,6 +51,9 @@ import org.springframework.integration.endpoint.AbstractEndpoint;
 import org.springframework.integration.history.TrackableComponent;
 import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
 import org.springframework.integration.support.channel.ChannelResolver;
+import org.springframework.integration.util.FutureCallback;
+import org.springframework.integration.util.ListenableFuture;
+import org.springframework.integration.util.SettableListenableFuture;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
@@ -64,6 +67,11 @@ import org.springframework.util.StringUtils;
  * This component is also aware of the {@link ConversionService} set on the enclosing {@link BeanFactory}
  * under the name {@link IntegrationContextUtils#INTEGRATION_CONVERSION_SERVICE_BEAN_NAME} to
  * perform type conversions when necessary (thanks to Jon Schneider's contribution and suggestion in INT-1230).
+ * <p>
+ * Methods returning {@link Future} or {@link ListenableFuture} return immediately and are
+ * invoked synchronously on a thread of the async executor. When 'completeFuturesFromReply'
+ * is true, the future is instead completed when the reply is sent to the gateway, without
+ * a thread waiting for it.
  *
  * @author Mark Fisher
  * @author Oleg Zhurakousky
@@ -97,6 +105,8 @@ public class GatewayProxyFactoryBean extends AbstractEndpoint implements Trackab
 
 	private volatile AsyncTaskExecutor asyncExecutor = new SimpleAsyncTaskExecutor();
 
+	private volatile boolean completeFuturesFromReply;
+
 	private volatile boolean initialized;
 
 	private final Object initializationMonitor = new Object();
@@ -199,6 +209,20 @@ public class GatewayProxyFactoryBean extends AbstractEndpoint implements Trackab
 				: new TaskExecutorAdapter(executor);
 	}
 
+	/**
+	 * Set to true to complete the future returned by methods returning {@link Future} or
+	 * {@link ListenableFuture} when the reply is sent to the gateway, instead of invoking
+	 * the method on a thread of the async executor that waits for the reply. Methods
+	 * without arguments, which receive from the reply channel, still use the executor.
+	 * Default false.
+	 *
+	 * @param completeFuturesFromReply true to complete futures from the reply.
+	 * @since 3.0
+	 */
+	public void setCompleteFuturesFromReply(boolean completeFuturesFromReply) {
+		this.completeFuturesFromReply = completeFuturesFromReply;
+	}
+
 	public void setTypeConverter(TypeConverter typeConverter) {
 		Assert.notNull(typeConverter, "typeConverter must not be null");
 		this.typeConverter = typeConverter;
@@ -271,12 +295,80 @@ public class GatewayProxyFactoryBean extends AbstractEndpoint implements Trackab
 	}
 
 	public Object invoke(final MethodInvocation invocation) throws Throwable {
-		if (Future.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
+		Class<?> returnType = invocation.getMethod().getReturnType();
+		if (Future.class.isAssignableFrom(returnType)) {
+			if (this.completeFuturesFromReply && returnType.isAssignableFrom(SettableListenableFuture.class)) {
+				return this.invokeAsync(invocation);
+			}
+			if (ListenableFuture.class.isAssignableFrom(returnType)) {
+				return this.submitListenable(invocation);
+			}
 			return this.asyncExecutor.submit(new AsyncInvocationTask(invocation));
 		}
 		return this.doInvoke(invocation);
 	}
 
+	private ListenableFuture<?> submitListenable(MethodInvocation invocation) {
+		final SettableListenableFuture<Object> future = new SettableListenableFuture<Object>();
+		final AsyncInvocationTask task = new AsyncInvocationTask(invocation);
+		this.asyncExecutor.execute(new Runnable() {
+			public void run() {
+				try {
+					future.set(task.call());
+				}
+				catch (Exception e) {
+					future.setException(e);
+				}
+			}
+		});
+		return future;
+	}
+
+	private ListenableFuture<?> invokeAsync(MethodInvocation invocation) throws Exception {
+		if (!this.initialized) {
+			this.afterPropertiesSet();
+		}
+		final Method method = invocation.getMethod();
+		if (method.getParameterTypes().length == 0 && !this.hasPayloadExpression(method)) {
+			// a receive-only method needs a thread to poll the reply channel
+			return this.submitListenable(invocation);
+		}
+		MethodInvocationGateway gateway = this.gatewayMap.get(method);
+		Object[] args = invocation.getArguments();
+		final SettableListenableFuture<Object> future = new SettableListenableFuture<Object>();
+		try {
+			ListenableFuture<?> reply = hasFutureParameterizedWithMessage(method)
+					? gateway.sendAndReceiveMessageAsync(args) : gateway.sendAndReceiveAsync(args);
+			reply.addCallback(new FutureCallback<Object>() {
+
+				public void onSuccess(Object result) {
+					future.set(result);
+				}
+
+				public void onFailure(Throwable t) {
+					future.setException(asyncInvocationFailure(t, method));
+				}
+
+			});
+		}
+		catch (Exception e) {
+			future.setException(this.asyncInvocationFailure(e, method));
+		}
+		return future;
+	}
+
+	/**
+	 * The exception with which an asynchronous invocation fails: the same as for an
+	 * invocation on a thread of the async executor.
+	 */
+	private Throwable asyncInvocationFailure(Throwable originalException, Method method) {
+		Throwable t = this.exceptionCauseIfPossible(originalException, method);
+		if (t instanceof RuntimeException) {
+			return t;
+		}
+		return new MessagingException("asynchronous gateway invocation failed", t);
+	}
+
 	private Object doInvoke(MethodInvocation invocation) throws Throwable {
 		Method method = invocation.getMethod();
 		if (AopUtils.isToStringMethod(method)) {
@@ -303,13 +395,7 @@ public class GatewayProxyFactoryBean extends AbstractEndpoint implements Trackab
 		boolean shouldReply = returnType != void.class;
 		int paramCount = method.getParameterTypes().length;
 		Object response = null;
-		boolean hasPayloadExpression = method.isAnnotationPresent(Payload.class);
-		if (!hasPayloadExpression && this.methodMetadataMap != null) {
-			// check for the method metadata next
-			GatewayMethodMetadata metadata = this.methodMetadataMap.get(method.getName());
-			hasPayloadExpression = (metadata != null) && StringUtils.hasText(metadata.getPayloadExpression());
-		}
-		if (paramCount == 0 && !hasPayloadExpression) {
+		if (paramCount == 0 && !this.hasPayloadExpression(method)) {
 			if (shouldReply) {
 				if (shouldReturnMessage) {
 					return gateway.receive();
@@ -330,24 +416,38 @@ public class GatewayProxyFactoryBean extends AbstractEndpoint implements Trackab
 		return (response != null) ? this.convert(response, returnType) : null;
 	}
 
+	private boolean hasPayloadExpression(Method method) {
+		boolean hasPayloadExpression = method.isAnnotationPresent(Payload.class);
+		if (!hasPayloadExpression && this.methodMetadataMap != null) {
+			// check for the method metadata next
+			GatewayMethodMetadata metadata = this.methodMetadataMap.get(method.getName());
+			hasPayloadExpression = (metadata != null) && StringUtils.hasText(metadata.getPayloadExpression());
+		}
+		return hasPayloadExpression;
+	}
+
 	private void rethrowExceptionCauseIfPossible(Throwable originalException, Method method) throws Throwable {
+		throw this.exceptionCauseIfPossible(originalException, method);
+	}
+
+	private Throwable exceptionCauseIfPossible(Throwable originalException, Method method) {
 		Class<?>[] exceptionTypes = method.getExceptionTypes();
 		Throwable t = originalException;
 		while (t != null) {
 			for (Class<?> exceptionType : exceptionTypes) {
 				if (exceptionType.isAssignableFrom(t.getClass())) {
-					throw t;
+					return t;
 				}
 			}
 			if (t instanceof RuntimeException
 					&& !(t instanceof MessagingException)
 					&& !(t instanceof UndeclaredThrowableException)
 					&& !(t instanceof IllegalStateException && ("Unexpected exception thrown").equals(t.getMessage()))) {
-				throw t;
+				return t;
 			}
 			t = t.getCause();
 		}
-		throw originalException;
+		return originalException;
 	}
 
 	private MethodInvocationGateway createGatewayForMethod(Method method) {
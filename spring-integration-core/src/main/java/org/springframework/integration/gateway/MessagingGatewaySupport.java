@@ -16,8 +16,13 @@
 
 package org.springframework.integration.gateway;
 
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.core.MessagingTemplate;
 import org.springframework.integration.core.PollableChannel;
@@ -33,6 +38,10 @@ import org.springframework.integration.mapping.OutboundMessageMapper;
 import org.springframework.integration.message.ErrorMessage;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.support.converter.SimpleMessageConverter;
+import org.springframework.integration.util.ListenableFuture;
+import org.springframework.integration.util.SettableListenableFuture;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.Assert;
 
 /**
@@ -131,6 +140,13 @@ public abstract class MessagingGatewaySupport extends AbstractEndpoint implement
 		this.messagingTemplate.setReceiveTimeout(replyTimeout);
 	}
 
+	/**
+	 * @return the timeout value in milliseconds for receiving reply messages.
+	 */
+	protected long getReplyTimeout() {
+		return this.replyTimeout;
+	}
+
 	/**
 	 * Provide an {@link InboundMessageMapper} for creating request Messages
 	 * from any object passed in a send or sendAndReceive operation.
@@ -271,11 +287,146 @@ public abstract class MessagingGatewaySupport extends AbstractEndpoint implement
 		return reply;
 	}
 
+	/**
+	 * Send the request and return a future for the reply payload. The future is completed
+	 * by the thread that sends the reply (or by the request thread, if the flow is
+	 * synchronous), so no thread waits for the reply. Errors, including those handled by
+	 * the error channel, are applied as in {@link #sendAndReceive(Object)}. Unless the
+	 * reply timeout is negative, the future is completed with null when no reply arrives
+	 * in time; the timeout is scheduled with the task scheduler or, if none is available,
+	 * on a single daemon thread shared by all gateways.
+	 * @param object the request.
+	 * @return the future.
+	 * @since 3.0
+	 */
+	protected ListenableFuture<Object> sendAndReceiveAsync(Object object) {
+		return this.doSendAndReceiveAsync(object, true);
+	}
+
+	/**
+	 * Send the request and return a future for the reply Message; see
+	 * {@link #sendAndReceiveAsync(Object)}.
+	 * @param object the request.
+	 * @return the future.
+	 * @since 3.0
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	protected ListenableFuture<Message<?>> sendAndReceiveMessageAsync(Object object) {
+		return (ListenableFuture) this.doSendAndReceiveAsync(object, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	private ListenableFuture<Object> doSendAndReceiveAsync(Object object, boolean shouldConvert) {
+		this.initializeIfNecessary();
+		Assert.notNull(object, "request must not be null");
+		if (this.requestChannel == null) {
+			throw new MessagingException("No request channel available. Cannot send request message.");
+		}
+		if (this.replyChannel != null && this.replyMessageCorrelator == null) {
+			this.registerReplyMessageCorrelator();
+		}
+		SettableListenableFuture<Object> future = new SettableListenableFuture<Object>();
+		AsyncReplyChannel replyChannel = null;
+		try {
+			Message<?> requestMessage = null;
+			if (shouldConvert) {
+				requestMessage = this.messageConverter.toMessage(object);
+			}
+			else {
+				requestMessage = (object instanceof Message<?>)
+						? (Message<?>) object : this.requestMapper.toMessage(object);
+			}
+			requestMessage = this.historyWritingPostProcessor.postProcessMessage(requestMessage);
+			replyChannel = new AsyncReplyChannel(future, shouldConvert, false, requestMessage.getHeaders());
+			this.sendAsync(this.requestChannel, requestMessage, replyChannel);
+		}
+		catch (Exception e) {
+			if (replyChannel == null || replyChannel.replied.compareAndSet(false, true)) {
+				logger.warn("failure occurred in gateway sendAndReceive", e);
+				this.handleAsyncError(e, shouldConvert, future);
+			}
+		}
+		return future;
+	}
+
+	private void sendAsync(MessageChannel channel, Message<?> message, AsyncReplyChannel replyChannel) {
+		Message<?> requestMessage = MessageBuilder.fromMessage(message)
+				.setReplyChannel(replyChannel)
+				.setErrorChannel(replyChannel)
+				.build();
+		if (this.replyTimeout >= 0) {
+			TaskScheduler taskScheduler = this.getTaskScheduler();
+			if (taskScheduler == null) {
+				taskScheduler = DefaultReplyTimeoutScheduler.INSTANCE;
+			}
+			replyChannel.timeout = taskScheduler.schedule(replyChannel,
+					new Date(System.currentTimeMillis() + this.replyTimeout));
+		}
+		this.messagingTemplate.send(channel, requestMessage);
+	}
+
+	private void onAsyncReply(AsyncReplyChannel replyChannel, Message<?> message) {
+		SettableListenableFuture<Object> future = replyChannel.future;
+		Message<?> reply = MessageBuilder.fromMessage(message)
+				.setHeader(MessageHeaders.REPLY_CHANNEL, replyChannel.originalReplyChannelHeader)
+				.setHeader(MessageHeaders.ERROR_CHANNEL, replyChannel.originalErrorChannelHeader)
+				.build();
+		Object result = reply;
+		Throwable error = null;
+		try {
+			if (replyChannel.shouldConvert) {
+				result = this.messageConverter.fromMessage(reply);
+				if (result instanceof Throwable) {
+					error = (Throwable) result;
+				}
+			}
+			else if (reply instanceof ErrorMessage) {
+				error = ((ErrorMessage) reply).getPayload();
+			}
+		}
+		catch (Exception e) {
+			error = e;
+		}
+		if (error == null) {
+			future.set(result);
+		}
+		else if (replyChannel.errorFlow) {
+			future.setException(this.asRethrown(error, replyChannel.shouldConvert
+					? "error flow returned Exception" : "error flow returned an Error Message"));
+		}
+		else {
+			this.handleAsyncError(error, replyChannel.shouldConvert, future);
+		}
+	}
+
+	private void handleAsyncError(Throwable error, boolean shouldConvert, SettableListenableFuture<Object> future) {
+		if (this.errorChannel == null) {
+			future.setException(this.asRethrown(error, "gateway received checked Exception"));
+			return;
+		}
+		Message<?> errorMessage = new ErrorMessage(error);
+		AsyncReplyChannel errorReplyChannel = new AsyncReplyChannel(future, shouldConvert, true,
+				errorMessage.getHeaders());
+		try {
+			this.sendAsync(this.errorChannel, errorMessage, errorReplyChannel);
+		}
+		catch (Exception errorFlowFailure) {
+			if (errorReplyChannel.replied.compareAndSet(false, true)) {
+				future.setException(new MessagingException(errorMessage, "failure occurred in error-handling flow",
+						errorFlowFailure));
+			}
+		}
+	}
+
 	private void rethrow(Throwable t, String description) {
+		throw this.asRethrown(t, description);
+	}
+
+	private RuntimeException asRethrown(Throwable t, String description) {
 		if (t instanceof RuntimeException) {
-			throw (RuntimeException) t;
+			return (RuntimeException) t;
 		}
-		throw new MessagingException(description, t);
+		return new MessagingException(description, t);
 	}
 
 	private void registerReplyMessageCorrelator() {
@@ -323,6 +474,80 @@ public abstract class MessagingGatewaySupport extends AbstractEndpoint implement
 	}
 
 
+	/**
+	 * The reply channel for an asynchronous request: completes the future with the
+	 * first reply and, when run by the task scheduler, with null on timeout.
+	 */
+	private class AsyncReplyChannel implements MessageChannel, Runnable {
+
+		private final SettableListenableFuture<Object> future;
+
+		private final boolean shouldConvert;
+
+		private final boolean errorFlow;
+
+		private final Object originalReplyChannelHeader;
+
+		private final Object originalErrorChannelHeader;
+
+		private final AtomicBoolean replied = new AtomicBoolean();
+
+		private volatile ScheduledFuture<?> timeout;
+
+		private AsyncReplyChannel(SettableListenableFuture<Object> future, boolean shouldConvert, boolean errorFlow,
+				MessageHeaders requestHeaders) {
+			this.future = future;
+			this.shouldConvert = shouldConvert;
+			this.errorFlow = errorFlow;
+			this.originalReplyChannelHeader = requestHeaders.getReplyChannel();
+			this.originalErrorChannelHeader = requestHeaders.getErrorChannel();
+		}
+
+		public boolean send(Message<?> message) {
+			return this.send(message, -1);
+		}
+
+		public boolean send(Message<?> message, long timeout) {
+			if (!this.replied.compareAndSet(false, true)) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Reply message being sent, but the gateway has already received a reply or timed out:"
+							+ message);
+				}
+				return true;
+			}
+			ScheduledFuture<?> scheduledTimeout = this.timeout;
+			if (scheduledTimeout != null) {
+				scheduledTimeout.cancel(false);
+			}
+			onAsyncReply(this, message);
+			return true;
+		}
+
+		public void run() {
+			if (this.replied.compareAndSet(false, true)) {
+				this.future.set(null);
+			}
+		}
+	}
+
+
+	/**
+	 * Times out asynchronous requests when no task scheduler is available; created on
+	 * first use.
+	 */
+	private static class DefaultReplyTimeoutScheduler {
+
+		private static final ThreadPoolTaskScheduler INSTANCE = new ThreadPoolTaskScheduler();
+
+		static {
+			INSTANCE.setThreadNamePrefix("gateway-reply-timeout-");
+			INSTANCE.setDaemon(true);
+			INSTANCE.afterPropertiesSet();
+		}
+
+	}
+
+
 	private static class DefaultRequestMapper implements InboundMessageMapper<Object> {
 
 		@Override
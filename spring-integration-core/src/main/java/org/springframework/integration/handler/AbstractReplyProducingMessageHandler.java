@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessageDeliveryException;
 import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.channel.DispatchTrampoline;
 import org.springframework.integration.core.MessageProducer;
 import org.springframework.integration.core.MessagingTemplate;
 import org.springframework.integration.support.MessageBuilder;
@@ -137,6 +138,7 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 	 */
 	@Override
 	protected final void handleMessageInternal(Message<?> message) {
+		boolean flattened = DispatchTrampoline.claim(this);
 		Object result;
 		if (this.advisedRequestHandler == null) {
 			result = this.handleRequestMessage(message);
@@ -146,7 +148,7 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 		}
 		if (result != null) {
 			MessageHeaders requestHeaders = message.getHeaders();
-			this.handleResult(result, requestHeaders);
+			this.handleResult(result, requestHeaders, flattened);
 		}
 		else if (this.requiresReply) {
 			throw new ReplyRequiredException(message, "No reply produced by handler '" +
@@ -161,20 +163,29 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 		return this.advisedRequestHandler.handleRequestMessage(message);
 	}
 
-	private void handleResult(Object result, MessageHeaders requestHeaders) {
-		if (result instanceof Iterable<?> && this.shouldSplitReply((Iterable<?>) result)) {
-			for (Object o : (Iterable<?>) result) {
-				this.produceReply(o, requestHeaders);
+	private void handleResult(Object result, MessageHeaders requestHeaders, boolean flattened) {
+		if (result instanceof Iterable<?> && this.shouldSplitOutput((Iterable<?>) result)) {
+			try {
+				for (Object o : (Iterable<?>) result) {
+					this.produceReply(o, requestHeaders, false);
+				}
+			}
+			finally {
+				this.afterSplitOutput((Iterable<?>) result);
 			}
 		}
 		else if (result != null) {
-			this.produceReply(result, requestHeaders);
+			this.produceReply(result, requestHeaders, flattened);
 		}
 	}
 
-	private void produceReply(Object reply, MessageHeaders requestHeaders) {
+	/**
+	 * @param flattened true if the handler was invoked by a channel with flattened
+	 * dispatch and the reply is its last action, in which case the send may be deferred.
+	 */
+	private void produceReply(Object reply, MessageHeaders requestHeaders, boolean flattened) {
 		Message<?> replyMessage = this.createReplyMessage(reply, requestHeaders);
-		this.sendReplyMessage(replyMessage, requestHeaders.getReplyChannel());
+		this.sendReplyMessage(replyMessage, requestHeaders.getReplyChannel(), flattened);
 	}
 
 	private Message<?> createReplyMessage(Object reply, MessageHeaders requestHeaders) {
@@ -204,15 +215,16 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 	 * @param replyMessage the reply Message to send
 	 * @param replyChannelHeaderValue the 'replyChannel' header value from the original request
 	 */
-	private final void sendReplyMessage(Message<?> replyMessage, final Object replyChannelHeaderValue) {
+	private final void sendReplyMessage(Message<?> replyMessage, final Object replyChannelHeaderValue,
+			boolean flattened) {
 		if (logger.isDebugEnabled()) {
 			logger.debug("handler '" + this + "' sending reply Message: " + replyMessage);
 		}
 		if (this.outputChannel != null) {
-			this.sendMessage(replyMessage, this.outputChannel);
+			this.sendMessage(replyMessage, this.outputChannel, flattened);
 		}
 		else if (replyChannelHeaderValue != null) {
-			this.sendMessage(replyMessage, replyChannelHeaderValue);
+			this.sendMessage(replyMessage, replyChannelHeaderValue, flattened);
 		}
 		else {
 			throw new ChannelResolutionException("no output-channel or replyChannel header available");
@@ -223,8 +235,11 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 	 * Send the message to the given channel. The channel must be a String or
 	 * {@link MessageChannel} instance, never <code>null</code>.
 	 */
-	private void sendMessage(final Message<?> message, final Object channel) {
+	private void sendMessage(final Message<?> message, final Object channel, boolean flattened) {
 		if (channel instanceof MessageChannel) {
+			if (flattened && DispatchTrampoline.defer((MessageChannel) channel, message)) {
+				return;
+			}
 			this.messagingTemplate.send((MessageChannel) channel, message);
 		}
 		else if (channel instanceof String) {
@@ -236,7 +251,14 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 		}
 	}
 
-	private boolean shouldSplitReply(Iterable<?> reply) {
+	/**
+	 * Determine whether an {@link Iterable} reply should be sent as one Message per
+	 * element rather than as a single Message. By default it is split if any of its
+	 * elements is a Message or a MessageBuilder. Subclasses producing replies that
+	 * can only be iterated once must override this method.
+	 * @since 3.0
+	 */
+	protected boolean shouldSplitOutput(Iterable<?> reply) {
 		for (Object next : reply) {
 			if (next instanceof Message<?> || next instanceof MessageBuilder<?>) {
 				return true;
@@ -245,6 +267,16 @@ public abstract class AbstractReplyProducingMessageHandler extends AbstractMessa
 		return false;
 	}
 
+	/**
+	 * Called once a reply that was split has been iterated, whether or not all of its
+	 * elements were sent, so that subclasses can release any resources held by a reply
+	 * they produced. This implementation does nothing.
+	 * @param reply the split reply.
+	 * @since 3.0
+	 */
+	protected void afterSplitOutput(Iterable<?> reply) {
+	}
+
 	/**
 	 * Subclasses may override this. True by default.
 	 */
@@ -16,27 +16,31 @@
 
 package org.springframework.integration.mapping;
 
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.mapping.support.HeaderPatternMatcher;
 import org.springframework.integration.mapping.support.JsonHeaders;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.ObjectUtils;
-import org.springframework.util.PatternMatchUtils;
 import org.springframework.util.StringUtils;
 
 /**
  * Abstract base class for HeaderMapper implementations.
+ * <p>
+ * The request and reply header name patterns are compiled into a {@link HeaderPatternMatcher}
+ * on first use, which caches the mapping decision per header name.
  *
  * @author Mark Fisher
  * @author Oleg Zhurakousky
@@ -48,12 +52,12 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 
 	public static final String STANDARD_REPLY_HEADER_NAME_PATTERN = "STANDARD_REPLY_HEADERS";
 
-	private static final String[] TRANSIENT_HEADER_NAMES = new String[] {
+	private static final Set<String> TRANSIENT_HEADER_NAMES = new HashSet<String>(Arrays.asList(
 		MessageHeaders.ID,
 		MessageHeaders.ERROR_CHANNEL,
 		MessageHeaders.REPLY_CHANNEL,
 		MessageHeaders.TIMESTAMP
-	};
+	));
 
 	protected final Log logger = LogFactory.getLog(this.getClass());
 
@@ -65,6 +69,10 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 
 	private volatile List<String> replyHeaderNames = new ArrayList<String>();
 
+	private volatile HeaderPatternMatcher requestHeaderMatcher;
+
+	private volatile HeaderPatternMatcher replyHeaderMatcher;
+
 	protected AbstractHeaderMapper() {
 		this.standardHeaderPrefix = this.getStandardHeaderPrefix();
 		this.requestHeaderNames.addAll(this.getStandardRequestHeaderNames());
@@ -82,6 +90,7 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 	public void setRequestHeaderNames(String[] requestHeaderNames) {
 		Assert.notNull(requestHeaderNames, "'requestHeaderNames' must not be null");
 		this.requestHeaderNames = Arrays.asList(requestHeaderNames);
+		this.requestHeaderMatcher = null;
 	}
 
 	/**
@@ -94,6 +103,7 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 	public void setReplyHeaderNames(String[] replyHeaderNames) {
 		Assert.notNull(replyHeaderNames, "'replyHeaderNames' must not be null");
 		this.replyHeaderNames = Arrays.asList(replyHeaderNames);
+		this.replyHeaderMatcher = null;
 	}
 
 	/**
@@ -113,35 +123,60 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 	 * matching on the set of REQUEST headers (if different).
 	 */
 	public void fromHeadersToRequest(MessageHeaders headers, T target) {
-		this.fromHeaders(headers, target, this.requestHeaderNames);
+		this.fromHeaders(headers, target, this.getRequestHeaderMatcher());
 	}
 	/**
 	 * Maps headers from a Spring Integration MessageHeaders instance to the target instance
 	 * matching on the set of REPLY headers (if different).
 	 */
 	public void fromHeadersToReply(MessageHeaders headers, T target) {
-		this.fromHeaders(headers, target, this.replyHeaderNames);
+		this.fromHeaders(headers, target, this.getReplyHeaderMatcher());
 	}
 	/**
 	 * Maps headers/properties of the target object to Map of MessageHeaders
 	 * matching on the set of REQUEST headers
 	 */
 	public Map<String, Object> toHeadersFromRequest(T source) {
-		return this.toHeaders(source, this.requestHeaderNames);
+		return this.toHeaders(source, this.getRequestHeaderMatcher());
 	}
 	/**
 	 * Maps headers/properties of the target object to Map of MessageHeaders
 	 * matching on the set of REPLY headers
 	 */
 	public Map<String, Object> toHeadersFromReply(T source) {
-		return this.toHeaders(source, this.replyHeaderNames);
+		return this.toHeaders(source, this.getReplyHeaderMatcher());
+	}
+
+	private HeaderPatternMatcher getRequestHeaderMatcher() {
+		HeaderPatternMatcher matcher = this.requestHeaderMatcher;
+		if (matcher == null) {
+			matcher = this.compileHeaderPatterns(this.requestHeaderNames);
+			this.requestHeaderMatcher = matcher;
+		}
+		return matcher;
+	}
+
+	private HeaderPatternMatcher getReplyHeaderMatcher() {
+		HeaderPatternMatcher matcher = this.replyHeaderMatcher;
+		if (matcher == null) {
+			matcher = this.compileHeaderPatterns(this.replyHeaderNames);
+			this.replyHeaderMatcher = matcher;
+		}
+		return matcher;
+	}
+
+	private HeaderPatternMatcher compileHeaderPatterns(List<String> headerPatterns) {
+		Map<String, Collection<String>> namedPatterns = new HashMap<String, Collection<String>>();
+		namedPatterns.put(STANDARD_REQUEST_HEADER_NAME_PATTERN, this.getStandardRequestHeaderNames());
+		namedPatterns.put(STANDARD_REPLY_HEADER_NAME_PATTERN, this.getStandardReplyHeaderNames());
+		return new HeaderPatternMatcher(headerPatterns, namedPatterns, null);
 	}
 
-	private void fromHeaders(MessageHeaders headers, T target, List<String> headerPatterns){
+	private void fromHeaders(MessageHeaders headers, T target, HeaderPatternMatcher headerMatcher){
 		try {
 			Map<String, Object> subset = new HashMap<String, Object>();
 			for (String headerName : headers.keySet()) {
-				if (this.shouldMapHeader(headerName, headerPatterns)){
+				if (this.shouldMapHeader(headerName, headerMatcher)){
 					subset.put(headerName, headers.get(headerName));
 				}
 			}
@@ -178,21 +213,22 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 	 * Maps headers from a source instance to the MessageHeaders of a
 	 * Spring Integration Message.
 	 */
-	private Map<String, Object> toHeaders(T source, List<String> headerPatterns) {
+	private Map<String, Object> toHeaders(T source, HeaderPatternMatcher headerMatcher) {
 		Map<String, Object> headers = new HashMap<String, Object>();
 		Map<String, Object> standardHeaders = this.extractStandardHeaders(source);
-		this.copyHeaders(this.standardHeaderPrefix, standardHeaders, headers, headerPatterns);
+		this.copyHeaders(this.standardHeaderPrefix, standardHeaders, headers, headerMatcher);
 		Map<String, Object> userDefinedHeaders = this.extractUserDefinedHeaders(source);
-		this.copyHeaders(this.userDefinedHeaderPrefix, userDefinedHeaders, headers, headerPatterns);
+		this.copyHeaders(this.userDefinedHeaderPrefix, userDefinedHeaders, headers, headerMatcher);
 		return headers;
 	}
 
-	private <V> void copyHeaders(String prefix, Map<String, Object> source, Map<String, Object> target, List<String> headerPatterns) {
+	private <V> void copyHeaders(String prefix, Map<String, Object> source, Map<String, Object> target,
+			HeaderPatternMatcher headerMatcher) {
 		if (!CollectionUtils.isEmpty(source)) {
 			for (Map.Entry<String, Object> entry : source.entrySet()) {
 				try {
 					String headerName = this.addPrefixIfNecessary(prefix, entry.getKey());
-					if (this.shouldMapHeader(headerName, headerPatterns)){
+					if (this.shouldMapHeader(headerName, headerMatcher)){
 						target.put(headerName, entry.getValue());
 					}
 				}
@@ -206,39 +242,11 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 		}
 	}
 
-	private boolean shouldMapHeader(String headerName, List<String> patterns) {
-		if (!StringUtils.hasText(headerName)
-				|| ObjectUtils.containsElement(TRANSIENT_HEADER_NAMES, headerName)) {
+	private boolean shouldMapHeader(String headerName, HeaderPatternMatcher headerMatcher) {
+		if (!StringUtils.hasText(headerName) || TRANSIENT_HEADER_NAMES.contains(headerName)) {
 			return false;
 		}
-		if (patterns != null && patterns.size() > 0) {
-			for (String pattern : patterns) {
-				if (PatternMatchUtils.simpleMatch(pattern.toLowerCase(), headerName.toLowerCase())) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(MessageFormat.format("headerName=[{0}] WILL be mapped, matched pattern={1}", headerName, pattern));
-					}
-					return true;
-				}
-				else if (STANDARD_REQUEST_HEADER_NAME_PATTERN.equals(pattern)
-						&& this.containsElementIgnoreCase(this.getStandardRequestHeaderNames(), headerName)) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(MessageFormat.format("headerName=[{0}] WILL be mapped, matched pattern={1}", headerName, pattern));
-					}
-					return true;
-				}
-				else if (STANDARD_REPLY_HEADER_NAME_PATTERN.equals(pattern)
-						&& this.containsElementIgnoreCase(this.getStandardReplyHeaderNames(), headerName)) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(MessageFormat.format("headerName=[{0}] WILL be mapped, matched pattern={1}", headerName, pattern));
-					}
-					return true;
-				}
-			}
-		}
-		if (logger.isDebugEnabled()) {
-			logger.debug(MessageFormat.format("headerName=[{0}] WILL NOT be mapped", headerName));
-		}
-		return false;
+		return headerMatcher.matches(headerName);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -259,15 +267,6 @@ public abstract class AbstractHeaderMapper<T> implements RequestReplyHeaderMappe
 		}
 	}
 
-	private boolean containsElementIgnoreCase(List<String> headerNames, String name) {
-		for (String headerName : headerNames) {
-			if (headerName.equalsIgnoreCase(name)){
-				return true;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Adds the prefix to the header name
 	 */
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.mapping.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.PatternMatchUtils;
+
+/**
+ * Case-insensitive matcher of header names against a list of simple patterns
+ * ("foo", "foo*", "*foo", "*foo*" or any other {@link PatternMatchUtils#simpleMatch}
+ * pattern), as used by the header mappers.
+ * <p>
+ * The patterns are compiled once: literal names go into a hash set and wildcard
+ * patterns are classified by shape so that matching does not re-parse them. A
+ * pattern may also be a symbolic name (e.g. "STANDARD_REQUEST_HEADERS") that is
+ * expanded to a collection of header names. Since the same header names recur on
+ * every message, the outcome for each name is cached in a bounded concurrent map;
+ * once the map is full, further names are evaluated without being cached.
+ *
+ * @since 3.0
+ */
+public class HeaderPatternMatcher {
+
+	public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+	private static final Log logger = LogFactory.getLog(HeaderPatternMatcher.class);
+
+	private final Set<String> names = new HashSet<String>();
+
+	private final List<String> prefixes = new ArrayList<String>();
+
+	private final List<String> suffixes = new ArrayList<String>();
+
+	private final List<String> infixes = new ArrayList<String>();
+
+	private final List<String> otherPatterns = new ArrayList<String>();
+
+	private final Set<String> excludedNames = new HashSet<String>();
+
+	private final boolean matchAll;
+
+	private final ConcurrentMap<String, Boolean> decisions = new ConcurrentHashMap<String, Boolean>();
+
+	private final int cacheLimit;
+
+	public HeaderPatternMatcher(Collection<String> patterns) {
+		this(patterns, null, null);
+	}
+
+	/**
+	 * @param patterns the patterns to match.
+	 * @param namedPatterns symbolic patterns, each expanded to the collection of header names it stands for.
+	 * @param excludedNames header names that never match, regardless of the patterns.
+	 */
+	public HeaderPatternMatcher(Collection<String> patterns, Map<String, ? extends Collection<String>> namedPatterns,
+			Collection<String> excludedNames) {
+		this(patterns, namedPatterns, excludedNames, DEFAULT_CACHE_LIMIT);
+	}
+
+	public HeaderPatternMatcher(Collection<String> patterns, Map<String, ? extends Collection<String>> namedPatterns,
+			Collection<String> excludedNames, int cacheLimit) {
+		Assert.notNull(patterns, "'patterns' must not be null");
+		this.cacheLimit = cacheLimit;
+		boolean matchAll = false;
+		for (String pattern : patterns) {
+			if (pattern == null) {
+				continue;
+			}
+			if (namedPatterns != null && namedPatterns.containsKey(pattern)) {
+				for (String name : namedPatterns.get(pattern)) {
+					this.names.add(toLowerCase(name));
+				}
+			}
+			String lowerCasePattern = toLowerCase(pattern);
+			int firstWildcard = lowerCasePattern.indexOf('*');
+			int lastWildcard = lowerCasePattern.lastIndexOf('*');
+			if (firstWildcard < 0) {
+				this.names.add(lowerCasePattern);
+			}
+			else if ("*".equals(lowerCasePattern)) {
+				matchAll = true;
+			}
+			else if (firstWildcard == lastWildcard && lastWildcard == lowerCasePattern.length() - 1) {
+				this.prefixes.add(lowerCasePattern.substring(0, lastWildcard));
+			}
+			else if (firstWildcard == lastWildcard && firstWildcard == 0) {
+				this.suffixes.add(lowerCasePattern.substring(1));
+			}
+			else if (firstWildcard == 0 && lastWildcard == lowerCasePattern.length() - 1
+					&& lowerCasePattern.indexOf('*', 1) == lastWildcard) {
+				this.infixes.add(lowerCasePattern.substring(1, lastWildcard));
+			}
+			else {
+				this.otherPatterns.add(lowerCasePattern);
+			}
+		}
+		this.matchAll = matchAll;
+		if (!CollectionUtils.isEmpty(excludedNames)) {
+			for (String excludedName : excludedNames) {
+				this.excludedNames.add(toLowerCase(excludedName));
+			}
+		}
+	}
+
+	/**
+	 * @param headerName the header name.
+	 * @return true if the header name matches one of the patterns and is not excluded.
+	 */
+	public boolean matches(String headerName) {
+		Boolean decision = this.decisions.get(headerName);
+		if (decision == null) {
+			decision = this.doMatch(toLowerCase(headerName));
+			if (logger.isDebugEnabled()) {
+				logger.debug("headerName=[" + headerName + "] WILL" + (decision ? "" : " NOT") + " be mapped");
+			}
+			if (this.decisions.size() < this.cacheLimit) {
+				this.decisions.putIfAbsent(headerName, decision);
+			}
+		}
+		return decision;
+	}
+
+	/**
+	 * @return an unmodifiable view of the cached decisions, keyed by header name.
+	 */
+	public Map<String, Boolean> getCachedDecisions() {
+		return Collections.unmodifiableMap(this.decisions);
+	}
+
+	private boolean doMatch(String headerName) {
+		if (this.excludedNames.contains(headerName)) {
+			return false;
+		}
+		if (this.matchAll || this.names.contains(headerName)) {
+			return true;
+		}
+		for (String prefix : this.prefixes) {
+			if (headerName.startsWith(prefix)) {
+				return true;
+			}
+		}
+		for (String suffix : this.suffixes) {
+			if (headerName.endsWith(suffix)) {
+				return true;
+			}
+		}
+		for (String infix : this.infixes) {
+			if (headerName.contains(infix)) {
+				return true;
+			}
+		}
+		for (String pattern : this.otherPatterns) {
+			if (PatternMatchUtils.simpleMatch(pattern, headerName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String toLowerCase(String name) {
+		return name.toLowerCase(Locale.ENGLISH);
+	}
+
+}
@@ -0,0 +1,544 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.Assert;
+
+/**
+ * File-based implementation of {@link MetadataStore} that appends each change to a log
+ * file, so that the cost of persisting a change does not depend on the number of keys,
+ * and changes are not lost if the application stops without the store being destroyed.
+ * The metadata is held in memory; on initialization it is rebuilt by replaying the log.
+ * <p>
+ * Changes are buffered and written to the log (and the operating system) after at most
+ * {@link #setBatchSize(int) batchSize} changes, 1 by default, or earlier when the buffer
+ * is full; when {@link #setSync(boolean) sync} is true, the log is also forced to the
+ * storage device after each batch. When the log holds more
+ * than {@link #setCompactionThreshold(int) compactionThreshold} records and more than twice
+ * as many records as there are keys, a new log is started and a snapshot of the metadata is
+ * written on the {@link #setTaskExecutor(Executor) taskExecutor}; the older log and snapshot
+ * files are then deleted.
+ * <p>
+ * Files are written to the 'java.io.tmpdir' +  "/spring-integration/" by default, with names
+ * starting with "metadata-store.". To avoid conflicts, each instance should use its own
+ * base directory. Once the store has been destroyed, changes are rejected with an
+ * {@link IllegalStateException}.
+ *
+ * @since 3.0
+ */
+public class LogPersistingMetadataStore implements MetadataStore, InitializingBean, DisposableBean {
+
+	private static final String FILE_PREFIX = "metadata-store.";
+
+	private static final String LOG_SUFFIX = ".log";
+
+	private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static final byte PUT = 1;
+
+	private static final byte REMOVE = 2;
+
+	private static final String CHARSET = "UTF-8";
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final ConcurrentMap<String, String> metadata = new ConcurrentHashMap<String, String>();
+
+	private final Object monitor = new Object();
+
+	private volatile String baseDirectory = System.getProperty("java.io.tmpdir") + "/spring-integration/";
+
+	private volatile int batchSize = 1;
+
+	private volatile boolean sync;
+
+	private volatile int compactionThreshold = 10000;
+
+	private volatile Executor taskExecutor = new SimpleAsyncTaskExecutor();
+
+	private volatile File directory;
+
+	private long generation;
+
+	private FileOutputStream logFile;
+
+	private DataOutputStream log;
+
+	private int pendingChanges;
+
+	private int logRecords;
+
+	private boolean compacting;
+
+
+	public void setBaseDirectory(String baseDirectory) {
+		Assert.hasText(baseDirectory, "'baseDirectory' must be non-empty");
+		this.baseDirectory = baseDirectory;
+	}
+
+	/**
+	 * The maximum number of changes that are buffered before they are written to the log
+	 * file; they are written earlier when they fill the buffer, so this is a bound on the
+	 * changes that can be lost, not a guarantee that changes are written together. Changes
+	 * that have not been written are lost if the application stops without {@link #flush()}
+	 * or {@link #destroy()} being called. Default 1.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Whether each batch of changes written to the log file is also forced to the storage
+	 * device, so that it survives an operating system failure. Default false.
+	 */
+	public void setSync(boolean sync) {
+		this.sync = sync;
+	}
+
+	/**
+	 * The number of records in the log file above which the log is compacted, provided it
+	 * holds more than twice as many records as there are keys. Default 10000.
+	 */
+	public void setCompactionThreshold(int compactionThreshold) {
+		Assert.isTrue(compactionThreshold > 0, "'compactionThreshold' must be greater than 0");
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/**
+	 * The executor used to write the snapshots of the metadata when the log is compacted.
+	 * Default {@link SimpleAsyncTaskExecutor}.
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "'taskExecutor' must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		File baseDir = new File(this.baseDirectory);
+		baseDir.mkdirs();
+		Assert.isTrue(baseDir.isDirectory(), "Failed to create metadata-store directory '"
+				+ baseDir.getAbsolutePath() + "'");
+		this.directory = baseDir;
+		synchronized (this.monitor) {
+			this.loadMetadata();
+			this.openLog();
+		}
+	}
+
+	@Override
+	public void put(String key, String value) {
+		Assert.notNull(key, "'key' must not be null");
+		Assert.notNull(value, "'value' must not be null");
+		synchronized (this.monitor) {
+			this.assertOpen();
+			this.metadata.put(key, value);
+			this.append(PUT, key, value);
+			this.afterChanges(1);
+		}
+	}
+
+	/**
+	 * Write all the entries to this MetadataStore, as a single batch.
+	 */
+	public void putAll(Map<String, String> entries) {
+		Assert.notNull(entries, "'entries' must not be null");
+		synchronized (this.monitor) {
+			this.assertOpen();
+			for (Entry<String, String> entry : entries.entrySet()) {
+				Assert.notNull(entry.getKey(), "'key' must not be null");
+				Assert.notNull(entry.getValue(), "'value' must not be null");
+				this.metadata.put(entry.getKey(), entry.getValue());
+				this.append(PUT, entry.getKey(), entry.getValue());
+			}
+			this.afterChanges(entries.size());
+		}
+	}
+
+	@Override
+	public String get(String key) {
+		return this.metadata.get(key);
+	}
+
+	/**
+	 * Read the values for the given keys from this MetadataStore.
+	 * @return the keys that have a value, mapped to their value.
+	 */
+	public Map<String, String> getAll(Collection<String> keys) {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		for (String key : keys) {
+			String value = this.metadata.get(key);
+			if (value != null) {
+				values.put(key, value);
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public String remove(String key) {
+		synchronized (this.monitor) {
+			this.assertOpen();
+			String value = this.metadata.remove(key);
+			if (value != null) {
+				this.append(REMOVE, key, null);
+				this.afterChanges(1);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Write the changes that are buffered to the log file (and force them to the storage
+	 * device if 'sync' is true).
+	 */
+	public void flush() {
+		synchronized (this.monitor) {
+			try {
+				this.flushLog();
+			}
+			catch (IOException e) {
+				logger.warn("Failed to persist entries. This may result in duplicate "
+						+ "entries after this component is restarted.", e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		synchronized (this.monitor) {
+			this.flush();
+			this.closeLog();
+		}
+	}
+
+	private void assertOpen() {
+		Assert.state(this.log != null, "The metadata store has not been initialized or has been destroyed");
+	}
+
+	private void append(byte operation, String key, String value) {
+		try {
+			writeRecord(this.log, operation, key, value);
+		}
+		catch (IOException e) {
+			// not fatal for the functionality of the component
+			logger.warn("Failed to persist entry. This may result in a duplicate "
+					+ "entry after this component is restarted.", e);
+		}
+	}
+
+	private void afterChanges(int changes) {
+		this.pendingChanges += changes;
+		this.logRecords += changes;
+		if (this.pendingChanges >= this.batchSize) {
+			this.flush();
+		}
+		if (!this.compacting && this.logRecords > this.compactionThreshold
+				&& this.logRecords > 2 * this.metadata.size()) {
+			this.compact();
+		}
+	}
+
+	private void flushLog() throws IOException {
+		this.pendingChanges = 0;
+		if (this.log != null) {
+			this.log.flush();
+			if (this.sync) {
+				this.logFile.getChannel().force(false);
+			}
+		}
+	}
+
+	/**
+	 * Start a new log and write a snapshot of the metadata as it is now in the background;
+	 * the snapshot has the generation of the new log, so replaying the snapshot and then the
+	 * new log restores the metadata. The current log is only closed once the new log is
+	 * open, so if it cannot be opened, changes are still appended to the current log.
+	 */
+	private void compact() {
+		FileOutputStream newLogFile;
+		try {
+			this.flushLog();
+			newLogFile = new FileOutputStream(this.file(this.generation + 1, LOG_SUFFIX), true);
+		}
+		catch (IOException e) {
+			logger.warn("Failed to start a new metadata-store log; continuing with the current log", e);
+			return;
+		}
+		this.closeLog();
+		this.generation++;
+		this.useLog(newLogFile);
+		final Map<String, String> snapshot = new HashMap<String, String>(this.metadata);
+		final long snapshotGeneration = this.generation;
+		this.compacting = true;
+		this.taskExecutor.execute(new Runnable() {
+
+			public void run() {
+				try {
+					writeSnapshot(snapshot, snapshotGeneration);
+				}
+				catch (Exception e) {
+					logger.warn("Failed to write metadata-store snapshot; the log will be replayed instead", e);
+				}
+				finally {
+					synchronized (monitor) {
+						compacting = false;
+					}
+				}
+			}
+
+		});
+	}
+
+	private void writeSnapshot(Map<String, String> snapshot, long snapshotGeneration) throws IOException {
+		File tempFile = this.file(snapshotGeneration, SNAPSHOT_SUFFIX + TEMP_SUFFIX);
+		FileOutputStream outputStream = new FileOutputStream(tempFile);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+			for (Entry<String, String> entry : snapshot.entrySet()) {
+				writeRecord(out, PUT, entry.getKey(), entry.getValue());
+			}
+			out.flush();
+			outputStream.getChannel().force(true);
+		}
+		finally {
+			outputStream.close();
+		}
+		if (!tempFile.renameTo(this.file(snapshotGeneration, SNAPSHOT_SUFFIX))) {
+			tempFile.delete();
+			throw new IOException("Failed to rename " + tempFile.getAbsolutePath());
+		}
+		this.deleteFilesBefore(snapshotGeneration);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Wrote metadata-store snapshot of " + snapshot.size() + " entries");
+		}
+	}
+
+	private void openLog() throws IOException {
+		this.useLog(new FileOutputStream(this.file(this.generation, LOG_SUFFIX), true));
+	}
+
+	private void useLog(FileOutputStream logFile) {
+		this.logFile = logFile;
+		this.log = new DataOutputStream(new BufferedOutputStream(logFile));
+	}
+
+	private void closeLog() {
+		if (this.log != null) {
+			try {
+				this.log.close();
+			}
+			catch (IOException e) {
+				// not fatal for the functionality of the component
+				logger.warn("Failed to close the metadata-store log", e);
+			}
+			this.log = null;
+			this.logFile = null;
+		}
+	}
+
+	/**
+	 * Load the latest snapshot, then replay the logs from the generation of the snapshot
+	 * onwards; a record that was not completely written when the application stopped is
+	 * truncated from the last log.
+	 */
+	private void loadMetadata() throws IOException {
+		SortedMap<Long, File> snapshots = this.files(SNAPSHOT_SUFFIX);
+		SortedMap<Long, File> logs = this.files(LOG_SUFFIX);
+		long snapshotGeneration = 0;
+		if (!snapshots.isEmpty()) {
+			snapshotGeneration = snapshots.lastKey();
+			File snapshot = snapshots.get(snapshotGeneration);
+			if (this.readRecords(snapshot, this.metadata) < snapshot.length()) {
+				logger.warn("Metadata-store snapshot " + snapshot.getAbsolutePath() + " is incomplete");
+			}
+		}
+		this.generation = snapshotGeneration;
+		for (Entry<Long, File> log : logs.tailMap(snapshotGeneration).entrySet()) {
+			File file = log.getValue();
+			this.generation = log.getKey();
+			this.logRecords = 0;
+			long length = this.readRecords(file, this.metadata);
+			if (length < file.length()) {
+				logger.warn("Truncating incomplete record from metadata-store log " + file.getAbsolutePath());
+				RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+				try {
+					randomAccessFile.setLength(length);
+				}
+				finally {
+					randomAccessFile.close();
+				}
+			}
+		}
+		this.deleteFilesBefore(snapshotGeneration);
+		for (File tempFile : this.files(SNAPSHOT_SUFFIX + TEMP_SUFFIX).values()) {
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Apply the records of the file to the target map, counting them in 'logRecords'.
+	 * @return the length of the file up to the end of the last valid record.
+	 */
+	private long readRecords(File file, Map<String, String> target) throws IOException {
+		long fileLength = file.length();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		long length = 0;
+		try {
+			while (true) {
+				int operation = in.read();
+				if (operation < 0) {
+					break;
+				}
+				byte[] key = readBytes(in, fileLength);
+				byte[] value = readBytes(in, fileLength);
+				int checksum = in.readInt();
+				if (key == null || checksum != checksum((byte) operation, key, value)) {
+					break;
+				}
+				if (operation == PUT && value != null) {
+					target.put(new String(key, CHARSET), new String(value, CHARSET));
+				}
+				else if (operation == REMOVE) {
+					target.remove(new String(key, CHARSET));
+				}
+				else {
+					break;
+				}
+				length += 13 + key.length + (value != null ? value.length : 0);
+				this.logRecords++;
+			}
+		}
+		catch (EOFException e) {
+			// incomplete last record
+		}
+		finally {
+			in.close();
+		}
+		return length;
+	}
+
+	private SortedMap<Long, File> files(String suffix) {
+		SortedMap<Long, File> files = new TreeMap<Long, File>();
+		File[] candidates = this.directory.listFiles();
+		if (candidates != null) {
+			for (File file : candidates) {
+				String name = file.getName();
+				if (name.startsWith(FILE_PREFIX) && name.endsWith(suffix)) {
+					try {
+						files.put(Long.valueOf(name.substring(FILE_PREFIX.length(), name.length() - suffix.length())),
+								file);
+					}
+					catch (NumberFormatException e) {
+						// not one of ours
+					}
+				}
+			}
+		}
+		return files;
+	}
+
+	private void deleteFilesBefore(long generation) {
+		for (File file : this.files(LOG_SUFFIX).headMap(generation).values()) {
+			file.delete();
+		}
+		for (File file : this.files(SNAPSHOT_SUFFIX).headMap(generation).values()) {
+			file.delete();
+		}
+	}
+
+	private File file(long generation, String suffix) {
+		return new File(this.directory, FILE_PREFIX + generation + suffix);
+	}
+
+	/**
+	 * A record is the operation, the length and bytes of the key, the length (-1 for none)
+	 * and bytes of the value, and a CRC32 checksum of these.
+	 */
+	private static void writeRecord(DataOutputStream out, byte operation, String key, String value)
+			throws IOException {
+		byte[] keyBytes = key.getBytes(CHARSET);
+		byte[] valueBytes = (value != null ? value.getBytes(CHARSET) : null);
+		out.writeByte(operation);
+		out.writeInt(keyBytes.length);
+		out.write(keyBytes);
+		if (valueBytes != null) {
+			out.writeInt(valueBytes.length);
+			out.write(valueBytes);
+		}
+		else {
+			out.writeInt(-1);
+		}
+		out.writeInt(checksum(operation, keyBytes, valueBytes));
+	}
+
+	private static byte[] readBytes(DataInputStream in, long fileLength) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		if (length > fileLength) {
+			// a corrupt length
+			throw new EOFException();
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static int checksum(byte operation, byte[] key, byte[] value) {
+		CRC32 crc = new CRC32();
+		crc.update(operation);
+		crc.update(key);
+		if (value != null) {
+			crc.update(value);
+		}
+		return (int) crc.getValue();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,12 @@
 
 package org.springframework.integration.splitter;
 
-import java.util.ArrayList;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
+import java.util.Iterator;
 
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageHeaders;
@@ -29,6 +32,11 @@ import org.springframework.util.ObjectUtils;
 
 /**
  * Base class for Message-splitting handlers.
+ * <p>
+ * The reply messages are built and sent one at a time, as the result of
+ * {@link #splitMessage(Message)} is iterated; in particular, an {@link Iterator}
+ * or {@link Iterable} result is consumed lazily, so that the items need not all
+ * be held in memory.
  * 
  * @author Mark Fisher
  * @author Dave Syer
@@ -53,29 +61,33 @@ public abstract class AbstractMessageSplitter extends AbstractReplyProducingMess
 				|| (result.getClass().isArray() && ObjectUtils.isEmpty((Object[]) result))) {
 			return null;
 		}
-		MessageHeaders headers = message.getHeaders();
-		Object correlationId = headers.getId();
-		List<MessageBuilder<?>> messageBuilders = new ArrayList<MessageBuilder<?>>();
+		Iterator<?> iterator;
+		Object lazyResult = null;
+		int sequenceSize;
 		if (result instanceof Collection) {
-			Collection<?> items = (Collection<?>) result;
-			int sequenceNumber = 0;
-			int sequenceSize = items.size();
-			for (Object item : items) {
-				messageBuilders.add(this.createBuilder(item, headers, correlationId, ++sequenceNumber, sequenceSize));
-			}
+			iterator = ((Collection<?>) result).iterator();
+			sequenceSize = ((Collection<?>) result).size();
 		}
 		else if (result.getClass().isArray()) {
-			Object[] items = (Object[]) result;
-			int sequenceNumber = 0;
-			int sequenceSize = items.length;
-			for (Object item : items) {
-				messageBuilders.add(this.createBuilder(item, headers, correlationId, ++sequenceNumber, sequenceSize));
+			iterator = Arrays.asList((Object[]) result).iterator();
+			sequenceSize = ((Object[]) result).length;
+		}
+		else if (result instanceof Iterable || result instanceof Iterator) {
+			iterator = (result instanceof Iterator ? (Iterator<?>) result : ((Iterable<?>) result).iterator());
+			if (!iterator.hasNext()) {
+				closeIfNecessary(iterator);
+				closeIfNecessary(result);
+				return null;
 			}
+			lazyResult = result;
+			sequenceSize = (this.applySequence ? this.obtainSizeIfPossible(iterator) : 0);
 		}
 		else {
-			messageBuilders.add(this.createBuilder(result, headers, correlationId, 1, 1));
+			iterator = Collections.singleton(result).iterator();
+			sequenceSize = 1;
 		}
-		return messageBuilders;
+		MessageHeaders headers = message.getHeaders();
+		return new MessageBuilderIterator(iterator, lazyResult, headers, headers.getId(), sequenceSize);
 	}
 
 	@SuppressWarnings( { "unchecked", "rawtypes" })
@@ -95,6 +107,36 @@ public abstract class AbstractMessageSplitter extends AbstractReplyProducingMess
 		return builder;
 	}
 
+	/**
+	 * Return the number of items the {@link Iterator} returned (directly or through an
+	 * {@link Iterable}) by {@link #splitMessage(Message)} will produce, if it can be known
+	 * before the items are consumed, for the 'sequenceSize' header. Only called when
+	 * 'applySequence' is true. This implementation returns 0, meaning that the size is
+	 * not known.
+	 * @param iterator the iterator over the items; it must not be consumed.
+	 * @return the number of items, or 0 if it is not known.
+	 * @since 3.0
+	 */
+	protected int obtainSizeIfPossible(Iterator<?> iterator) {
+		return 0;
+	}
+
+	/**
+	 * The reply is always split, without inspecting its elements, so that a lazy
+	 * result is only iterated once.
+	 */
+	@Override
+	protected boolean shouldSplitOutput(Iterable<?> reply) {
+		return true;
+	}
+
+	@Override
+	protected void afterSplitOutput(Iterable<?> reply) {
+		if (reply instanceof MessageBuilderIterator) {
+			((MessageBuilderIterator) reply).close();
+		}
+	}
+
 	@Override
 	public String getComponentType() {
 		return "splitter";
@@ -105,7 +147,80 @@ public abstract class AbstractMessageSplitter extends AbstractReplyProducingMess
 	 * Array. The individual elements may be Messages, but it is not necessary. If the elements are not Messages, each
 	 * will be provided as the payload of a Message. It is also acceptable to return a single Object or Message. In that
 	 * case, a single reply Message will be produced.
+	 * <p>
+	 * The return value may also be an {@link Iterator} or an {@link Iterable} (other than a Collection), which is then
+	 * consumed lazily: each element is sent before the next one is requested. Unless {@link #obtainSizeIfPossible}
+	 * is overridden, the 'sequenceSize' header is 0 for such results, since the number of elements is not known in
+	 * advance. If the Iterator or Iterable also implements {@link Closeable}, it is closed when the iteration ends or
+	 * fails.
 	 */
 	protected abstract Object splitMessage(Message<?> message);
 
+	private static void closeIfNecessary(Object object) {
+		if (object instanceof Closeable) {
+			try {
+				((Closeable) object).close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+
+	/**
+	 * Builds the reply messages as the split items are iterated; iterable only once.
+	 * Closes the lazily consumed result, if any, once the iteration ends.
+	 */
+	private class MessageBuilderIterator implements Iterator<MessageBuilder<?>>, Iterable<MessageBuilder<?>> {
+
+		private final Iterator<?> iterator;
+
+		private final Object lazyResult;
+
+		private final MessageHeaders headers;
+
+		private final Object correlationId;
+
+		private final int sequenceSize;
+
+		private int sequenceNumber;
+
+		private MessageBuilderIterator(Iterator<?> iterator, Object lazyResult, MessageHeaders headers,
+				Object correlationId, int sequenceSize) {
+			this.iterator = iterator;
+			this.lazyResult = lazyResult;
+			this.headers = headers;
+			this.correlationId = correlationId;
+			this.sequenceSize = sequenceSize;
+		}
+
+		public Iterator<MessageBuilder<?>> iterator() {
+			return this;
+		}
+
+		public boolean hasNext() {
+			return this.iterator.hasNext();
+		}
+
+		public MessageBuilder<?> next() {
+			return createBuilder(this.iterator.next(), this.headers, this.correlationId, ++this.sequenceNumber,
+					this.sequenceSize);
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void close() {
+			if (this.lazyResult != null) {
+				closeIfNecessary(this.iterator);
+				if (this.lazyResult != this.iterator) {
+					closeIfNecessary(this.lazyResult);
+				}
+			}
+		}
+
+	}
+
 }
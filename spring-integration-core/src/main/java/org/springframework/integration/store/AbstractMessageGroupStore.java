@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -108,7 +108,13 @@ public abstract class AbstractMessageGroupStore implements MessageGroupStore, It
 		return count;
 	}
 
-	private void expire(MessageGroup group) {
+	/**
+	 * Invoke the registered expiry callbacks with the group. Subclasses that override
+	 * {@link #expireMessageGroups(long)} use this to expire each group they select.
+	 *
+	 * @since 3.0
+	 */
+	protected void expire(MessageGroup group) {
 	
 		RuntimeException exception = null;
 	
@@ -0,0 +1,1488 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.integration.Message;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+/**
+ * Local-disk implementation of {@link MessageStore} and {@link MessageGroupStore} for
+ * single-node deployments that need durable queue channels, aggregators, delayers or
+ * claim checks without a database. Each change is appended as a checksummed record to
+ * the current segment file; an in-memory index maps each message (and the metadata of
+ * each group) to the location of its record, so messages themselves are not held in
+ * memory and are read back from the segment when they are retrieved.
+ * <p>
+ * When the current segment reaches {@link #setSegmentSize(int) segmentSize} bytes, a new
+ * one is started. A sealed segment in which the records that are still needed take less
+ * than {@link #setCompactionThreshold(double) compactionThreshold} of the file is
+ * compacted on the {@link #setTaskExecutor(Executor) taskExecutor}: its remaining records
+ * are copied to a new segment and the file is deleted. With a queue that is
+ * consumed as fast as it is filled, segments are simply deleted once they are empty.
+ * <p>
+ * Records are written to the operating system as each operation completes; when
+ * {@link #setSync(boolean) sync} is true, each operation also waits until its record has
+ * been forced to the storage device, and threads that are waiting at the same time share
+ * a single force (group commit). On initialization the index is rebuilt by replaying the
+ * segments; a record that was not completely written when the application stopped is
+ * truncated.
+ * <p>
+ * Messages are serialized with Java serialization by default (see
+ * {@link #setSerializer(Serializer)}); group ids are always serialized with Java
+ * serialization. Files are written to the 'java.io.tmpdir' +  "/spring-integration/" by
+ * default, with names starting with "message-store."; each instance must use its own base
+ * directory.
+ *
+ * @since 3.0
+ */
+@ManagedResource
+public class SegmentedFileMessageStore extends AbstractMessageGroupStore
+		implements MessageStore, InitializingBean, DisposableBean {
+
+	private static final String FILE_PREFIX = "message-store.";
+
+	private static final String SEGMENT_SUFFIX = ".segment";
+
+	private static final byte MESSAGE = 1;
+
+	private static final byte REMOVE_MESSAGE = 2;
+
+	private static final byte GROUP_METADATA = 3;
+
+	private static final byte REMOVE_GROUP = 4;
+
+	/**
+	 * Record length, type, sequence, time and group id length.
+	 */
+	private static final int HEADER_LENGTH = 4 + 1 + 8 + 8 + 4;
+
+	private static final int CRC_LENGTH = 4;
+
+	/**
+	 * The number of records of a compacted segment that are selected at a time.
+	 */
+	private static final int COMPACTION_BATCH_SIZE = 1000;
+
+	private final Object monitor = new Object();
+
+	private final Object syncMonitor = new Object();
+
+	/**
+	 * Held for reading while a record is read from a segment, and for writing while
+	 * compaction relocates records and closes the compacted segment.
+	 */
+	private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+	private final Map<UUID, Location> messages = new HashMap<UUID, Location>();
+
+	private final Map<Object, Group> groups = new HashMap<Object, Group>();
+
+	private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+
+	private final SerializingConverter keySerializer = new SerializingConverter();
+
+	private final DeserializingConverter keyDeserializer = new DeserializingConverter();
+
+	private volatile SerializingConverter serializer = new SerializingConverter();
+
+	private volatile DeserializingConverter deserializer = new DeserializingConverter();
+
+	private volatile String baseDirectory = System.getProperty("java.io.tmpdir") + "/spring-integration/";
+
+	private volatile int segmentSize = 16 * 1024 * 1024;
+
+	private volatile boolean sync;
+
+	private volatile double compactionThreshold = 0.5;
+
+	private volatile Executor taskExecutor = new SimpleAsyncTaskExecutor();
+
+	private volatile File directory;
+
+	private Segment activeSegment;
+
+	/**
+	 * Segments started for new records have even ids; see {@link #compact()}.
+	 */
+	private int nextSegmentId;
+
+	private long nextSequence = 1;
+
+	private long syncedSequence;
+
+	private boolean compactionScheduled;
+
+	private volatile boolean running;
+
+
+	public void setBaseDirectory(String baseDirectory) {
+		Assert.hasText(baseDirectory, "'baseDirectory' must be non-empty");
+		this.baseDirectory = baseDirectory;
+	}
+
+	/**
+	 * The size in bytes above which a new segment file is started. Default 16MB.
+	 */
+	public void setSegmentSize(int segmentSize) {
+		Assert.isTrue(segmentSize > 0, "'segmentSize' must be greater than 0");
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Whether each operation waits until its record has been forced to the storage
+	 * device, so that it survives an operating system failure. Default false.
+	 */
+	public void setSync(boolean sync) {
+		this.sync = sync;
+	}
+
+	/**
+	 * The fraction of a sealed segment that must be taken by records that are still
+	 * needed for the segment not to be compacted. Default 0.5.
+	 */
+	public void setCompactionThreshold(double compactionThreshold) {
+		Assert.isTrue(compactionThreshold > 0 && compactionThreshold <= 1,
+				"'compactionThreshold' must be greater than 0 and not greater than 1");
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/**
+	 * The executor used to compact sealed segments. Default {@link SimpleAsyncTaskExecutor}.
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "'taskExecutor' must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * A converter for serializing messages to byte arrays for storage.
+	 *
+	 * @param serializer the serializer to set
+	 */
+	@SuppressWarnings("unchecked")
+	public void setSerializer(Serializer<? super Message<?>> serializer) {
+		this.serializer = new SerializingConverter((Serializer<Object>) serializer);
+	}
+
+	/**
+	 * A converter for deserializing byte arrays to messages.
+	 *
+	 * @param deserializer the deserializer to set
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void setDeserializer(Deserializer<? extends Message<?>> deserializer) {
+		this.deserializer = new DeserializingConverter((Deserializer) deserializer);
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		File baseDir = new File(this.baseDirectory);
+		baseDir.mkdirs();
+		Assert.isTrue(baseDir.isDirectory(), "Failed to create message-store directory '"
+				+ baseDir.getAbsolutePath() + "'");
+		this.directory = baseDir;
+		synchronized (this.monitor) {
+			this.load();
+			this.running = true;
+			this.scheduleCompactionIfNecessary();
+		}
+	}
+
+	/**
+	 * Force the records written so far to the storage device.
+	 */
+	public void flush() {
+		synchronized (this.monitor) {
+			this.assertRunning();
+			try {
+				this.activeSegment.channel.force(false);
+			}
+			catch (IOException e) {
+				throw new MessageStoreException("Failed to force the message-store segment to disk", e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		synchronized (this.monitor) {
+			if (!this.running) {
+				return;
+			}
+			this.running = false;
+			this.activeSegment.channel.force(false);
+			this.segmentLock.writeLock().lock();
+			try {
+				for (Segment segment : this.segments.values()) {
+					segment.close();
+				}
+			}
+			finally {
+				this.segmentLock.writeLock().unlock();
+			}
+		}
+	}
+
+	@ManagedAttribute
+	public long getMessageCount() {
+		synchronized (this.monitor) {
+			return this.messages.size();
+		}
+	}
+
+	@Override
+	@ManagedAttribute
+	public int getMessageGroupCount() {
+		synchronized (this.monitor) {
+			return this.groups.size();
+		}
+	}
+
+	@Override
+	@ManagedAttribute
+	public int getMessageCountForAllMessageGroups() {
+		synchronized (this.monitor) {
+			int count = 0;
+			for (Group group : this.groups.values()) {
+				count += group.locations.size();
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * @return the number of segment files.
+	 */
+	@ManagedAttribute
+	public int getSegmentCount() {
+		synchronized (this.monitor) {
+			return this.segments.size();
+		}
+	}
+
+	public <T> Message<T> addMessage(Message<T> message) {
+		Assert.notNull(message, "'message' must not be null");
+		byte[] bytes = this.serializer.convert(message);
+		long sequence;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			UUID id = message.getHeaders().getId();
+			Location location = this.appendMessage(null, id, bytes);
+			this.discard(supersede(this.messages.put(id, location), location));
+			sequence = location.sequence;
+		}
+		this.sync(sequence);
+		return message;
+	}
+
+	public Message<?> getMessage(UUID id) {
+		if (id == null) {
+			return null;
+		}
+		Location location;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			location = this.messages.get(id);
+		}
+		return (location != null) ? this.readMessage(location) : null;
+	}
+
+	public Message<?> removeMessage(UUID id) {
+		if (id == null) {
+			return null;
+		}
+		Message<?> message;
+		long sequence;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Location location = this.messages.remove(id);
+			if (location == null) {
+				return null;
+			}
+			message = this.readMessage(location);
+			sequence = this.appendRemoveMessage(null, id, location);
+			this.discard(location);
+		}
+		this.sync(sequence);
+		return message;
+	}
+
+	public int messageGroupSize(Object groupId) {
+		synchronized (this.monitor) {
+			Group group = this.groups.get(groupId);
+			return (group != null) ? group.locations.size() : 0;
+		}
+	}
+
+	public MessageGroup getMessageGroup(Object groupId) {
+		Assert.notNull(groupId, "'groupId' must not be null");
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Group group = this.groups.get(groupId);
+			if (group == null) {
+				return new SimpleMessageGroup(groupId);
+			}
+			return new PersistentMessageGroup(group, true);
+		}
+	}
+
+	public MessageGroup addMessageToGroup(Object groupId, Message<?> message) {
+		Assert.notNull(groupId, "'groupId' must not be null");
+		Assert.notNull(message, "'message' must not be null");
+		byte[] bytes = this.serializer.convert(message);
+		MessageGroup messageGroup;
+		long sequence;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Group group = this.obtainGroup(groupId);
+			UUID id = message.getHeaders().getId();
+			Location location = this.appendMessage(group, id, bytes);
+			this.discard(supersede(group.locations.put(id, location), location));
+			group.lastModified = location.time;
+			sequence = location.sequence;
+			messageGroup = new PersistentMessageGroup(group, false);
+		}
+		this.sync(sequence);
+		return messageGroup;
+	}
+
+	public MessageGroup removeMessageFromGroup(Object groupId, Message<?> messageToRemove) {
+		MessageGroup messageGroup;
+		long sequence = 0;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Group group = this.groups.get(groupId);
+			Assert.notNull(group, "MessageGroup for groupId '" + groupId + "' " +
+					"can not be located while attempting to remove Message from the MessageGroup");
+			UUID id = messageToRemove.getHeaders().getId();
+			Location location = group.locations.remove(id);
+			if (location != null) {
+				sequence = this.appendRemoveMessage(group, id, location);
+				this.discard(location);
+				group.lastModified = System.currentTimeMillis();
+			}
+			messageGroup = new PersistentMessageGroup(group, false);
+		}
+		this.sync(sequence);
+		return messageGroup;
+	}
+
+	public Message<?> pollMessageFromGroup(Object groupId) {
+		Message<?> message = null;
+		long sequence = 0;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Group group = this.groups.get(groupId);
+			if (group == null) {
+				return null;
+			}
+			Iterator<Entry<UUID, Location>> iterator = group.locations.entrySet().iterator();
+			while (message == null && iterator.hasNext()) {
+				Entry<UUID, Location> entry = iterator.next();
+				iterator.remove();
+				message = this.readMessage(entry.getValue());
+				sequence = this.appendRemoveMessage(group, entry.getKey(), entry.getValue());
+				this.discard(entry.getValue());
+				group.lastModified = System.currentTimeMillis();
+			}
+		}
+		this.sync(sequence);
+		return message;
+	}
+
+	public void removeMessageGroup(Object groupId) {
+		long sequence;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Group group = this.groups.remove(groupId);
+			if (group == null) {
+				return;
+			}
+			int oldestSegment = group.metadata.oldestSegment;
+			for (Location location : group.locations.values()) {
+				oldestSegment = Math.min(oldestSegment, location.oldestSegment);
+			}
+			sequence = this.appendRemoveGroup(group, oldestSegment);
+			for (Location location : group.locations.values()) {
+				this.discard(location);
+			}
+			this.discard(group.metadata);
+		}
+		this.sync(sequence);
+	}
+
+	public void setLastReleasedSequenceNumberForGroup(Object groupId, int sequenceNumber) {
+		long sequence;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Group group = this.obtainGroup(groupId);
+			group.lastReleasedSequenceNumber = sequenceNumber;
+			sequence = this.appendGroupMetadata(group);
+		}
+		this.sync(sequence);
+	}
+
+	public void completeGroup(Object groupId) {
+		long sequence;
+		synchronized (this.monitor) {
+			this.assertRunning();
+			Group group = this.obtainGroup(groupId);
+			group.complete = true;
+			sequence = this.appendGroupMetadata(group);
+		}
+		this.sync(sequence);
+	}
+
+	/**
+	 * @return the groups as they are now; their messages are read when they are first
+	 * accessed.
+	 */
+	public Iterator<MessageGroup> iterator() {
+		synchronized (this.monitor) {
+			this.assertRunning();
+			List<MessageGroup> messageGroups = new ArrayList<MessageGroup>(this.groups.size());
+			for (Group group : this.groups.values()) {
+				messageGroups.add(new PersistentMessageGroup(group, true));
+			}
+			return messageGroups.iterator();
+		}
+	}
+
+	private void assertRunning() {
+		Assert.state(this.running, "The message store is not running; it must be initialized "
+				+ "by 'afterPropertiesSet()' and not destroyed");
+	}
+
+	private Group obtainGroup(Object groupId) {
+		Group group = this.groups.get(groupId);
+		if (group == null) {
+			group = new Group(groupId, this.keySerializer.convert(groupId), System.currentTimeMillis());
+			this.groups.put(groupId, group);
+			this.appendGroupMetadata(group);
+		}
+		return group;
+	}
+
+	private Location appendMessage(Group group, UUID id, byte[] bytes) {
+		ByteBuffer record = this.createRecord(MESSAGE, (group != null) ? group.key : null, 16 + 4 + bytes.length);
+		record.putLong(id.getMostSignificantBits());
+		record.putLong(id.getLeastSignificantBits());
+		record.putInt(bytes.length);
+		record.put(bytes);
+		Location location = this.append(record);
+		location.segment.liveBytes += location.length;
+		return location;
+	}
+
+	/**
+	 * A tombstone that prevents the removed record from being restored when the segments
+	 * are replayed; it is needed for as long as a segment that may hold a copy of the
+	 * removed record exists.
+	 */
+	private long appendRemoveMessage(Group group, UUID id, Location removed) {
+		ByteBuffer record = this.createRecord(REMOVE_MESSAGE, (group != null) ? group.key : null, 16 + 8 + 4);
+		record.putLong(id.getMostSignificantBits());
+		record.putLong(id.getLeastSignificantBits());
+		record.putLong(removed.sequence);
+		record.putInt(removed.oldestSegment);
+		Location location = this.append(record);
+		location.segment.addTombstone(removed.oldestSegment, location.length);
+		return location.sequence;
+	}
+
+	private long appendGroupMetadata(Group group) {
+		ByteBuffer record = this.createRecord(GROUP_METADATA, group.key, 8 + 4 + 1);
+		record.putLong(group.timestamp);
+		record.putInt(group.lastReleasedSequenceNumber);
+		record.put((byte) (group.complete ? 1 : 0));
+		Location location = this.append(record);
+		location.segment.liveBytes += location.length;
+		this.discard(supersede(group.metadata, location));
+		group.metadata = location;
+		group.lastModified = location.time;
+		return location.sequence;
+	}
+
+	/**
+	 * A tombstone for all the records of the group with a lower sequence; it is needed for
+	 * as long as a segment from the oldest one with a record of the group exists.
+	 */
+	private long appendRemoveGroup(Group group, int oldestSegment) {
+		ByteBuffer record = this.createRecord(REMOVE_GROUP, group.key, 4);
+		record.putInt(oldestSegment);
+		Location location = this.append(record);
+		location.segment.addTombstone(oldestSegment, location.length);
+		return location.sequence;
+	}
+
+	private ByteBuffer createRecord(byte type, byte[] key, int bodyLength) {
+		int keyLength = (key != null) ? key.length : 0;
+		ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + keyLength + bodyLength + CRC_LENGTH);
+		record.putInt(record.capacity());
+		record.put(type);
+		record.putLong(this.nextSequence++);
+		record.putLong(System.currentTimeMillis());
+		if (key != null) {
+			record.putInt(key.length);
+			record.put(key);
+		}
+		else {
+			record.putInt(-1);
+		}
+		return record;
+	}
+
+	/**
+	 * Append a record that has been filled by {@link #createRecord(byte, byte[], int)}.
+	 */
+	private Location append(ByteBuffer record) {
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 4, record.position() - 4);
+		record.putInt((int) crc.getValue());
+		record.flip();
+		return this.appendRecord(record);
+	}
+
+	/**
+	 * Append a complete record to the active segment, starting a new segment first if it
+	 * would not fit.
+	 */
+	private Location appendRecord(ByteBuffer record) {
+		try {
+			int length = record.remaining();
+			if (this.activeSegment.size > 0 && this.activeSegment.size + length > this.segmentSize) {
+				this.roll();
+			}
+			Segment segment = this.activeSegment;
+			long position = segment.size;
+			writeFully(segment.channel, record, position);
+			segment.size += length;
+			return new Location(record.getLong(5), record.getLong(13), segment, position, length);
+		}
+		catch (IOException e) {
+			throw new MessageStoreException("Failed to write to the message-store segment", e);
+		}
+	}
+
+	private void roll() throws IOException {
+		Segment sealed = this.activeSegment;
+		sealed.channel.force(false);
+		this.activeSegment = this.openSegment(this.nextSegmentId);
+		this.nextSegmentId += 2;
+		this.segments.put(this.activeSegment.id, this.activeSegment);
+		// the sealed segment, and the segment compactions copied to while it was active
+		this.scheduleCompactionIfNecessary();
+	}
+
+	/**
+	 * A tombstone for the location must also remove the record it supersedes.
+	 * @return the superseded location.
+	 */
+	private static Location supersede(Location superseded, Location location) {
+		if (superseded != null) {
+			location.oldestSegment = Math.min(location.oldestSegment, superseded.oldestSegment);
+		}
+		return superseded;
+	}
+
+	/**
+	 * Record that the record at the location is no longer needed.
+	 */
+	private void discard(Location location) {
+		if (location != null) {
+			Segment segment = location.segment;
+			segment.liveBytes -= location.length;
+			if (this.isCompactionCandidate(segment)) {
+				this.scheduleCompaction();
+			}
+		}
+	}
+
+	/**
+	 * Wait until the record with the given sequence has been forced to the storage device;
+	 * a single force covers all the records written before it starts.
+	 */
+	private void sync(long sequence) {
+		if (!this.sync || sequence == 0) {
+			return;
+		}
+		synchronized (this.syncMonitor) {
+			if (this.syncedSequence >= sequence) {
+				return;
+			}
+			long lastSequence;
+			Segment segment;
+			synchronized (this.monitor) {
+				lastSequence = this.nextSequence - 1;
+				segment = this.activeSegment;
+			}
+			try {
+				// earlier segments were forced when they were sealed
+				segment.channel.force(false);
+			}
+			catch (ClosedChannelException e) {
+				// sealed and compacted, or the store has been destroyed
+			}
+			catch (IOException e) {
+				throw new MessageStoreException("Failed to force the message-store segment to disk", e);
+			}
+			this.syncedSequence = lastSequence;
+		}
+	}
+
+	private Message<?> readMessage(Location location) {
+		ByteBuffer record;
+		this.segmentLock.readLock().lock();
+		try {
+			Segment segment = location.segment;
+			if (segment.closed) {
+				// removed and compacted concurrently
+				return null;
+			}
+			record = ByteBuffer.allocate(location.length);
+			readFully(segment.channel, record, location.position);
+		}
+		catch (IOException e) {
+			throw new MessageStoreException("Failed to read from the message-store segment", e);
+		}
+		finally {
+			this.segmentLock.readLock().unlock();
+		}
+		record.position(HEADER_LENGTH - 4);
+		int keyLength = record.getInt();
+		record.position(record.position() + Math.max(keyLength, 0) + 16);
+		byte[] bytes = new byte[record.getInt()];
+		record.get(bytes);
+		return (Message<?>) this.deserializer.convert(bytes);
+	}
+
+
+	// compaction
+
+	/**
+	 * Neither the active segment nor the segment that compactions currently copy to.
+	 */
+	private boolean isCompactionCandidate(Segment segment) {
+		return segment.id < this.activeSegment.id - 1 && this.isCompactable(segment);
+	}
+
+	/**
+	 * Segments smaller than the segment size, such as those compactions copied to, are
+	 * compacted when their records that are still needed would fill less than the
+	 * threshold of a full segment, so that they are merged.
+	 */
+	private boolean isCompactable(Segment segment) {
+		return segment.size == 0 || segment.liveBytes + this.neededTombstoneBytes(segment)
+				< this.compactionThreshold * Math.max(segment.size, this.segmentSize);
+	}
+
+	private long neededTombstoneBytes(Segment segment) {
+		long bytes = 0;
+		for (Entry<Integer, Long> tombstones : segment.tombstoneBytes.entrySet()) {
+			if (this.isNeededTombstone(segment, tombstones.getKey())) {
+				bytes += tombstones.getValue();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * A tombstone is needed while a segment that is older than its own segment, and not
+	 * older than the oldest segment that held a record it removes, exists.
+	 */
+	private boolean isNeededTombstone(Segment segment, int target) {
+		return target < segment.id && !this.segments.subMap(target, segment.id).isEmpty();
+	}
+
+	private void scheduleCompactionIfNecessary() {
+		for (Segment segment : this.segments.values()) {
+			if (this.isCompactionCandidate(segment)) {
+				this.scheduleCompaction();
+				return;
+			}
+		}
+	}
+
+	private void scheduleCompaction() {
+		if (this.compactionScheduled || !this.running) {
+			return;
+		}
+		this.compactionScheduled = true;
+		this.taskExecutor.execute(new Runnable() {
+
+			public void run() {
+				compact();
+			}
+
+		});
+	}
+
+	/**
+	 * Compact the sealed segments that are compactable, oldest first. The monitor is only
+	 * held to choose a segment, to select the records that are still needed and to swap
+	 * the relocated records into the index; the records are read and copied without it.
+	 * <p>
+	 * The records are copied to the segment with the odd id just below the active
+	 * segment, so that they are replayed before any record written after they were
+	 * selected, in particular before the tombstones of those that are removed meanwhile.
+	 */
+	private void compact() {
+		try {
+			while (true) {
+				Segment candidate = null;
+				Segment copy = null;
+				int copyId = -1;
+				synchronized (this.monitor) {
+					if (this.running) {
+						for (Segment segment : this.segments.values()) {
+							if (this.isCompactionCandidate(segment)) {
+								candidate = segment;
+								break;
+							}
+						}
+					}
+					if (candidate == null) {
+						this.compactionScheduled = false;
+						return;
+					}
+					if (candidate.liveBytes > 0 || this.neededTombstoneBytes(candidate) > 0) {
+						copyId = this.activeSegment.id - 1;
+						copy = this.segments.get(copyId);
+					}
+				}
+				this.compact(candidate, copy, copyId);
+			}
+		}
+		catch (Exception e) {
+			logger.warn("Failed to compact the message-store segments", e);
+			synchronized (this.monitor) {
+				this.compactionScheduled = false;
+			}
+		}
+	}
+
+	/**
+	 * Copy the records of the segment that are still needed to the copy segment (created
+	 * with the given id if null; none if the id is negative), then delete the segment.
+	 */
+	private void compact(Segment segment, Segment copy, int copyId) throws IOException {
+		List<Relocation> relocations = new ArrayList<Relocation>();
+		boolean newCopy = (copy == null && copyId >= 0);
+		long copyStart = 0;
+		long copyEnd = 0;
+		boolean replaced = false;
+		try {
+			if (newCopy) {
+				copy = this.openSegment(copyId);
+			}
+			else if (copy != null) {
+				synchronized (this.monitor) {
+					copyStart = copy.size;
+				}
+			}
+			if (copy != null) {
+				copyEnd = this.copyNeededRecords(segment, copy, copyStart, relocations);
+				copy.channel.force(false);
+			}
+			int relocated = 0;
+			synchronized (this.monitor) {
+				if (!this.running) {
+					return;
+				}
+				this.segmentLock.writeLock().lock();
+				try {
+					for (Relocation relocation : relocations) {
+						if (relocation.location == null) {
+							copy.addTombstone(tombstoneTarget(relocation.record), relocation.record.capacity());
+						}
+						// a record removed or superseded since it was selected is not relocated
+						else if (this.findLocation(segment, relocation.position, relocation.record)
+								== relocation.location) {
+							Location location = relocation.location;
+							location.segment = copy;
+							location.position = relocation.copyPosition;
+							if (location.oldestSegment == segment.id) {
+								location.oldestSegment = copy.id;
+							}
+							copy.liveBytes += location.length;
+							relocated++;
+						}
+					}
+					segment.close();
+				}
+				finally {
+					this.segmentLock.writeLock().unlock();
+				}
+				this.segments.remove(segment.id);
+				if (copy != null) {
+					copy.size = copyEnd;
+					this.segments.put(copy.id, copy);
+				}
+				replaced = true;
+			}
+			if (!segment.file.delete()) {
+				logger.warn("Failed to delete message-store segment " + segment.file.getAbsolutePath());
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Compacted message-store segment " + segment.file.getName() + ", "
+						+ relocated + " records relocated");
+			}
+		}
+		finally {
+			if (!replaced) {
+				if (newCopy && copy != null) {
+					copy.close();
+					copy.file.delete();
+				}
+				else if (copy != null && this.running) {
+					// discard partial copies that the index does not refer to
+					copy.channel.truncate(copyStart);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the records of the segment that are still needed to the copy from the given
+	 * position, in batches that are selected while holding the monitor and written
+	 * without it.
+	 * @return the position after the last copied record.
+	 */
+	private long copyNeededRecords(Segment segment, Segment copy, long copyPosition, List<Relocation> relocations)
+			throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+		try {
+			long position = 0;
+			List<Relocation> batch = new ArrayList<Relocation>(COMPACTION_BATCH_SIZE);
+			while (position < segment.size) {
+				batch.clear();
+				while (position < segment.size && batch.size() < COMPACTION_BATCH_SIZE) {
+					ByteBuffer record = readRecord(in, segment.size - position);
+					Assert.state(record != null, "Incomplete record in sealed segment " + segment.file);
+					batch.add(new Relocation(position, record));
+					position += record.capacity();
+				}
+				synchronized (this.monitor) {
+					Iterator<Relocation> iterator = batch.iterator();
+					while (iterator.hasNext()) {
+						Relocation relocation = iterator.next();
+						relocation.location = this.findLocation(segment, relocation.position, relocation.record);
+						if (relocation.location == null && !this.isNeededTombstone(segment, relocation.record)) {
+							iterator.remove();
+						}
+					}
+				}
+				for (Relocation relocation : batch) {
+					relocation.record.rewind();
+					relocation.copyPosition = copyPosition;
+					writeFully(copy.channel, relocation.record, copyPosition);
+					copyPosition += relocation.record.capacity();
+					relocations.add(relocation);
+				}
+			}
+			return copyPosition;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return the location in the index that refers to the record, or null if the record
+	 * is no longer needed.
+	 */
+	private Location findLocation(Segment segment, long position, ByteBuffer record) {
+		byte type = record.get(4);
+		if (type != MESSAGE && type != GROUP_METADATA) {
+			return null;
+		}
+		Object groupId = this.readGroupId(record);
+		Location location;
+		if (type == MESSAGE) {
+			UUID id = new UUID(record.getLong(), record.getLong());
+			if (groupId == null) {
+				location = this.messages.get(id);
+			}
+			else {
+				Group group = this.groups.get(groupId);
+				location = (group != null) ? group.locations.get(id) : null;
+			}
+		}
+		else {
+			Group group = this.groups.get(groupId);
+			location = (group != null) ? group.metadata : null;
+		}
+		if (location != null && location.segment == segment && location.position == position) {
+			return location;
+		}
+		return null;
+	}
+
+	private boolean isNeededTombstone(Segment segment, ByteBuffer record) {
+		byte type = record.get(4);
+		if (type != REMOVE_MESSAGE && type != REMOVE_GROUP) {
+			return false;
+		}
+		return this.isNeededTombstone(segment, tombstoneTarget(record));
+	}
+
+	/**
+	 * @return the oldest segment that held a record removed by the tombstone.
+	 */
+	private static int tombstoneTarget(ByteBuffer record) {
+		return record.getInt(record.capacity() - CRC_LENGTH - 4);
+	}
+
+
+	// recovery
+
+	/**
+	 * Replay the segments in order, rebuilding the index. Records that were copied by a
+	 * compaction that did not complete are replayed twice, so each record carries the
+	 * sequence in which it was first written, and a tombstone only removes records up to
+	 * the sequence it names.
+	 */
+	private void load() throws IOException {
+		File[] files = this.directory.listFiles();
+		TreeMap<Integer, File> segmentFiles = new TreeMap<Integer, File>();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.startsWith(FILE_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						segmentFiles.put(Integer.valueOf(name.substring(FILE_PREFIX.length(),
+								name.length() - SEGMENT_SUFFIX.length())), file);
+					}
+					catch (NumberFormatException e) {
+						// not a segment
+					}
+				}
+			}
+		}
+		Map<Object, Long> removedGroups = new HashMap<Object, Long>();
+		for (Integer id : segmentFiles.keySet()) {
+			Segment segment = this.openSegment(id);
+			this.segments.put(id, segment);
+			this.replay(segment, removedGroups);
+			this.nextSegmentId = (id / 2 + 1) * 2;
+		}
+		for (Group group : new ArrayList<Group>(this.groups.values())) {
+			if (group.metadata == null) {
+				this.groups.remove(group.groupId);
+				continue;
+			}
+			List<Entry<UUID, Location>> entries = new ArrayList<Entry<UUID, Location>>(group.locations.entrySet());
+			Collections.sort(entries, new Comparator<Entry<UUID, Location>>() {
+
+				public int compare(Entry<UUID, Location> entry1, Entry<UUID, Location> entry2) {
+					long sequence1 = entry1.getValue().sequence;
+					long sequence2 = entry2.getValue().sequence;
+					return (sequence1 < sequence2) ? -1 : ((sequence1 == sequence2) ? 0 : 1);
+				}
+
+			});
+			group.locations.clear();
+			for (Entry<UUID, Location> entry : entries) {
+				group.locations.put(entry.getKey(), entry.getValue());
+				entry.getValue().segment.liveBytes += entry.getValue().length;
+			}
+			group.metadata.segment.liveBytes += group.metadata.length;
+		}
+		for (Location location : this.messages.values()) {
+			location.segment.liveBytes += location.length;
+		}
+		if (this.segments.isEmpty() || this.segments.lastEntry().getValue().size >= this.segmentSize) {
+			Segment segment = this.openSegment(this.nextSegmentId);
+			this.nextSegmentId += 2;
+			this.segments.put(segment.id, segment);
+		}
+		this.activeSegment = this.segments.lastEntry().getValue();
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + this.messages.size() + " messages and " + this.groups.size()
+					+ " message groups from " + this.segments.size() + " message-store segments");
+		}
+	}
+
+	private void replay(Segment segment, Map<Object, Long> removedGroups) throws IOException {
+		long length = segment.file.length();
+		long position = 0;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+		try {
+			ByteBuffer record = readRecord(in, length);
+			while (record != null) {
+				this.replay(segment, position, record, removedGroups);
+				position += record.capacity();
+				record = readRecord(in, length - position);
+			}
+		}
+		finally {
+			in.close();
+		}
+		if (position < length) {
+			logger.warn("Truncating incomplete record from message-store segment " + segment.file.getAbsolutePath());
+			segment.channel.truncate(position);
+		}
+		segment.size = position;
+	}
+
+	private void replay(Segment segment, long position, ByteBuffer record, Map<Object, Long> removedGroups) {
+		byte type = record.get(4);
+		long sequence = record.getLong(5);
+		long time = record.getLong(13);
+		this.nextSequence = Math.max(this.nextSequence, sequence + 1);
+		Location location = new Location(sequence, time, segment, position, record.capacity());
+		Object groupId = this.readGroupId(record);
+		Long removedGroupSequence = (groupId != null) ? removedGroups.get(groupId) : null;
+		if (type == REMOVE_GROUP) {
+			segment.addTombstone(tombstoneTarget(record), location.length);
+			if (removedGroupSequence == null || removedGroupSequence < sequence) {
+				removedGroups.put(groupId, sequence);
+			}
+			Group group = this.groups.get(groupId);
+			if (group != null) {
+				Iterator<Location> locations = group.locations.values().iterator();
+				while (locations.hasNext()) {
+					if (locations.next().sequence < sequence) {
+						locations.remove();
+					}
+				}
+				if (group.metadata != null && group.metadata.sequence < sequence) {
+					group.metadata = null;
+				}
+				if (group.metadata == null && group.locations.isEmpty()) {
+					this.groups.remove(groupId);
+				}
+			}
+			return;
+		}
+		if (removedGroupSequence != null && removedGroupSequence > sequence && type != REMOVE_MESSAGE) {
+			return;
+		}
+		Map<UUID, Location> locations = this.messages;
+		Group group = null;
+		if (groupId != null) {
+			group = this.groups.get(groupId);
+			if (group == null) {
+				if (type == REMOVE_MESSAGE) {
+					segment.addTombstone(tombstoneTarget(record), location.length);
+					return;
+				}
+				group = new Group(groupId, this.keySerializer.convert(groupId), time);
+				this.groups.put(groupId, group);
+			}
+			locations = group.locations;
+			group.lastModified = Math.max(group.lastModified, time);
+		}
+		if (type == GROUP_METADATA) {
+			if (group.metadata == null || group.metadata.sequence <= sequence) {
+				supersede(group.metadata, location);
+				group.timestamp = record.getLong();
+				group.lastReleasedSequenceNumber = record.getInt();
+				group.complete = record.get() == 1;
+				group.metadata = location;
+			}
+		}
+		else if (type == MESSAGE) {
+			UUID id = new UUID(record.getLong(), record.getLong());
+			Location existing = locations.get(id);
+			if (existing == null || existing.sequence <= sequence) {
+				// the same sequence for a copy made by a compaction that did not complete
+				supersede(existing, location);
+				locations.put(id, location);
+			}
+		}
+		else if (type == REMOVE_MESSAGE) {
+			segment.addTombstone(tombstoneTarget(record), location.length);
+			UUID id = new UUID(record.getLong(), record.getLong());
+			long removedSequence = record.getLong();
+			Location existing = locations.get(id);
+			if (existing != null && existing.sequence <= removedSequence) {
+				locations.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Position the record after its group id.
+	 * @return the group id of the record, or null if it has none.
+	 */
+	private Object readGroupId(ByteBuffer record) {
+		record.position(HEADER_LENGTH - 4);
+		int keyLength = record.getInt();
+		if (keyLength < 0) {
+			return null;
+		}
+		byte[] key = new byte[keyLength];
+		record.get(key);
+		return this.keyDeserializer.convert(key);
+	}
+
+	/**
+	 * @return the next record, or null if there is none or it is incomplete or corrupt.
+	 */
+	private static ByteBuffer readRecord(DataInputStream in, long remaining) throws IOException {
+		try {
+			int length = in.readInt();
+			if (length < HEADER_LENGTH + CRC_LENGTH || length > remaining) {
+				return null;
+			}
+			ByteBuffer record = ByteBuffer.allocate(length);
+			record.putInt(length);
+			in.readFully(record.array(), 4, length - 4);
+			CRC32 crc = new CRC32();
+			crc.update(record.array(), 4, length - 4 - CRC_LENGTH);
+			if ((int) crc.getValue() != record.getInt(length - CRC_LENGTH)) {
+				return null;
+			}
+			return record;
+		}
+		catch (EOFException e) {
+			return null;
+		}
+	}
+
+	private Segment openSegment(int id) throws IOException {
+		File file = new File(this.directory, FILE_PREFIX + id + SEGMENT_SUFFIX);
+		return new Segment(id, file, new RandomAccessFile(file, "rw").getChannel());
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException("Unexpected end of message-store segment");
+			}
+			position += read;
+		}
+	}
+
+
+	/**
+	 * The location of a record in a segment, and the sequence in which the record was
+	 * first written. The segment and position change when the record is relocated by a
+	 * compaction; the oldest segment is the oldest one that may still hold a copy of the
+	 * record.
+	 */
+	private static final class Location {
+
+		private final long sequence;
+
+		private final long time;
+
+		private final int length;
+
+		private volatile Segment segment;
+
+		private volatile long position;
+
+		private int oldestSegment;
+
+		private Location(long sequence, long time, Segment segment, long position, int length) {
+			this.sequence = sequence;
+			this.time = time;
+			this.segment = segment;
+			this.position = position;
+			this.length = length;
+			this.oldestSegment = segment.id;
+		}
+
+	}
+
+
+	private static final class Segment {
+
+		private final int id;
+
+		private final File file;
+
+		private final FileChannel channel;
+
+		/**
+		 * The total size of the tombstones of this segment, by the segment of the records
+		 * they remove.
+		 */
+		private final Map<Integer, Long> tombstoneBytes = new HashMap<Integer, Long>();
+
+		private long size;
+
+		private long liveBytes;
+
+		private volatile boolean closed;
+
+		private Segment(int id, File file, FileChannel channel) {
+			this.id = id;
+			this.file = file;
+			this.channel = channel;
+		}
+
+		private void addTombstone(int target, int length) {
+			Long bytes = this.tombstoneBytes.get(target);
+			this.tombstoneBytes.put(target, (bytes != null) ? bytes + length : length);
+		}
+
+		private void close() throws IOException {
+			this.closed = true;
+			this.channel.close();
+		}
+
+	}
+
+
+	/**
+	 * A record of a compacted segment that is still needed: the message or group metadata
+	 * record at the location, or a tombstone if there is no location.
+	 */
+	private static final class Relocation {
+
+		private final long position;
+
+		private final ByteBuffer record;
+
+		private Location location;
+
+		private long copyPosition;
+
+		private Relocation(long position, ByteBuffer record) {
+			this.position = position;
+			this.record = record;
+		}
+
+	}
+
+
+	private static final class Group {
+
+		private final Object groupId;
+
+		private final byte[] key;
+
+		private final LinkedHashMap<UUID, Location> locations = new LinkedHashMap<UUID, Location>();
+
+		private long timestamp;
+
+		private long lastModified;
+
+		private int lastReleasedSequenceNumber;
+
+		private boolean complete;
+
+		private Location metadata;
+
+		private Group(Object groupId, byte[] key, long timestamp) {
+			this.groupId = groupId;
+			this.key = key;
+			this.timestamp = timestamp;
+		}
+
+	}
+
+
+	/**
+	 * A {@link MessageGroup} backed by a group of the index, either as it was when the
+	 * message group was created (a snapshot) or as it is now (a live view, which is what
+	 * {@link SimpleMessageStore} returns when a message is added or removed, and which
+	 * avoids copying a large group on each change). The messages are read from the
+	 * segments when they are accessed.
+	 */
+	private class PersistentMessageGroup implements MessageGroup {
+
+		private final Group group;
+
+		private final List<Location> locations;
+
+		private final long timestamp;
+
+		private final long lastModified;
+
+		private final int lastReleasedSequenceNumber;
+
+		private volatile boolean complete;
+
+		private volatile Collection<Message<?>> messages;
+
+		private PersistentMessageGroup(Group group, boolean snapshot) {
+			this.group = group;
+			this.locations = snapshot ? new ArrayList<Location>(group.locations.values()) : null;
+			this.timestamp = group.timestamp;
+			this.lastModified = group.lastModified;
+			this.lastReleasedSequenceNumber = group.lastReleasedSequenceNumber;
+			this.complete = group.complete;
+		}
+
+		public boolean canAdd(Message<?> message) {
+			return true;
+		}
+
+		public Collection<Message<?>> getMessages() {
+			if (this.messages != null) {
+				return this.messages;
+			}
+			List<Location> locations = this.getLocations();
+			List<Message<?>> messages = new ArrayList<Message<?>>(locations.size());
+			for (Location location : locations) {
+				Message<?> message = readMessage(location);
+				if (message != null) {
+					messages.add(message);
+				}
+			}
+			Collection<Message<?>> result = Collections.unmodifiableList(messages);
+			if (this.locations != null) {
+				this.messages = result;
+			}
+			return result;
+		}
+
+		public Object getGroupId() {
+			return this.group.groupId;
+		}
+
+		public int getLastReleasedMessageSequenceNumber() {
+			if (this.locations != null) {
+				return this.lastReleasedSequenceNumber;
+			}
+			synchronized (monitor) {
+				return this.group.lastReleasedSequenceNumber;
+			}
+		}
+
+		public boolean isComplete() {
+			if (this.locations != null || this.complete) {
+				return this.complete;
+			}
+			synchronized (monitor) {
+				return this.group.complete;
+			}
+		}
+
+		public void complete() {
+			this.complete = true;
+		}
+
+		public int getSequenceSize() {
+			Message<?> one = this.getOne();
+			return (one != null) ? one.getHeaders().getSequenceSize() : 0;
+		}
+
+		public int size() {
+			if (this.messages != null) {
+				return this.messages.size();
+			}
+			if (this.locations != null) {
+				return this.locations.size();
+			}
+			synchronized (monitor) {
+				return this.group.locations.size();
+			}
+		}
+
+		public Message<?> getOne() {
+			if (this.messages == null) {
+				Location first = null;
+				if (this.locations != null) {
+					first = this.locations.isEmpty() ? null : this.locations.get(0);
+				}
+				else {
+					synchronized (monitor) {
+						Iterator<Location> iterator = this.group.locations.values().iterator();
+						first = iterator.hasNext() ? iterator.next() : null;
+					}
+				}
+				if (first == null) {
+					return null;
+				}
+				Message<?> one = readMessage(first);
+				if (one != null) {
+					return one;
+				}
+			}
+			Collection<Message<?>> messages = this.getMessages();
+			return messages.isEmpty() ? null : messages.iterator().next();
+		}
+
+		public long getTimestamp() {
+			return this.timestamp;
+		}
+
+		public long getLastModified() {
+			if (this.locations != null) {
+				return this.lastModified;
+			}
+			synchronized (monitor) {
+				return this.group.lastModified;
+			}
+		}
+
+		private List<Location> getLocations() {
+			if (this.locations != null) {
+				return this.locations;
+			}
+			synchronized (monitor) {
+				return new ArrayList<Location>(this.group.locations.values());
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "PersistentMessageGroup{groupId=" + this.group.groupId + ", size=" + this.size()
+					+ ", timestamp=" + this.timestamp + ", lastModified=" + this.getLastModified() + "}";
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -140,6 +140,7 @@ public class SimpleMessageStore extends AbstractMessageGroupStore implements Mes
 		}
 		SimpleMessageGroup simpleMessageGroup = new SimpleMessageGroup(group);
 		simpleMessageGroup.setLastModified(group.getLastModified());
+		simpleMessageGroup.setLastReleasedMessageSequenceNumber(group.getLastReleasedMessageSequenceNumber());
 		return simpleMessageGroup;
 	}
 
@@ -274,6 +275,7 @@ public class SimpleMessageStore extends AbstractMessageGroupStore implements Mes
 	}
 
 	public int messageGroupSize(Object groupId) {
-		return this.getMessageGroup(groupId).size();
+		SimpleMessageGroup group = this.groupIdToMessageGroup.get(groupId);
+		return (group != null ? group.size() : 0);
 	}
 }
@@ -0,0 +1,697 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageDeliveryException;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.codec.MessageCodec;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+/**
+ * An unbounded {@link BlockingQueue} for a queue channel that holds at most
+ * <code>capacity</code> messages in memory; when the in-memory head is full, further
+ * messages are appended to segment files in a local directory and read back, in order,
+ * as the head is drained. A burst of messages, or an outage of the consumers, is thereby
+ * absorbed without growing the heap or blocking the producers.
+ * <p>
+ * Messages are written with a {@link MessageCodec} by default (see
+ * {@link #setSerializer(Serializer)}). Header values that are not {@link Serializable}
+ * (such as a reply channel) are not written: they are kept in memory, by message id,
+ * and restored when the message is read back. The files are only used to relieve the
+ * heap: they are deleted when the queue is created and when it is destroyed, and the
+ * messages are not recovered after a restart. Each queue must use its own directory.
+ * <p>
+ * Messages that have been spilled cannot be removed individually (for example by a
+ * channel purge) until they have been read back into the head. A spilled message is
+ * only taken from its segment file once it has been deserialized, so a message that
+ * cannot be deserialized is not lost, but keeps failing until the queue is cleared.
+ *
+ * @since 3.0
+ */
+@ManagedResource
+public class SpillingMessageQueue extends AbstractQueue<Message<?>> implements BlockingQueue<Message<?>>,
+		DisposableBean {
+
+	private static final int DEFAULT_CAPACITY = 1000;
+
+	private static final String FILE_PREFIX = "spill.";
+
+	private static final String SEGMENT_SUFFIX = ".segment";
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final Lock lock = new ReentrantLock();
+
+	private final Condition notEmpty = this.lock.newCondition();
+
+	private final ArrayDeque<Message<?>> head = new ArrayDeque<Message<?>>();
+
+	private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+	/**
+	 * The header values of spilled messages that are not written, by message id.
+	 */
+	private final Map<UUID, Map<String, Object>> retainedHeaders = new HashMap<UUID, Map<String, Object>>();
+
+	private final File directory;
+
+	private final int capacity;
+
+	private volatile Serializer<? super Message<?>> serializer;
+
+	private volatile Deserializer<? extends Message<?>> deserializer;
+
+	private volatile int segmentSize = 16 * 1024 * 1024;
+
+	private DataOutputStream writer;
+
+	private boolean writerFlushed = true;
+
+	private DataInputStream reader;
+
+	/**
+	 * The next spilled record, once it has been read but until it has been deserialized.
+	 */
+	private byte[] pendingRecord;
+
+	private int nextSegmentId;
+
+	private int spilledMessageCount;
+
+	private long spilledBytes;
+
+	private long spillCount;
+
+
+	public SpillingMessageQueue(String directory) {
+		this(directory, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param directory the directory for the segment files; any segment files already in
+	 * it are deleted.
+	 * @param capacity the maximum number of messages held in memory.
+	 */
+	public SpillingMessageQueue(String directory, int capacity) {
+		Assert.hasText(directory, "'directory' must be non-empty");
+		Assert.isTrue(capacity > 0, "'capacity' must be greater than 0");
+		File dir = new File(directory);
+		dir.mkdirs();
+		Assert.isTrue(dir.isDirectory(), "Failed to create spill directory '" + dir.getAbsolutePath() + "'");
+		this.directory = dir;
+		this.capacity = capacity;
+		MessageCodec codec = new MessageCodec();
+		this.serializer = codec;
+		this.deserializer = codec;
+		this.deleteSegmentFiles();
+	}
+
+	/**
+	 * The serializer for spilled messages. Default {@link MessageCodec}.
+	 */
+	public void setSerializer(Serializer<? super Message<?>> serializer) {
+		Assert.notNull(serializer, "'serializer' must not be null");
+		this.serializer = serializer;
+	}
+
+	/**
+	 * The deserializer for spilled messages. Default {@link MessageCodec}.
+	 */
+	public void setDeserializer(Deserializer<? extends Message<?>> deserializer) {
+		Assert.notNull(deserializer, "'deserializer' must not be null");
+		this.deserializer = deserializer;
+	}
+
+	/**
+	 * The size in bytes above which a new segment file is started; a segment file is
+	 * deleted as soon as all of its messages have been read back. Default 16MB.
+	 */
+	public void setSegmentSize(int segmentSize) {
+		Assert.isTrue(segmentSize > 0, "'segmentSize' must be greater than 0");
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * @return the number of messages held in memory.
+	 */
+	@ManagedAttribute
+	public int getInMemoryCount() {
+		this.lock.lock();
+		try {
+			return this.head.size();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of messages in the segment files that have not yet been read back.
+	 */
+	@ManagedAttribute
+	public int getSpilledMessageCount() {
+		this.lock.lock();
+		try {
+			return this.spilledMessageCount;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of bytes of the messages that have not yet been read back.
+	 */
+	@ManagedAttribute
+	public long getSpilledBytes() {
+		this.lock.lock();
+		try {
+			return this.spilledBytes;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of messages spilled since the queue was created.
+	 */
+	@ManagedAttribute
+	public long getSpillCount() {
+		this.lock.lock();
+		try {
+			return this.spillCount;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of segment files.
+	 */
+	@ManagedAttribute
+	public int getSegmentCount() {
+		this.lock.lock();
+		try {
+			return this.segments.size();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		this.lock.lock();
+		try {
+			return this.head.size() + this.spilledMessageCount;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	public boolean offer(Message<?> message) {
+		Assert.notNull(message, "'message' must not be null");
+		this.lock.lock();
+		try {
+			if (this.spilledMessageCount == 0 && this.head.size() < this.capacity) {
+				this.head.add(message);
+			}
+			else {
+				// once messages have been spilled, the head only takes messages back from disk
+				this.spill(message);
+			}
+			this.notEmpty.signal();
+			return true;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	public boolean offer(Message<?> message, long timeout, TimeUnit unit) throws InterruptedException {
+		return this.offer(message);
+	}
+
+	public void put(Message<?> message) throws InterruptedException {
+		this.offer(message);
+	}
+
+	public Message<?> poll() {
+		this.lock.lock();
+		try {
+			return this.doPoll();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	public Message<?> poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long timeoutInNanos = unit.toNanos(timeout);
+		this.lock.lockInterruptibly();
+		try {
+			while (this.head.isEmpty() && this.spilledMessageCount == 0 && timeoutInNanos > 0) {
+				timeoutInNanos = this.notEmpty.awaitNanos(timeoutInNanos);
+			}
+			return this.doPoll();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	public Message<?> take() throws InterruptedException {
+		this.lock.lockInterruptibly();
+		try {
+			while (this.head.isEmpty() && this.spilledMessageCount == 0) {
+				this.notEmpty.await();
+			}
+			return this.doPoll();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	public Message<?> peek() {
+		this.lock.lock();
+		try {
+			this.fillHeadIfNecessary();
+			return this.head.peek();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	public int drainTo(Collection<? super Message<?>> collection) {
+		return this.drainTo(collection, Integer.MAX_VALUE);
+	}
+
+	public int drainTo(Collection<? super Message<?>> collection, int maxElements) {
+		Assert.notNull(collection, "'collection' must not be null");
+		int count = 0;
+		this.lock.lock();
+		try {
+			Message<?> message = null;
+			while (count < maxElements && (message = this.doPoll()) != null) {
+				collection.add(message);
+				count++;
+			}
+		}
+		finally {
+			this.lock.unlock();
+		}
+		return count;
+	}
+
+	/**
+	 * Remove the message if it is held in memory; messages that have been spilled are not
+	 * removed.
+	 */
+	@Override
+	public boolean remove(Object o) {
+		this.lock.lock();
+		try {
+			return this.head.remove(o);
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Discard all messages, deleting the segment files.
+	 */
+	@Override
+	public void clear() {
+		this.lock.lock();
+		try {
+			this.head.clear();
+			this.discardSegments();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return an iterator over a snapshot of the messages; the spilled messages are read
+	 * from the segment files. The iterator does not support removal.
+	 */
+	@Override
+	public Iterator<Message<?>> iterator() {
+		this.lock.lock();
+		try {
+			List<Message<?>> messages = new ArrayList<Message<?>>(this.head);
+			if (this.spilledMessageCount > 0) {
+				this.flushWriter();
+				for (Segment segment : this.segments) {
+					this.readSegment(segment, messages);
+				}
+			}
+			return Collections.unmodifiableList(messages).iterator();
+		}
+		catch (IOException e) {
+			throw new MessageStoreException("Failed to read spilled messages in '"
+					+ this.directory.getAbsolutePath() + "'", e);
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Delete the segment files; any messages that have been spilled are discarded.
+	 */
+	public void destroy() {
+		this.lock.lock();
+		try {
+			if (this.spilledMessageCount > 0 && logger.isWarnEnabled()) {
+				logger.warn("Discarding " + this.spilledMessageCount + " spilled messages in '"
+						+ this.directory.getAbsolutePath() + "'");
+			}
+			this.discardSegments();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * It is assumed that the lock is being held by the caller.
+	 */
+	private Message<?> doPoll() {
+		this.fillHeadIfNecessary();
+		return this.head.poll();
+	}
+
+	/**
+	 * Read spilled messages back into the head once it is empty. It is assumed that the
+	 * lock is being held by the caller.
+	 */
+	private void fillHeadIfNecessary() {
+		if (!this.head.isEmpty() || this.spilledMessageCount == 0) {
+			return;
+		}
+		try {
+			while (this.head.size() < this.capacity && this.spilledMessageCount > 0) {
+				this.head.add(this.readNext());
+			}
+		}
+		catch (IOException e) {
+			if (this.head.isEmpty()) {
+				throw new MessageStoreException("Failed to read spilled message in '"
+						+ this.directory.getAbsolutePath() + "'", e);
+			}
+			// fail when the message is next needed, once those read so far have been taken
+			logger.warn("Failed to read spilled message in '" + this.directory.getAbsolutePath() + "'", e);
+		}
+	}
+
+	private void spill(Message<?> message) {
+		try {
+			Map<String, Object> retained = null;
+			for (Entry<String, Object> header : message.getHeaders().entrySet()) {
+				if (!(header.getValue() instanceof Serializable)) {
+					if (retained == null) {
+						retained = new HashMap<String, Object>();
+					}
+					retained.put(header.getKey(), header.getValue());
+				}
+			}
+			this.buffer.reset();
+			if (retained == null) {
+				this.serializer.serialize(message, this.buffer);
+			}
+			else {
+				MessageBuilder<?> builder = MessageBuilder.fromMessage(message);
+				for (String name : retained.keySet()) {
+					builder.removeHeader(name);
+				}
+				this.serializer.serialize(withIdentityOf(builder, message), this.buffer);
+			}
+			Segment segment = this.segments.peekLast();
+			if (segment == null || segment.length >= this.segmentSize || this.writer == null) {
+				segment = this.startSegment();
+			}
+			int length = this.buffer.size();
+			try {
+				this.writer.writeInt(length);
+				this.buffer.writeTo(this.writer);
+			}
+			catch (IOException e) {
+				this.abandonWriter();
+				throw e;
+			}
+			this.writerFlushed = false;
+			segment.records++;
+			segment.length += 4 + length;
+			if (retained != null) {
+				this.retainedHeaders.put(message.getHeaders().getId(), retained);
+			}
+			this.spilledMessageCount++;
+			this.spilledBytes += 4 + length;
+			this.spillCount++;
+		}
+		catch (IOException e) {
+			throw new MessageDeliveryException(message, "Failed to spill message to '"
+					+ this.directory.getAbsolutePath() + "'", e);
+		}
+	}
+
+	/**
+	 * Close the writer after a failed write, so that the next spill starts a new segment;
+	 * the partly written record is beyond the records of the segment and is never read.
+	 */
+	private void abandonWriter() {
+		closeQuietly(this.writer);
+		this.writer = null;
+		this.writerFlushed = true;
+		Segment segment = this.segments.peekLast();
+		if (segment != null && segment.records == 0) {
+			this.segments.removeLast();
+			segment.file.delete();
+		}
+	}
+
+	private Segment startSegment() throws IOException {
+		if (this.writer != null) {
+			this.writer.close();
+			this.writer = null;
+		}
+		File file = new File(this.directory, FILE_PREFIX + this.nextSegmentId++ + SEGMENT_SUFFIX);
+		this.writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 8192));
+		this.writerFlushed = true;
+		Segment segment = new Segment(file);
+		this.segments.addLast(segment);
+		return segment;
+	}
+
+	/**
+	 * Take the next spilled message; the record is only consumed once it has been
+	 * deserialized, so that it is read again by the next attempt if that fails.
+	 */
+	private Message<?> readNext() throws IOException {
+		Segment segment = this.segments.getFirst();
+		if (this.pendingRecord == null) {
+			if (segment == this.segments.getLast()) {
+				this.flushWriter();
+			}
+			if (this.reader == null) {
+				this.reader = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file), 8192));
+			}
+			byte[] record = new byte[this.reader.readInt()];
+			this.reader.readFully(record);
+			this.pendingRecord = record;
+		}
+		byte[] bytes = this.pendingRecord;
+		Message<?> message = this.deserialize(bytes, true);
+		this.pendingRecord = null;
+		segment.read++;
+		this.spilledMessageCount--;
+		this.spilledBytes -= 4 + bytes.length;
+		if (segment.read == segment.records) {
+			this.reader.close();
+			this.reader = null;
+			if (segment == this.segments.getLast() && this.writer != null) {
+				this.writer.close();
+				this.writer = null;
+			}
+			this.segments.removeFirst();
+			segment.file.delete();
+		}
+		return message;
+	}
+
+	/**
+	 * Deserialize a spilled message, restoring the header values that were not written.
+	 */
+	private Message<?> deserialize(byte[] bytes, boolean remove) throws IOException {
+		Message<?> message = this.deserializer.deserialize(new ByteArrayInputStream(bytes));
+		UUID id = message.getHeaders().getId();
+		Map<String, Object> retained = remove ? this.retainedHeaders.remove(id) : this.retainedHeaders.get(id);
+		if (retained == null) {
+			return message;
+		}
+		return withIdentityOf(MessageBuilder.fromMessage(message).copyHeaders(retained), message);
+	}
+
+	/**
+	 * Read the messages of the segment that have not yet been read back, with a stream of
+	 * its own.
+	 */
+	private void readSegment(Segment segment, List<Message<?>> messages) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file), 8192));
+		try {
+			for (int i = 0; i < segment.records; i++) {
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				if (i >= segment.read) {
+					messages.add(this.deserialize(bytes, false));
+				}
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private void flushWriter() throws IOException {
+		if (!this.writerFlushed) {
+			this.writer.flush();
+			this.writerFlushed = true;
+		}
+	}
+
+	private void discardSegments() {
+		closeQuietly(this.reader);
+		this.reader = null;
+		this.pendingRecord = null;
+		this.retainedHeaders.clear();
+		closeQuietly(this.writer);
+		this.writer = null;
+		this.writerFlushed = true;
+		for (Segment segment : this.segments) {
+			segment.file.delete();
+		}
+		this.segments.clear();
+		this.spilledMessageCount = 0;
+		this.spilledBytes = 0;
+	}
+
+	private void deleteSegmentFiles() {
+		File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().startsWith(FILE_PREFIX) && file.getName().endsWith(SEGMENT_SUFFIX)) {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the message built with the id and timestamp of the given message.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Message<?> withIdentityOf(MessageBuilder<?> builder, Message<?> message) {
+		Message<?> copy = builder.build();
+		Map innerMap = (Map) new DirectFieldAccessor(copy.getHeaders()).getPropertyValue("headers");
+		innerMap.put(MessageHeaders.ID, message.getHeaders().getId());
+		innerMap.put(MessageHeaders.TIMESTAMP, message.getHeaders().getTimestamp());
+		return copy;
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+
+	private static class Segment {
+
+		private final File file;
+
+		private int records;
+
+		private int read;
+
+		private long length;
+
+		private Segment(File file) {
+			this.file = file;
+		}
+
+	}
+
+}
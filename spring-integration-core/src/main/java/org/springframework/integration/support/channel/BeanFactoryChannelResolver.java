@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.HierarchicalBeanFactory;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.util.Assert;
@@ -32,6 +33,9 @@ import org.springframework.util.Assert;
  * <p>Will lookup Spring managed beans identified by bean name,
  * expecting them to be of type {@link MessageChannel}.
  *
+ * <p>Singleton channels are cached in the {@link ChannelResolverCache} of the
+ * BeanFactory, if it defines one.
+ *
  * @author Mark Fisher
  * @see org.springframework.beans.factory.BeanFactory
  */
@@ -43,6 +47,8 @@ public class BeanFactoryChannelResolver implements ChannelResolver, BeanFactoryA
 
 	private volatile HeaderChannelRegistry replyChannelRegistry;
 
+	private volatile ChannelResolverCache channelCache;
+
 	/**
 	 * Create a new instance of the {@link BeanFactoryChannelResolver} class.
 	 * <p>The BeanFactory to access must be set via <code>setBeanFactory</code>.
@@ -84,13 +90,42 @@ public class BeanFactoryChannelResolver implements ChannelResolver, BeanFactoryA
 		catch (Exception e) {
 			logger.warn("No HeaderChannelRegistry found", e);
 		}
+		this.lookupChannelCache(beanFactory);
+	}
+
+	private void lookupChannelCache(BeanFactory beanFactory) {
+		String cacheBeanName = IntegrationContextUtils.INTEGRATION_CHANNEL_RESOLVER_CACHE_BEAN_NAME;
+		// a cache inherited from a parent context would mix up the channel names of its children
+		boolean hasCache = (beanFactory instanceof HierarchicalBeanFactory)
+				? ((HierarchicalBeanFactory) beanFactory).containsLocalBean(cacheBeanName)
+				: beanFactory.containsBean(cacheBeanName);
+		this.channelCache = null;
+		if (hasCache) {
+			try {
+				this.channelCache = beanFactory.getBean(cacheBeanName, ChannelResolverCache.class);
+			}
+			catch (Exception e) {
+				logger.warn("Failed to obtain the ChannelResolverCache; channels will not be cached", e);
+			}
+		}
 	}
 
 	@Override
 	public MessageChannel resolveChannelName(String name) {
 		Assert.state(this.beanFactory != null, "BeanFactory is required");
+		ChannelResolverCache channelCache = this.channelCache;
+		if (channelCache != null) {
+			MessageChannel channel = channelCache.get(name);
+			if (channel != null) {
+				return channel;
+			}
+		}
 		try {
-			return this.beanFactory.getBean(name, MessageChannel.class);
+			MessageChannel channel = this.beanFactory.getBean(name, MessageChannel.class);
+			if (channelCache != null && this.beanFactory.isSingleton(name)) {
+				channelCache.put(name, channel);
+			}
+			return channel;
 		}
 		catch (BeansException e) {
 			if (this.replyChannelRegistry != null) {
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.channel;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.integration.MessageChannel;
+import org.springframework.util.Assert;
+
+/**
+ * A cache of the singleton {@link MessageChannel} beans resolved by name, shared by
+ * the {@link BeanFactoryChannelResolver}s of an application context, so that routing
+ * to a channel name does not need a bean factory lookup for each message.
+ * <p>
+ * The cache is cleared when the context is refreshed and whenever a singleton
+ * {@link MessageChannel} bean is initialized, and a channel is evicted when its bean is
+ * destroyed, for example by {@code destroySingleton()}. The bean factory does not notify
+ * post processors about singletons registered directly with {@code registerSingleton()}:
+ * when such a channel replaces one that may have been resolved already, {@link #clear()}
+ * must be called.
+ *
+ * @since 3.0
+ */
+public class ChannelResolverCache implements DestructionAwareBeanPostProcessor, BeanFactoryAware,
+		ApplicationListener<ContextRefreshedEvent> {
+
+	private final ConcurrentMap<String, MessageChannel> channels = new ConcurrentHashMap<String, MessageChannel>();
+
+	private volatile BeanFactory beanFactory;
+
+
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = beanFactory;
+	}
+
+	/**
+	 * @param name the channel name.
+	 * @return the cached channel, or null.
+	 */
+	public MessageChannel get(String name) {
+		return this.channels.get(name);
+	}
+
+	/**
+	 * Cache a channel, which must be a singleton bean with the given name (or alias).
+	 * @param name the channel name.
+	 * @param channel the channel.
+	 */
+	public void put(String name, MessageChannel channel) {
+		Assert.notNull(name, "'name' must not be null");
+		Assert.notNull(channel, "'channel' must not be null");
+		this.channels.put(name, channel);
+	}
+
+	public void clear() {
+		this.channels.clear();
+	}
+
+	/**
+	 * @return the number of cached channels.
+	 */
+	public int size() {
+		return this.channels.size();
+	}
+
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		this.clear();
+	}
+
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		return bean;
+	}
+
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof MessageChannel && this.isSingleton(beanName)) {
+			this.clear();
+		}
+		return bean;
+	}
+
+	public void postProcessBeforeDestruction(Object bean, String beanName) throws BeansException {
+		if (bean instanceof MessageChannel) {
+			// the channel may be cached under its name and any of its aliases
+			Iterator<MessageChannel> iterator = this.channels.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next() == bean) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private boolean isSingleton(String beanName) {
+		BeanFactory beanFactory = this.beanFactory;
+		if (beanFactory == null) {
+			return true;
+		}
+		// prototypes are never cached and inner beans cannot be resolved by name
+		return beanFactory.containsBean(beanName) && beanFactory.isSingleton(beanName);
+	}
+
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.transformer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Single pass parser for syslog packets in RFC 3164 ("&lt;PRI&gt;MMM dd HH:mm:ss HOST TAG: MESSAGE")
+ * and RFC 5424 ("&lt;PRI&gt;VERSION TIMESTAMP HOST APP-NAME PROCID MSGID STRUCTURED-DATA MESSAGE")
+ * format. It works on the bytes of the packet; only the text fields are decoded, as UTF-8.
+ * <p>
+ * The last timestamp (to the second) of each format is cached, since consecutive packets
+ * mostly share it. Instances are thread-safe.
+ *
+ * @since 3.0
+ */
+class SyslogParser {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private static final String[] MONTHS = { "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct",
+			"nov", "dec" };
+
+	private static final int RFC3164_TIMESTAMP_LENGTH = 15;
+
+	private static final int RFC5424_SECONDS_LENGTH = 19;
+
+	private volatile CachedTimestamp rfc3164Timestamp;
+
+	private volatile CachedTimestamp rfc5424Timestamp;
+
+
+	/**
+	 * Parse the packet into a map keyed by the {@link SyslogToMapTransformer} constants.
+	 * @throws IllegalArgumentException if the packet is not in either format.
+	 */
+	public Map<String, Object> parse(byte[] packet) {
+		Packet p = new Packet(packet);
+		p.expect('<');
+		int priority = p.readNumber('>');
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put(SyslogToMapTransformer.FACILITY, priority >> 3);
+		map.put(SyslogToMapTransformer.SEVERITY, priority & 0x7);
+		if (p.isDigit()) {
+			this.parseRfc5424(p, map);
+		}
+		else {
+			this.parseRfc3164(p, map);
+		}
+		return map;
+	}
+
+	private void parseRfc3164(Packet p, Map<String, Object> map) {
+		int timestampStart = p.pos;
+		p.skip(RFC3164_TIMESTAMP_LENGTH);
+		p.expect(' ');
+		Date timestamp = this.parseRfc3164Timestamp(p.bytes, timestampStart);
+		map.put(SyslogToMapTransformer.TIMESTAMP, (timestamp != null) ? timestamp
+				: new String(p.bytes, timestampStart, RFC3164_TIMESTAMP_LENGTH, UTF_8));
+		map.put(SyslogToMapTransformer.HOST, p.readToken(' '));
+		map.put(SyslogToMapTransformer.TAG, p.readToken(':'));
+		p.expect(' ');
+		map.put(SyslogToMapTransformer.MESSAGE, p.readRest());
+	}
+
+	private void parseRfc5424(Packet p, Map<String, Object> map) {
+		map.put(SyslogToMapTransformer.VERSION, p.readNumber(' '));
+		int timestampStart = p.pos;
+		String timestamp = p.readToken(' ');
+		if (!"-".equals(timestamp)) {
+			Date date = this.parseRfc5424Timestamp(p.bytes, timestampStart, p.pos - 1);
+			map.put(SyslogToMapTransformer.TIMESTAMP, (date != null) ? date : timestamp);
+		}
+		putUnlessNil(map, SyslogToMapTransformer.HOST, p.readToken(' '));
+		putUnlessNil(map, SyslogToMapTransformer.APP_NAME, p.readToken(' '));
+		putUnlessNil(map, SyslogToMapTransformer.PROCID, p.readToken(' '));
+		putUnlessNil(map, SyslogToMapTransformer.MSGID, p.readToken(' '));
+		if (p.peek() == '-') {
+			p.skip(1);
+		}
+		else {
+			map.put(SyslogToMapTransformer.STRUCTURED_DATA, this.parseStructuredData(p));
+		}
+		if (p.pos < p.end) {
+			p.expect(' ');
+			p.skipBom();
+			map.put(SyslogToMapTransformer.MESSAGE, p.readRest());
+		}
+	}
+
+	/**
+	 * Parse the SD-ELEMENTs ("[id name="value" ...]") into a map of parameter maps
+	 * keyed by SD-ID.
+	 */
+	private Map<String, Map<String, String>> parseStructuredData(Packet p) {
+		Map<String, Map<String, String>> structuredData = new LinkedHashMap<String, Map<String, String>>();
+		do {
+			p.expect('[');
+			String id = p.readName();
+			Map<String, String> parameters = new LinkedHashMap<String, String>();
+			while (p.peek() == ' ') {
+				p.skip(1);
+				String name = p.readToken('=');
+				p.expect('"');
+				parameters.put(name, p.readParameterValue());
+			}
+			p.expect(']');
+			structuredData.put(id, parameters);
+		}
+		while (p.pos < p.end && p.peek() == '[');
+		return structuredData;
+	}
+
+	/**
+	 * Parse "MMM dd HH:mm:ss" in the default time zone; the year is the current one, or
+	 * the adjacent one for a packet from the other side of a year end.
+	 * @return the date or null if the timestamp is invalid.
+	 */
+	private Date parseRfc3164Timestamp(byte[] bytes, int start) {
+		CachedTimestamp cached = this.rfc3164Timestamp;
+		if (cached != null && cached.matches(bytes, start, RFC3164_TIMESTAMP_LENGTH, 0, 0)) {
+			return new Date(cached.time);
+		}
+		int month = parseMonth(bytes, start);
+		int day = parseDigits(bytes, start + 4, 2, true);
+		int hour = parseDigits(bytes, start + 7, 2, false);
+		int minute = parseDigits(bytes, start + 10, 2, false);
+		int second = parseDigits(bytes, start + 13, 2, false);
+		if (month < 0 || bytes[start + 3] != ' ' || day < 0 || bytes[start + 6] != ' ' || hour < 0
+				|| bytes[start + 9] != ':' || minute < 0 || bytes[start + 12] != ':' || second < 0) {
+			return null;
+		}
+		Calendar calendar = Calendar.getInstance();
+		int year = calendar.get(Calendar.YEAR);
+		int currentMonth = calendar.get(Calendar.MONTH);
+		if (currentMonth == Calendar.DECEMBER && month == Calendar.JANUARY) {
+			year++;
+		}
+		else if (currentMonth == Calendar.JANUARY && month == Calendar.DECEMBER) {
+			year--;
+		}
+		calendar.clear();
+		calendar.set(year, month, day, hour, minute, second);
+		long time = calendar.getTimeInMillis();
+		this.rfc3164Timestamp = new CachedTimestamp(bytes, start, RFC3164_TIMESTAMP_LENGTH, 0, 0, time);
+		return new Date(time);
+	}
+
+	/**
+	 * Parse an RFC 3339 "yyyy-MM-ddTHH:mm:ss[.S+](Z|+HH:mm|-HH:mm)" timestamp.
+	 * @return the date or null if the timestamp is invalid.
+	 */
+	private Date parseRfc5424Timestamp(byte[] bytes, int start, int end) {
+		int zoneStart = start + RFC5424_SECONDS_LENGTH;
+		if (zoneStart >= end) {
+			return null;
+		}
+		int millis = 0;
+		if (bytes[zoneStart] == '.') {
+			zoneStart++;
+			int digits = 0;
+			while (zoneStart < end && bytes[zoneStart] >= '0' && bytes[zoneStart] <= '9') {
+				if (digits++ < 3) {
+					millis = millis * 10 + (bytes[zoneStart] - '0');
+				}
+				zoneStart++;
+			}
+			if (digits == 0) {
+				return null;
+			}
+			for (; digits < 3; digits++) {
+				millis *= 10;
+			}
+		}
+		int zoneLength = end - zoneStart;
+		CachedTimestamp cached = this.rfc5424Timestamp;
+		if (cached != null && cached.matches(bytes, start, RFC5424_SECONDS_LENGTH, zoneStart, zoneLength)) {
+			return new Date(cached.time + millis);
+		}
+		int year = parseDigits(bytes, start, 4, false);
+		int month = parseDigits(bytes, start + 5, 2, false);
+		int day = parseDigits(bytes, start + 8, 2, false);
+		int hour = parseDigits(bytes, start + 11, 2, false);
+		int minute = parseDigits(bytes, start + 14, 2, false);
+		int second = parseDigits(bytes, start + 17, 2, false);
+		if (year < 0 || bytes[start + 4] != '-' || month < 1 || bytes[start + 7] != '-' || day < 0
+				|| bytes[start + 10] != 'T' || hour < 0 || bytes[start + 13] != ':' || minute < 0
+				|| bytes[start + 16] != ':' || second < 0) {
+			return null;
+		}
+		int offset;
+		if (zoneLength == 1 && bytes[zoneStart] == 'Z') {
+			offset = 0;
+		}
+		else if (zoneLength == 6 && (bytes[zoneStart] == '+' || bytes[zoneStart] == '-')
+				&& bytes[zoneStart + 3] == ':') {
+			int offsetHours = parseDigits(bytes, zoneStart + 1, 2, false);
+			int offsetMinutes = parseDigits(bytes, zoneStart + 4, 2, false);
+			if (offsetHours < 0 || offsetMinutes < 0) {
+				return null;
+			}
+			offset = (offsetHours * 60 + offsetMinutes) * 60000;
+			if (bytes[zoneStart] == '-') {
+				offset = -offset;
+			}
+		}
+		else {
+			return null;
+		}
+		Calendar calendar = new GregorianCalendar(UTC);
+		calendar.setLenient(false);
+		calendar.clear();
+		calendar.set(year, month - 1, day, hour, minute, second);
+		long time;
+		try {
+			time = calendar.getTimeInMillis() - offset;
+		}
+		catch (IllegalArgumentException e) {
+			return null;
+		}
+		this.rfc5424Timestamp = new CachedTimestamp(bytes, start, RFC5424_SECONDS_LENGTH, zoneStart, zoneLength, time);
+		return new Date(time + millis);
+	}
+
+	private static int parseMonth(byte[] bytes, int start) {
+		for (int month = 0; month < MONTHS.length; month++) {
+			String name = MONTHS[month];
+			int i = 0;
+			while (i < 3 && Character.toLowerCase((char) bytes[start + i]) == name.charAt(i)) {
+				i++;
+			}
+			if (i == 3) {
+				return month;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the value of the digits or -1 if they are not all digits; when 'padded',
+	 * the first digit may be a space.
+	 */
+	private static int parseDigits(byte[] bytes, int start, int length, boolean padded) {
+		int value = 0;
+		for (int i = start; i < start + length; i++) {
+			byte b = bytes[i];
+			if (b >= '0' && b <= '9') {
+				value = value * 10 + (b - '0');
+			}
+			else if (!(padded && i == start && b == ' ')) {
+				return -1;
+			}
+		}
+		return value;
+	}
+
+	private static void putUnlessNil(Map<String, Object> map, String key, String value) {
+		if (!"-".equals(value)) {
+			map.put(key, value);
+		}
+	}
+
+
+	/**
+	 * A position in the packet being parsed.
+	 */
+	private static class Packet {
+
+		private final byte[] bytes;
+
+		private final int end;
+
+		private int pos;
+
+		private Packet(byte[] bytes) {
+			this.bytes = bytes;
+			this.end = bytes.length;
+		}
+
+		private byte peek() {
+			if (this.pos >= this.end) {
+				throw new IllegalArgumentException("unexpected end of packet");
+			}
+			return this.bytes[this.pos];
+		}
+
+		private boolean isDigit() {
+			byte b = this.peek();
+			return b >= '0' && b <= '9';
+		}
+
+		private void expect(char expected) {
+			if (this.peek() != expected) {
+				throw new IllegalArgumentException("expected '" + expected + "' at position " + this.pos);
+			}
+			this.pos++;
+		}
+
+		private void skip(int count) {
+			if (this.pos + count > this.end) {
+				throw new IllegalArgumentException("unexpected end of packet");
+			}
+			this.pos += count;
+		}
+
+		private void skipBom() {
+			if (this.end - this.pos >= 3 && this.bytes[this.pos] == (byte) 0xEF && this.bytes[this.pos + 1] == (byte) 0xBB
+					&& this.bytes[this.pos + 2] == (byte) 0xBF) {
+				this.pos += 3;
+			}
+		}
+
+		/**
+		 * Read a non-empty number terminated by the delimiter, and consume the delimiter.
+		 */
+		private int readNumber(char delimiter) {
+			int start = this.pos;
+			int value = 0;
+			while (this.peek() != delimiter) {
+				if (!this.isDigit() || this.pos - start > 8) {
+					throw new IllegalArgumentException("invalid number at position " + start);
+				}
+				value = value * 10 + (this.bytes[this.pos++] - '0');
+			}
+			if (this.pos == start) {
+				throw new IllegalArgumentException("missing number at position " + start);
+			}
+			this.pos++;
+			return value;
+		}
+
+		/**
+		 * Read a non-empty field terminated by the delimiter, and consume the delimiter.
+		 */
+		private String readToken(char delimiter) {
+			int start = this.pos;
+			while (this.peek() != delimiter) {
+				this.pos++;
+			}
+			if (this.pos == start) {
+				throw new IllegalArgumentException("empty field at position " + start);
+			}
+			return new String(this.bytes, start, this.pos++ - start, UTF_8);
+		}
+
+		/**
+		 * Read a non-empty SD-ID, terminated by a space or ']', which is not consumed.
+		 */
+		private String readName() {
+			int start = this.pos;
+			while (this.peek() != ' ' && this.peek() != ']') {
+				this.pos++;
+			}
+			if (this.pos == start) {
+				throw new IllegalArgumentException("empty field at position " + start);
+			}
+			return new String(this.bytes, start, this.pos - start, UTF_8);
+		}
+
+		/**
+		 * Read a PARAM-VALUE up to the closing quote, which is consumed; '\"', '\\' and '\]'
+		 * are unescaped.
+		 */
+		private String readParameterValue() {
+			int start = this.pos;
+			ByteArrayOutputStream unescaped = null;
+			int copied = start;
+			byte b;
+			while ((b = this.peek()) != '"') {
+				if (b == '\\' && this.pos + 1 < this.end) {
+					byte next = this.bytes[this.pos + 1];
+					if (next == '"' || next == '\\' || next == ']') {
+						if (unescaped == null) {
+							unescaped = new ByteArrayOutputStream();
+						}
+						unescaped.write(this.bytes, copied, this.pos - copied);
+						copied = this.pos + 1;
+						this.pos++;
+					}
+				}
+				this.pos++;
+			}
+			String value;
+			if (unescaped == null) {
+				value = new String(this.bytes, start, this.pos - start, UTF_8);
+			}
+			else {
+				unescaped.write(this.bytes, copied, this.pos - copied);
+				value = new String(unescaped.toByteArray(), UTF_8);
+			}
+			this.pos++;
+			return value;
+		}
+
+		private String readRest() {
+			String rest = new String(this.bytes, this.pos, this.end - this.pos, UTF_8);
+			this.pos = this.end;
+			return rest;
+		}
+
+	}
+
+	/**
+	 * The time of a timestamp, to the second, with the bytes it was parsed from.
+	 */
+	private static class CachedTimestamp {
+
+		private final byte[] key;
+
+		private final int firstLength;
+
+		private final long time;
+
+		private CachedTimestamp(byte[] bytes, int first, int firstLength, int second, int secondLength, long time) {
+			this.key = new byte[firstLength + secondLength];
+			System.arraycopy(bytes, first, this.key, 0, firstLength);
+			System.arraycopy(bytes, second, this.key, firstLength, secondLength);
+			this.firstLength = firstLength;
+			this.time = time;
+		}
+
+		private boolean matches(byte[] bytes, int first, int firstLength, int second, int secondLength) {
+			if (firstLength != this.firstLength || firstLength + secondLength != this.key.length) {
+				return false;
+			}
+			for (int i = 0; i < firstLength; i++) {
+				if (bytes[first + i] != this.key[i]) {
+					return false;
+				}
+			}
+			for (int i = 0; i < secondLength; i++) {
+				if (bytes[second + i] != this.key[firstLength + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,21 +16,23 @@
 package org.springframework.integration.transformer;
 
 import java.io.UnsupportedEncodingException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.springframework.util.Assert;
 
 /**
- * Transforms a packet in Syslog (RFC5424) format to a Map.
+ * Transforms a packet in Syslog (RFC3164 or RFC5424) format to a Map.
  * If the packet cannot be decoded, the entire packet
  * is returned as a String under the key UNDECODED. If the date field can be
  * parsed, it will be returned as a {@link Date} object; otherwise it is returned as a String.
+ * <p>
+ * An RFC5424 packet (recognized by the version following the priority) also has the
+ * VERSION, APP_NAME, PROCID and MSGID entries, and STRUCTURED_DATA as a map of
+ * parameter maps keyed by SD-ID; fields with the nil value ("-") are omitted.
+ * The packet is parsed in a single pass over its bytes, so a {@code byte[]} payload
+ * is not decoded to a String first.
  *
  * @author Gary Russell
  * @since 2.2
@@ -58,81 +60,64 @@ public class SyslogToMapTransformer extends AbstractPayloadTransformer<Object, M
 
 	public static final String UNDECODED = "UNDECODED";
 
-	private final Pattern pattern = Pattern.compile("<([^>]+)>(.{15}) ([^ ]+) ([^:]+): (.*)", Pattern.DOTALL);
+	/**
+	 * @since 3.0
+	 */
+	public static final String VERSION = "VERSION";
+
+	/**
+	 * @since 3.0
+	 */
+	public static final String APP_NAME = "APP_NAME";
+
+	/**
+	 * @since 3.0
+	 */
+	public static final String PROCID = "PROCID";
+
+	/**
+	 * @since 3.0
+	 */
+	public static final String MSGID = "MSGID";
+
+	/**
+	 * @since 3.0
+	 */
+	public static final String STRUCTURED_DATA = "STRUCTURED_DATA";
 
-	private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd HH:mm:ss");
+	private final SyslogParser parser = new SyslogParser();
 
 	private Map<String, ?> transform(byte[] payloadBytes) {
-		String payload;
 		try {
-			payload = new String(payloadBytes, "UTF-8");
+			return this.parser.parse(payloadBytes);
 		}
-		catch (UnsupportedEncodingException e) {
-			payload = new String(payloadBytes);
+		catch (Exception e) {
+			String payload;
+			try {
+				payload = new String(payloadBytes, "UTF-8");
+			}
+			catch (UnsupportedEncodingException uee) {
+				payload = new String(payloadBytes);
+			}
+			return this.undecoded(payload, e);
 		}
-		return transform(payload);
 	}
 
 	private Map<String, ?> transform(String payload) {
-		Map<String, Object> map = new LinkedHashMap<String, Object>();
-		Matcher matcher = pattern.matcher(payload);
-		if (matcher.matches()) {
-			try {
-				String facilityString = matcher.group(1);
-				int facility = Integer.parseInt(facilityString);
-				int severity = facility & 0x7;
-				facility = facility >> 3;
-				map.put(FACILITY, facility);
-				map.put(SEVERITY, severity);
-				String timestamp = matcher.group(2);
-				Date date;
-				try {
-					date = this.dateFormat.parse(timestamp);
-					Calendar calendar = Calendar.getInstance();
-					int year = calendar.get(Calendar.YEAR);
-					int month = calendar.get(Calendar.MONTH);
-					calendar.setTime(date);
-					/*
-					 * syslog date doesn't include a year so we
-					 * need to insert the current year - adjusted
-					 * if necessary if close to midnight on Dec 31.
-					 */
-					if (month == 11 && calendar.get(Calendar.MONTH) == 0) {
-						calendar.set(Calendar.YEAR, year + 1);
-					}
-					else if (month == 0 && calendar.get(Calendar.MONTH) == 1) {
-						calendar.set(Calendar.YEAR, year - 1);
-					}
-					else {
-						calendar.set(Calendar.YEAR, year);
-					}
-					map.put(TIMESTAMP, calendar.getTime());
-				}
-				catch (Exception e) {
-					/*
-					 * If we can't parse the timestamp, return it as an
-					 * unmodified String. (Postel's law).
-					 */
-					map.put(TIMESTAMP, timestamp);
-				}
-				map.put(HOST, matcher.group(3));
-				map.put(TAG, matcher.group(4));
-				map.put(MESSAGE, matcher.group(5));
-			}
-			catch (Exception e) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Could not decode:" + payload, e);
-				}
-				map.clear();
-				map.put(UNDECODED, payload);
-			}
+		try {
+			return this.parser.parse(payload.getBytes("UTF-8"));
 		}
-		else {
-			if (logger.isDebugEnabled()) {
-				logger.debug("Could not decode:" + payload);
-			}
-			map.put(UNDECODED, payload);
+		catch (Exception e) {
+			return this.undecoded(payload, e);
+		}
+	}
+
+	private Map<String, ?> undecoded(String payload, Exception e) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Could not decode:" + payload, e);
 		}
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put(UNDECODED, payload);
 		return map;
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -44,6 +44,14 @@ public class ErrorHandlingTaskExecutor implements TaskExecutor {
 		this.errorHandler = errorHandler;
 	}
 
+	/**
+	 * @return the handler of the exceptions thrown by the tasks.
+	 * @since 3.0
+	 */
+	public ErrorHandler getErrorHandler() {
+		return this.errorHandler;
+	}
+
 
 	public void execute(final Runnable task) {
 		this.executor.execute(new Runnable() {
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.util;
+
+/**
+ * Callback for the outcome of a {@link ListenableFuture}.
+ *
+ * @since 3.0
+ */
+public interface FutureCallback<T> {
+
+	/**
+	 * Called when the future completes with a result.
+	 * @param result the result, which may be null.
+	 */
+	void onSuccess(T result);
+
+	/**
+	 * Called when the future completes with an exception or is cancelled.
+	 * @param t the exception; a {@link java.util.concurrent.CancellationException}
+	 * if the future was cancelled.
+	 */
+	void onFailure(Throwable t);
+
+}
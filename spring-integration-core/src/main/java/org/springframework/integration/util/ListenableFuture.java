@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.util;
+
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Future} that accepts callbacks to be invoked on completion, so that
+ * the caller does not need to block a thread in {@link #get()}.
+ *
+ * @since 3.0
+ */
+public interface ListenableFuture<T> extends Future<T> {
+
+	/**
+	 * Register a callback. It is invoked by the thread that completes the future or,
+	 * if the future has already completed, immediately by the calling thread.
+	 * @param callback the callback.
+	 */
+	void addCallback(FutureCallback<? super T> callback);
+
+}
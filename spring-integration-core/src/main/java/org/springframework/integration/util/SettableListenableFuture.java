@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.integration.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ListenableFuture} that is completed explicitly with {@link #set(Object)}
+ * or {@link #setException(Throwable)}, rather than by running a task. Only the first
+ * completion (or cancellation) takes effect; the callbacks are then invoked by the
+ * completing thread.
+ *
+ * @since 3.0
+ */
+public class SettableListenableFuture<T> implements ListenableFuture<T> {
+
+	private static final Log logger = LogFactory.getLog(SettableListenableFuture.class);
+
+	private final CountDownLatch latch = new CountDownLatch(1);
+
+	private final Object monitor = new Object();
+
+	private List<FutureCallback<? super T>> callbacks; // guarded by monitor
+
+	private volatile boolean done;
+
+	private volatile boolean cancelled;
+
+	private volatile T result;
+
+	private volatile Throwable exception;
+
+
+	/**
+	 * Complete this future with the given result.
+	 * @param result the result, which may be null.
+	 * @return false if the future was already complete.
+	 */
+	public boolean set(T result) {
+		return this.complete(result, null, false);
+	}
+
+	/**
+	 * Complete this future with the given exception; {@link #get()} throws it wrapped
+	 * in an {@link ExecutionException}.
+	 * @param exception the exception.
+	 * @return false if the future was already complete.
+	 */
+	public boolean setException(Throwable exception) {
+		Assert.notNull(exception, "'exception' must not be null");
+		return this.complete(null, exception, false);
+	}
+
+	/**
+	 * Cancel this future; as there is no task, the argument is ignored.
+	 */
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return this.complete(null, new CancellationException(), true);
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	public boolean isDone() {
+		return this.done;
+	}
+
+	public void addCallback(FutureCallback<? super T> callback) {
+		Assert.notNull(callback, "'callback' must not be null");
+		synchronized (this.monitor) {
+			if (!this.done) {
+				if (this.callbacks == null) {
+					this.callbacks = new ArrayList<FutureCallback<? super T>>(1);
+				}
+				this.callbacks.add(callback);
+				return;
+			}
+		}
+		this.notifyCallback(callback);
+	}
+
+	public T get() throws InterruptedException, ExecutionException {
+		this.latch.await();
+		return this.getResult();
+	}
+
+	public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!this.latch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return this.getResult();
+	}
+
+	private boolean complete(T result, Throwable exception, boolean cancelled) {
+		List<FutureCallback<? super T>> callbacks;
+		synchronized (this.monitor) {
+			if (this.done) {
+				return false;
+			}
+			this.result = result;
+			this.exception = exception;
+			this.cancelled = cancelled;
+			this.done = true;
+			callbacks = this.callbacks;
+			this.callbacks = null;
+		}
+		this.latch.countDown();
+		if (callbacks != null) {
+			for (FutureCallback<? super T> callback : callbacks) {
+				this.notifyCallback(callback);
+			}
+		}
+		return true;
+	}
+
+	private void notifyCallback(FutureCallback<? super T> callback) {
+		try {
+			if (this.exception != null) {
+				callback.onFailure(this.exception);
+			}
+			else {
+				callback.onSuccess(this.result);
+			}
+		}
+		catch (RuntimeException e) {
+			logger.error("future callback failed", e);
+		}
+	}
+
+	private T getResult() throws ExecutionException {
+		if (this.cancelled) {
+			throw new CancellationException();
+		}
+		if (this.exception != null) {
+			throw new ExecutionException(this.exception);
+		}
+		return this.result;
+	}
+
+}
@@ -45,6 +45,7 @@ import org.springframework.integration.store.MessageGroupStore;
 import org.springframework.integration.store.SimpleMessageStore;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.test.util.TestUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * @author Gary Russell
@@ -399,4 +400,85 @@ public class AbstractCorrelatingMessageHandlerTests {
 		assertNull(outputChannel.receive(0));
 	}
 
+	@Test
+	public void testGroupTimeoutReleasesPartialGroup() throws Exception {
+		SimpleMessageStore store = new SimpleMessageStore();
+		QueueChannel outputChannel = new QueueChannel();
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.afterPropertiesSet();
+		AggregatingMessageHandler handler = createGroupTimeoutHandler(store, outputChannel, taskScheduler, 100);
+		handler.handleMessage(MessageBuilder.withPayload("foo").setCorrelationId("foo").setSequenceSize(2)
+				.setSequenceNumber(1).build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").setCorrelationId("bar").setSequenceSize(2)
+				.setSequenceNumber(1).build());
+		handler.handleMessage(MessageBuilder.withPayload("bar").setCorrelationId("bar").setSequenceSize(2)
+				.setSequenceNumber(2).build());
+		Message<?> released = outputChannel.receive(1000);
+		assertNotNull(released);
+		assertEquals(2, ((Collection<?>) released.getPayload()).size());
+		Message<?> expired = outputChannel.receive(10000);
+		assertNotNull(expired);
+		assertEquals("foo", expired.getHeaders().getCorrelationId());
+		assertEquals(1, ((Collection<?>) expired.getPayload()).size());
+		int n = 0;
+		while (n++ < 100 && store.getMessageGroupCount() > 0) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, store.getMessageGroup("foo").size());
+		assertEquals(0, TestUtils.getPropertyValue(handler, "groupTimeoutTasks", Map.class).size());
+		assertNull(outputChannel.receive(200));
+		taskScheduler.destroy();
+	}
+
+	@Test
+	public void testGroupTimeoutIsExtendedByNewMessages() throws Exception {
+		SimpleMessageStore store = new SimpleMessageStore();
+		QueueChannel outputChannel = new QueueChannel();
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.afterPropertiesSet();
+		AggregatingMessageHandler handler = createGroupTimeoutHandler(store, outputChannel, taskScheduler, 500);
+		handler.handleMessage(MessageBuilder.withPayload("foo").setCorrelationId("foo").setSequenceSize(3)
+				.setSequenceNumber(1).build());
+		Thread.sleep(300);
+		handler.handleMessage(MessageBuilder.withPayload("foo").setCorrelationId("foo").setSequenceSize(3)
+				.setSequenceNumber(2).build());
+		assertNull(outputChannel.receive(300));
+		Message<?> expired = outputChannel.receive(10000);
+		assertNotNull(expired);
+		assertEquals(2, ((Collection<?>) expired.getPayload()).size());
+		taskScheduler.destroy();
+	}
+
+	@Test
+	public void testGroupTimeoutForStoredGroups() throws Exception {
+		SimpleMessageStore store = new SimpleMessageStore();
+		store.addMessageToGroup("foo", MessageBuilder.withPayload("foo").setCorrelationId("foo").setSequenceSize(2)
+				.setSequenceNumber(1).build());
+		QueueChannel outputChannel = new QueueChannel();
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.afterPropertiesSet();
+		createGroupTimeoutHandler(store, outputChannel, taskScheduler, 100);
+		Message<?> expired = outputChannel.receive(10000);
+		assertNotNull(expired);
+		assertEquals(1, ((Collection<?>) expired.getPayload()).size());
+		int n = 0;
+		while (n++ < 100 && store.getMessageGroupCount() > 0) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, store.getMessageGroupCount());
+		taskScheduler.destroy();
+	}
+
+	private AggregatingMessageHandler createGroupTimeoutHandler(MessageGroupStore store, MessageChannel outputChannel,
+			ThreadPoolTaskScheduler taskScheduler, long groupTimeout) throws Exception {
+		AggregatingMessageHandler handler = new AggregatingMessageHandler(new DefaultAggregatingMessageGroupProcessor(),
+				store);
+		handler.setOutputChannel(outputChannel);
+		handler.setSendPartialResultOnExpiry(true);
+		handler.setGroupTimeout(groupTimeout);
+		new DirectFieldAccessor(handler).setPropertyValue("taskScheduler", taskScheduler);
+		handler.afterPropertiesSet();
+		return handler;
+	}
+
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.aggregator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.store.SimpleMessageStore;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.StopWatch;
+
+/**
+ * Releases a stream of messages that arrive in reversed blocks, so that each block is
+ * held back until its first message arrives.
+ *
+ * @since 3.0
+ */
+public class ResequencerPerformanceTests {
+
+	private static final int MESSAGES = 100000;
+
+	private static final int WINDOW = 5000;
+
+	@Test
+	@Ignore
+	public void resequencerPerformanceTest() {
+		SequenceSizeReleaseStrategy releaseStrategy = new SequenceSizeReleaseStrategy(true);
+		ResequencingMessageHandler resequencer = new ResequencingMessageHandler(
+				new ResequencingMessageGroupProcessor(), new SimpleMessageStore(), null, releaseStrategy);
+		final int[] released = new int[1];
+		resequencer.setOutputChannel(new MessageChannel() {
+
+			public boolean send(Message<?> message, long timeout) {
+				if (message.getHeaders().getSequenceNumber() != ++released[0]) {
+					throw new MessagingException(message, "out of sequence");
+				}
+				return true;
+			}
+
+			public boolean send(Message<?> message) {
+				return this.send(message, -1);
+			}
+
+		});
+		StopWatch watch = new StopWatch();
+		watch.start();
+		for (int block = 0; block < MESSAGES; block += WINDOW) {
+			for (int i = WINDOW; i > 0; i--) {
+				resequencer.handleMessage(MessageBuilder.withPayload("foo").setCorrelationId("foo")
+						.setSequenceNumber(block + i).build());
+			}
+		}
+		watch.stop();
+		assertEquals(MESSAGES, released[0]);
+		System.out.println(MESSAGES + " messages in windows of " + WINDOW + " resequenced in "
+				+ watch.getTotalTimeSeconds() + " seconds");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,7 +24,12 @@ import static org.junit.Assert.assertThat;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +37,7 @@ import org.junit.Test;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.store.AbstractKeyValueMessageStore;
 import org.springframework.integration.store.MessageGroupStore;
 import org.springframework.integration.store.SimpleMessageStore;
 import org.springframework.integration.support.MessageBuilder;
@@ -310,10 +316,107 @@ public class ResequencerTests {
 		assertEquals(0, store.getMessageGroup(correlationId).size());
 	}
 
+	@Test
+	public void testOutOfOrderStreamIsReleasedInOrder() {
+		SequenceSizeReleaseStrategy releaseStrategy = new SequenceSizeReleaseStrategy(true);
+		this.resequencer = new ResequencingMessageHandler(processor, store, null, releaseStrategy);
+		QueueChannel replyChannel = new QueueChannel();
+		List<Integer> sequenceNumbers = new ArrayList<Integer>();
+		for (int i = 1; i <= 1000; i++) {
+			sequenceNumbers.add(i);
+		}
+		Collections.shuffle(sequenceNumbers, new Random(42));
+		for (Integer sequenceNumber : sequenceNumbers) {
+			this.resequencer.handleMessage(createMessage("X" + sequenceNumber, "ABC", 1000, sequenceNumber, replyChannel));
+		}
+		for (int i = 1; i <= 1000; i++) {
+			Message<?> reply = replyChannel.receive(0);
+			assertNotNull(reply);
+			assertEquals(new Integer(i), reply.getHeaders().getSequenceNumber());
+		}
+		assertNull(replyChannel.receive(0));
+		assertEquals(0, store.getMessageGroup("ABC").size());
+	}
+
+	@Test
+	public void testResequencingWhenGroupIsChangedInStore() {
+		SequenceSizeReleaseStrategy releaseStrategy = new SequenceSizeReleaseStrategy(true);
+		this.resequencer = new ResequencingMessageHandler(processor, store, null, releaseStrategy);
+		QueueChannel replyChannel = new QueueChannel();
+		Message<?> message3 = createMessage("789", "ABC", 4, 3, replyChannel);
+		this.resequencer.handleMessage(createMessage("456", "ABC", 4, 2, replyChannel));
+		this.resequencer.handleMessage(message3);
+		store.removeMessageFromGroup("ABC", message3);
+		this.resequencer.handleMessage(createMessage("123", "ABC", 4, 1, replyChannel));
+		assertEquals(new Integer(1), replyChannel.receive(0).getHeaders().getSequenceNumber());
+		assertEquals(new Integer(2), replyChannel.receive(0).getHeaders().getSequenceNumber());
+		assertNull(replyChannel.receive(0));
+		this.resequencer.handleMessage(createMessage("000", "ABC", 4, 4, replyChannel));
+		assertNull(replyChannel.receive(0));
+		this.resequencer.handleMessage(message3);
+		assertEquals(new Integer(3), replyChannel.receive(0).getHeaders().getSequenceNumber());
+		assertEquals(new Integer(4), replyChannel.receive(0).getHeaders().getSequenceNumber());
+	}
+
+	@Test
+	public void testResequencingWhenGroupIsChangedByAnotherInstance() {
+		SequenceSizeReleaseStrategy releaseStrategy = new SequenceSizeReleaseStrategy(true);
+		MessageGroupStore sharedStore = new MapMessageStore();
+		ResequencingMessageHandler resequencer1 = new ResequencingMessageHandler(processor, sharedStore, null,
+				releaseStrategy);
+		ResequencingMessageHandler resequencer2 = new ResequencingMessageHandler(processor, sharedStore, null,
+				releaseStrategy);
+		QueueChannel replyChannel = new QueueChannel();
+		resequencer1.handleMessage(createMessage("456", "ABC", 5, 2, replyChannel));
+		resequencer2.handleMessage(createMessage("123", "ABC", 5, 1, replyChannel));
+		resequencer2.handleMessage(createMessage("000", "ABC", 5, 5, replyChannel));
+		assertEquals(new Integer(1), replyChannel.receive(0).getHeaders().getSequenceNumber());
+		assertEquals(new Integer(2), replyChannel.receive(0).getHeaders().getSequenceNumber());
+		assertNull(replyChannel.receive(0));
+		// the group has the same size as when resequencer1 last stored it, but other contents
+		resequencer1.handleMessage(createMessage("789", "ABC", 5, 3, replyChannel));
+		assertEquals(new Integer(3), replyChannel.receive(0).getHeaders().getSequenceNumber());
+		assertNull(replyChannel.receive(0));
+	}
+
 	private static Message<?> createMessage(String payload, Object correlationId, int sequenceSize, int sequenceNumber,
 			MessageChannel replyChannel) {
 		return MessageBuilder.withPayload(payload).setCorrelationId(correlationId).setSequenceSize(sequenceSize)
 				.setSequenceNumber(sequenceNumber).setReplyChannel(replyChannel).build();
 	}
 
+
+	private static class MapMessageStore extends AbstractKeyValueMessageStore {
+
+		private final Map<Object, Object> map = new ConcurrentHashMap<Object, Object>();
+
+		@Override
+		protected Object doRetrieve(Object id) {
+			return this.map.get(id);
+		}
+
+		@Override
+		protected void doStore(Object id, Object objectToStore) {
+			this.map.put(id, objectToStore);
+		}
+
+		@Override
+		protected Object doRemove(Object id) {
+			return this.map.remove(id);
+		}
+
+		@Override
+		protected Collection<?> doListKeys(String keyPattern) {
+			String prefix = keyPattern.substring(0, keyPattern.length() - 1);
+			List<Object> keys = new ArrayList<Object>();
+			for (Object key : this.map.keySet()) {
+				if (key.toString().startsWith(prefix)) {
+					keys.add(key);
+				}
+			}
+			return keys;
+		}
+
+	}
+
 }
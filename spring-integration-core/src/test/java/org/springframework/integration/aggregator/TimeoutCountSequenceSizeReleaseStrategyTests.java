@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2008 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.integration.aggregator;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+
 import org.junit.Test;
 import org.springframework.integration.Message;
 import org.springframework.integration.store.SimpleMessageGroup;
@@ -49,6 +51,23 @@ public class TimeoutCountSequenceSizeReleaseStrategyTests {
 		assertTrue(releaseStrategy.canRelease(messages));
 	}
 
+	@Test
+	public void testTimeoutIsMeasuredFromGroupTimestamp() {
+		Message<String> message = MessageBuilder.withPayload("test1")
+				.setSequenceSize(2).build();
+		TimeoutCountSequenceSizeReleaseStrategy releaseStrategy = new TimeoutCountSequenceSizeReleaseStrategy(
+				TimeoutCountSequenceSizeReleaseStrategy.DEFAULT_THRESHOLD, 1000);
+		SimpleMessageGroup recent = new SimpleMessageGroup(Collections.singleton(message), "FOO",
+				System.currentTimeMillis(), false);
+		assertFalse(releaseStrategy.canRelease(recent));
+		SimpleMessageGroup old = new SimpleMessageGroup(Collections.singleton(message), "FOO",
+				System.currentTimeMillis() - 2000, false);
+		assertTrue(releaseStrategy.canRelease(old));
+		SimpleMessageGroup oldButEmpty = new SimpleMessageGroup(Collections.<Message<?>> emptyList(), "FOO",
+				System.currentTimeMillis() - 2000, false);
+		assertFalse(releaseStrategy.canRelease(oldButEmpty));
+	}
+
 	@Test
 	public void testIncompleteListWithCount() {
 		Message<String> message = MessageBuilder.withPayload("test1")
@@ -16,15 +16,21 @@
 
 package org.springframework.integration.channel;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
 import org.springframework.integration.support.channel.ChannelResolutionException;
+import org.springframework.integration.support.channel.ChannelResolverCache;
 
 /**
  * @author Mark Fisher
@@ -52,4 +58,73 @@ public class BeanFactoryChannelResolverTests {
 		resolver.resolveChannelName("noSuchChannel");
 	}
 
+	@Test
+	public void singletonChannelsAreCached() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBeanDefinition(IntegrationContextUtils.INTEGRATION_CHANNEL_RESOLVER_CACHE_BEAN_NAME,
+				new RootBeanDefinition(ChannelResolverCache.class));
+		context.registerBeanDefinition("testChannel", new RootBeanDefinition(QueueChannel.class));
+		RootBeanDefinition prototype = new RootBeanDefinition(QueueChannel.class);
+		prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		context.registerBeanDefinition("prototypeChannel", prototype);
+		context.refresh();
+		ChannelResolverCache cache = context.getBean(ChannelResolverCache.class);
+		BeanFactoryChannelResolver resolver = new BeanFactoryChannelResolver(context);
+		MessageChannel channel = resolver.resolveChannelName("testChannel");
+		assertSame(context.getBean("testChannel"), channel);
+		assertEquals(1, cache.size());
+		assertSame(channel, cache.get("testChannel"));
+		assertSame(channel, resolver.resolveChannelName("testChannel"));
+		assertNotSame(resolver.resolveChannelName("prototypeChannel"), resolver.resolveChannelName("prototypeChannel"));
+		assertEquals(1, cache.size());
+		// initializing a new channel bean invalidates the cache
+		context.registerBeanDefinition("newChannel", new RootBeanDefinition(QueueChannel.class));
+		assertNotNull(resolver.resolveChannelName("newChannel"));
+		assertEquals(1, cache.size());
+		assertSame(channel, resolver.resolveChannelName("testChannel"));
+		assertEquals(2, cache.size());
+		context.close();
+	}
+
+	@Test
+	public void destroyedChannelIsEvicted() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBeanDefinition(IntegrationContextUtils.INTEGRATION_CHANNEL_RESOLVER_CACHE_BEAN_NAME,
+				new RootBeanDefinition(ChannelResolverCache.class));
+		context.registerBeanDefinition("testChannel", new RootBeanDefinition(QueueChannel.class));
+		context.registerBeanDefinition("otherChannel", new RootBeanDefinition(QueueChannel.class));
+		context.registerAlias("testChannel", "aliasChannel");
+		context.refresh();
+		ChannelResolverCache cache = context.getBean(ChannelResolverCache.class);
+		BeanFactoryChannelResolver resolver = new BeanFactoryChannelResolver(context);
+		MessageChannel channel = resolver.resolveChannelName("testChannel");
+		assertSame(channel, resolver.resolveChannelName("aliasChannel"));
+		MessageChannel otherChannel = resolver.resolveChannelName("otherChannel");
+		assertEquals(3, cache.size());
+		context.getDefaultListableBeanFactory().destroySingleton("testChannel");
+		assertEquals(1, cache.size());
+		assertSame(otherChannel, cache.get("otherChannel"));
+		QueueChannel newChannel = new QueueChannel();
+		context.getBeanFactory().registerSingleton("testChannel", newChannel);
+		assertSame(newChannel, resolver.resolveChannelName("testChannel"));
+		assertSame(newChannel, resolver.resolveChannelName("aliasChannel"));
+		context.close();
+	}
+
+	@Test
+	public void parentCacheIsNotUsedByChildContext() {
+		GenericApplicationContext parent = new GenericApplicationContext();
+		parent.registerBeanDefinition(IntegrationContextUtils.INTEGRATION_CHANNEL_RESOLVER_CACHE_BEAN_NAME,
+				new RootBeanDefinition(ChannelResolverCache.class));
+		parent.refresh();
+		GenericApplicationContext child = new GenericApplicationContext(parent);
+		child.registerBeanDefinition("testChannel", new RootBeanDefinition(QueueChannel.class));
+		child.refresh();
+		BeanFactoryChannelResolver resolver = new BeanFactoryChannelResolver(child);
+		assertSame(child.getBean("testChannel"), resolver.resolveChannelName("testChannel"));
+		assertEquals(0, parent.getBean(ChannelResolverCache.class).size());
+		child.close();
+		parent.close();
+	}
+
 }
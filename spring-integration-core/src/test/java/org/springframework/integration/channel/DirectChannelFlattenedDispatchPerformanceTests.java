@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of a 20-hop pipeline of {@link DirectChannel}s, with nested and with
+ * flattened dispatch.
+ *
+ * @since 3.0
+ */
+public class DirectChannelFlattenedDispatchPerformanceTests {
+
+	private static final int HOPS = 20;
+
+	private static final int ITERATIONS = 500000;
+
+	@Test
+	@Ignore
+	public void flattenedDispatchPerformanceTest() {
+		QueueChannel nestedOutput = new QueueChannel();
+		DirectChannel nested = this.pipeline(false, nestedOutput);
+		QueueChannel flattenedOutput = new QueueChannel();
+		DirectChannel flattened = this.pipeline(true, flattenedOutput);
+		Message<Integer> message = new GenericMessage<Integer>(0);
+
+		for (int run = 0; run < 3; run++) {
+			StopWatch watch = new StopWatch();
+			watch.start("nested");
+			for (int i = 0; i < ITERATIONS; i++) {
+				nested.send(message);
+				assertEquals(HOPS, nestedOutput.receive(0).getPayload());
+			}
+			watch.stop();
+			watch.start("flattened");
+			for (int i = 0; i < ITERATIONS; i++) {
+				flattened.send(message);
+				assertEquals(HOPS, flattenedOutput.receive(0).getPayload());
+			}
+			watch.stop();
+			System.out.println(watch.prettyPrint());
+		}
+	}
+
+	private DirectChannel pipeline(boolean flatten, MessageChannel output) {
+		DirectChannel input = new DirectChannel();
+		input.setFlattenDispatch(flatten);
+		DirectChannel channel = input;
+		for (int i = 1; i <= HOPS; i++) {
+			AbstractReplyProducingMessageHandler handler = new AbstractReplyProducingMessageHandler() {
+
+				@Override
+				protected Object handleRequestMessage(Message<?> requestMessage) {
+					return (Integer) requestMessage.getPayload() + 1;
+				}
+
+			};
+			channel.subscribe(handler);
+			if (i == HOPS) {
+				handler.setOutputChannel(output);
+			}
+			else {
+				DirectChannel next = new DirectChannel();
+				next.setFlattenDispatch(flatten);
+				handler.setOutputChannel(next);
+				channel = next;
+			}
+		}
+		return input;
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.interceptor.ChannelInterceptorAdapter;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * @since 3.0
+ */
+public class DirectChannelFlattenedDispatchTests {
+
+	private final List<String> events = new ArrayList<String>();
+
+	@Test
+	public void stackDepthDoesNotGrowWithHops() {
+		int[] depths = new int[21];
+		QueueChannel output = new QueueChannel();
+		DirectChannel input = this.pipeline(20, true, depths, -1, output);
+		input.send(new GenericMessage<Integer>(0));
+		assertEquals(20, output.receive(0).getPayload());
+		assertEquals(depths[2], depths[20]);
+		assertTrue(depths[2] - depths[1] < 5);
+
+		input = this.pipeline(20, false, depths, -1, output);
+		input.send(new GenericMessage<Integer>(0));
+		assertEquals(20, output.receive(0).getPayload());
+		assertTrue(depths[20] - depths[2] > 18 * 5);
+	}
+
+	@Test
+	public void exceptionsAreUnchanged() {
+		MessagingException flattened = this.failAtHop15(true);
+		MessagingException nested = this.failAtHop15(false);
+		assertSame(MessageHandlingException.class, flattened.getClass());
+		assertSame(nested.getClass(), flattened.getClass());
+		assertEquals(14, flattened.getFailedMessage().getPayload());
+		assertEquals(nested.getFailedMessage().getPayload(), flattened.getFailedMessage().getPayload());
+		assertEquals("hop 15 failed", flattened.getCause().getMessage());
+	}
+
+	@Test
+	public void sendFromHandlerCompletesBeforeReturning() {
+		final QueueChannel sideOutput = new QueueChannel();
+		final DirectChannel side = this.pipeline(5, true, new int[6], -1, sideOutput);
+		DirectChannel input = this.flattenedChannel();
+		input.subscribe(new AbstractReplyProducingMessageHandler() {
+
+			@Override
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				side.send(requestMessage);
+				Message<?> sideResult = sideOutput.receive(0);
+				events.add("side " + (sideResult == null ? null : sideResult.getPayload()));
+				return null;
+			}
+
+		});
+		input.send(new GenericMessage<Integer>(0));
+		assertEquals("[side 5]", this.events.toString());
+	}
+
+	@Test
+	public void splitOutputOrderIsUnchanged() {
+		DirectChannel input = this.flattenedChannel();
+		DirectChannel middle = this.flattenedChannel();
+		DirectChannel last = this.flattenedChannel();
+		AbstractReplyProducingMessageHandler splitter = new AbstractReplyProducingMessageHandler() {
+
+			@Override
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				List<Message<String>> messages = new ArrayList<Message<String>>();
+				messages.add(new GenericMessage<String>("a"));
+				messages.add(new GenericMessage<String>("b"));
+				return messages;
+			}
+
+		};
+		splitter.setOutputChannel(middle);
+		input.subscribe(splitter);
+		middle.subscribe(this.recordingHandler("middle", last));
+		last.subscribe(this.recordingHandler("last", null));
+		input.send(new GenericMessage<String>("foo"));
+		assertEquals("[middle a, last a, middle b, last b]", this.events.toString());
+	}
+
+	@Test
+	public void failoverIsUnchanged() {
+		DirectChannel input = this.flattenedChannel();
+		DirectChannel failover = this.flattenedChannel();
+		DirectChannel last = this.flattenedChannel();
+		input.subscribe(this.recordingHandler("first", failover));
+		failover.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				events.add("failing");
+				throw new MessagingException(message, "failing");
+			}
+
+		});
+		failover.subscribe(this.recordingHandler("failover", last));
+		last.subscribe(this.recordingHandler("last", null));
+		// round robin: the second message is sent to the failing handler first
+		input.send(new GenericMessage<String>("foo"));
+		input.send(new GenericMessage<String>("bar"));
+		assertEquals("[first foo, failover foo, last foo, first bar, failing, failover bar, last bar]",
+				this.events.toString());
+	}
+
+	@Test
+	public void interceptorsSeeDownstreamCompleted() {
+		DirectChannel input = this.flattenedChannel();
+		DirectChannel intercepted = this.flattenedChannel();
+		DirectChannel last = this.flattenedChannel();
+		intercepted.addInterceptor(new ChannelInterceptorAdapter() {
+
+			@Override
+			public void postSend(Message<?> message, MessageChannel channel, boolean sent) {
+				events.add("postSend " + message.getPayload());
+			}
+
+		});
+		input.subscribe(this.recordingHandler("first", intercepted));
+		intercepted.subscribe(this.recordingHandler("intercepted", last));
+		last.subscribe(this.recordingHandler("last", null));
+		input.send(new GenericMessage<String>("foo"));
+		assertEquals("[first foo, intercepted foo, last foo, postSend foo]", this.events.toString());
+	}
+
+	private MessagingException failAtHop15(boolean flatten) {
+		DirectChannel input = this.pipeline(20, flatten, new int[21], 15, new NullChannel());
+		try {
+			input.send(new GenericMessage<Integer>(0));
+			fail("expected exception");
+		}
+		catch (MessagingException e) {
+			return e;
+		}
+		return null;
+	}
+
+	/**
+	 * Build a pipeline of handlers that increment the payload and record the stack depth
+	 * at which they are invoked.
+	 */
+	private DirectChannel pipeline(int hops, boolean flatten, final int[] depths, final int failingHop,
+			MessageChannel output) {
+		DirectChannel input = new DirectChannel();
+		input.setFlattenDispatch(flatten);
+		DirectChannel channel = input;
+		for (int i = 1; i <= hops; i++) {
+			final int hop = i;
+			AbstractReplyProducingMessageHandler handler = new AbstractReplyProducingMessageHandler() {
+
+				@Override
+				protected Object handleRequestMessage(Message<?> requestMessage) {
+					depths[hop] = Thread.currentThread().getStackTrace().length;
+					if (hop == failingHop) {
+						throw new IllegalStateException("hop " + hop + " failed");
+					}
+					return (Integer) requestMessage.getPayload() + 1;
+				}
+
+			};
+			channel.subscribe(handler);
+			if (i == hops) {
+				handler.setOutputChannel(output);
+			}
+			else {
+				DirectChannel next = new DirectChannel();
+				next.setFlattenDispatch(flatten);
+				handler.setOutputChannel(next);
+				channel = next;
+			}
+		}
+		return input;
+	}
+
+	private DirectChannel flattenedChannel() {
+		DirectChannel channel = new DirectChannel();
+		channel.setFlattenDispatch(true);
+		return channel;
+	}
+
+	private MessageHandler recordingHandler(final String name, MessageChannel outputChannel) {
+		AbstractReplyProducingMessageHandler handler = new AbstractReplyProducingMessageHandler() {
+
+			@Override
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				events.add(name + " " + requestMessage.getPayload());
+				return MessageBuilder.fromMessage(requestMessage);
+			}
+
+		};
+		handler.setOutputChannel(outputChannel != null ? outputChannel : new NullChannel());
+		return handler;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.concurrent.CountDownLatch;
@@ -29,13 +30,18 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
 import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.dispatcher.RoundRobinLoadBalancingStrategy;
 import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.util.ErrorHandlingTaskExecutor;
 import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ErrorHandler;
 
 /**
  * @author Mark Fisher
@@ -58,6 +64,31 @@ public class ExecutorChannelTests {
 		assertEquals("test-1", handler.thread.getName());
 	}
 
+	@Test
+	public void workQueuesUseErrorHandlerOfProvidedExecutor() throws Exception {
+		final AtomicInteger errors = new AtomicInteger();
+		ErrorHandler errorHandler = new ErrorHandler() {
+
+			public void handleError(Throwable t) {
+				errors.incrementAndGet();
+			}
+
+		};
+		ExecutorChannel channel = new ExecutorChannel(new ErrorHandlingTaskExecutor(new SyncTaskExecutor(), errorHandler));
+		channel.setWorkQueues(1);
+		channel.afterPropertiesSet();
+		assertSame(errorHandler, new DirectFieldAccessor(channel.getWorkStealingDispatcher()).getPropertyValue("errorHandler"));
+		channel.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				throw new MessagingException(message, "bad message");
+			}
+
+		});
+		channel.send(new GenericMessage<String>("test"));
+		assertEquals(1, errors.get());
+	}
+
 	@Test
 	public void roundRobinLoadBalancing() throws Exception {
 		int numberOfMessages = 11;
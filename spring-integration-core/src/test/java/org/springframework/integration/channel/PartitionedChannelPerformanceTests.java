@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of a {@link PartitionedChannel} with 1 and 4 lanes, with and without a
+ * partition key.
+ *
+ * @since 3.0
+ */
+public class PartitionedChannelPerformanceTests {
+
+	private static final int MESSAGES = 1000000;
+
+	@Test
+	@Ignore
+	public void partitionedChannelPerformanceTest() throws Exception {
+		for (int run = 0; run < 2; run++) {
+			StopWatch watch = new StopWatch();
+			this.run(watch, "1 lane", 1, false);
+			this.run(watch, "4 lanes", 4, false);
+			this.run(watch, "4 lanes, partitioned", 4, true);
+			System.out.println(watch.prettyPrint());
+		}
+	}
+
+	private void run(StopWatch watch, String name, int lanes, boolean partitioned) throws Exception {
+		PartitionedChannel channel = new PartitionedChannel(lanes);
+		if (partitioned) {
+			channel.setPartitionKeyStrategy(new HeaderAttributeCorrelationStrategy("key"));
+		}
+		channel.afterPropertiesSet();
+		final CountDownLatch latch = new CountDownLatch(MESSAGES);
+		channel.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				latch.countDown();
+			}
+
+		});
+		Message<?>[] messages = new Message<?>[64];
+		for (int i = 0; i < messages.length; i++) {
+			messages[i] = MessageBuilder.withPayload(i).setHeader("key", i).build();
+		}
+		watch.start(name);
+		for (int i = 0; i < MESSAGES; i++) {
+			channel.send(messages[i % messages.length]);
+		}
+		assertTrue(latch.await(60, TimeUnit.SECONDS));
+		watch.stop();
+		channel.destroy();
+	}
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageDeliveryException;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * @since 3.0
+ */
+public class PartitionedChannelTests {
+
+	private PartitionedChannel channel;
+
+	@After
+	public void destroyChannel() {
+		if (this.channel != null) {
+			this.channel.destroy();
+		}
+	}
+
+	@Test
+	public void orderIsPreservedPerPartitionKey() throws Exception {
+		this.channel = new PartitionedChannel(4);
+		this.channel.setPartitionKeyStrategy(new HeaderAttributeCorrelationStrategy("key"));
+		final int keys = 16;
+		final int messagesPerKey = 500;
+		final Map<Object, Integer> next = new ConcurrentHashMap<Object, Integer>();
+		final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+		final AtomicInteger outOfOrder = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(keys * messagesPerKey);
+		this.channel.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				Object key = message.getHeaders().get("key");
+				Integer expected = next.get(key);
+				if (!message.getPayload().equals(expected == null ? 0 : expected)) {
+					outOfOrder.incrementAndGet();
+				}
+				next.put(key, (Integer) message.getPayload() + 1);
+				threads.add(Thread.currentThread().getName());
+				latch.countDown();
+			}
+
+		});
+		for (int i = 0; i < messagesPerKey; i++) {
+			for (int key = 0; key < keys; key++) {
+				assertTrue(this.channel.send(MessageBuilder.withPayload(i).setHeader("key", "key" + key).build()));
+			}
+		}
+		assertTrue(latch.await(30, TimeUnit.SECONDS));
+		assertEquals(0, outOfOrder.get());
+		assertEquals(4, threads.size());
+		assertTrue(threads.contains("partitioned-channel-lane-1"));
+		long handled = 0;
+		for (int lane = 0; lane < this.channel.getLaneCount(); lane++) {
+			handled += this.channel.getLaneHandledCount(lane);
+		}
+		assertEquals(keys * messagesPerKey, handled);
+	}
+
+	@Test
+	public void messagesWithoutKeyAreDistributedInTurn() throws Exception {
+		this.channel = new PartitionedChannel(2);
+		final CountDownLatch latch = new CountDownLatch(4);
+		this.channel.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				latch.countDown();
+			}
+
+		});
+		for (int i = 0; i < 4; i++) {
+			this.channel.send(new GenericMessage<Integer>(i));
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		this.awaitHandled(0, 2);
+		this.awaitHandled(1, 2);
+	}
+
+	@Test
+	public void fullLaneBlocksSender() throws Exception {
+		this.channel = new PartitionedChannel(1, 2);
+		final CountDownLatch handling = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		this.channel.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				handling.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		});
+		assertTrue(this.channel.send(new GenericMessage<Integer>(0)));
+		assertTrue(handling.await(10, TimeUnit.SECONDS));
+		assertTrue(this.channel.send(new GenericMessage<Integer>(1), 0));
+		assertTrue(this.channel.send(new GenericMessage<Integer>(2), 0));
+		assertEquals(2, this.channel.getLaneDepth(0));
+		assertEquals(0, this.channel.getLaneRemainingCapacity(0));
+		assertFalse(this.channel.send(new GenericMessage<Integer>(3), 10));
+		assertEquals(1, this.channel.getLaneBlockedCount(0));
+		assertEquals(1, this.channel.getLaneTimeoutCount(0));
+		release.countDown();
+		assertTrue(this.channel.send(new GenericMessage<Integer>(4), 10000));
+		this.awaitHandled(0, 4);
+		assertEquals(0, this.channel.getDepth());
+	}
+
+	@Test
+	public void failuresArePassedToErrorHandler() throws Exception {
+		this.channel = new PartitionedChannel(1);
+		final Map<Object, Throwable> errors = new ConcurrentHashMap<Object, Throwable>();
+		final CountDownLatch latch = new CountDownLatch(2);
+		this.channel.setErrorHandler(new ErrorHandler() {
+
+			public void handleError(Throwable t) {
+				errors.put(((MessagingException) t).getFailedMessage().getPayload(), t);
+			}
+
+		});
+		this.channel.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				latch.countDown();
+				if ("bad".equals(message.getPayload())) {
+					throw new MessagingException(message, "bad message");
+				}
+			}
+
+		});
+		this.channel.send(new GenericMessage<String>("bad"));
+		this.channel.send(new GenericMessage<String>("good"));
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		this.awaitHandled(0, 2);
+		assertEquals(Collections.singleton("bad"), errors.keySet());
+	}
+
+	@Test
+	public void blockedSenderFailsWhenDestroyed() throws Exception {
+		this.channel = new PartitionedChannel(1, 1);
+		this.channel.setAutoStartup(false);
+		assertTrue(this.channel.send(new GenericMessage<Integer>(0)));
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread sender = new Thread(new Runnable() {
+
+			public void run() {
+				blocked.countDown();
+				try {
+					channel.send(new GenericMessage<Integer>(1));
+				}
+				catch (Exception e) {
+					failure.set(e);
+				}
+			}
+
+		});
+		sender.start();
+		assertTrue(blocked.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 1000 && this.channel.getLaneBlockedCount(0) == 0; i++) {
+			Thread.sleep(10);
+		}
+		this.channel.destroy();
+		sender.join(10000);
+		assertFalse(sender.isAlive());
+		assertEquals(MessageDeliveryException.class, failure.get().getClass());
+		assertTrue(failure.get().getMessage().contains("has been destroyed"));
+		assertEquals(1, this.channel.getLaneDepth(0));
+	}
+
+	@Test
+	public void messagesWaitWhileStopped() throws Exception {
+		this.channel = new PartitionedChannel(2);
+		SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("custom-");
+		taskExecutor.setDaemon(true);
+		this.channel.setTaskExecutor(taskExecutor);
+		this.channel.setAutoStartup(false);
+		final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+		final AtomicInteger handled = new AtomicInteger();
+		this.channel.subscribe(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				threads.add(Thread.currentThread().getName());
+				handled.incrementAndGet();
+			}
+
+		});
+		for (int i = 0; i < 4; i++) {
+			assertTrue(this.channel.send(new GenericMessage<Integer>(i)));
+		}
+		assertFalse(this.channel.isRunning());
+		assertEquals(4, this.channel.getDepth());
+		this.channel.start();
+		this.awaitHandled(0, 2);
+		this.awaitHandled(1, 2);
+		this.channel.stop();
+		assertFalse(this.channel.isRunning());
+		this.channel.send(new GenericMessage<Integer>(4));
+		Thread.sleep(300);
+		assertEquals(1, this.channel.getDepth());
+		this.channel.start();
+		this.awaitHandled(0, 3);
+		assertEquals(5, handled.get());
+		for (String thread : threads) {
+			assertTrue(thread.startsWith("custom-"));
+		}
+	}
+
+	@Test
+	public void sendAfterDestroyFails() {
+		this.channel = new PartitionedChannel(1);
+		this.channel.destroy();
+		try {
+			this.channel.send(new GenericMessage<String>("foo"));
+			fail("Expected Exception");
+		}
+		catch (MessageDeliveryException e) {
+			assertTrue(e.getMessage().contains("has been destroyed"));
+		}
+	}
+
+	private void awaitHandled(int lane, long count) throws InterruptedException {
+		for (int i = 0; i < 1000 && this.channel.getLaneHandledCount(lane) < count; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, this.channel.getLaneHandledCount(lane));
+	}
+
+}
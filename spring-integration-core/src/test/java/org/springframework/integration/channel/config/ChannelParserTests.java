@@ -44,6 +44,7 @@ import org.springframework.integration.core.PollableChannel;
 import org.springframework.integration.dispatcher.RoundRobinLoadBalancingStrategy;
 import org.springframework.integration.dispatcher.UnicastingDispatcher;
 import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.store.SpillingMessageQueue;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.util.ErrorHandlingTaskExecutor;
 
@@ -134,6 +135,24 @@ public class ChannelParserTests {
 		assertSame(customQueue, actualQueue);
 	}
 
+	@Test
+	public void channelWithSpillDirectory() {
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(
+				"channelParserTests.xml", this.getClass());
+		QueueChannel channel = context.getBean("spillingChannel", QueueChannel.class);
+		SpillingMessageQueue queue = (SpillingMessageQueue) new DirectFieldAccessor(channel).getPropertyValue("queue");
+		for (int i = 0; i < 10; i++) {
+			assertTrue(channel.send(new GenericMessage<Integer>(i), 0));
+		}
+		assertEquals(5, queue.getInMemoryCount());
+		assertEquals(5, queue.getSpilledMessageCount());
+		assertEquals(10, channel.getQueueSize());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, channel.receive(0).getPayload());
+		}
+		context.close();
+	}
+
 	@Test
 	public void testDatatypeChannelWithCorrectType() {
 		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("channelParserTests.xml", this
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.integration.channel.config;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -33,9 +34,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.ExecutorChannel;
 import org.springframework.integration.dispatcher.RoundRobinLoadBalancingStrategy;
+import org.springframework.integration.dispatcher.WorkStealingDispatcher;
 import org.springframework.integration.util.ErrorHandlingTaskExecutor;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -60,6 +63,11 @@ public class DispatchingChannelParserTests {
 		new ClassPathXmlApplicationContext("dispatcherAttributeAndSubElement.xml", this.getClass());
 	}
 
+	@Test(expected = FatalBeanException.class)
+	public void workQueuesWithoutTaskExecutor() {
+		new ClassPathXmlApplicationContext("workQueuesWithoutTaskExecutor.xml", this.getClass());
+	}
+
 	@Test
 	public void dispatcherAttribute() {
 		MessageChannel channel = channels.get("dispatcherAttribute");
@@ -132,6 +140,25 @@ public class DispatchingChannelParserTests {
 				new DirectFieldAccessor(executor).getPropertyValue("executor"));
 	}
 
+	@Test
+	public void workQueuesAndTaskExecutor() {
+		MessageChannel channel = channels.get("workQueuesAndTaskExecutor");
+		assertEquals(ExecutorChannel.class, channel.getClass());
+		WorkStealingDispatcher dispatcher = ((ExecutorChannel) channel).getWorkStealingDispatcher();
+		assertNotNull(dispatcher);
+		assertEquals(4, dispatcher.getQueueCount());
+		assertEquals(10, getDispatcherProperty("batchSize", channel));
+		assertEquals(100, dispatcher.getQueueCapacity());
+		assertEquals(50L, getDispatcherProperty("queueFullTimeout", channel));
+		HeaderAttributeCorrelationStrategy partitionKeyStrategy =
+				(HeaderAttributeCorrelationStrategy) new DirectFieldAccessor(getDispatcherProperty("partitionSelector", channel))
+						.getPropertyValue("partitionKeyStrategy");
+		assertEquals("correlationId", new DirectFieldAccessor(partitionKeyStrategy).getPropertyValue("attributeName"));
+		assertNotNull(getDispatcherProperty("errorHandler", channel));
+		assertEquals(RoundRobinLoadBalancingStrategy.class,
+				getDispatcherProperty("loadBalancingStrategy", channel).getClass());
+	}
+
 
 	private static Object getDispatcherProperty(String propertyName, MessageChannel channel) {
 		return new DirectFieldAccessor(
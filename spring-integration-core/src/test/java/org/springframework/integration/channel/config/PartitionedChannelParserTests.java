@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.channel.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.integration.aggregator.CorrelationStrategy;
+import org.springframework.integration.aggregator.ExpressionEvaluatingCorrelationStrategy;
+import org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
+import org.springframework.integration.channel.PartitionedChannel;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * @since 3.0
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class PartitionedChannelParserTests {
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	@Qualifier("defaults")
+	private PartitionedChannel defaults;
+
+	@Autowired
+	@Qualifier("partitionedByHeader")
+	private PartitionedChannel partitionedByHeader;
+
+	@Autowired
+	@Qualifier("partitionedByExpression")
+	private PartitionedChannel partitionedByExpression;
+
+
+	@Test(expected = FatalBeanException.class)
+	public void partitionKeyHeaderAndExpression() {
+		new ClassPathXmlApplicationContext("partitionKeyHeaderAndExpression.xml", this.getClass());
+	}
+
+	@Test
+	public void defaults() {
+		assertEquals(2, this.defaults.getLaneCount());
+		assertEquals(PartitionedChannel.DEFAULT_LANE_CAPACITY, this.defaults.getLaneRemainingCapacity(0));
+		DirectFieldAccessor accessor = new DirectFieldAccessor(this.defaults);
+		assertNull(getPartitionKeyStrategy(accessor));
+		assertEquals(MessagePublishingErrorHandler.class, accessor.getPropertyValue("errorHandler").getClass());
+		assertTrue((Boolean) getDispatcherProperty("failover", accessor));
+		assertTrue(this.defaults.isRunning());
+	}
+
+	@Test
+	public void partitionedByHeader() {
+		assertEquals(4, this.partitionedByHeader.getLaneCount());
+		assertEquals(10, this.partitionedByHeader.getLaneRemainingCapacity(3));
+		DirectFieldAccessor accessor = new DirectFieldAccessor(this.partitionedByHeader);
+		HeaderAttributeCorrelationStrategy partitionKeyStrategy =
+				(HeaderAttributeCorrelationStrategy) getPartitionKeyStrategy(accessor);
+		assertEquals("correlationId", new DirectFieldAccessor(partitionKeyStrategy).getPropertyValue("attributeName"));
+		assertSame(this.context.getBean("errorHandler"), accessor.getPropertyValue("errorHandler"));
+		assertSame(this.context.getBean("taskExecutor"), accessor.getPropertyValue("taskExecutor"));
+		assertFalse((Boolean) getDispatcherProperty("failover", accessor));
+		assertEquals(1, getDispatcherProperty("maxSubscribers", accessor));
+		assertEquals(1, ((List<?>) new DirectFieldAccessor(accessor.getPropertyValue("interceptors"))
+				.getPropertyValue("interceptors")).size());
+	}
+
+	@Test
+	public void partitionedByExpression() {
+		CorrelationStrategy partitionKeyStrategy = (CorrelationStrategy)
+				getPartitionKeyStrategy(new DirectFieldAccessor(this.partitionedByExpression));
+		assertEquals(ExpressionEvaluatingCorrelationStrategy.class, partitionKeyStrategy.getClass());
+		assertEquals(3, partitionKeyStrategy.getCorrelationKey(new GenericMessage<String>("foo")));
+	}
+
+
+	private static Object getPartitionKeyStrategy(DirectFieldAccessor channelAccessor) {
+		return new DirectFieldAccessor(channelAccessor.getPropertyValue("partitionSelector"))
+				.getPropertyValue("partitionKeyStrategy");
+	}
+
+	private static Object getDispatcherProperty(String propertyName, DirectFieldAccessor channelAccessor) {
+		return new DirectFieldAccessor(channelAccessor.getPropertyValue("dispatcher")).getPropertyValue(propertyName);
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.codec;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.integration.Message;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.StopWatch;
+
+/**
+ * Size and encode/decode time of a {@link MessageCodec} compared with Java serialization,
+ * for a message with a typical set of headers.
+ *
+ * @since 3.0
+ */
+public class MessageCodecPerformanceTests {
+
+	private static final int ITERATIONS = 200000;
+
+	@Test
+	@Ignore
+	public void codecPerformanceTest() {
+		Message<String> message = MessageBuilder.withPayload("Hello, world")
+				.setCorrelationId(UUID.randomUUID())
+				.setSequenceNumber(1)
+				.setSequenceSize(10)
+				.setReplyChannelName("replies")
+				.setHeader("orderId", 12345L)
+				.setHeader("customer", "foo")
+				.build();
+		MessageCodec codec = new MessageCodec();
+		SerializingConverter serializer = new SerializingConverter();
+		DeserializingConverter deserializer = new DeserializingConverter();
+		System.out.println("codec: " + codec.encode(message).length + " bytes, java serialization: "
+				+ serializer.convert(message).length + " bytes");
+
+		for (int run = 0; run < 2; run++) {
+			StopWatch watch = new StopWatch();
+			watch.start("codec");
+			for (int i = 0; i < ITERATIONS; i++) {
+				assertEquals(message.getPayload(), codec.decode(codec.encode(message)).getPayload());
+			}
+			watch.stop();
+			watch.start("java serialization");
+			for (int i = 0; i < ITERATIONS; i++) {
+				assertEquals(message.getPayload(), ((Message<?>) deserializer.convert(serializer.convert(message)))
+						.getPayload());
+			}
+			watch.stop();
+			System.out.println(watch.prettyPrint());
+		}
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * @since 3.0
+ */
+public class MessageCodecTests {
+
+	@Test
+	public void roundTripPreservesIdTimestampAndHeaders() {
+		MessageCodec codec = new MessageCodec();
+		Date date = new Date();
+		Message<String> message = MessageBuilder.withPayload("foo")
+				.setCorrelationId("bar")
+				.setSequenceNumber(2)
+				.setSequenceSize(3)
+				.setExpirationDate(12345L)
+				.setPriority(-1)
+				.setReplyChannelName("replies")
+				.setHeader("string", "baz")
+				.setHeader("int", -42)
+				.setHeader("long", Long.MAX_VALUE)
+				.setHeader("date", date)
+				.setHeader("uuid", UUID.randomUUID())
+				.setHeader("list", Arrays.asList("a", "b"))
+				.build();
+		Message<?> decoded = codec.decode(codec.encode(message));
+		assertEquals(message, decoded);
+		assertEquals(message.getHeaders().getId(), decoded.getHeaders().getId());
+		assertEquals(message.getHeaders().getTimestamp(), decoded.getHeaders().getTimestamp());
+		assertEquals(message.getHeaders(), decoded.getHeaders());
+		assertEquals("foo", decoded.getPayload());
+	}
+
+	@Test
+	public void encodingIsSmallerThanJavaSerialization() {
+		Message<String> message = MessageBuilder.withPayload("foo")
+				.setCorrelationId(UUID.randomUUID())
+				.setSequenceNumber(1)
+				.setSequenceSize(1)
+				.setHeader("bar", "baz")
+				.build();
+		byte[] encoded = new MessageCodec().encode(message);
+		byte[] serialized = new SerializingConverter().convert(message);
+		assertTrue(encoded.length + " >= " + serialized.length, encoded.length * 4 < serialized.length);
+	}
+
+	@Test
+	public void headerNamesInTheDictionaryAreShorter() {
+		Message<String> message = MessageBuilder.withPayload("foo").setHeader("someLongHeaderName", "bar").build();
+		MessageCodec codec = new MessageCodec();
+		MessageCodec dictionaryCodec = new MessageCodec();
+		dictionaryCodec.setHeaderNames(Collections.singletonList("someLongHeaderName"));
+		byte[] encoded = dictionaryCodec.encode(message);
+		assertTrue(encoded.length < codec.encode(message).length);
+		assertEquals(message, dictionaryCodec.decode(encoded));
+		try {
+			codec.decode(encoded);
+			fail("Expected SerializationFailedException");
+		}
+		catch (SerializationFailedException e) {
+			assertTrue(e.getMessage(), e.getCause().getMessage().contains("different header names"));
+		}
+	}
+
+	@Test
+	public void largeMessagesAreCompressed() {
+		char[] chars = new char[10000];
+		Arrays.fill(chars, 'x');
+		Message<String> message = MessageBuilder.withPayload(new String(chars)).build();
+		MessageCodec codec = new MessageCodec();
+		codec.setCompressionThreshold(1024);
+		byte[] encoded = codec.encode(message);
+		assertTrue(encoded.length < 1024);
+		assertTrue(codec.isEncodedMessage(encoded));
+		assertEquals(message, codec.decode(encoded));
+		Message<String> small = MessageBuilder.withPayload("foo").build();
+		assertArrayEquals(new MessageCodec().encode(small), codec.encode(small));
+	}
+
+	@Test
+	public void nonSerializableHeadersAreNotWritten() {
+		Message<String> message = MessageBuilder.withPayload("foo")
+				.setHeader("bar", "baz")
+				.setReplyChannel(new QueueChannel())
+				.build();
+		Message<?> decoded = new MessageCodec().decode(new MessageCodec().encode(message));
+		assertEquals("baz", decoded.getHeaders().get("bar"));
+		assertNull(decoded.getHeaders().getReplyChannel());
+		assertEquals(message.getHeaders().getId(), decoded.getHeaders().getId());
+	}
+
+	@Test
+	public void additionalHeadersAreWrittenWithoutTheIdOrTimestamp() {
+		Message<String> message = MessageBuilder.withPayload("foo").setHeader("bar", "baz").build();
+		MessageCodec codec = new MessageCodec();
+		Message<?> decoded = codec.decode(codec.encode(message, Collections.singletonMap("bar", "qux")));
+		assertEquals("qux", decoded.getHeaders().get("bar"));
+		decoded = codec.decode(codec.encode(message, Collections.singletonMap(MessageHeaders.ID, UUID.randomUUID())));
+		assertEquals(message.getHeaders().getId(), decoded.getHeaders().getId());
+	}
+
+	@Test
+	public void customPayloadSerializer() throws Exception {
+		MessageCodec codec = new MessageCodec();
+		codec.setPayloadSerializer(new Serializer<Object>() {
+
+			public void serialize(Object object, OutputStream outputStream) throws IOException {
+				outputStream.write(((String) object).getBytes("UTF-8"));
+			}
+
+		});
+		codec.setPayloadDeserializer(new Deserializer<Object>() {
+
+			public Object deserialize(InputStream inputStream) throws IOException {
+				return new String(FileCopyUtils.copyToByteArray(inputStream), "UTF-8");
+			}
+
+		});
+		Message<String> message = new GenericMessage<String>("foo");
+		byte[] encoded = codec.encode(message);
+		assertEquals("foo", new String(encoded, encoded.length - 3, 3, "UTF-8"));
+		assertEquals(message, codec.decode(encoded));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.serialize(message, out);
+		assertEquals(message, codec.deserialize(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+	@Test
+	public void javaSerializationIsNotAnEncodedMessage() {
+		MessageCodec codec = new MessageCodec();
+		byte[] serialized = new SerializingConverter().convert(new GenericMessage<String>("foo"));
+		assertFalse(codec.isEncodedMessage(serialized));
+		try {
+			codec.decode(serialized);
+			fail("Expected SerializationFailedException");
+		}
+		catch (SerializationFailedException e) {
+			assertEquals("Not an encoded message", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void compactSerializerValues() throws Exception {
+		CompactSerializer serializer = new CompactSerializer();
+		Object[] values = new Object[] { null, "foo", "", 0, -1, Integer.MIN_VALUE, Long.MIN_VALUE, 300L, true, false,
+				1.5d, 2.5f, (short) -3, (byte) 4, 'c', UUID.randomUUID(), new Date(),
+				Arrays.asList(1, 2, 3) };
+		for (Object value : values) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			serializer.serialize(value, out);
+			assertEquals(value, serializer.deserialize(new ByteArrayInputStream(out.toByteArray())));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		serializer.serialize(new byte[] { 1, 2, 3 }, out);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) serializer.deserialize(new ByteArrayInputStream(out.toByteArray())));
+		out = new ByteArrayOutputStream();
+		serializer.serialize(-1, out);
+		assertEquals(2, out.size());
+		assertFalse(serializer.canSerialize(new Object()));
+	}
+
+	@Test
+	public void converter() {
+		CodecMessageConverter converter = new CodecMessageConverter();
+		Message<String> message = MessageBuilder.withPayload("foo").setHeader("bar", "baz").build();
+		Object bytes = converter.fromMessage(message);
+		assertTrue(bytes instanceof byte[]);
+		Message<Object> converted = converter.toMessage(bytes);
+		assertEquals(message, converted);
+	}
+
+}
@@ -239,6 +239,7 @@ public class AggregatorParserTests {
 		assertTrue(ExpressionEvaluatingReleaseStrategy.class.equals(releaseStrategy.getClass()));
 		assertTrue(ExpressionEvaluatingCorrelationStrategy.class.equals(correlationStrategy.getClass()));
 		assertEquals(60000L, minimumTimeoutForEmptyGroups.longValue());
+		assertEquals(70000L, TestUtils.getPropertyValue(aggregatingMessageHandler, "groupTimeout", Long.class).longValue());
 	}
 
 	@Test(expected=BeanDefinitionParsingException.class)
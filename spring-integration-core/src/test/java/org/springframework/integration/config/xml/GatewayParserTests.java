@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
@@ -85,6 +86,15 @@ public class GatewayParserTests {
 		assertEquals("testExecutor", reply.getHeaders().get("executor"));
 	}
 
+	@Test
+	public void testCompleteFuturesFromReply() {
+		ApplicationContext context = new ClassPathXmlApplicationContext("gatewayParserTests.xml", this.getClass());
+		assertEquals(Boolean.FALSE, new DirectFieldAccessor(context.getBean("&async"))
+				.getPropertyValue("completeFuturesFromReply"));
+		assertEquals(Boolean.TRUE, new DirectFieldAccessor(context.getBean("&asyncFromReply"))
+				.getPropertyValue("completeFuturesFromReply"));
+	}
+
 
 	private void startResponder(final PollableChannel requestChannel, final MessageChannel replyChannel) {
 		Executors.newSingleThreadExecutor().execute(new Runnable() {
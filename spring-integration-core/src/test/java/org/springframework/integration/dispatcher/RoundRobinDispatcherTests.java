@@ -1,4 +1,4 @@
-/* Copyright 2002-2009 the original author or authors.
+/* Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -100,6 +100,18 @@ public class RoundRobinDispatcherTests {
 		verify(differentHandler, atLeast(18)).handleMessage(message);
 	}
 
+	@Test
+	public void failoverStartsAtRoundRobinIndex() throws Exception {
+		dispatcher.addHandler(handler);
+		dispatcher.addHandler(differentHandler);
+		doThrow(new MessagingException("Mock Exception")).
+			when(handler).handleMessage(message);
+		dispatcher.dispatch(message);
+		dispatcher.dispatch(message);
+		verify(handler, times(1)).handleMessage(message);
+		verify(differentHandler, times(2)).handleMessage(message);
+	}
+
 	/**
 	 * Verifies that the dispatcher adds the message to the exception if it
 	 * was not attached by the handler.
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.dispatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of a {@link UnicastingDispatcher} with one and with two round-robin
+ * handlers, dispatching from 1 to 32 threads. Run it on a machine with several CPUs;
+ * on a single CPU, the threads do not contend and the results do not show how the
+ * dispatcher scales.
+ *
+ * @since 3.0
+ */
+public class UnicastingDispatcherPerformanceTests {
+
+	private static final int MESSAGES_PER_RUN = 8000000;
+
+	@Test
+	@Ignore
+	public void dispatcherPerformanceTest() throws Exception {
+		for (int run = 0; run < 2; run++) {
+			for (int handlers = 1; handlers <= 2; handlers++) {
+				for (int threads = 1; threads <= 32; threads *= 2) {
+					this.run(handlers, threads);
+				}
+			}
+		}
+	}
+
+	private void run(int handlerCount, int threads) throws Exception {
+		final UnicastingDispatcher dispatcher = new UnicastingDispatcher();
+		dispatcher.setLoadBalancingStrategy(new RoundRobinLoadBalancingStrategy());
+		final AtomicLong handled = new AtomicLong();
+		for (int i = 0; i < handlerCount; i++) {
+			dispatcher.addHandler(new MessageHandler() {
+
+				public void handleMessage(Message<?> message) throws MessagingException {
+					if (message.getPayload() == null) {
+						handled.incrementAndGet();
+					}
+				}
+
+			});
+		}
+		final Message<String> message = new GenericMessage<String>("foo");
+		final int messagesPerThread = MESSAGES_PER_RUN / threads;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < messagesPerThread; j++) {
+							dispatcher.dispatch(message);
+						}
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					done.countDown();
+				}
+
+			});
+		}
+		StopWatch watch = new StopWatch();
+		watch.start();
+		start.countDown();
+		assertTrue(done.await(120, TimeUnit.SECONDS));
+		watch.stop();
+		executor.shutdown();
+		assertEquals(0, handled.get());
+		long perSecond = (long) (messagesPerThread * threads / watch.getTotalTimeSeconds());
+		System.out.println(handlerCount + " handler(s), " + threads + " thread(s): " + perSecond + " messages/second");
+	}
+
+}
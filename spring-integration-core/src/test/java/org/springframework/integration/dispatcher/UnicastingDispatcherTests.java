@@ -17,6 +17,13 @@ package org.springframework.integration.dispatcher;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -58,4 +65,84 @@ public class UnicastingDispatcherTests {
 		assertEquals("reply", reply.getPayload());
 	}
 
+	@Test
+	public void customLoadBalancingStrategy() {
+		UnicastingDispatcher dispatcher = new UnicastingDispatcher();
+		final List<String> handled = new ArrayList<String>();
+		dispatcher.addHandler(new RecordingHandler("first", handled));
+		dispatcher.addHandler(new RecordingHandler("second", handled));
+		dispatcher.setLoadBalancingStrategy(new LoadBalancingStrategy() {
+
+			public Iterator<MessageHandler> getHandlerIterator(Message<?> message, Collection<MessageHandler> handlers) {
+				List<MessageHandler> reversed = new ArrayList<MessageHandler>(handlers);
+				Collections.reverse(reversed);
+				return reversed.iterator();
+			}
+
+		});
+		dispatcher.dispatch(new GenericMessage<String>("foo"));
+		dispatcher.setLoadBalancingStrategy(null);
+		dispatcher.dispatch(new GenericMessage<String>("bar"));
+		assertEquals("[second foo, first bar]", handled.toString());
+	}
+
+	@Test
+	public void roundRobinSubclass() {
+		UnicastingDispatcher dispatcher = new UnicastingDispatcher();
+		final List<String> handled = new ArrayList<String>();
+		dispatcher.addHandler(new RecordingHandler("first", handled));
+		dispatcher.addHandler(new RecordingHandler("second", handled));
+		// a subclass is given the handlers, as any other strategy
+		dispatcher.setLoadBalancingStrategy(new RoundRobinLoadBalancingStrategy() {
+		});
+		dispatcher.dispatch(new GenericMessage<String>("foo"));
+		dispatcher.dispatch(new GenericMessage<String>("bar"));
+		assertEquals("[first foo, second bar]", handled.toString());
+	}
+
+	@Test
+	public void subscriptionDuringDispatch() {
+		final UnicastingDispatcher dispatcher = new UnicastingDispatcher();
+		final List<String> handled = new ArrayList<String>();
+		final MessageHandler second = new RecordingHandler("second", handled);
+		dispatcher.addHandler(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				dispatcher.removeHandler(this);
+				dispatcher.addHandler(second);
+				throw new MessageDeliveryException(message, "unsubscribed");
+			}
+
+		});
+		try {
+			dispatcher.dispatch(new GenericMessage<String>("foo"));
+			fail("Expected Exception");
+		}
+		catch (MessageDeliveryException e) {
+			// the dispatch uses the handlers subscribed when it started
+			assertEquals("unsubscribed", e.getMessage());
+		}
+		assertEquals(second, dispatcher.getSingleHandler());
+		dispatcher.dispatch(new GenericMessage<String>("bar"));
+		assertEquals("[second bar]", handled.toString());
+	}
+
+
+	private static class RecordingHandler implements MessageHandler {
+
+		private final String name;
+
+		private final List<String> handled;
+
+		private RecordingHandler(String name, List<String> handled) {
+			this.name = name;
+			this.handled = handled;
+		}
+
+		public void handleMessage(Message<?> message) throws MessagingException {
+			this.handled.add(this.name + " " + message.getPayload());
+		}
+
+	}
+
 }
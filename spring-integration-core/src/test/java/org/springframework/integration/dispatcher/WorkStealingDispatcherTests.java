@@ -0,0 +1,319 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.dispatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.aggregator.HeaderAttributeCorrelationStrategy;
+import org.springframework.integration.core.MessageHandler;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * @since 3.0
+ */
+public class WorkStealingDispatcherTests {
+
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+	private final Executor manualExecutor = new Executor() {
+
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+	};
+
+	private final List<Object> handled = new ArrayList<Object>();
+
+	private final MessageHandler recordingHandler = new MessageHandler() {
+
+		public void handleMessage(Message<?> message) throws MessagingException {
+			if ("bad".equals(message.getPayload())) {
+				throw new MessagingException(message, "bad message");
+			}
+			handled.add(message.getPayload());
+		}
+
+	};
+
+	@Test
+	public void taskIsSubmittedPerBatch() {
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(this.manualExecutor, 1);
+		dispatcher.setBatchSize(2);
+		dispatcher.addHandler(this.recordingHandler);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(dispatcher.dispatch(new GenericMessage<Integer>(i)));
+		}
+		assertEquals(1, this.tasks.size());
+		assertEquals(5, dispatcher.getQueueDepth());
+		this.tasks.get(0).run();
+		assertEquals("[0, 1]", this.handled.toString());
+		// the task yielded its thread after a full batch
+		assertEquals(2, this.tasks.size());
+		this.tasks.get(1).run();
+		this.tasks.get(2).run();
+		assertEquals(3, this.tasks.size());
+		assertEquals("[0, 1, 2, 3, 4]", this.handled.toString());
+		assertEquals(0, dispatcher.getQueueDepth());
+		assertEquals(3, dispatcher.getBatchCount());
+		assertEquals(5, dispatcher.getBatchedMessageCount());
+		assertEquals(2, dispatcher.getMaxBatchSize());
+		assertEquals(5.0 / 3, dispatcher.getMeanBatchSize(), 0.001);
+		dispatcher.dispatch(new GenericMessage<Integer>(5));
+		assertEquals(4, this.tasks.size());
+	}
+
+	@Test
+	public void idleTaskStealsWaitingQueues() {
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(this.manualExecutor, 4);
+		dispatcher.addHandler(this.recordingHandler);
+		for (int i = 0; i < 8; i++) {
+			dispatcher.dispatch(new GenericMessage<Integer>(i));
+		}
+		assertEquals(4, this.tasks.size());
+		assertEquals(2, dispatcher.getQueueDepth(3));
+		this.tasks.get(0).run();
+		assertEquals(8, this.handled.size());
+		assertEquals(3, dispatcher.getStealCount());
+		for (int i = 1; i < 4; i++) {
+			this.tasks.get(i).run();
+		}
+		assertEquals(8, this.handled.size());
+	}
+
+	@Test
+	public void failuresArePassedToErrorHandler() {
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(this.manualExecutor, 1);
+		dispatcher.addHandler(this.recordingHandler);
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		dispatcher.setErrorHandler(new ErrorHandler() {
+
+			public void handleError(Throwable t) {
+				errors.add(t);
+			}
+
+		});
+		dispatcher.dispatch(new GenericMessage<String>("foo"));
+		dispatcher.dispatch(new GenericMessage<String>("bad"));
+		dispatcher.dispatch(new GenericMessage<String>("bar"));
+		this.tasks.get(0).run();
+		assertEquals("[foo, bar]", this.handled.toString());
+		assertEquals(1, errors.size());
+		assertEquals("bad", ((MessagingException) errors.get(0)).getFailedMessage().getPayload());
+	}
+
+	@Test
+	public void rejectedMessageIsNotQueued() {
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(new Executor() {
+
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("rejected");
+			}
+
+		}, 1);
+		dispatcher.addHandler(this.recordingHandler);
+		try {
+			dispatcher.dispatch(new GenericMessage<String>("foo"));
+			fail("Expected Exception");
+		}
+		catch (RejectedExecutionException e) {
+			assertEquals("rejected", e.getMessage());
+		}
+		assertEquals(0, dispatcher.getQueueDepth());
+	}
+
+	@Test
+	public void rejectedQueueTakenByStealingTaskIsNotReset() {
+		final AtomicInteger executions = new AtomicInteger();
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(new Executor() {
+
+			public void execute(Runnable task) {
+				if (executions.incrementAndGet() == 2) {
+					// the task of the first queue runs and steals the second queue before it is rejected
+					tasks.get(0).run();
+					throw new RejectedExecutionException("rejected");
+				}
+				tasks.add(task);
+			}
+
+		}, 2);
+		dispatcher.addHandler(this.recordingHandler);
+		assertTrue(dispatcher.dispatch(new GenericMessage<String>("foo")));
+		assertTrue(dispatcher.dispatch(new GenericMessage<String>("bar")));
+		assertEquals("[foo, bar]", this.handled.toString());
+		assertEquals(1, dispatcher.getStealCount());
+		assertEquals(0, dispatcher.getQueueDepth());
+		// both queues are idle again, so each submits a single task
+		dispatcher.dispatch(new GenericMessage<String>("baz"));
+		dispatcher.dispatch(new GenericMessage<String>("qux"));
+		assertEquals(3, this.tasks.size());
+		this.tasks.get(1).run();
+		this.tasks.get(2).run();
+		assertEquals("[foo, bar, baz, qux]", this.handled.toString());
+	}
+
+	@Test
+	public void messagesAddedWhileRejectedTaskWasScheduledAreNotStranded() {
+		final AtomicInteger executions = new AtomicInteger();
+		final List<WorkStealingDispatcher> dispatchers = new ArrayList<WorkStealingDispatcher>();
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(new Executor() {
+
+			public void execute(Runnable task) {
+				if (executions.incrementAndGet() == 1) {
+					// a concurrent dispatch finds the task scheduled and does not submit one
+					dispatchers.get(0).dispatch(new GenericMessage<String>("bar"));
+					throw new RejectedExecutionException("rejected");
+				}
+				tasks.add(task);
+			}
+
+		}, 1);
+		dispatchers.add(dispatcher);
+		dispatcher.addHandler(this.recordingHandler);
+		try {
+			dispatcher.dispatch(new GenericMessage<String>("foo"));
+			fail("Expected Exception");
+		}
+		catch (RejectedExecutionException e) {
+			assertEquals("rejected", e.getMessage());
+		}
+		assertEquals(1, this.tasks.size());
+		assertEquals(1, dispatcher.getQueueDepth());
+		this.tasks.get(0).run();
+		assertEquals("[bar]", this.handled.toString());
+	}
+
+	@Test
+	public void fullQueueRejectsAfterTimeout() {
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(this.manualExecutor, 1);
+		dispatcher.setQueueCapacity(2);
+		dispatcher.setQueueFullTimeout(10);
+		dispatcher.addHandler(this.recordingHandler);
+		assertTrue(dispatcher.dispatch(new GenericMessage<Integer>(0)));
+		assertTrue(dispatcher.dispatch(new GenericMessage<Integer>(1)));
+		assertFalse(dispatcher.dispatch(new GenericMessage<Integer>(2)));
+		dispatcher.setQueueFullTimeout(0);
+		assertFalse(dispatcher.dispatch(new GenericMessage<Integer>(3)));
+		assertEquals(2, dispatcher.getQueueDepth());
+		this.tasks.get(0).run();
+		assertEquals("[0, 1]", this.handled.toString());
+		assertTrue(dispatcher.dispatch(new GenericMessage<Integer>(4)));
+		assertTrue(dispatcher.dispatch(new GenericMessage<Integer>(5)));
+		assertEquals(2, dispatcher.getQueueDepth());
+	}
+
+	@Test
+	public void fullQueueBlocksUntilThereIsRoom() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(executor, 1);
+		dispatcher.setQueueCapacity(1);
+		final CountDownLatch handling = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		dispatcher.addHandler(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				handling.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		});
+		assertTrue(dispatcher.dispatch(new GenericMessage<Integer>(0)));
+		assertTrue(handling.await(10, TimeUnit.SECONDS));
+		assertTrue(dispatcher.dispatch(new GenericMessage<Integer>(1)));
+		final CountDownLatch dispatched = new CountDownLatch(1);
+		Thread sender = new Thread(new Runnable() {
+
+			public void run() {
+				if (dispatcher.dispatch(new GenericMessage<Integer>(2))) {
+					dispatched.countDown();
+				}
+			}
+
+		});
+		sender.start();
+		assertFalse(dispatched.await(100, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(dispatched.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(3, dispatcher.getBatchedMessageCount());
+	}
+
+	@Test
+	public void orderIsPreservedPerPartitionKey() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(executor, 4);
+		dispatcher.setBatchSize(10);
+		dispatcher.setPartitionKeyStrategy(new HeaderAttributeCorrelationStrategy("key"));
+		final int keys = 16;
+		final int messagesPerKey = 1000;
+		final Map<Object, Integer> next = new ConcurrentHashMap<Object, Integer>();
+		final AtomicInteger outOfOrder = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(keys * messagesPerKey);
+		dispatcher.addHandler(new MessageHandler() {
+
+			public void handleMessage(Message<?> message) throws MessagingException {
+				Object key = message.getHeaders().get("key");
+				Integer expected = next.get(key);
+				if (!message.getPayload().equals(expected == null ? 0 : expected)) {
+					outOfOrder.incrementAndGet();
+				}
+				next.put(key, (Integer) message.getPayload() + 1);
+				latch.countDown();
+			}
+
+		});
+		for (int i = 0; i < messagesPerKey; i++) {
+			for (int key = 0; key < keys; key++) {
+				dispatcher.dispatch(MessageBuilder.withPayload(i).setHeader("key", "key" + key).build());
+			}
+		}
+		assertTrue(latch.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(0, outOfOrder.get());
+		assertEquals(keys * messagesPerKey, dispatcher.getBatchedMessageCount());
+		assertTrue(dispatcher.getMaxBatchSize() <= 10);
+		assertEquals(0, dispatcher.getQueueDepth());
+	}
+
+}
@@ -17,20 +17,38 @@
 package org.springframework.integration.gateway;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.core.PollableChannel;
+import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
+import org.springframework.integration.message.ErrorMessage;
 import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.util.FutureCallback;
+import org.springframework.integration.util.ListenableFuture;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * @author Mark Fisher
@@ -105,6 +123,216 @@ public class AsyncGatewayTests {
 		assertEquals("foobar", result);
 	}
 
+	@Test
+	public void listenableFutureCompletedByReplyingThread() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		startResponder(requestChannel);
+		GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+		proxyFactory.setAsyncExecutor(new Executor() {
+			public void execute(Runnable command) {
+				throw new IllegalStateException("no executor thread expected");
+			}
+		});
+		proxyFactory.setCompleteFuturesFromReply(true);
+		proxyFactory.afterPropertiesSet();
+		TestEchoService service = (TestEchoService) proxyFactory.getObject();
+		ListenableFuture<String> f = service.returnListenable("foo");
+		final AtomicReference<String> callbackThread = new AtomicReference<String>();
+		final AtomicReference<String> callbackResult = new AtomicReference<String>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		f.addCallback(new FutureCallback<String>() {
+			public void onSuccess(String result) {
+				callbackThread.set(Thread.currentThread().getName());
+				callbackResult.set(result);
+				latch.countDown();
+			}
+			public void onFailure(Throwable t) {
+			}
+		});
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals("foobar", callbackResult.get());
+		assertEquals("responder", callbackThread.get());
+		assertEquals("foobar", f.get());
+	}
+
+	@Test
+	public void concurrentFuturesCompletedByOneThread() throws Exception {
+		final QueueChannel requestChannel = new QueueChannel();
+		final int count = 1000;
+		Thread responder = new Thread(new Runnable() {
+			public void run() {
+				for (int i = 0; i < count; i++) {
+					Message<?> input = requestChannel.receive(10000);
+					if (input == null) {
+						return;
+					}
+					((MessageChannel) input.getHeaders().getReplyChannel())
+							.send(new GenericMessage<String>(input.getPayload() + "bar"));
+				}
+			}
+		});
+		responder.start();
+		GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+		proxyFactory.setCompleteFuturesFromReply(true);
+		proxyFactory.afterPropertiesSet();
+		TestEchoService service = (TestEchoService) proxyFactory.getObject();
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		for (int i = 0; i < count; i++) {
+			futures.add(service.returnString("foo" + i));
+		}
+		for (int i = 0; i < count; i++) {
+			assertEquals("foo" + i + "bar", futures.get(i).get(10, TimeUnit.SECONDS));
+		}
+		responder.join(10000);
+	}
+
+	@Test
+	public void futureWithErrorReturned() throws Exception {
+		final QueueChannel requestChannel = new QueueChannel();
+		new Thread(new Runnable() {
+			public void run() {
+				Message<?> input = requestChannel.receive();
+				((MessageChannel) input.getHeaders().getErrorChannel())
+						.send(new ErrorMessage(new IllegalStateException("bad request")));
+			}
+		}).start();
+		GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+		proxyFactory.setCompleteFuturesFromReply(true);
+		proxyFactory.afterPropertiesSet();
+		TestEchoService service = (TestEchoService) proxyFactory.getObject();
+		Future<String> f = service.returnString("foo");
+		try {
+			f.get(10, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		}
+		catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertEquals("bad request", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void futureReplyTimeout() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+		proxyFactory.setDefaultReplyTimeout(100);
+		proxyFactory.setTaskScheduler(scheduler);
+		proxyFactory.setCompleteFuturesFromReply(true);
+		proxyFactory.afterPropertiesSet();
+		TestEchoService service = (TestEchoService) proxyFactory.getObject();
+		Future<String> f = service.returnString("foo");
+		assertNull(f.get(10, TimeUnit.SECONDS));
+		Message<?> request = requestChannel.receive(0);
+		// a late reply is discarded
+		assertTrue(((MessageChannel) request.getHeaders().getReplyChannel()).send(new GenericMessage<String>("late")));
+		assertNull(f.get());
+		scheduler.destroy();
+	}
+
+
+	@Test
+	public void futureReplyTimeoutWithoutTaskScheduler() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+		proxyFactory.setDefaultReplyTimeout(100);
+		proxyFactory.setCompleteFuturesFromReply(true);
+		proxyFactory.afterPropertiesSet();
+		TestEchoService service = (TestEchoService) proxyFactory.getObject();
+		Future<String> f = service.returnString("foo");
+		assertNull(f.get(10, TimeUnit.SECONDS));
+		assertNotNull(requestChannel.receive(0));
+	}
+
+	@Test
+	public void futureCompletedBeforeReturnWithDirectChannel() throws Exception {
+		DirectChannel requestChannel = new DirectChannel();
+		requestChannel.subscribe(new AbstractReplyProducingMessageHandler() {
+			@Override
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				return requestMessage.getPayload() + "bar";
+			}
+		});
+		GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+		proxyFactory.setCompleteFuturesFromReply(true);
+		proxyFactory.afterPropertiesSet();
+		TestEchoService service = (TestEchoService) proxyFactory.getObject();
+		Future<String> f = service.returnString("foo");
+		assertTrue(f.isDone());
+		assertEquals("foobar", f.get());
+		ListenableFuture<String> listenable = service.returnListenable("baz");
+		assertTrue(listenable.isDone());
+		assertEquals("bazbar", listenable.get());
+	}
+
+	@Test
+	public void exceptionsAreUnwrappedAsOnTheAsyncExecutor() throws Exception {
+		for (boolean completeFuturesFromReply : new boolean[] { false, true }) {
+			DirectChannel requestChannel = new DirectChannel();
+			requestChannel.subscribe(new AbstractReplyProducingMessageHandler() {
+				@Override
+				protected Object handleRequestMessage(Message<?> requestMessage) {
+					Exception cause = "checked".equals(requestMessage.getPayload())
+							? new TestException() : new IllegalArgumentException();
+					throw new MessageHandlingException(requestMessage, cause);
+				}
+			});
+			GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+			proxyFactory.setCompleteFuturesFromReply(completeFuturesFromReply);
+			proxyFactory.afterPropertiesSet();
+			TestEchoService service = (TestEchoService) proxyFactory.getObject();
+			try {
+				service.returnStringOrThrow("checked").get(10, TimeUnit.SECONDS);
+				fail("Expected ExecutionException");
+			}
+			catch (ExecutionException e) {
+				assertEquals(MessagingException.class, e.getCause().getClass());
+				assertEquals(TestException.class, e.getCause().getCause().getClass());
+			}
+			try {
+				service.returnStringOrThrow("unchecked").get(10, TimeUnit.SECONDS);
+				fail("Expected ExecutionException");
+			}
+			catch (ExecutionException e) {
+				assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+			}
+		}
+	}
+
+	@Test
+	public void listenableFutureWithAsyncExecutor() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		startResponder(requestChannel);
+		GatewayProxyFactoryBean proxyFactory = createProxyFactory(requestChannel);
+		proxyFactory.setAsyncExecutor(new SimpleAsyncTaskExecutor("gatewayExecutor-"));
+		proxyFactory.afterPropertiesSet();
+		TestEchoService service = (TestEchoService) proxyFactory.getObject();
+		ListenableFuture<String> f = service.returnListenable("foo");
+		final AtomicReference<String> callbackThread = new AtomicReference<String>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		f.addCallback(new FutureCallback<String>() {
+			public void onSuccess(String result) {
+				callbackThread.set(Thread.currentThread().getName());
+				latch.countDown();
+			}
+			public void onFailure(Throwable t) {
+			}
+		});
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals("foobar", f.get());
+		assertTrue(callbackThread.get().startsWith("gatewayExecutor-"));
+	}
+
+
+	private static GatewayProxyFactoryBean createProxyFactory(MessageChannel requestChannel) {
+		GatewayProxyFactoryBean proxyFactory = new GatewayProxyFactoryBean();
+		proxyFactory.setDefaultRequestChannel(requestChannel);
+		proxyFactory.setServiceInterface(TestEchoService.class);
+		proxyFactory.setBeanName("testGateway");
+		proxyFactory.setBeanFactory(mock(BeanFactory.class));
+		return proxyFactory;
+	}
 
 	private static void startResponder(final PollableChannel requestChannel) {
 		new Thread(new Runnable() {
@@ -120,7 +348,7 @@ public class AsyncGatewayTests {
 				}
 				((MessageChannel) input.getHeaders().getReplyChannel()).send(reply);
 			}
-		}).start();
+		}, "responder").start();
 	}
 
 
@@ -132,6 +360,15 @@ public class AsyncGatewayTests {
 
 		Future<?> returnSomething(String s);
 
+		ListenableFuture<String> returnListenable(String s);
+
+		Future<String> returnStringOrThrow(String s) throws TestException;
+
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class TestException extends Exception {
 	}
 
 }
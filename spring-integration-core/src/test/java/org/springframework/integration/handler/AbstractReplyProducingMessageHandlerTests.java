@@ -16,10 +16,17 @@
 
 package org.springframework.integration.handler;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.Test;
 import static org.hamcrest.CoreMatchers.containsString;
 import org.junit.runner.RunWith;
@@ -28,6 +35,7 @@ import org.mockito.Mock;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.support.MessageBuilder;
 
 /**
@@ -64,4 +72,30 @@ public class AbstractReplyProducingMessageHandlerTests {
 		}
 	}
 
+	@Test
+	public void splitReplyIsNotClosed() {
+		final AtomicBoolean closed = new AtomicBoolean();
+		class ClosableIterable implements Iterable<Message<?>>, Closeable {
+
+			public Iterator<Message<?>> iterator() {
+				return Arrays.<Message<?>>asList(message, message).iterator();
+			}
+
+			public void close() {
+				closed.set(true);
+			}
+		}
+		AbstractReplyProducingMessageHandler handler = new AbstractReplyProducingMessageHandler() {
+			@Override
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				return new ClosableIterable();
+			}
+		};
+		QueueChannel replyChannel = new QueueChannel();
+		handler.setOutputChannel(replyChannel);
+		handler.handleMessage(message);
+		assertEquals(2, replyChannel.getQueueSize());
+		assertFalse(closed.get());
+	}
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.mapping.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.util.PatternMatchUtils;
+
+/**
+ * @since 3.0
+ */
+public class HeaderPatternMatcherTests {
+
+	@Test
+	public void patternShapes() {
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher(Arrays.asList("foo", "bar*", "*baz", "*qux*", "a*b*c"));
+		assertTrue(matcher.matches("foo"));
+		assertTrue(matcher.matches("FOO"));
+		assertFalse(matcher.matches("foo1"));
+		assertTrue(matcher.matches("barrel"));
+		assertTrue(matcher.matches("Bar"));
+		assertTrue(matcher.matches("abaz"));
+		assertFalse(matcher.matches("baza"));
+		assertTrue(matcher.matches("xQuXx"));
+		assertTrue(matcher.matches("a-b-c"));
+		assertFalse(matcher.matches("a-b-d"));
+		assertFalse(matcher.matches("other"));
+	}
+
+	@Test
+	public void sameAsSimpleMatch() {
+		String[] patterns = { "foo", "bar*", "*baz", "*qux*", "a*b*c", "**", "x*" };
+		String[] names = { "foo", "Foo", "barn", "baz", "abaz", "qux", "aqux", "abc", "ab", "x", "", "y" };
+		for (String pattern : patterns) {
+			HeaderPatternMatcher matcher = new HeaderPatternMatcher(Collections.singletonList(pattern));
+			for (String name : names) {
+				assertEquals(pattern + " / " + name,
+						PatternMatchUtils.simpleMatch(pattern.toLowerCase(), name.toLowerCase()), matcher.matches(name));
+			}
+		}
+	}
+
+	@Test
+	public void namedPatternsAndExclusions() {
+		Map<String, Collection<String>> namedPatterns =
+				Collections.<String, Collection<String>>singletonMap("STANDARD", Arrays.asList("Content-Type", "Accept"));
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher(Arrays.asList("STANDARD", "x-*"), namedPatterns,
+				Arrays.asList("Accept", "X-Secret"));
+		assertTrue(matcher.matches("content-type"));
+		assertTrue(matcher.matches("Content-Type"));
+		assertFalse(matcher.matches("accept"));
+		assertTrue(matcher.matches("X-Foo"));
+		assertFalse(matcher.matches("x-secret"));
+		assertFalse(matcher.matches("Location"));
+	}
+
+	@Test
+	public void matchAll() {
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher(Arrays.asList("*"), null, Arrays.asList("id"));
+		assertTrue(matcher.matches("anything"));
+		assertFalse(matcher.matches("ID"));
+	}
+
+	@Test
+	public void decisionCacheIsBounded() {
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher(Arrays.asList("foo*"), null, null, 2);
+		assertTrue(matcher.matches("foo1"));
+		assertFalse(matcher.matches("bar"));
+		assertTrue(matcher.matches("foo2"));
+		assertTrue(matcher.matches("foo1"));
+		assertEquals(2, matcher.getCachedDecisions().size());
+		assertEquals(Boolean.TRUE, matcher.getCachedDecisions().get("foo1"));
+		assertEquals(Boolean.FALSE, matcher.getCachedDecisions().get("bar"));
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.metadata;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StopWatch;
+
+/**
+ * Compares the cost of persisting each change to a {@link LogPersistingMetadataStore}
+ * with the cost of writing all the keys of a {@link PropertiesPersistingMetadataStore},
+ * for keys like those of the persistent accept-once file list filters.
+ *
+ * @since 3.0
+ */
+public class LogPersistingMetadataStorePerformanceTests {
+
+	private final File directory = new File("target/log-metadata-store-performance");
+
+	@Test
+	@Ignore
+	public void metadataStorePerformanceTest() throws Exception {
+		this.run(10000);
+		this.run(1000000);
+	}
+
+	private void run(int keys) throws Exception {
+		FileSystemUtils.deleteRecursively(this.directory);
+		LogPersistingMetadataStore logStore = this.createLogStore();
+		StopWatch watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < keys; i++) {
+			logStore.put(key(i), Long.toString(i));
+		}
+		watch.stop();
+		report("log, each put written", keys, watch);
+		logStore.destroy();
+
+		watch = new StopWatch();
+		watch.start();
+		logStore = this.createLogStore();
+		watch.stop();
+		assertEquals(Integer.toString(keys - 1), logStore.get(key(keys - 1)));
+		report("log, replay on startup", keys, watch);
+		logStore.destroy();
+
+		FileSystemUtils.deleteRecursively(this.directory);
+		logStore = this.createLogStore();
+		logStore.setSync(true);
+		logStore.setBatchSize(1000);
+		watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < keys; i++) {
+			logStore.put(key(i), Long.toString(i));
+		}
+		logStore.flush();
+		watch.stop();
+		report("log, synced every 1000 puts", keys, watch);
+		logStore.destroy();
+
+		FileSystemUtils.deleteRecursively(this.directory);
+		logStore = this.createLogStore();
+		Map<String, String> entries = new HashMap<String, String>();
+		for (int i = 0; i < keys; i++) {
+			entries.put(key(i), Long.toString(i));
+		}
+		watch = new StopWatch();
+		watch.start();
+		logStore.putAll(entries);
+		watch.stop();
+		report("log, putAll", keys, watch);
+		logStore.destroy();
+
+		FileSystemUtils.deleteRecursively(this.directory);
+		PropertiesPersistingMetadataStore propertiesStore = new PropertiesPersistingMetadataStore();
+		propertiesStore.setBaseDirectory(this.directory.getPath());
+		propertiesStore.afterPropertiesSet();
+		for (int i = 0; i < keys; i++) {
+			propertiesStore.put(key(i), Long.toString(i));
+		}
+		watch = new StopWatch();
+		watch.start();
+		propertiesStore.destroy();
+		watch.stop();
+		report("properties, one full write", keys, watch);
+		FileSystemUtils.deleteRecursively(this.directory);
+	}
+
+	private LogPersistingMetadataStore createLogStore() throws Exception {
+		LogPersistingMetadataStore metadataStore = new LogPersistingMetadataStore();
+		metadataStore.setBaseDirectory(this.directory.getPath());
+		metadataStore.afterPropertiesSet();
+		return metadataStore;
+	}
+
+	private static String key(int i) {
+		return "persistentFilter:/var/data/inbound/file-" + i + ".txt";
+	}
+
+	private static void report(String operation, int keys, StopWatch watch) {
+		System.out.println(operation + ": " + keys + " keys in " + watch.getTotalTimeSeconds() + " seconds");
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * @since 3.0
+ */
+public class LogPersistingMetadataStoreTests {
+
+	private final File directory = new File("target/log-metadata-store");
+
+	@Before
+	public void cleanUp() {
+		FileSystemUtils.deleteRecursively(this.directory);
+	}
+
+	@Test
+	public void changesSurviveRestartWithoutDestroy() throws Exception {
+		LogPersistingMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.put("baz", "qux");
+		metadataStore.put("foo", "bar2");
+		assertEquals("qux", metadataStore.remove("baz"));
+		assertNull(metadataStore.remove("baz"));
+
+		metadataStore = this.createStore();
+		assertEquals("bar2", metadataStore.get("foo"));
+		assertNull(metadataStore.get("baz"));
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void batchedChangesAreWrittenOnFlush() throws Exception {
+		LogPersistingMetadataStore metadataStore = this.createStore();
+		metadataStore.setBatchSize(10);
+		metadataStore.setSync(true);
+		metadataStore.put("foo", "bar");
+		assertNull(this.createStore().get("foo"));
+		metadataStore.flush();
+		assertEquals("bar", this.createStore().get("foo"));
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void incompleteRecordIsTruncated() throws Exception {
+		LogPersistingMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.destroy();
+		FileOutputStream outputStream = new FileOutputStream(new File(this.directory, "metadata-store.0.log"), true);
+		outputStream.write(new byte[] { 1, 0, 0, 0, 3, 'b' });
+		outputStream.close();
+
+		metadataStore = this.createStore();
+		assertEquals("bar", metadataStore.get("foo"));
+		metadataStore.put("baz", "qux");
+		metadataStore.destroy();
+
+		metadataStore = this.createStore();
+		assertEquals("bar", metadataStore.get("foo"));
+		assertEquals("qux", metadataStore.get("baz"));
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void logIsCompacted() throws Exception {
+		LogPersistingMetadataStore metadataStore = this.createStore();
+		metadataStore.setCompactionThreshold(10);
+		metadataStore.setTaskExecutor(new SyncTaskExecutor());
+		for (int i = 0; i < 100; i++) {
+			metadataStore.put("foo", "bar" + i);
+			metadataStore.put("baz" + (i % 3), "qux" + i);
+		}
+		metadataStore.remove("baz0");
+		String[] files = this.directory.list();
+		Arrays.sort(files);
+		assertEquals(2, files.length);
+		assertTrue(files[0].endsWith(".log"));
+		assertTrue(files[1].endsWith(".snapshot"));
+		assertFalse(files[0].equals("metadata-store.0.log"));
+
+		metadataStore = this.createStore();
+		assertEquals("bar99", metadataStore.get("foo"));
+		assertNull(metadataStore.get("baz0"));
+		assertEquals("qux97", metadataStore.get("baz1"));
+		assertEquals("qux98", metadataStore.get("baz2"));
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void currentLogIsKeptWhenNewLogCannotBeOpened() throws Exception {
+		LogPersistingMetadataStore metadataStore = this.createStore();
+		metadataStore.setCompactionThreshold(10);
+		metadataStore.setTaskExecutor(new SyncTaskExecutor());
+		File blocker = new File(this.directory, "metadata-store.1.log");
+		assertTrue(blocker.mkdir());
+		for (int i = 0; i < 20; i++) {
+			metadataStore.put("foo", "bar" + i);
+		}
+		assertTrue(blocker.delete());
+		metadataStore.put("baz", "qux");
+
+		LogPersistingMetadataStore restarted = this.createStore();
+		assertEquals("bar19", restarted.get("foo"));
+		assertEquals("qux", restarted.get("baz"));
+		restarted.destroy();
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void changesAfterDestroyAreRejected() throws Exception {
+		LogPersistingMetadataStore metadataStore = this.createStore();
+		metadataStore.put("foo", "bar");
+		metadataStore.destroy();
+		try {
+			metadataStore.put("foo", "baz");
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("destroyed"));
+		}
+		assertEquals("bar", metadataStore.get("foo"));
+		metadataStore.destroy();
+	}
+
+	@Test
+	public void bulkPutAndGet() throws Exception {
+		LogPersistingMetadataStore metadataStore = this.createStore();
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("foo", "bar");
+		entries.put("baz", "qux");
+		metadataStore.putAll(entries);
+		metadataStore.destroy();
+
+		metadataStore = this.createStore();
+		Map<String, String> values = metadataStore.getAll(Arrays.asList("foo", "fiz", "baz"));
+		assertEquals(entries, values);
+		metadataStore.destroy();
+	}
+
+	private LogPersistingMetadataStore createStore() throws Exception {
+		LogPersistingMetadataStore metadataStore = new LogPersistingMetadataStore();
+		metadataStore.setBaseDirectory(this.directory.getPath());
+		metadataStore.afterPropertiesSet();
+		return metadataStore;
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.router;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.integration.Message;
+import org.springframework.integration.channel.NullChannel;
+import org.springframework.integration.context.IntegrationContextUtils;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.support.channel.ChannelResolverCache;
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of a {@link HeaderValueRouter} resolving channel names with and without
+ * a {@link ChannelResolverCache}.
+ *
+ * @since 3.0
+ */
+public class RouterChannelResolutionPerformanceTests {
+
+	private static final int ITERATIONS = 1000000;
+
+	private static final int CHANNELS = 10;
+
+	@Test
+	@Ignore
+	public void routerPerformanceTest() throws Exception {
+		this.route(false);
+		this.route(true);
+		this.route(false);
+		this.route(true);
+	}
+
+	private void route(boolean cache) throws Exception {
+		GenericApplicationContext context = new GenericApplicationContext();
+		if (cache) {
+			context.registerBeanDefinition(IntegrationContextUtils.INTEGRATION_CHANNEL_RESOLVER_CACHE_BEAN_NAME,
+					new RootBeanDefinition(ChannelResolverCache.class));
+		}
+		for (int i = 0; i < CHANNELS; i++) {
+			context.registerBeanDefinition("channel" + i, new RootBeanDefinition(NullChannel.class));
+		}
+		context.refresh();
+		HeaderValueRouter router = new HeaderValueRouter("route");
+		router.setBeanFactory(context);
+		router.afterPropertiesSet();
+		@SuppressWarnings("unchecked")
+		Message<String>[] messages = new Message[CHANNELS];
+		for (int i = 0; i < CHANNELS; i++) {
+			messages[i] = MessageBuilder.withPayload("foo").setHeader("route", "channel" + i).build();
+		}
+		StopWatch watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < ITERATIONS; i++) {
+			router.handleMessage(messages[i % CHANNELS]);
+		}
+		watch.stop();
+		System.out.println((cache ? "cached" : "uncached") + ": " + ITERATIONS + " messages routed in "
+				+ watch.getTotalTimeSeconds() + " seconds");
+		context.close();
+	}
+
+}
@@ -23,14 +23,20 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.springframework.integration.Message;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.core.MessageHandler;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
 import org.springframework.integration.support.MessageBuilder;
 
@@ -107,4 +113,75 @@ public class DefaultSplitterTests {
 		Message<?> output = replyChannel.receive(15);
 		assertThat(output, is(nullValue()));
 	}
+
+	@Test
+	public void splitMessageWithIteratorPayloadIsLazy() throws Exception {
+		final AtomicInteger consumed = new AtomicInteger();
+		final Iterator<String> items = Arrays.asList("x", "y", "z").iterator();
+		Iterator<String> payload = new Iterator<String>() {
+
+			public boolean hasNext() {
+				return items.hasNext();
+			}
+
+			public String next() {
+				consumed.incrementAndGet();
+				return items.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		Message<Iterator<String>> message = MessageBuilder.withPayload(payload).build();
+		final List<Integer> consumedWhenSent = new ArrayList<Integer>();
+		DirectChannel outputChannel = new DirectChannel();
+		outputChannel.subscribe(new MessageHandler() {
+			public void handleMessage(Message<?> message) {
+				consumedWhenSent.add(consumed.get());
+				assertEquals(consumed.get(), message.getHeaders().getSequenceNumber().intValue());
+				assertEquals(0, message.getHeaders().getSequenceSize().intValue());
+			}
+		});
+		DefaultMessageSplitter splitter = new DefaultMessageSplitter();
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(message);
+		assertEquals(Arrays.asList(1, 2, 3), consumedWhenSent);
+	}
+
+	@Test
+	public void splitMessageWithClosableIterablePayload() throws Exception {
+		final AtomicBoolean closed = new AtomicBoolean();
+		class ClosableIterable implements Iterable<String>, Closeable {
+
+			public Iterator<String> iterator() {
+				return Arrays.asList("x", "y").iterator();
+			}
+
+			public void close() {
+				closed.set(true);
+			}
+		}
+		Message<ClosableIterable> message = MessageBuilder.withPayload(new ClosableIterable()).build();
+		QueueChannel replyChannel = new QueueChannel();
+		DefaultMessageSplitter splitter = new DefaultMessageSplitter();
+		splitter.setOutputChannel(replyChannel);
+		splitter.handleMessage(message);
+		List<Message<?>> replies = replyChannel.clear();
+		assertEquals(2, replies.size());
+		assertEquals("y", replies.get(1).getPayload());
+		assertEquals(2, replies.get(1).getHeaders().getSequenceNumber().intValue());
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void splitMessageWithEmptyIteratorPayload() throws Exception {
+		Message<Iterator<String>> message = MessageBuilder.withPayload(Collections.<String>emptyList().iterator()).build();
+		QueueChannel replyChannel = new QueueChannel();
+		DefaultMessageSplitter splitter = new DefaultMessageSplitter();
+		splitter.setOutputChannel(replyChannel);
+		splitter.handleMessage(message);
+		assertThat(replyChannel.receive(0), is(nullValue()));
+	}
+
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of a {@link SegmentedFileMessageStore} backing a {@link MessageGroupQueue},
+ * with and without forcing each operation to disk, and the time taken to replay the
+ * segments on startup.
+ *
+ * @since 3.0
+ */
+public class SegmentedFileMessageStorePerformanceTests {
+
+	private static final int MESSAGES = 100000;
+
+	private static final int THREADS = 8;
+
+	private final File directory = new File("target/segmented-message-store-performance");
+
+	@Test
+	@Ignore
+	public void messageStorePerformanceTest() throws Exception {
+		this.run(false, 1);
+		this.run(false, THREADS);
+		this.run(true, 1);
+		this.run(true, THREADS);
+	}
+
+	private void run(boolean sync, int threads) throws Exception {
+		FileSystemUtils.deleteRecursively(this.directory);
+		SegmentedFileMessageStore store = this.createStore();
+		store.setSync(sync);
+		final MessageGroupQueue queue = new MessageGroupQueue(store, "queue");
+		final int messagesPerThread = (sync ? MESSAGES / 10 : MESSAGES) / threads;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch latch = new CountDownLatch(threads);
+		StopWatch watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+
+				public void run() {
+					for (int j = 0; j < messagesPerThread; j++) {
+						queue.offer(new GenericMessage<String>("message " + j));
+						if (j % 2 == 0) {
+							queue.poll();
+						}
+					}
+					latch.countDown();
+				}
+
+			});
+		}
+		assertTrue(latch.await(10, TimeUnit.MINUTES));
+		watch.stop();
+		executor.shutdown();
+		int messages = messagesPerThread * threads;
+		System.out.println("offer and poll, sync=" + sync + ", " + threads + " threads: " + messages
+				+ " messages in " + watch.getTotalTimeSeconds() + " seconds, " + store.getSegmentCount() + " segments");
+		store.destroy();
+
+		watch = new StopWatch();
+		watch.start();
+		store = this.createStore();
+		watch.stop();
+		assertEquals(messages / 2, store.messageGroupSize("queue"));
+		System.out.println("replay on startup: " + messages / 2 + " messages in " + watch.getTotalTimeSeconds()
+				+ " seconds");
+		store.destroy();
+		FileSystemUtils.deleteRecursively(this.directory);
+	}
+
+	private SegmentedFileMessageStore createStore() throws Exception {
+		SegmentedFileMessageStore store = new SegmentedFileMessageStore();
+		store.setBaseDirectory(this.directory.getPath());
+		store.afterPropertiesSet();
+		return store;
+	}
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.integration.Message;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.transformer.ClaimCheckInTransformer;
+import org.springframework.integration.transformer.ClaimCheckOutTransformer;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * @since 3.0
+ */
+public class SegmentedFileMessageStoreTests {
+
+	private final File directory = new File("target/segmented-message-store");
+
+	@Before
+	public void cleanUp() {
+		FileSystemUtils.deleteRecursively(this.directory);
+	}
+
+	@Test
+	public void messagesAndGroupsSurviveRestartWithoutDestroy() throws Exception {
+		SegmentedFileMessageStore store = this.createStore();
+		Message<String> claimed = store.addMessage(new GenericMessage<String>("claimed"));
+		Message<String> removed = store.addMessage(new GenericMessage<String>("removed"));
+		assertEquals("removed", store.removeMessage(removed.getHeaders().getId()).getPayload());
+		Message<?> foo = MessageBuilder.withPayload("foo").setSequenceNumber(1).setSequenceSize(3).build();
+		Message<?> bar = MessageBuilder.withPayload("bar").setSequenceNumber(2).setSequenceSize(3).build();
+		Message<?> baz = MessageBuilder.withPayload("baz").setSequenceNumber(3).setSequenceSize(3).build();
+		store.addMessageToGroup("group", foo);
+		store.addMessageToGroup("group", bar);
+		MessageGroup group = store.addMessageToGroup("group", baz);
+		assertEquals(3, group.size());
+		assertEquals(3, group.getSequenceSize());
+		store.removeMessageFromGroup("group", bar);
+		store.setLastReleasedSequenceNumberForGroup("group", 2);
+		store.completeGroup("group");
+		long timestamp = store.getMessageGroup("group").getTimestamp();
+
+		store = this.createStore();
+		assertEquals(1, store.getMessageCount());
+		assertEquals("claimed", store.getMessage(claimed.getHeaders().getId()).getPayload());
+		assertNull(store.getMessage(removed.getHeaders().getId()));
+		assertEquals(1, store.getMessageGroupCount());
+		group = store.getMessageGroup("group");
+		assertEquals(2, group.size());
+		Iterator<Message<?>> messages = group.getMessages().iterator();
+		assertEquals("foo", messages.next().getPayload());
+		assertEquals("baz", messages.next().getPayload());
+		assertEquals(2, group.getLastReleasedMessageSequenceNumber());
+		assertTrue(group.isComplete());
+		assertEquals(timestamp, group.getTimestamp());
+		store.destroy();
+	}
+
+	@Test
+	public void removedGroupIsNotRestored() throws Exception {
+		SegmentedFileMessageStore store = this.createStore();
+		store.addMessageToGroup("foo", new GenericMessage<String>("foo1"));
+		store.addMessageToGroup("bar", new GenericMessage<String>("bar"));
+		store.removeMessageGroup("foo");
+		store.addMessageToGroup("foo", new GenericMessage<String>("foo2"));
+		store.destroy();
+
+		store = this.createStore();
+		assertEquals(2, store.getMessageGroupCount());
+		assertEquals(2, store.getMessageCountForAllMessageGroups());
+		assertEquals("foo2", store.getMessageGroup("foo").getOne().getPayload());
+		store.removeMessageGroup("foo");
+		store.destroy();
+
+		store = this.createStore();
+		assertEquals(0, store.messageGroupSize("foo"));
+		assertEquals(1, store.messageGroupSize("bar"));
+		store.destroy();
+	}
+
+	@Test
+	public void incompleteRecordIsTruncated() throws Exception {
+		SegmentedFileMessageStore store = this.createStore();
+		store.addMessageToGroup("foo", new GenericMessage<String>("foo"));
+		store.destroy();
+		FileOutputStream outputStream = new FileOutputStream(new File(this.directory, "message-store.0.segment"), true);
+		outputStream.write(new byte[] { 0, 0, 1, 0, 1, 0 });
+		outputStream.close();
+
+		store = this.createStore();
+		store.addMessageToGroup("foo", new GenericMessage<String>("bar"));
+		store.destroy();
+
+		store = this.createStore();
+		List<Object> payloads = new ArrayList<Object>();
+		for (Message<?> message : store.getMessageGroup("foo").getMessages()) {
+			payloads.add(message.getPayload());
+		}
+		assertEquals("[foo, bar]", payloads.toString());
+		store.destroy();
+	}
+
+	@Test
+	public void segmentsAreCompacted() throws Exception {
+		SegmentedFileMessageStore store = this.createStore();
+		store.setSegmentSize(2048);
+		store.setTaskExecutor(new SyncTaskExecutor());
+		for (int i = 0; i < 1000; i++) {
+			store.addMessageToGroup("queue", new GenericMessage<Integer>(i));
+			assertEquals(i, store.pollMessageFromGroup("queue").getPayload());
+			if (i % 100 == 0) {
+				store.addMessageToGroup("kept", new GenericMessage<Integer>(i));
+			}
+		}
+		for (int i = 1000; i < 1010; i++) {
+			store.addMessageToGroup("queue", new GenericMessage<Integer>(i));
+		}
+		assertTrue(store.getSegmentCount() < 10);
+
+		store = this.createStore();
+		assertEquals(10, store.messageGroupSize("queue"));
+		assertEquals(10, store.messageGroupSize("kept"));
+		int expected = 1000;
+		for (Message<?> message : store.getMessageGroup("queue").getMessages()) {
+			assertEquals(expected, message.getPayload());
+			expected++;
+		}
+		expected = 0;
+		for (Message<?> message : store.getMessageGroup("kept").getMessages()) {
+			assertEquals(expected, message.getPayload());
+			expected += 100;
+		}
+		store.destroy();
+	}
+
+	@Test
+	public void segmentsAreCompactedConcurrentlyWithChanges() throws Exception {
+		final SegmentedFileMessageStore store = this.createStore();
+		store.setSegmentSize(4096);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		final CountDownLatch latch = new CountDownLatch(4);
+		for (int i = 0; i < 4; i++) {
+			final String groupId = "group" + i;
+			executor.execute(new Runnable() {
+
+				public void run() {
+					for (int j = 0; j < 2000; j++) {
+						store.addMessageToGroup(groupId, new GenericMessage<Integer>(j));
+						if (j % 10 != 0) {
+							store.pollMessageFromGroup(groupId);
+						}
+					}
+					latch.countDown();
+				}
+
+			});
+		}
+		assertTrue(latch.await(60, TimeUnit.SECONDS));
+		executor.shutdown();
+		for (int i = 0; i < 4; i++) {
+			assertEquals(200, store.messageGroupSize("group" + i));
+		}
+		store.destroy();
+
+		SegmentedFileMessageStore restarted = this.createStore();
+		for (int i = 0; i < 4; i++) {
+			assertEquals(200, restarted.messageGroupSize("group" + i));
+		}
+		restarted.destroy();
+	}
+
+	@Test
+	public void backsQueueChannel() throws Exception {
+		SegmentedFileMessageStore store = this.createStore();
+		QueueChannel channel = new QueueChannel(new MessageGroupQueue(store, "queue"));
+		channel.send(new GenericMessage<String>("foo"));
+		channel.send(new GenericMessage<String>("bar"));
+		assertEquals("foo", channel.receive(0).getPayload());
+		store.destroy();
+
+		store = this.createStore();
+		channel = new QueueChannel(new MessageGroupQueue(store, "queue"));
+		assertEquals("bar", channel.receive(0).getPayload());
+		assertNull(channel.receive(0));
+		store.destroy();
+	}
+
+	@Test
+	public void backsClaimCheck() throws Exception {
+		SegmentedFileMessageStore store = this.createStore();
+		Message<?> claimCheck = new ClaimCheckInTransformer(store).transform(new GenericMessage<String>("foo"));
+		assertTrue(claimCheck.getPayload() instanceof UUID);
+		store.destroy();
+
+		store = this.createStore();
+		ClaimCheckOutTransformer transformer = new ClaimCheckOutTransformer(store);
+		transformer.setRemoveMessage(true);
+		assertEquals("foo", transformer.transform(claimCheck).getPayload());
+		assertEquals(0, store.getMessageCount());
+		store.destroy();
+	}
+
+	@Test
+	public void concurrentSyncedWritesAreAllPersisted() throws Exception {
+		final SegmentedFileMessageStore store = this.createStore();
+		store.setSync(true);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		final CountDownLatch latch = new CountDownLatch(8);
+		for (int i = 0; i < 8; i++) {
+			final String groupId = "group" + i;
+			executor.execute(new Runnable() {
+
+				public void run() {
+					for (int j = 0; j < 100; j++) {
+						store.addMessageToGroup(groupId, new GenericMessage<Integer>(j));
+					}
+					latch.countDown();
+				}
+
+			});
+		}
+		assertTrue(latch.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+
+		SegmentedFileMessageStore restarted = this.createStore();
+		assertEquals(800, restarted.getMessageCountForAllMessageGroups());
+		Message<?> message = restarted.pollMessageFromGroup("group3");
+		assertNotNull(message);
+		assertEquals(0, message.getPayload());
+		assertFalse(restarted.getMessageGroup("group3").isComplete());
+		restarted.destroy();
+		store.destroy();
+	}
+
+	private SegmentedFileMessageStore createStore() throws Exception {
+		SegmentedFileMessageStore store = new SegmentedFileMessageStore();
+		store.setBaseDirectory(this.directory.getPath());
+		store.afterPropertiesSet();
+		return store;
+	}
+
+}
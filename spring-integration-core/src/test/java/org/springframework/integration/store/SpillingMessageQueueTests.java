@@ -0,0 +1,307 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageDeliveryException;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.codec.MessageCodec;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * @since 3.0
+ */
+public class SpillingMessageQueueTests {
+
+	private final File directory = new File("target/spilling-message-queue");
+
+	@Before
+	public void cleanUp() {
+		FileSystemUtils.deleteRecursively(this.directory);
+	}
+
+	@Test
+	public void overflowIsSpilledAndReadBackInOrder() {
+		SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 10);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(queue.offer(new GenericMessage<Integer>(i)));
+		}
+		assertEquals(100, queue.size());
+		assertEquals(10, queue.getInMemoryCount());
+		assertEquals(90, queue.getSpilledMessageCount());
+		assertEquals(90, queue.getSpillCount());
+		assertTrue(queue.getSpilledBytes() > 0);
+		assertEquals(Integer.MAX_VALUE, queue.remainingCapacity());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, queue.poll().getPayload());
+			// once spilled, later messages must not overtake the ones on disk
+			if (i == 50) {
+				queue.offer(new GenericMessage<Integer>(100));
+			}
+		}
+		assertEquals(100, queue.poll().getPayload());
+		assertNull(queue.poll());
+		assertEquals(0, queue.getSpilledMessageCount());
+		assertEquals(0, queue.getSpilledBytes());
+		assertEquals(0, queue.getSegmentCount());
+		assertEquals(0, this.directory.list().length);
+		queue.offer(new GenericMessage<Integer>(101));
+		assertEquals(1, queue.getInMemoryCount());
+		assertEquals(101, queue.peek().getPayload());
+	}
+
+	@Test
+	public void segmentsAreDeletedWhenRead() {
+		SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 1);
+		queue.setSegmentSize(256);
+		for (int i = 0; i < 100; i++) {
+			queue.offer(MessageBuilder.withPayload("message " + i).setHeader("foo", "bar").build());
+		}
+		int segments = queue.getSegmentCount();
+		assertTrue(segments > 5);
+		assertEquals(segments, this.directory.list().length);
+		for (int i = 0; i < 50; i++) {
+			assertEquals("message " + i, queue.poll().getPayload());
+		}
+		assertTrue(queue.getSegmentCount() < segments);
+		assertEquals(queue.getSegmentCount(), this.directory.list().length);
+		List<Message<?>> drained = new ArrayList<Message<?>>();
+		assertEquals(50, queue.drainTo(drained));
+		assertEquals("message 99", drained.get(49).getPayload());
+		assertEquals("bar", drained.get(49).getHeaders().get("foo"));
+		assertEquals(0, this.directory.list().length);
+	}
+
+	@Test
+	public void iteratorIncludesSpilledMessages() {
+		SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 2);
+		for (int i = 0; i < 5; i++) {
+			queue.offer(new GenericMessage<Integer>(i));
+		}
+		assertEquals(0, queue.poll().getPayload());
+		List<Object> payloads = new ArrayList<Object>();
+		for (Message<?> message : queue) {
+			payloads.add(message.getPayload());
+		}
+		assertEquals("[1, 2, 3, 4]", payloads.toString());
+		Message<?> inMemory = queue.peek();
+		assertTrue(queue.remove(inMemory));
+		assertFalse(queue.remove(new GenericMessage<Integer>(4)));
+		assertEquals(3, queue.size());
+	}
+
+	@Test
+	public void clearAndDestroyDeleteSegments() throws Exception {
+		this.directory.mkdirs();
+		FileOutputStream leftOver = new FileOutputStream(new File(this.directory, "spill.3.segment"));
+		leftOver.write(new byte[] { 1, 2, 3 });
+		leftOver.close();
+		SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 1);
+		assertEquals(0, this.directory.list().length);
+		queue.offer(new GenericMessage<String>("foo"));
+		queue.offer(new GenericMessage<String>("bar"));
+		assertEquals(1, this.directory.list().length);
+		queue.clear();
+		assertEquals(0, queue.size());
+		assertEquals(0, this.directory.list().length);
+		queue.offer(new GenericMessage<String>("foo"));
+		queue.offer(new GenericMessage<String>("bar"));
+		queue.destroy();
+		assertEquals(0, this.directory.list().length);
+		assertEquals("foo", queue.poll().getPayload());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void headersThatAreNotSerializableAreRetained() {
+		SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 1);
+		QueueChannel replyChannel = new QueueChannel();
+		queue.offer(new GenericMessage<String>("foo"));
+		Message<String> spilled = MessageBuilder.withPayload("bar").setReplyChannel(replyChannel)
+				.setHeader("baz", "qux").build();
+		queue.offer(spilled);
+		assertEquals(1, queue.getSpilledMessageCount());
+		Message<?> iterated = queue.iterator().next();
+		assertEquals("foo", iterated.getPayload());
+		assertEquals("foo", queue.poll().getPayload());
+		Message<?> readBack = queue.poll();
+		assertEquals(spilled.getHeaders().getId(), readBack.getHeaders().getId());
+		assertEquals(spilled.getHeaders().getTimestamp(), readBack.getHeaders().getTimestamp());
+		assertSame(replyChannel, readBack.getHeaders().getReplyChannel());
+		assertEquals("qux", readBack.getHeaders().get("baz"));
+	}
+
+	@Test
+	public void messageIsNotLostWhenDeserializationFails() throws Exception {
+		SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 1);
+		final MessageCodec codec = new MessageCodec();
+		final AtomicInteger failures = new AtomicInteger(1);
+		queue.setDeserializer(new Deserializer<Message<?>>() {
+
+			public Message<?> deserialize(InputStream inputStream) throws IOException {
+				if (failures.getAndDecrement() > 0) {
+					throw new IOException("test");
+				}
+				return codec.deserialize(inputStream);
+			}
+
+		});
+		queue.offer(new GenericMessage<String>("foo"));
+		queue.offer(new GenericMessage<String>("bar"));
+		assertEquals("foo", queue.poll().getPayload());
+		try {
+			queue.poll();
+			fail("Expected MessageStoreException");
+		}
+		catch (MessageStoreException e) {
+			assertEquals("test", e.getCause().getMessage());
+		}
+		assertEquals(1, queue.size());
+		assertEquals(1, queue.getSpilledMessageCount());
+		assertEquals("bar", queue.poll().getPayload());
+		assertEquals(0, queue.size());
+		assertEquals(0, this.directory.list().length);
+	}
+
+	@Test
+	public void failedSpillDoesNotCorruptLaterRecords() throws Exception {
+		SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 1);
+		queue.offer(new GenericMessage<String>("foo"));
+		queue.offer(new GenericMessage<String>("bar"));
+		// the next write fails after part of the record has been written
+		DirectFieldAccessor accessor = new DirectFieldAccessor(queue);
+		final OutputStream writer = (OutputStream) accessor.getPropertyValue("writer");
+		accessor.setPropertyValue("writer", new DataOutputStream(new OutputStream() {
+
+			private int written;
+
+			@Override
+			public void write(int b) throws IOException {
+				if (++this.written > 2) {
+					throw new IOException("test");
+				}
+				writer.write(b);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				writer.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				writer.close();
+			}
+
+		}));
+		try {
+			queue.offer(new GenericMessage<String>("baz"));
+			fail("Expected MessageDeliveryException");
+		}
+		catch (MessageDeliveryException e) {
+			assertEquals("test", e.getCause().getMessage());
+		}
+		assertEquals(2, queue.size());
+		queue.offer(new GenericMessage<String>("qux"));
+		assertEquals(2, this.directory.list().length);
+		assertEquals("foo", queue.poll().getPayload());
+		assertEquals("bar", queue.poll().getPayload());
+		assertEquals("qux", queue.poll().getPayload());
+		assertNull(queue.poll());
+		assertEquals(0, this.directory.list().length);
+	}
+
+	@Test
+	public void backsQueueChannelWithConcurrentProducers() throws Exception {
+		final SpillingMessageQueue queue = new SpillingMessageQueue(this.directory.getPath(), 100);
+		queue.setSegmentSize(4096);
+		final QueueChannel channel = new QueueChannel(queue);
+		final int producers = 4;
+		final int messagesPerProducer = 2000;
+		ExecutorService executor = Executors.newFixedThreadPool(producers + 1);
+		final CountDownLatch latch = new CountDownLatch(producers);
+		for (int i = 0; i < producers; i++) {
+			final int producer = i;
+			executor.execute(new Runnable() {
+
+				public void run() {
+					for (int j = 0; j < messagesPerProducer; j++) {
+						channel.send(MessageBuilder.withPayload(j).setHeader("producer", producer).build(), 0);
+					}
+					latch.countDown();
+				}
+
+			});
+		}
+		final int[] next = new int[producers];
+		final AtomicInteger received = new AtomicInteger();
+		final CountDownLatch consumed = new CountDownLatch(1);
+		executor.execute(new Runnable() {
+
+			public void run() {
+				Message<?> message;
+				while ((message = channel.receive(10000)) != null) {
+					int producer = (Integer) message.getHeaders().get("producer");
+					// messages from each producer are received in the order they were sent
+					if (next[producer]++ != (Integer) message.getPayload()) {
+						break;
+					}
+					if (received.incrementAndGet() == producers * messagesPerProducer) {
+						consumed.countDown();
+						break;
+					}
+				}
+			}
+
+		});
+		assertTrue(latch.await(30, TimeUnit.SECONDS));
+		assertTrue(consumed.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(producers * messagesPerProducer, received.get());
+		assertEquals(0, channel.getQueueSize());
+		assertEquals(0, queue.getSegmentCount());
+	}
+
+}
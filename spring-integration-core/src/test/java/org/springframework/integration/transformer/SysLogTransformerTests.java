@@ -16,11 +16,19 @@
 package org.springframework.integration.transformer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -84,4 +92,94 @@ public class SysLogTransformerTests {
 		assertEquals(1, transformed.size());
 		assertEquals(syslog, transformed.get(SyslogToMapTransformer.UNDECODED));
 	}
+
+	@Test
+	public void testTimestamp() throws Exception {
+		SyslogToMapTransformer t = new SyslogToMapTransformer();
+		Map<String, ?> transformed = t.transformPayload("<158>Jul  6 22:08:35 WEBERN TESTING: TEST");
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime((Date) transformed.get(SyslogToMapTransformer.TIMESTAMP));
+		assertEquals(Calendar.JULY, calendar.get(Calendar.MONTH));
+		assertEquals(6, calendar.get(Calendar.DAY_OF_MONTH));
+		assertEquals(22, calendar.get(Calendar.HOUR_OF_DAY));
+		assertEquals(8, calendar.get(Calendar.MINUTE));
+		assertEquals(35, calendar.get(Calendar.SECOND));
+		// cached
+		assertEquals(calendar.getTime(), t.transformPayload("<158>Jul  6 22:08:35 WEBERN TESTING: TEST")
+				.get(SyslogToMapTransformer.TIMESTAMP));
+		assertEquals("Xyz  6 22:08:35", t.transformPayload("<158>Xyz  6 22:08:35 WEBERN TESTING: TEST")
+				.get(SyslogToMapTransformer.TIMESTAMP));
+	}
+
+	@Test
+	public void testRfc5424() throws Exception {
+		SyslogToMapTransformer t = new SyslogToMapTransformer();
+		Map<String, ?> transformed = t.transformPayload(("<165>1 2003-10-11T22:14:15.003Z mymachine.example.com evntslog"
+				+ " - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Appli\\\"cation\" eventID=\"1011\"]"
+				+ "[examplePriority@32473 class=\"high\"] \uFEFFAn application event log entry...").getBytes("UTF-8"));
+		assertEquals(20, transformed.get(SyslogToMapTransformer.FACILITY));
+		assertEquals(5, transformed.get(SyslogToMapTransformer.SEVERITY));
+		assertEquals(1, transformed.get(SyslogToMapTransformer.VERSION));
+		assertEquals(new Date(1065910455003L), transformed.get(SyslogToMapTransformer.TIMESTAMP));
+		assertEquals("mymachine.example.com", transformed.get(SyslogToMapTransformer.HOST));
+		assertEquals("evntslog", transformed.get(SyslogToMapTransformer.APP_NAME));
+		assertFalse(transformed.containsKey(SyslogToMapTransformer.PROCID));
+		assertEquals("ID47", transformed.get(SyslogToMapTransformer.MSGID));
+		Map<?, ?> structuredData = (Map<?, ?>) transformed.get(SyslogToMapTransformer.STRUCTURED_DATA);
+		assertEquals(2, structuredData.size());
+		Map<?, ?> element = (Map<?, ?>) structuredData.get("exampleSDID@32473");
+		assertEquals("3", element.get("iut"));
+		assertEquals("Appli\"cation", element.get("eventSource"));
+		assertEquals("1011", element.get("eventID"));
+		assertEquals("high", ((Map<?, ?>) structuredData.get("examplePriority@32473")).get("class"));
+		assertEquals("An application event log entry...", transformed.get(SyslogToMapTransformer.MESSAGE));
+
+		transformed = t.transformPayload("<34>1 2003-10-11T22:14:15.5-07:00 host su 123 - - 'su root' failed");
+		assertEquals(new Date(1065935655500L), transformed.get(SyslogToMapTransformer.TIMESTAMP));
+		assertEquals("123", transformed.get(SyslogToMapTransformer.PROCID));
+		assertFalse(transformed.containsKey(SyslogToMapTransformer.MSGID));
+		assertFalse(transformed.containsKey(SyslogToMapTransformer.STRUCTURED_DATA));
+		assertEquals("'su root' failed", transformed.get(SyslogToMapTransformer.MESSAGE));
+
+		transformed = t.transformPayload("<34>1 - - - - - -");
+		assertEquals(3, transformed.size());
+	}
+
+	@Test
+	public void testBadRfc5424() throws Exception {
+		SyslogToMapTransformer t = new SyslogToMapTransformer();
+		String syslog = "<165>1 2003-10-11T22:14:15.003Z host app - ID47 [exampleSDID@32473 iut=\"3\" foo";
+		Map<String, ?> transformed = t.transformPayload(syslog);
+		assertEquals(1, transformed.size());
+		assertEquals(syslog, transformed.get(SyslogToMapTransformer.UNDECODED));
+	}
+
+	@Test
+	public void testConcurrentTimestamps() throws Exception {
+		final SyslogToMapTransformer t = new SyslogToMapTransformer();
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < 4; i++) {
+			final int thread = i;
+			results.add(exec.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					for (int j = 0; j < 1000; j++) {
+						int second = (thread * 7 + j) % 60;
+						Map<String, ?> transformed = t.transformPayload("<34>1 2013-01-01T00:00:"
+								+ (second < 10 ? "0" : "") + second + "Z host app - - - msg");
+						if (((Date) transformed.get(SyslogToMapTransformer.TIMESTAMP)).getTime()
+								!= 1356998400000L + second * 1000) {
+							return false;
+						}
+					}
+					return true;
+				}
+			}));
+		}
+		for (Future<Boolean> result : results) {
+			assertTrue(result.get());
+		}
+		exec.shutdown();
+	}
+
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.transformer;
+
+import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of the {@link SyslogToMapTransformer} compared with the regular expression
+ * and {@link SimpleDateFormat} it used to parse RFC 3164 packets.
+ *
+ * @since 3.0
+ */
+public class SyslogToMapTransformerPerformanceTests {
+
+	private static final int ITERATIONS = 1000000;
+
+	private static final byte[] RFC3164 = "<158>Jul 26 22:08:35 WEBERN TESTING[70729]: TEST SYSLOG MESSAGE".getBytes();
+
+	private static final byte[] RFC5424 = ("<165>1 2003-10-11T22:14:15.003Z mymachine.example.com evntslog - ID47 "
+			+ "[exampleSDID@32473 iut=\"3\" eventSource=\"Application\" eventID=\"1011\"] An application event")
+			.getBytes();
+
+	@Test
+	@Ignore
+	public void transformerPerformanceTest() throws Exception {
+		SyslogToMapTransformer transformer = new SyslogToMapTransformer();
+		Pattern pattern = Pattern.compile("<([^>]+)>(.{15}) ([^ ]+) ([^:]+): (.*)", Pattern.DOTALL);
+		SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd HH:mm:ss");
+		for (int i = 0; i < 100000; i++) {
+			transformer.transformPayload(RFC3164);
+			parseWithRegex(pattern, dateFormat, RFC3164);
+		}
+
+		StopWatch watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < ITERATIONS; i++) {
+			parseWithRegex(pattern, dateFormat, RFC3164);
+		}
+		watch.stop();
+		report("regex (RFC 3164)", watch);
+
+		watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < ITERATIONS; i++) {
+			transformer.transformPayload(RFC3164);
+		}
+		watch.stop();
+		report("parser (RFC 3164)", watch);
+
+		watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < ITERATIONS; i++) {
+			transformer.transformPayload(RFC5424);
+		}
+		watch.stop();
+		report("parser (RFC 5424)", watch);
+	}
+
+	private static Map<String, ?> parseWithRegex(Pattern pattern, SimpleDateFormat dateFormat, byte[] packet)
+			throws Exception {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		Matcher matcher = pattern.matcher(new String(packet, "UTF-8"));
+		if (matcher.matches()) {
+			int facility = Integer.parseInt(matcher.group(1));
+			map.put(SyslogToMapTransformer.FACILITY, facility >> 3);
+			map.put(SyslogToMapTransformer.SEVERITY, facility & 0x7);
+			map.put(SyslogToMapTransformer.TIMESTAMP, dateFormat.parse(matcher.group(2)));
+			map.put(SyslogToMapTransformer.HOST, matcher.group(3));
+			map.put(SyslogToMapTransformer.TAG, matcher.group(4));
+			map.put(SyslogToMapTransformer.MESSAGE, matcher.group(5));
+		}
+		return map;
+	}
+
+	private static void report(String parser, StopWatch watch) {
+		System.out.println(parser + ": " + ITERATIONS + " packets in " + watch.getTotalTimeSeconds() + " seconds");
+	}
+
+}
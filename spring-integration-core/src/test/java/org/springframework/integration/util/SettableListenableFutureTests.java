@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * @since 3.0
+ */
+public class SettableListenableFutureTests {
+
+	@Test
+	public void testCallbacksBeforeAndAfterCompletion() throws Exception {
+		SettableListenableFuture<String> future = new SettableListenableFuture<String>();
+		final AtomicReference<Object> before = new AtomicReference<Object>();
+		future.addCallback(new RecordingCallback(before));
+		assertNull(before.get());
+		assertFalse(future.isDone());
+		assertTrue(future.set("foo"));
+		assertEquals("foo", before.get());
+		assertFalse(future.set("bar"));
+		assertFalse(future.setException(new RuntimeException()));
+		assertTrue(future.isDone());
+		assertEquals("foo", future.get());
+		final AtomicReference<Object> after = new AtomicReference<Object>();
+		future.addCallback(new RecordingCallback(after));
+		assertEquals("foo", after.get());
+	}
+
+	@Test
+	public void testException() throws Exception {
+		SettableListenableFuture<String> future = new SettableListenableFuture<String>();
+		RuntimeException exception = new RuntimeException("foo");
+		assertTrue(future.setException(exception));
+		final AtomicReference<Object> result = new AtomicReference<Object>();
+		future.addCallback(new RecordingCallback(result));
+		assertSame(exception, result.get());
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		}
+		catch (ExecutionException e) {
+			assertSame(exception, e.getCause());
+		}
+	}
+
+	@Test
+	public void testCancelAndTimeout() throws Exception {
+		SettableListenableFuture<String> future = new SettableListenableFuture<String>();
+		try {
+			future.get(10, TimeUnit.MILLISECONDS);
+			fail("Expected TimeoutException");
+		}
+		catch (TimeoutException e) {
+			// expected
+		}
+		final AtomicReference<Object> result = new AtomicReference<Object>();
+		future.addCallback(new RecordingCallback(result));
+		assertTrue(future.cancel(true));
+		assertTrue(future.isCancelled());
+		assertTrue(result.get() instanceof CancellationException);
+		assertFalse(future.set("foo"));
+		try {
+			future.get();
+			fail("Expected CancellationException");
+		}
+		catch (CancellationException e) {
+			// expected
+		}
+	}
+
+
+	private static class RecordingCallback implements FutureCallback<Object> {
+
+		private final AtomicReference<Object> result;
+
+		private RecordingCallback(AtomicReference<Object> result) {
+			this.result = result;
+		}
+
+		public void onSuccess(Object result) {
+			this.result.set(result);
+		}
+
+		public void onFailure(Throwable t) {
+			this.result.set(t);
+		}
+	}
+
+}
@@ -132,6 +132,12 @@ public class HttpInboundEndpointParser extends AbstractSingleBeanDefinitionParse
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "extract-reply-payload");
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "reply-key");
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "convert-exceptions");
+			if ("true".equals(element.getAttribute("async"))
+					&& (element.hasAttribute("view-name") || element.hasAttribute("view-expression"))) {
+				parserContext.getReaderContext().error(
+						"The 'async' attribute is not supported with 'view-name' or 'view-expression'.", element);
+			}
+			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "async");
 		}
 		else {
 			IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "send-timeout", "requestTimeout");
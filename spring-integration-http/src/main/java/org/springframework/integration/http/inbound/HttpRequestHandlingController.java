@@ -125,6 +125,17 @@ public class HttpRequestHandlingController extends HttpRequestHandlingEndpointSu
 		this.viewExpression = viewExpression;
 	}
 
+	/**
+	 * Asynchronous request processing is not supported, since the view is rendered by the
+	 * {@link org.springframework.web.servlet.DispatcherServlet} after this controller returns.
+	 * @throws IllegalArgumentException if {@code async} is {@code true}.
+	 */
+	@Override
+	public void setAsync(boolean async) {
+		Assert.isTrue(!async, "asynchronous request processing is not supported by "
+				+ this.getClass().getSimpleName() + "; use an HttpRequestHandlingMessagingGateway instead");
+	}
+
 	@Override
 	protected void onInit() throws Exception {
 		super.onInit();
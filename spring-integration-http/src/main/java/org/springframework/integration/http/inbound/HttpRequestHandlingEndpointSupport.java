@@ -22,8 +22,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -61,6 +65,7 @@ import org.springframework.integration.http.support.DefaultHttpHeaderMapper;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.support.json.JacksonJsonUtils;
+import org.springframework.integration.util.FutureCallback;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
@@ -93,6 +98,12 @@ import org.springframework.web.servlet.HandlerMapping;
  * In a request-reply scenario, the reply Message's payload will be extracted prior to generating a response by default.
  * To have the entire serialized Message available for the response, switch the {@link #extractReplyPayload} value to
  * {@code false}.
+ * <p>
+ * When {@link #setAsync(boolean) async} is {@code true} and the container supports it, request/reply
+ * processing uses Servlet 3.0 asynchronous requests: the container thread is released as soon as
+ * the request Message has been sent and the response is completed when the reply Message arrives
+ * (or the reply timeout elapses). Subclasses opt in by using {@link #doHandleRequestAsync} with a
+ * {@link ResponseCallback} that generates the response.
  *
  * @author Mark Fisher
  * @author Oleg Zhurakousky
@@ -137,6 +148,8 @@ public abstract class HttpRequestHandlingEndpointSupport extends MessagingGatewa
 
 	private volatile Map<String, Expression> headerExpressions;
 
+	private volatile boolean async;
+
 	private volatile boolean shuttingDown;
 
 	private final AtomicInteger activeCount = new AtomicInteger();
@@ -328,6 +341,25 @@ public abstract class HttpRequestHandlingEndpointSupport extends MessagingGatewa
 		this.multipartResolver = multipartResolver;
 	}
 
+	/**
+	 * Specify whether request/reply processing should use Servlet 3.0 asynchronous requests
+	 * so that no container thread is held while waiting for the reply Message. Only
+	 * applies when a reply is expected and the current request has async support enabled;
+	 * otherwise the request is handled synchronously. Default {@code false}.
+	 * @since 3.0
+	 */
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
+	/**
+	 * @return whether Servlet 3.0 asynchronous request processing has been enabled.
+	 * @since 3.0
+	 */
+	protected boolean isAsync() {
+		return this.async;
+	}
+
 	@Override
 	public String getComponentType() {
 		return (this.expectReply) ? "http:inbound-gateway" : "http:inbound-channel-adapter";
@@ -381,111 +413,167 @@ public abstract class HttpRequestHandlingEndpointSupport extends MessagingGatewa
 		}
 	}
 
-	@SuppressWarnings({"rawtypes", "unchecked"})
 	private Message<?> actualDoHandleRequest(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws IOException {
 		this.activeCount.incrementAndGet();
 		try {
-			ServletServerHttpRequest request = this.prepareRequest(servletRequest);
+			Message<?> message = this.createRequestMessage(servletRequest);
+			Message<?> reply = null;
+			if (this.expectReply) {
+				reply = this.sendAndReceiveMessage(message);
+			}
+			else {
+				this.send(message);
+			}
+			return reply;
+		}
+		finally {
+			this.postProcessRequest(servletRequest);
+			this.activeCount.decrementAndGet();
+		}
+	}
 
-			Object requestBody = null;
-			if (this.isReadable(request)) {
-				requestBody = this.extractRequestBody(request);
+	/**
+	 * Handles the HTTP request by generating a Message and sending it to the request channel, completing
+	 * the Servlet 3.0 asynchronous request once the reply Message arrives; the calling container thread
+	 * returns immediately after the send. Errors are handled as by {@link #doHandleRequest}, including
+	 * routing to the error channel, if any. The callback is invoked to generate the response;
+	 * with a {@code null} reply if the reply timeout elapses first.
+	 * <p>
+	 * Falls back to {@link #doHandleRequest} followed by the callback when async processing
+	 * is disabled, no reply is expected or the request does not support async processing.
+	 * @param servletRequest the current HTTP request.
+	 * @param servletResponse the current HTTP response.
+	 * @param responseCallback generates the response from the reply or failure.
+	 * @since 3.0
+	 */
+	protected final void doHandleRequestAsync(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+			ResponseCallback responseCallback) throws IOException {
+		Assert.notNull(responseCallback, "responseCallback must not be null");
+		if (!this.async || !this.expectReply || !servletRequest.isAsyncSupported() || this.isShuttingDown()) {
+			Message<?> reply = null;
+			Throwable failure = null;
+			try {
+				reply = this.doHandleRequest(servletRequest, servletResponse);
+			}
+			catch (RuntimeException e) {
+				failure = e;
 			}
-			HttpEntity httpEntity = new HttpEntity(requestBody, request.getHeaders());
+			catch (IOException e) {
+				failure = e;
+			}
+			responseCallback.generateResponse(servletRequest, servletResponse, reply, failure);
+			return;
+		}
+		AsyncContext asyncContext = servletRequest.startAsync(servletRequest, servletResponse);
+		long replyTimeout = this.getReplyTimeout();
+		asyncContext.setTimeout(replyTimeout > 0 ? replyTimeout : 0);
+		AsyncReplyHandler replyHandler =
+				new AsyncReplyHandler(asyncContext, servletRequest, servletResponse, responseCallback);
+		asyncContext.addListener(replyHandler);
+		this.activeCount.incrementAndGet();
+		try {
+			this.sendAndReceiveMessageAsync(this.createRequestMessage(servletRequest)).addCallback(replyHandler);
+		}
+		catch (RuntimeException e) {
+			replyHandler.complete(null, e);
+		}
+		catch (IOException e) {
+			replyHandler.complete(null, e);
+		}
+		finally {
+			this.postProcessRequest(servletRequest);
+		}
+	}
 
-			StandardEvaluationContext evaluationContext = this.createEvaluationContext();
-			evaluationContext.setRootObject(httpEntity);
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private Message<?> createRequestMessage(HttpServletRequest servletRequest) throws IOException {
+		ServletServerHttpRequest request = this.prepareRequest(servletRequest);
 
-			evaluationContext.setVariable("requestAttributes", RequestContextHolder.currentRequestAttributes());
+		Object requestBody = null;
+		if (this.isReadable(request)) {
+			requestBody = this.extractRequestBody(request);
+		}
+		HttpEntity httpEntity = new HttpEntity(requestBody, request.getHeaders());
 
-			MultiValueMap<String, String> requestParams = this.convertParameterMap(servletRequest.getParameterMap());
-			evaluationContext.setVariable("requestParams", requestParams);
+		StandardEvaluationContext evaluationContext = this.createEvaluationContext();
+		evaluationContext.setRootObject(httpEntity);
 
-			evaluationContext.setVariable("requestHeaders", new ServletServerHttpRequest(servletRequest).getHeaders());
+		evaluationContext.setVariable("requestAttributes", RequestContextHolder.currentRequestAttributes());
 
-			Cookie[] requestCookies = servletRequest.getCookies();
-			if (!ObjectUtils.isEmpty(requestCookies)) {
-				Map<String, Cookie> cookies = new HashMap<String, Cookie>(requestCookies.length);
-				for (Cookie requestCookie : requestCookies) {
-					cookies.put(requestCookie.getName(), requestCookie);
-				}
-				evaluationContext.setVariable("cookies", cookies);
-			}
+		MultiValueMap<String, String> requestParams = this.convertParameterMap(servletRequest.getParameterMap());
+		evaluationContext.setVariable("requestParams", requestParams);
 
-			Map<String, String> pathVariables =
-					(Map<String, String>) servletRequest.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		evaluationContext.setVariable("requestHeaders", new ServletServerHttpRequest(servletRequest).getHeaders());
 
-			if (!CollectionUtils.isEmpty(pathVariables)) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Mapped path variables: " + pathVariables);
-				}
-				evaluationContext.setVariable("pathVariables", pathVariables);
+		Cookie[] requestCookies = servletRequest.getCookies();
+		if (!ObjectUtils.isEmpty(requestCookies)) {
+			Map<String, Cookie> cookies = new HashMap<String, Cookie>(requestCookies.length);
+			for (Cookie requestCookie : requestCookies) {
+				cookies.put(requestCookie.getName(), requestCookie);
 			}
+			evaluationContext.setVariable("cookies", cookies);
+		}
 
-			//TODO change it to HandlerMapping.MATRIX_VARIABLES_ATTRIBUTE after upgrade to Spring 4.0
-			Map<String, MultiValueMap<String, String>> matrixVariables =
-					(Map<String, MultiValueMap<String, String>>) servletRequest.getAttribute(HandlerMapping.class.getName() + ".matrixVariables");
+		Map<String, String> pathVariables =
+				(Map<String, String>) servletRequest.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
 
-			if (!CollectionUtils.isEmpty(matrixVariables)) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Mapped matrix variables: " + matrixVariables);
-				}
-				evaluationContext.setVariable("matrixVariables", matrixVariables);
+		if (!CollectionUtils.isEmpty(pathVariables)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Mapped path variables: " + pathVariables);
 			}
+			evaluationContext.setVariable("pathVariables", pathVariables);
+		}
 
-			Map<String, Object> headers = this.headerMapper.toHeaders(request.getHeaders());
-			Object payload = null;
-			if (this.payloadExpression != null) {
-				// create payload based on SpEL
-				payload = this.payloadExpression.getValue(evaluationContext);
-			}
-			if (!CollectionUtils.isEmpty(this.headerExpressions)) {
-				for (String headerName : this.headerExpressions.keySet()) {
-					Expression headerExpression = this.headerExpressions.get(headerName);
-					Object headerValue = headerExpression.getValue(evaluationContext);
-					if (headerValue != null) {
-						headers.put(headerName, headerValue);
-					}
-				}
+		//TODO change it to HandlerMapping.MATRIX_VARIABLES_ATTRIBUTE after upgrade to Spring 4.0
+		Map<String, MultiValueMap<String, String>> matrixVariables =
+				(Map<String, MultiValueMap<String, String>>) servletRequest.getAttribute(HandlerMapping.class.getName() + ".matrixVariables");
+
+		if (!CollectionUtils.isEmpty(matrixVariables)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Mapped matrix variables: " + matrixVariables);
 			}
+			evaluationContext.setVariable("matrixVariables", matrixVariables);
+		}
 
-			if (payload == null) {
-				if (requestBody != null) {
-					payload = requestBody;
-				}
-				else {
-					payload = requestParams;
+		Map<String, Object> headers = this.headerMapper.toHeaders(request.getHeaders());
+		Object payload = null;
+		if (this.payloadExpression != null) {
+			// create payload based on SpEL
+			payload = this.payloadExpression.getValue(evaluationContext);
+		}
+		if (!CollectionUtils.isEmpty(this.headerExpressions)) {
+			for (String headerName : this.headerExpressions.keySet()) {
+				Expression headerExpression = this.headerExpressions.get(headerName);
+				Object headerValue = headerExpression.getValue(evaluationContext);
+				if (headerValue != null) {
+					headers.put(headerName, headerValue);
 				}
 			}
+		}
 
-			MessageBuilder<?> messageBuilder = null;
-
-			if (payload instanceof Message<?>) {
-				messageBuilder = MessageBuilder.fromMessage((Message<?>) payload).copyHeadersIfAbsent(headers);
+		if (payload == null) {
+			if (requestBody != null) {
+				payload = requestBody;
 			}
 			else {
-				messageBuilder = MessageBuilder.withPayload(payload).copyHeaders(headers);
+				payload = requestParams;
 			}
+		}
 
-			Message<?> message = messageBuilder
-					.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_URL, request.getURI().toString())
-					.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_METHOD, request.getMethod().toString())
-					.setHeader(org.springframework.integration.http.HttpHeaders.USER_PRINCIPAL, servletRequest.getUserPrincipal())
-					.build();
+		MessageBuilder<?> messageBuilder = null;
 
-			Message<?> reply = null;
-			if (this.expectReply) {
-				reply = this.sendAndReceiveMessage(message);
-			}
-			else {
-				this.send(message);
-			}
-			return reply;
+		if (payload instanceof Message<?>) {
+			messageBuilder = MessageBuilder.fromMessage((Message<?>) payload).copyHeadersIfAbsent(headers);
 		}
-		finally {
-			this.postProcessRequest(servletRequest);
-			this.activeCount.decrementAndGet();
+		else {
+			messageBuilder = MessageBuilder.withPayload(payload).copyHeaders(headers);
 		}
+
+		return messageBuilder
+				.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_URL, request.getURI().toString())
+				.setHeader(org.springframework.integration.http.HttpHeaders.REQUEST_METHOD, request.getMethod().toString())
+				.setHeader(org.springframework.integration.http.HttpHeaders.USER_PRINCIPAL, servletRequest.getUserPrincipal())
+				.build();
 	}
 
 	private Message<?> createServiceUnavailableResponse() {
@@ -641,4 +729,99 @@ public abstract class HttpRequestHandlingEndpointSupport extends MessagingGatewa
 		return this.activeCount.get();
 	}
 
+
+	/**
+	 * Generates the response for a request handled by {@link #doHandleRequestAsync}.
+	 * @since 3.0
+	 */
+	protected interface ResponseCallback {
+
+		/**
+		 * Invoked on the thread that delivers the reply (or on a container thread when the
+		 * reply timeout elapses), after which the asynchronous request is completed.
+		 * @param servletRequest the current HTTP request.
+		 * @param servletResponse the current HTTP response.
+		 * @param reply the reply Message; {@code null} if the reply timeout elapsed or the request failed.
+		 * @param failure the failure, if any, raised while handling the request.
+		 */
+		void generateResponse(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+				Message<?> reply, Throwable failure) throws IOException;
+
+	}
+
+
+	/**
+	 * Completes a suspended request; the first of the reply, a failure or the async
+	 * timeout generates the response and completes the {@link AsyncContext}.
+	 */
+	private class AsyncReplyHandler implements FutureCallback<Message<?>>, AsyncListener {
+
+		private final AsyncContext asyncContext;
+
+		private final HttpServletRequest servletRequest;
+
+		private final HttpServletResponse servletResponse;
+
+		private final ResponseCallback responseCallback;
+
+		private final AtomicBoolean completed = new AtomicBoolean();
+
+		private AsyncReplyHandler(AsyncContext asyncContext, HttpServletRequest servletRequest,
+				HttpServletResponse servletResponse, ResponseCallback responseCallback) {
+			this.asyncContext = asyncContext;
+			this.servletRequest = servletRequest;
+			this.servletResponse = servletResponse;
+			this.responseCallback = responseCallback;
+		}
+
+		public void onSuccess(Message<?> reply) {
+			this.complete(reply, null);
+		}
+
+		public void onFailure(Throwable t) {
+			this.complete(null, t);
+		}
+
+		private void complete(Message<?> reply, Throwable failure) {
+			if (!this.completed.compareAndSet(false, true)) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Reply message being sent, but the request has already been completed: "
+							+ (failure != null ? failure : reply));
+				}
+				return;
+			}
+			try {
+				this.responseCallback.generateResponse(this.servletRequest, this.servletResponse, reply, failure);
+			}
+			catch (Exception e) {
+				logger.error("Failed to generate the response for an asynchronous request", e);
+				if (!this.servletResponse.isCommitted()) {
+					this.servletResponse.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+				}
+			}
+			finally {
+				activeCount.decrementAndGet();
+				this.asyncContext.complete();
+			}
+		}
+
+		public void onTimeout(AsyncEvent event) throws IOException {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Timed out waiting for reply to asynchronous request " + this.servletRequest.getRequestURI());
+			}
+			this.complete(null, null);
+		}
+
+		public void onError(AsyncEvent event) throws IOException {
+			this.complete(null, event.getThrowable());
+		}
+
+		public void onComplete(AsyncEvent event) throws IOException {
+		}
+
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
+
+	}
+
 }
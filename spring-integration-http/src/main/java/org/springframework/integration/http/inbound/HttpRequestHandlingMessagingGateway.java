@@ -63,6 +63,15 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 
 	private volatile boolean convertExceptions;
 
+	private final ResponseCallback responseCallback = new ResponseCallback() {
+
+		public void generateResponse(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+				Message<?> reply, Throwable failure) throws IOException {
+			HttpRequestHandlingMessagingGateway.this.generateResponse(servletRequest, servletResponse, reply, failure);
+		}
+
+	};
+
 
 	public HttpRequestHandlingMessagingGateway() {
 		this(true);
@@ -88,23 +97,46 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 	 * Handles the HTTP request by generating a Message and sending it to the request channel. If this gateway's
 	 * 'expectReply' property is true, it will also generate a response from the reply Message once received. That
 	 * response will be written by the {@link HttpMessageConverter}s.
+	 * <p>
+	 * If {@link #setAsync(boolean) async} is enabled, the request is suspended (Servlet 3.0) and the
+	 * response is written when the reply Message arrives, without holding the calling thread.
 	 */
 	public final void handleRequest(HttpServletRequest servletRequest, HttpServletResponse servletResponse)
 			throws ServletException, IOException {
+		if (this.isAsync()) {
+			super.doHandleRequestAsync(servletRequest, servletResponse, this.responseCallback);
+			return;
+		}
+		Message<?> responseMessage = null;
+		Exception failure = null;
+		try {
+			responseMessage = super.doHandleRequest(servletRequest, servletResponse);
+		}
+		catch (Exception e) {
+			failure = e;
+		}
+		this.generateResponse(servletRequest, servletResponse, responseMessage, failure);
+	}
+
+	private void generateResponse(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+			Message<?> responseMessage, Throwable failure) throws IOException {
 		Object responseContent = null;
-		Message<?> responseMessage;
 
 		final ServletServerHttpRequest request = new ServletServerHttpRequest(servletRequest);
 		final ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
 
-		try {
-			responseMessage = super.doHandleRequest(servletRequest, servletResponse);
-			if (responseMessage != null) {
-				responseContent = setupResponseAndConvertReply(response, responseMessage);
-			}
+		if (failure != null) {
+			responseContent = handleExceptionInternal(failure);
 		}
-		catch (Exception e) {
-			responseContent = handleExceptionInternal(e);
+		else {
+			try {
+				if (responseMessage != null) {
+					responseContent = setupResponseAndConvertReply(response, responseMessage);
+				}
+			}
+			catch (Exception e) {
+				responseContent = handleExceptionInternal(e);
+			}
 		}
 		if (responseContent != null) {
 
@@ -117,7 +149,7 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 		}
 	}
 
-	private Object handleExceptionInternal(Exception e) throws IOException {
+	private Object handleExceptionInternal(Throwable e) throws IOException {
 		if (this.convertExceptions && isExpectReply()) {
 			return e;
 		}
@@ -128,6 +160,9 @@ public class HttpRequestHandlingMessagingGateway extends HttpRequestHandlingEndp
 			else if (e instanceof RuntimeException) {
 				throw (RuntimeException) e;
 			}
+			else if (e instanceof Error) {
+				throw (Error) e;
+			}
 			else {
 				throw new MessagingException("error occurred handling HTTP request", e);
 			}
@@ -24,6 +24,7 @@ import java.text.MessageFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -50,14 +51,19 @@ import org.springframework.http.MediaType;
 import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.mapping.HeaderMapper;
+import org.springframework.integration.mapping.support.HeaderPatternMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
-import org.springframework.util.PatternMatchUtils;
 import org.springframework.util.StringUtils;
 
 /**
  * Default {@link HeaderMapper} implementation for HTTP.
+ * <p>
+ * The inbound and outbound header name patterns are compiled into {@link HeaderPatternMatcher}s
+ * on first use, so the mapping decision for each header name is only evaluated once; the
+ * conversion of well-known headers is selected by a table lookup rather than by comparing the
+ * name with each of them in turn.
  *
  * @author Mark Fisher
  * @author Jeremy Grelle
@@ -255,6 +261,42 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 
 	private static TimeZone GMT = TimeZone.getTimeZone("GMT");
 
+	/**
+	 * Standard header names, as declared.
+	 */
+	private static final Set<String> HTTP_HEADER_NAMES = new HashSet<String>();
+
+	/**
+	 * Standard header names, as declared and in lower case.
+	 */
+	private static final Set<String> HTTP_HEADER_NAMES_IGNORE_CASE = new HashSet<String>();
+
+	private static final Map<String, WellKnownHeader> WELL_KNOWN_HEADERS = new HashMap<String, WellKnownHeader>();
+
+	static {
+		HTTP_HEADER_NAMES.addAll(Arrays.asList(HTTP_REQUEST_HEADER_NAMES));
+		HTTP_HEADER_NAMES.addAll(Arrays.asList(HTTP_RESPONSE_HEADER_NAMES));
+		for (String name : HTTP_HEADER_NAMES) {
+			HTTP_HEADER_NAMES_IGNORE_CASE.add(name);
+			HTTP_HEADER_NAMES_IGNORE_CASE.add(name.toLowerCase(Locale.ENGLISH));
+		}
+		registerWellKnownHeader(ACCEPT, WellKnownHeader.ACCEPT);
+		registerWellKnownHeader(ACCEPT_CHARSET, WellKnownHeader.ACCEPT_CHARSET);
+		registerWellKnownHeader(ALLOW, WellKnownHeader.ALLOW);
+		registerWellKnownHeader(CACHE_CONTROL, WellKnownHeader.CACHE_CONTROL);
+		registerWellKnownHeader(CONTENT_LENGTH, WellKnownHeader.CONTENT_LENGTH);
+		registerWellKnownHeader(CONTENT_TYPE, WellKnownHeader.CONTENT_TYPE);
+		registerWellKnownHeader(DATE, WellKnownHeader.DATE);
+		registerWellKnownHeader(ETAG, WellKnownHeader.ETAG);
+		registerWellKnownHeader(EXPIRES, WellKnownHeader.EXPIRES);
+		registerWellKnownHeader(IF_MODIFIED_SINCE, WellKnownHeader.IF_MODIFIED_SINCE);
+		registerWellKnownHeader(IF_NONE_MATCH, WellKnownHeader.IF_NONE_MATCH);
+		registerWellKnownHeader(IF_UNMODIFIED_SINCE, WellKnownHeader.IF_UNMODIFIED_SINCE);
+		registerWellKnownHeader(LAST_MODIFIED, WellKnownHeader.LAST_MODIFIED);
+		registerWellKnownHeader(LOCATION, WellKnownHeader.LOCATION);
+		registerWellKnownHeader(PRAGMA, WellKnownHeader.PRAGMA);
+	}
+
 	private volatile String[] outboundHeaderNames = new String[0];
 
 	private volatile String[] inboundHeaderNames = new String[0];
@@ -265,6 +307,10 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 
 	private volatile String userDefinedHeaderPrefix = "X-";
 
+	private volatile HeaderPatternMatcher outboundHeaderMatcher;
+
+	private volatile HeaderPatternMatcher inboundHeaderMatcher;
+
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
 		this.beanFactory = beanFactory;
@@ -280,6 +326,7 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 	 */
 	public void setOutboundHeaderNames(String[] outboundHeaderNames) {
 		this.outboundHeaderNames = (outboundHeaderNames != null) ? outboundHeaderNames : new String[0];
+		this.outboundHeaderMatcher = null;
 	}
 
 	/**
@@ -293,6 +340,7 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 	 */
 	public void setInboundHeaderNames(String[] inboundHeaderNames) {
 		this.inboundHeaderNames = (inboundHeaderNames != null) ? inboundHeaderNames : new String[0];
+		this.inboundHeaderMatcher = null;
 	}
 
 	/**
@@ -303,6 +351,7 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 	public void setExcludedOutboundStandardRequestHeaderNames(String[] excludedOutboundStandardRequestHeaderNames) {
 		Assert.notNull(excludedOutboundStandardRequestHeaderNames, "'excludedOutboundStandardRequestHeaderNames' must not be null");
 		this.excludedOutboundStandardRequestHeaderNames = excludedOutboundStandardRequestHeaderNames;
+		this.outboundHeaderMatcher = null;
 	}
 
 	/**
@@ -313,6 +362,7 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 	public void setExcludedInboundStandardResponseHeaderNames(String[] excludedInboundStandardResponseHeaderNames) {
 		Assert.notNull(excludedInboundStandardResponseHeaderNames, "'excludedInboundStandardResponseHeaderNames' must not be null");
 		this.excludedInboundStandardResponseHeaderNames = excludedInboundStandardResponseHeaderNames;
+		this.outboundHeaderMatcher = null;
 	}
 
 	/**
@@ -332,13 +382,13 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 		if (logger.isDebugEnabled()){
 			logger.debug(MessageFormat.format("outboundHeaderNames={0}", CollectionUtils.arrayToList(outboundHeaderNames)));
 		}
+		HeaderPatternMatcher headerMatcher = this.getOutboundHeaderMatcher();
 		Set<String> headerNames = headers.keySet();
 		for (String name : headerNames) {
-			if (this.shouldMapOutboundHeader(name)) {
+			if (headerMatcher.matches(name)) {
 				Object value = headers.get(name);
 				if (value != null) {
-					if (!this.containsElementIgnoreCase(HTTP_REQUEST_HEADER_NAMES, name) &&
-						!this.containsElementIgnoreCase(HTTP_RESPONSE_HEADER_NAMES, name)) {
+					if (!containsIgnoreCase(HTTP_HEADER_NAMES_IGNORE_CASE, name)) {
 						// prefix the user-defined header names if not already prefixed
 
 						name = StringUtils.startsWithIgnoreCase(name, this.userDefinedHeaderPrefix) ? name :
@@ -363,11 +413,12 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 		if (logger.isDebugEnabled()) {
 			logger.debug(MessageFormat.format("inboundHeaderNames={0}", CollectionUtils.arrayToList(inboundHeaderNames)));
 		}
+		HeaderPatternMatcher headerMatcher = this.getInboundHeaderMatcher();
 		Map<String, Object> target = new HashMap<String, Object>();
 		Set<String> headerNames = source.keySet();
 		for (String name : headerNames) {
-			if (this.shouldMapInboundHeader(name)) {
-				if (!ObjectUtils.containsElement(HTTP_REQUEST_HEADER_NAMES, name) && !ObjectUtils.containsElement(HTTP_RESPONSE_HEADER_NAMES, name)) {
+			if (headerMatcher.matches(name)) {
+				if (!HTTP_HEADER_NAMES.contains(name)) {
 					String prefixedName = StringUtils.startsWithIgnoreCase(name, this.userDefinedHeaderPrefix) ? name :
 						this.userDefinedHeaderPrefix + name;
 					Object value = source.containsKey(prefixedName) ? this.getHttpHeader(source, prefixedName) : this.getHttpHeader(source, name);
@@ -399,124 +450,109 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 		}
 	}
 
-	private boolean containsElementIgnoreCase(String[] headerNames, String name){
-		for (String headerName : headerNames) {
-			if (headerName.equalsIgnoreCase(name)){
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private boolean shouldMapOutboundHeader(String headerName) {
-		if (this.outboundHeaderNames == HTTP_RESPONSE_HEADER_NAMES) { // a default inbound mapper
+	private HeaderPatternMatcher getOutboundHeaderMatcher() {
+		HeaderPatternMatcher matcher = this.outboundHeaderMatcher;
+		if (matcher == null) {
+			String[] excludedHeaderNames = null;
 			/*
-			 * When using the default response header name list, suppress the
+			 * When using the default request or response header name list, suppress the
 			 * mapping of exclusions for specific headers.
 			 */
-			if (this.containsElementIgnoreCase(this.excludedInboundStandardResponseHeaderNames, headerName)) {
-				if (logger.isDebugEnabled()) {
-					logger.debug(MessageFormat.format("headerName=[{0}] WILL NOT be mapped", headerName));
-				}
-				return false;
+			if (this.outboundHeaderNames == HTTP_RESPONSE_HEADER_NAMES) { // a default inbound mapper
+				excludedHeaderNames = this.excludedInboundStandardResponseHeaderNames;
 			}
-		}
-		else if (this.outboundHeaderNames == HTTP_REQUEST_HEADER_NAMES) { // a default outbound mapper
-			/*
-			 * When using the default request header name list, suppress the
-			 * mapping of exclusions for specific headers.
-			 */
-			if (this.containsElementIgnoreCase(this.excludedOutboundStandardRequestHeaderNames, headerName)) {
-				if (logger.isDebugEnabled()) {
-					logger.debug(MessageFormat.format("headerName=[{0}] WILL NOT be mapped", headerName));
-				}
-				return false;
+			else if (this.outboundHeaderNames == HTTP_REQUEST_HEADER_NAMES) { // a default outbound mapper
+				excludedHeaderNames = this.excludedOutboundStandardRequestHeaderNames;
 			}
+			matcher = this.compileHeaderPatterns(this.outboundHeaderNames, excludedHeaderNames);
+			this.outboundHeaderMatcher = matcher;
 		}
-		return this.shouldMapHeader(headerName, this.outboundHeaderNames);
+		return matcher;
 	}
 
-	private boolean shouldMapInboundHeader(String headerName) {
-		return this.shouldMapHeader(headerName, this.inboundHeaderNames);
+	private HeaderPatternMatcher getInboundHeaderMatcher() {
+		HeaderPatternMatcher matcher = this.inboundHeaderMatcher;
+		if (matcher == null) {
+			matcher = this.compileHeaderPatterns(this.inboundHeaderNames, null);
+			this.inboundHeaderMatcher = matcher;
+		}
+		return matcher;
 	}
 
-	private boolean shouldMapHeader(String headerName, String[] patterns) {
-		if (patterns != null && patterns.length > 0) {
-			for (String pattern : patterns) {
-				if (PatternMatchUtils.simpleMatch(pattern.toLowerCase(), headerName.toLowerCase())) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(MessageFormat.format("headerName=[{0}] WILL be mapped, matched pattern={1}", headerName, pattern));
-					}
-					return true;
-				}
-				else if (HTTP_REQUEST_HEADER_NAME_PATTERN.equals(pattern)
-						&& this.containsElementIgnoreCase(HTTP_REQUEST_HEADER_NAMES, headerName)) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(MessageFormat.format("headerName=[{0}] WILL be mapped, matched pattern={1}", headerName, pattern));
-					}
-					return true;
-				}
-				else if (HTTP_RESPONSE_HEADER_NAME_PATTERN.equals(pattern)
-						&& this.containsElementIgnoreCase(HTTP_RESPONSE_HEADER_NAMES, headerName)) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(MessageFormat.format("headerName=[{0}] WILL be mapped, matched pattern={1}", headerName, pattern));
-					}
-					return true;
-				}
-			}
-		}
-		if (logger.isDebugEnabled()) {
-			logger.debug(MessageFormat.format("headerName=[{0}] WILL NOT be mapped", headerName));
-		}
-		return false;
+	private HeaderPatternMatcher compileHeaderPatterns(String[] patterns, String[] excludedHeaderNames) {
+		Map<String, Collection<String>> namedPatterns = new HashMap<String, Collection<String>>();
+		namedPatterns.put(HTTP_REQUEST_HEADER_NAME_PATTERN, Arrays.asList(HTTP_REQUEST_HEADER_NAMES));
+		namedPatterns.put(HTTP_RESPONSE_HEADER_NAME_PATTERN, Arrays.asList(HTTP_RESPONSE_HEADER_NAMES));
+		return new HeaderPatternMatcher(Arrays.asList(patterns), namedPatterns,
+				excludedHeaderNames != null ? Arrays.asList(excludedHeaderNames) : null);
 	}
 
 	private void setHttpHeader(HttpHeaders target, String name, Object value) {
-		if (ACCEPT.equalsIgnoreCase(name)) {
-			if (value instanceof Collection<?>) {
-				Collection<?> values = (Collection<?>) value;
-				if (!CollectionUtils.isEmpty(values)) {
-					List<MediaType> acceptableMediaTypes = new ArrayList<MediaType>();
-					for (Object type : values) {
-						if (type instanceof MediaType) {
-							acceptableMediaTypes.add((MediaType) type);
-						}
-						else if (type instanceof String) {
-							acceptableMediaTypes.addAll(MediaType.parseMediaTypes((String) type));
-						}
-						else {
-							Class<?> clazz = (type != null) ? type.getClass() : null;
-							throw new IllegalArgumentException(
-									"Expected MediaType or String value for 'Accept' header value, but received: " + clazz);
+		switch (wellKnownHeader(name)) {
+			case ACCEPT:
+				if (value instanceof Collection<?>) {
+					Collection<?> values = (Collection<?>) value;
+					if (!CollectionUtils.isEmpty(values)) {
+						List<MediaType> acceptableMediaTypes = new ArrayList<MediaType>();
+						for (Object type : values) {
+							if (type instanceof MediaType) {
+								acceptableMediaTypes.add((MediaType) type);
+							}
+							else if (type instanceof String) {
+								acceptableMediaTypes.addAll(MediaType.parseMediaTypes((String) type));
+							}
+							else {
+								Class<?> clazz = (type != null) ? type.getClass() : null;
+								throw new IllegalArgumentException(
+										"Expected MediaType or String value for 'Accept' header value, but received: " + clazz);
+							}
 						}
+						target.setAccept(acceptableMediaTypes);
+					}
+				}
+				else if (value instanceof MediaType) {
+					target.setAccept(Collections.singletonList((MediaType) value));
+				}
+				else if (value instanceof String[]) {
+					List<MediaType> acceptableMediaTypes = new ArrayList<MediaType>();
+					for (String next : (String[]) value) {
+						acceptableMediaTypes.add(MediaType.parseMediaType(next));
 					}
 					target.setAccept(acceptableMediaTypes);
 				}
-			}
-			else if (value instanceof MediaType) {
-				target.setAccept(Collections.singletonList((MediaType) value));
-			}
-			else if (value instanceof String[]) {
-				List<MediaType> acceptableMediaTypes = new ArrayList<MediaType>();
-				for (String next : (String[]) value) {
-					acceptableMediaTypes.add(MediaType.parseMediaType(next));
+				else if (value instanceof String) {
+					target.setAccept(MediaType.parseMediaTypes((String) value));
 				}
-				target.setAccept(acceptableMediaTypes);
-			}
-			else if (value instanceof String) {
-				target.setAccept(MediaType.parseMediaTypes((String) value));
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected MediaType or String value for 'Accept' header value, but received: " + clazz);
-			}
-		}
-		else if (ACCEPT_CHARSET.equalsIgnoreCase(name)) {
-			if (value instanceof Collection<?>) {
-				Collection<?> values = (Collection<?>) value;
-				if (!CollectionUtils.isEmpty(values)) {
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected MediaType or String value for 'Accept' header value, but received: " + clazz);
+				}
+				break;
+			case ACCEPT_CHARSET:
+				if (value instanceof Collection<?>) {
+					Collection<?> values = (Collection<?>) value;
+					if (!CollectionUtils.isEmpty(values)) {
+						List<Charset> acceptableCharsets = new ArrayList<Charset>();
+						for (Object charset : values) {
+							if (charset instanceof Charset) {
+								acceptableCharsets.add((Charset) charset);
+							}
+							else if (charset instanceof String) {
+								acceptableCharsets.add(Charset.forName((String) charset));
+							}
+							else {
+								Class<?> clazz = (charset != null) ? charset.getClass() : null;
+								throw new IllegalArgumentException(
+										"Expected Charset or String value for 'Accept-Charset' header value, but received: " + clazz);
+							}
+						}
+						target.setAcceptCharset(acceptableCharsets);
+					}
+				}
+				else if (value instanceof Charset[] || value instanceof String[]) {
 					List<Charset> acceptableCharsets = new ArrayList<Charset>();
+					Object[] values = ObjectUtils.toObjectArray(value);
 					for (Object charset : values) {
 						if (charset instanceof Charset) {
 							acceptableCharsets.add((Charset) charset);
@@ -524,407 +560,378 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 						else if (charset instanceof String) {
 							acceptableCharsets.add(Charset.forName((String) charset));
 						}
-						else {
-							Class<?> clazz = (charset != null) ? charset.getClass() : null;
-							throw new IllegalArgumentException(
-									"Expected Charset or String value for 'Accept-Charset' header value, but received: " + clazz);
-						}
 					}
 					target.setAcceptCharset(acceptableCharsets);
 				}
-			}
-			else if (value instanceof Charset[] || value instanceof String[]) {
-				List<Charset> acceptableCharsets = new ArrayList<Charset>();
-				Object[] values = ObjectUtils.toObjectArray(value);
-				for (Object charset : values) {
-					if (charset instanceof Charset) {
-						acceptableCharsets.add((Charset) charset);
-					}
-					else if (charset instanceof String) {
-						acceptableCharsets.add(Charset.forName((String) charset));
+				else if (value instanceof Charset) {
+					target.setAcceptCharset(Collections.singletonList((Charset) value));
+				}
+				else if (value instanceof String) {
+					String[] charsets = StringUtils.commaDelimitedListToStringArray((String) value);
+					List<Charset> acceptableCharsets = new ArrayList<Charset>();
+					for (String charset : charsets) {
+						acceptableCharsets.add(Charset.forName(charset.trim()));
 					}
+					target.setAcceptCharset(acceptableCharsets);
 				}
-				target.setAcceptCharset(acceptableCharsets);
-			}
-			else if (value instanceof Charset) {
-				target.setAcceptCharset(Collections.singletonList((Charset) value));
-			}
-			else if (value instanceof String) {
-				String[] charsets = StringUtils.commaDelimitedListToStringArray((String) value);
-				List<Charset> acceptableCharsets = new ArrayList<Charset>();
-				for (String charset : charsets) {
-					acceptableCharsets.add(Charset.forName(charset.trim()));
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected Charset or String value for 'Accept-Charset' header value, but received: " + clazz);
 				}
-				target.setAcceptCharset(acceptableCharsets);
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected Charset or String value for 'Accept-Charset' header value, but received: " + clazz);
-			}
-		}
-		else if (ALLOW.equalsIgnoreCase(name)) {
-			if (value instanceof Collection<?>) {
-				Collection<?> values = (Collection<?>) value;
-				if (!CollectionUtils.isEmpty(values)) {
-					Set<HttpMethod> allowedMethods = new HashSet<HttpMethod>();
-					for (Object method : values) {
-						if (method instanceof HttpMethod) {
-							allowedMethods.add((HttpMethod) method);
+				break;
+			case ALLOW:
+				if (value instanceof Collection<?>) {
+					Collection<?> values = (Collection<?>) value;
+					if (!CollectionUtils.isEmpty(values)) {
+						Set<HttpMethod> allowedMethods = new HashSet<HttpMethod>();
+						for (Object method : values) {
+							if (method instanceof HttpMethod) {
+								allowedMethods.add((HttpMethod) method);
+							}
+							else if (method instanceof String) {
+								allowedMethods.add(HttpMethod.valueOf((String) method));
+							}
+							else {
+								Class<?> clazz = (method != null) ? method.getClass() : null;
+								throw new IllegalArgumentException(
+										"Expected HttpMethod or String value for 'Allow' header value, but received: " + clazz);
+							}
 						}
-						else if (method instanceof String) {
-							allowedMethods.add(HttpMethod.valueOf((String) method));
+						target.setAllow(allowedMethods);
+					}
+				}
+				else {
+					if (value instanceof HttpMethod) {
+						target.setAllow(Collections.singleton((HttpMethod) value));
+					}
+					else if (value instanceof HttpMethod[]) {
+						Set<HttpMethod> allowedMethods = new HashSet<HttpMethod>();
+						for (HttpMethod next : (HttpMethod[]) value) {
+							allowedMethods.add(next);
 						}
-						else {
-							Class<?> clazz = (method != null) ? method.getClass() : null;
-							throw new IllegalArgumentException(
-									"Expected HttpMethod or String value for 'Allow' header value, but received: " + clazz);
+						target.setAllow(allowedMethods);
+					}
+					else if (value instanceof String || value instanceof String[]) {
+						String[] values = (value instanceof String[]) ? (String[]) value
+								: StringUtils.commaDelimitedListToStringArray((String) value);
+						Set<HttpMethod> allowedMethods = new HashSet<HttpMethod>();
+						for (String next : values) {
+							allowedMethods.add(HttpMethod.valueOf(next.trim()));
 						}
+						target.setAllow(allowedMethods);
+					}
+					else {
+						Class<?> clazz = (value != null) ? value.getClass() : null;
+						throw new IllegalArgumentException(
+								"Expected HttpMethod or String value for 'Allow' header value, but received: " + clazz);
 					}
-					target.setAllow(allowedMethods);
 				}
-			}
-			else {
-				if (value instanceof HttpMethod) {
-					target.setAllow(Collections.singleton((HttpMethod) value));
+				break;
+			case CACHE_CONTROL:
+				if (value instanceof String) {
+					target.setCacheControl((String) value);
+				}
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected String value for 'Cache-Control' header value, but received: " + clazz);
+				}
+				break;
+			case CONTENT_LENGTH:
+				if (value instanceof Number) {
+					target.setContentLength(((Number) value).longValue());
+				}
+				else if (value instanceof String) {
+					target.setContentLength(Long.parseLong((String) value));
+				}
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected Number or String value for 'Content-Length' header value, but received: " + clazz);
+				}
+				break;
+			case CONTENT_TYPE:
+				if (value instanceof MediaType) {
+					target.setContentType((MediaType) value);
 				}
-				else if (value instanceof HttpMethod[]) {
-					Set<HttpMethod> allowedMethods = new HashSet<HttpMethod>();
-					for (HttpMethod next : (HttpMethod[]) value) {
-						allowedMethods.add(next);
+				else if (value instanceof String) {
+					target.setContentType(MediaType.parseMediaType((String) value));
+				}
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected MediaType or String value for 'Content-Type' header value, but received: " + clazz);
+				}
+				break;
+			case DATE:
+				if (value instanceof Date) {
+					target.setDate(((Date) value).getTime());
+				}
+				else if (value instanceof Number) {
+					target.setDate(((Number) value).longValue());
+				}
+				else if (value instanceof String) {
+					try {
+						target.setDate(Long.parseLong((String) value));
+					}
+					catch (NumberFormatException e) {
+						target.setDate(this.getFirstDate((String) value, DATE));
 					}
-					target.setAllow(allowedMethods);
 				}
-				else if (value instanceof String || value instanceof String[]) {
-					String[] values = (value instanceof String[]) ? (String[]) value
-							: StringUtils.commaDelimitedListToStringArray((String) value);
-					Set<HttpMethod> allowedMethods = new HashSet<HttpMethod>();
-					for (String next : values) {
-						allowedMethods.add(HttpMethod.valueOf(next.trim()));
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected Date, Number, or String value for 'Date' header value, but received: " + clazz);
+				}
+				break;
+			case ETAG:
+				if (value instanceof String) {
+					target.setETag((String) value);
+				}
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected String value for 'ETag' header value, but received: " + clazz);
+				}
+				break;
+			case EXPIRES:
+				if (value instanceof Date) {
+					target.setExpires(((Date) value).getTime());
+				}
+				else if (value instanceof Number) {
+					target.setExpires(((Number) value).longValue());
+				}
+				else if (value instanceof String) {
+					try {
+						target.setExpires(Long.parseLong((String) value));
+					}
+					catch (NumberFormatException e) {
+						target.setExpires(this.getFirstDate((String) value, EXPIRES));
 					}
-					target.setAllow(allowedMethods);
 				}
 				else {
 					Class<?> clazz = (value != null) ? value.getClass() : null;
 					throw new IllegalArgumentException(
-							"Expected HttpMethod or String value for 'Allow' header value, but received: " + clazz);
+							"Expected Date, Number, or String value for 'Expires' header value, but received: " + clazz);
 				}
-			}
-		}
-		else if (CACHE_CONTROL.equalsIgnoreCase(name)) {
-			if (value instanceof String) {
-				target.setCacheControl((String) value);
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected String value for 'Cache-Control' header value, but received: " + clazz);
-			}
-		}
-		else if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
-			if (value instanceof Number) {
-				target.setContentLength(((Number) value).longValue());
-			}
-			else if (value instanceof String) {
-				target.setContentLength(Long.parseLong((String) value));
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected Number or String value for 'Content-Length' header value, but received: " + clazz);
-			}
-		}
-		else if (CONTENT_TYPE.equalsIgnoreCase(name)) {
-			if (value instanceof MediaType) {
-				target.setContentType((MediaType) value);
-			}
-			else if (value instanceof String) {
-				target.setContentType(MediaType.parseMediaType((String) value));
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected MediaType or String value for 'Content-Type' header value, but received: " + clazz);
-			}
-		}
-		else if (DATE.equalsIgnoreCase(name)) {
-			if (value instanceof Date) {
-				target.setDate(((Date) value).getTime());
-			}
-			else if (value instanceof Number) {
-				target.setDate(((Number) value).longValue());
-			}
-			else if (value instanceof String) {
-				try {
-					target.setDate(Long.parseLong((String) value));
+				break;
+			case IF_MODIFIED_SINCE:
+				if (value instanceof Date) {
+					target.setIfModifiedSince(((Date) value).getTime());
 				}
-				catch (NumberFormatException e) {
-					target.setDate(this.getFirstDate((String) value, DATE));
+				else if (value instanceof Number) {
+					target.setIfModifiedSince(((Number) value).longValue());
 				}
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected Date, Number, or String value for 'Date' header value, but received: " + clazz);
-			}
-		}
-		else if (ETAG.equalsIgnoreCase(name)) {
-			if (value instanceof String) {
-				target.setETag((String) value);
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected String value for 'ETag' header value, but received: " + clazz);
-			}
-		}
-		else if (EXPIRES.equalsIgnoreCase(name)) {
-			if (value instanceof Date) {
-				target.setExpires(((Date) value).getTime());
-			}
-			else if (value instanceof Number) {
-				target.setExpires(((Number) value).longValue());
-			}
-			else if (value instanceof String) {
-				try {
-					target.setExpires(Long.parseLong((String) value));
+				else if (value instanceof String) {
+					try {
+						target.setIfModifiedSince(Long.parseLong((String) value));
+					}
+					catch (NumberFormatException e) {
+						target.setIfModifiedSince(this.getFirstDate((String) value, IF_MODIFIED_SINCE));
+					}
 				}
-				catch (NumberFormatException e) {
-					target.setExpires(this.getFirstDate((String) value, EXPIRES));
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected Date, Number, or String value for 'If-Modified-Since' header value, but received: " + clazz);
 				}
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected Date, Number, or String value for 'Expires' header value, but received: " + clazz);
-			}
-		}
-		else if (IF_MODIFIED_SINCE.equalsIgnoreCase(name)) {
-			if (value instanceof Date) {
-				target.setIfModifiedSince(((Date) value).getTime());
-			}
-			else if (value instanceof Number) {
-				target.setIfModifiedSince(((Number) value).longValue());
-			}
-			else if (value instanceof String) {
-				try {
-					target.setIfModifiedSince(Long.parseLong((String) value));
+				break;
+			case IF_UNMODIFIED_SINCE:
+				String ifUnmodifiedSinceValue = null;
+				if (value instanceof Date) {
+					ifUnmodifiedSinceValue = this.formatDate(((Date) value).getTime());
 				}
-				catch (NumberFormatException e) {
-					target.setIfModifiedSince(this.getFirstDate((String) value, IF_MODIFIED_SINCE));
+				else if (value instanceof Number) {
+					ifUnmodifiedSinceValue = this.formatDate(((Number) value).longValue());
 				}
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected Date, Number, or String value for 'If-Modified-Since' header value, but received: " + clazz);
-			}
-		}
-		else if (IF_UNMODIFIED_SINCE.equalsIgnoreCase(name)) {
-			String ifUnmodifiedSinceValue = null;
-			if (value instanceof Date) {
-				ifUnmodifiedSinceValue = this.formatDate(((Date) value).getTime());
-			}
-			else if (value instanceof Number) {
-				ifUnmodifiedSinceValue = this.formatDate(((Number) value).longValue());
-			}
-			else if (value instanceof String) {
-				try {
-					ifUnmodifiedSinceValue = this.formatDate(Long.parseLong((String) value));
+				else if (value instanceof String) {
+					try {
+						ifUnmodifiedSinceValue = this.formatDate(Long.parseLong((String) value));
+					}
+					catch (NumberFormatException e) {
+						long longValue = this.getFirstDate((String) value, IF_UNMODIFIED_SINCE);
+						ifUnmodifiedSinceValue = this.formatDate(longValue);
+					}
 				}
-				catch (NumberFormatException e) {
-					long longValue = this.getFirstDate((String) value, IF_UNMODIFIED_SINCE);
-					ifUnmodifiedSinceValue = this.formatDate(longValue);
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected Date, Number, or String value for 'If-Unmodified-Since' header value, but received: " + clazz);
 				}
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected Date, Number, or String value for 'If-Unmodified-Since' header value, but received: " + clazz);
-			}
-			target.set(IF_UNMODIFIED_SINCE, ifUnmodifiedSinceValue);
-		}
-		else if (IF_NONE_MATCH.equalsIgnoreCase(name)) {
-			if (value instanceof String) {
-				target.setIfNoneMatch((String) value);
-			}
-			else if (value instanceof String[]) {
-				String delmitedString = StringUtils.arrayToCommaDelimitedString((String[]) value);
-				target.setIfNoneMatch(delmitedString);
-			}
-			else if (value instanceof Collection) {
-				Collection<?> values = (Collection<?>) value;
-				if (!CollectionUtils.isEmpty(values)) {
-					List<String> ifNoneMatchList = new ArrayList<String>();
-					for (Object next : values) {
-						if (next instanceof String) {
-							ifNoneMatchList.add((String) next);
-						}
-						else {
-							Class<?> clazz = (next != null) ? next.getClass() : null;
-							throw new IllegalArgumentException(
-									"Expected String value for 'If-None-Match' header value, but received: " + clazz);
+				target.set(IF_UNMODIFIED_SINCE, ifUnmodifiedSinceValue);
+				break;
+			case IF_NONE_MATCH:
+				if (value instanceof String) {
+					target.setIfNoneMatch((String) value);
+				}
+				else if (value instanceof String[]) {
+					String delmitedString = StringUtils.arrayToCommaDelimitedString((String[]) value);
+					target.setIfNoneMatch(delmitedString);
+				}
+				else if (value instanceof Collection) {
+					Collection<?> values = (Collection<?>) value;
+					if (!CollectionUtils.isEmpty(values)) {
+						List<String> ifNoneMatchList = new ArrayList<String>();
+						for (Object next : values) {
+							if (next instanceof String) {
+								ifNoneMatchList.add((String) next);
+							}
+							else {
+								Class<?> clazz = (next != null) ? next.getClass() : null;
+								throw new IllegalArgumentException(
+										"Expected String value for 'If-None-Match' header value, but received: " + clazz);
+							}
 						}
+						target.setIfNoneMatch(ifNoneMatchList);
 					}
-					target.setIfNoneMatch(ifNoneMatchList);
 				}
-			}
-		}
-		else if (LAST_MODIFIED.equalsIgnoreCase(name)) {
-			if (value instanceof Date) {
-				target.setLastModified(((Date) value).getTime());
-			}
-			else if (value instanceof Number) {
-				target.setLastModified(((Number) value).longValue());
-			}
-			else if (value instanceof String) {
-				try {
-					target.setLastModified(Long.parseLong((String) value));
+				break;
+			case LAST_MODIFIED:
+				if (value instanceof Date) {
+					target.setLastModified(((Date) value).getTime());
 				}
-				catch (NumberFormatException e) {
-					target.setLastModified(this.getFirstDate((String) value, LAST_MODIFIED));
+				else if (value instanceof Number) {
+					target.setLastModified(((Number) value).longValue());
 				}
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected Date, Number, or String value for 'Last-Modified' header value, but received: " + clazz);
-			}
-		}
-		else if (LOCATION.equalsIgnoreCase(name)) {
-			if (value instanceof URI) {
-				target.setLocation((URI) value);
-			}
-			else if (value instanceof String) {
-				try {
-					target.setLocation(new URI((String) value));
+				else if (value instanceof String) {
+					try {
+						target.setLastModified(Long.parseLong((String) value));
+					}
+					catch (NumberFormatException e) {
+						target.setLastModified(this.getFirstDate((String) value, LAST_MODIFIED));
+					}
 				}
-				catch (URISyntaxException e) {
-					throw new IllegalArgumentException(e);
+				else {
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected Date, Number, or String value for 'Last-Modified' header value, but received: " + clazz);
 				}
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected URI or String value for 'Location' header value, but received: " + clazz);
-			}
-		}
-		else if (PRAGMA.equalsIgnoreCase(name)) {
-			if (value instanceof String) {
-				target.setPragma((String) value);
-			}
-			else {
-				Class<?> clazz = (value != null) ? value.getClass() : null;
-				throw new IllegalArgumentException(
-						"Expected String value for 'Pragma' header value, but received: " + clazz);
-			}
-		}
-		else if (value instanceof String) {
-			target.set(name, (String) value);
-		}
-		else if (value instanceof String[]) {
-			for (String next : (String[]) value) {
-				target.add(name, next);
-			}
-		}
-		else if (value instanceof Iterable<?>) {
-			for (Object next : (Iterable<?>) value) {
-				String convertedValue = null;
-				if (next instanceof String) {
-					convertedValue = (String) next;
+				break;
+			case LOCATION:
+				if (value instanceof URI) {
+					target.setLocation((URI) value);
+				}
+				else if (value instanceof String) {
+					try {
+						target.setLocation(new URI((String) value));
+					}
+					catch (URISyntaxException e) {
+						throw new IllegalArgumentException(e);
+					}
 				}
 				else {
-					convertedValue = this.convertToString(value);
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected URI or String value for 'Location' header value, but received: " + clazz);
 				}
-				if (StringUtils.hasText(convertedValue)){
-					target.add(name, (String) next);
+				break;
+			case PRAGMA:
+				if (value instanceof String) {
+					target.setPragma((String) value);
 				}
 				else {
-					logger.warn("Element of the header '" + name + "' with value '" + value +
-							"' will not be set since it is not a String and no Converter " +
-							"is available. Consider registering a Converter with ConversionService (e.g., <int:converter>)");
+					Class<?> clazz = (value != null) ? value.getClass() : null;
+					throw new IllegalArgumentException(
+							"Expected String value for 'Pragma' header value, but received: " + clazz);
+				}
+				break;
+			default:
+				if (value instanceof String) {
+					target.set(name, (String) value);
+				}
+				else if (value instanceof String[]) {
+					for (String next : (String[]) value) {
+						target.add(name, next);
+					}
+				}
+				else if (value instanceof Iterable<?>) {
+					for (Object next : (Iterable<?>) value) {
+						String convertedValue = null;
+						if (next instanceof String) {
+							convertedValue = (String) next;
+						}
+						else {
+							convertedValue = this.convertToString(value);
+						}
+						if (StringUtils.hasText(convertedValue)){
+							target.add(name, (String) next);
+						}
+						else {
+							logger.warn("Element of the header '" + name + "' with value '" + value +
+									"' will not be set since it is not a String and no Converter " +
+									"is available. Consider registering a Converter with ConversionService (e.g., <int:converter>)");
+						}
+					}
+				}
+				else {
+					String convertedValue = this.convertToString(value);
+					if (StringUtils.hasText(convertedValue)) {
+						target.set(name, convertedValue);
+					}
+					else {
+						logger.warn("Header '" + name + "' with value '" + value +
+								"' will not be set since it is not a String and no Converter " +
+								"is available. Consider registering a Converter with ConversionService (e.g., <int:converter>)");
+					}
 				}
-			}
-		}
-		else {
-			String convertedValue = this.convertToString(value);
-			if (StringUtils.hasText(convertedValue)) {
-				target.set(name, convertedValue);
-			}
-			else {
-				logger.warn("Header '" + name + "' with value '" + value +
-						"' will not be set since it is not a String and no Converter " +
-						"is available. Consider registering a Converter with ConversionService (e.g., <int:converter>)");
-			}
 		}
 	}
 
 	private Object getHttpHeader(HttpHeaders source, String name) {
-		if (ACCEPT.equalsIgnoreCase(name)) {
-			return source.getAccept();
-		}
-		else if (ACCEPT_CHARSET.equalsIgnoreCase(name)) {
-			return source.getAcceptCharset();
-		}
-		else if (ALLOW.equalsIgnoreCase(name)) {
-			return source.getAllow();
-		}
-		else if (CACHE_CONTROL.equalsIgnoreCase(name)) {
-			String cacheControl = source.getCacheControl();
-			return (StringUtils.hasText(cacheControl)) ? cacheControl : null;
-		}
-		else if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
-			long contentLength = source.getContentLength();
-			return (contentLength > -1) ? contentLength : null;
-		}
-		else if (CONTENT_TYPE.equalsIgnoreCase(name)) {
-			return source.getContentType();
-		}
-		else if (DATE.equalsIgnoreCase(name)) {
-			long date = source.getDate();
-			return (date > -1) ? date : null;
-		}
-		else if (ETAG.equalsIgnoreCase(name)) {
-			String eTag = source.getETag();
-			return (StringUtils.hasText(eTag)) ? eTag : null;
-		}
-		else if (EXPIRES.equalsIgnoreCase(name)) {
-			try {
-				long expires = source.getExpires();
-				return (expires > -1) ? expires : null;
-			}
-			catch (Exception e) {
-				if(logger.isDebugEnabled()) {
-					logger.debug(e.getMessage());
+		switch (wellKnownHeader(name)) {
+			case ACCEPT:
+				return source.getAccept();
+			case ACCEPT_CHARSET:
+				return source.getAcceptCharset();
+			case ALLOW:
+				return source.getAllow();
+			case CACHE_CONTROL:
+				String cacheControl = source.getCacheControl();
+				return (StringUtils.hasText(cacheControl)) ? cacheControl : null;
+			case CONTENT_LENGTH:
+				long contentLength = source.getContentLength();
+				return (contentLength > -1) ? contentLength : null;
+			case CONTENT_TYPE:
+				return source.getContentType();
+			case DATE:
+				long date = source.getDate();
+				return (date > -1) ? date : null;
+			case ETAG:
+				String eTag = source.getETag();
+				return (StringUtils.hasText(eTag)) ? eTag : null;
+			case EXPIRES:
+				try {
+					long expires = source.getExpires();
+					return (expires > -1) ? expires : null;
 				}
-				// According to RFC 2616
-				return null;
-			}
-		}
-		else if (IF_NONE_MATCH.equalsIgnoreCase(name)) {
-			return source.getIfNoneMatch();
-		}
-		else if (IF_MODIFIED_SINCE.equalsIgnoreCase(name)) {
-			@SuppressWarnings("deprecation")
-			long modifiedSince = source.getIfNotModifiedSince();
-			return (modifiedSince > -1) ? modifiedSince : null;
-		}
-		else if (IF_UNMODIFIED_SINCE.equalsIgnoreCase(name)) {
-			String unmodifiedSince = source.getFirst(IF_UNMODIFIED_SINCE);
-			return unmodifiedSince != null ? this.getFirstDate(unmodifiedSince, IF_UNMODIFIED_SINCE) : null;
-		}
-		else if (LAST_MODIFIED.equalsIgnoreCase(name)) {
-			long lastModified = source.getLastModified();
-			return (lastModified > -1) ? lastModified : null;
-		}
-		else if (LOCATION.equalsIgnoreCase(name)) {
-			return source.getLocation();
-		}
-		else if (PRAGMA.equalsIgnoreCase(name)) {
-			String pragma = source.getPragma();
-			return (StringUtils.hasText(pragma)) ? pragma : null;
+				catch (Exception e) {
+					if(logger.isDebugEnabled()) {
+						logger.debug(e.getMessage());
+					}
+					// According to RFC 2616
+					return null;
+				}
+			case IF_NONE_MATCH:
+				return source.getIfNoneMatch();
+			case IF_MODIFIED_SINCE:
+				@SuppressWarnings("deprecation")
+				long modifiedSince = source.getIfNotModifiedSince();
+				return (modifiedSince > -1) ? modifiedSince : null;
+			case IF_UNMODIFIED_SINCE:
+				String unmodifiedSince = source.getFirst(IF_UNMODIFIED_SINCE);
+				return unmodifiedSince != null ? this.getFirstDate(unmodifiedSince, IF_UNMODIFIED_SINCE) : null;
+			case LAST_MODIFIED:
+				long lastModified = source.getLastModified();
+				return (lastModified > -1) ? lastModified : null;
+			case LOCATION:
+				return source.getLocation();
+			case PRAGMA:
+				String pragma = source.getPragma();
+				return (StringUtils.hasText(pragma)) ? pragma : null;
+			default:
+				return source.get(name);
 		}
-		return source.get(name);
 	}
 
 	private void setMessageHeader(Map<String, Object> target, String name, Object value) {
@@ -965,6 +972,23 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 
 	// Utility methods
 
+	private static void registerWellKnownHeader(String name, WellKnownHeader header) {
+		WELL_KNOWN_HEADERS.put(name, header);
+		WELL_KNOWN_HEADERS.put(name.toLowerCase(Locale.ENGLISH), header);
+	}
+
+	private static WellKnownHeader wellKnownHeader(String name) {
+		WellKnownHeader header = WELL_KNOWN_HEADERS.get(name);
+		if (header == null) {
+			header = WELL_KNOWN_HEADERS.get(name.toLowerCase(Locale.ENGLISH));
+		}
+		return (header != null) ? header : WellKnownHeader.OTHER;
+	}
+
+	private static boolean containsIgnoreCase(Set<String> names, String name) {
+		return names.contains(name) || names.contains(name.toLowerCase(Locale.ENGLISH));
+	}
+
 	private long getFirstDate(String headerValue, String headerName) {
 		for (String dateFormat : DATE_FORMATS) {
 			DateFormat simpleDateFormat = new SimpleDateFormat(dateFormat, Locale.US);
@@ -1011,4 +1035,13 @@ public class DefaultHttpHeaderMapper implements HeaderMapper<HttpHeaders>, BeanF
 		return mapper;
 	}
 
+
+	/**
+	 * The standard headers that have a dedicated conversion.
+	 */
+	private enum WellKnownHeader {
+		ACCEPT, ACCEPT_CHARSET, ALLOW, CACHE_CONTROL, CONTENT_LENGTH, CONTENT_TYPE, DATE, ETAG, EXPIRES,
+		IF_MODIFIED_SINCE, IF_NONE_MATCH, IF_UNMODIFIED_SINCE, LAST_MODIFIED, LOCATION, PRAGMA, OTHER
+	}
+
 }
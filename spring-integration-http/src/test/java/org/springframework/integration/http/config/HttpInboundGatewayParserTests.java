@@ -247,6 +247,12 @@ public class HttpInboundGatewayParserTests {
 				messageConverters.size(), is(1));
 	}
 
+	@Test
+	public void testAsyncInboundGateway() {
+		assertThat((Boolean) getPropertyValue(gatewayNoDefaultConverters, "async"), is(true));
+		assertThat((Boolean) getPropertyValue(gateway, "async"), is(false));
+	}
+
 	@Test
 	public void testInboundGatewayWithCustomAndDefaultMessageConverters() {
 		@SuppressWarnings("unchecked")
@@ -364,5 +364,9 @@ public class HttpRequestHandlingControllerTests extends AbstractHttpInboundTests
 		assertEquals("HELLO", reply);
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void asyncIsNotSupported() {
+		new HttpRequestHandlingController(true).setAsync(true);
+	}
 
 }
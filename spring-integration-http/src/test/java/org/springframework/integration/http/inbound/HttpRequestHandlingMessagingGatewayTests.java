@@ -17,8 +17,10 @@
 package org.springframework.integration.http.inbound;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.io.IOException;
@@ -28,6 +30,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.junit.Test;
 
 import org.springframework.beans.factory.BeanFactory;
@@ -40,11 +52,13 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
 import org.springframework.integration.http.AbstractHttpInboundTests;
 import org.springframework.integration.http.converter.SerializingHttpMessageConverter;
+import org.springframework.integration.message.ErrorMessage;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -294,6 +308,164 @@ public class HttpRequestHandlingMessagingGatewayTests extends AbstractHttpInboun
 		assertEquals("text/plain", contentTypes.get(0));
 	}
 
+	@Test
+	public void asyncRequestCompletedByReply() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		HttpRequestHandlingMessagingGateway gateway = this.createAsyncGateway(requestChannel);
+		AsyncMockHttpServletRequest request = this.createAsyncRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+
+		StubAsyncContext asyncContext = request.asyncContext;
+		assertNotNull(asyncContext);
+		assertEquals(5000L, asyncContext.getTimeout());
+		assertFalse(asyncContext.completed);
+		assertEquals("", response.getContentAsString());
+
+		Message<?> requestMessage = requestChannel.receive(0);
+		assertNotNull(requestMessage);
+		assertEquals("hello", requestMessage.getPayload());
+		MessageChannel replyChannel = (MessageChannel) requestMessage.getHeaders().getReplyChannel();
+		assertTrue(replyChannel.send(MessageBuilder.withPayload("HELLO").build()));
+
+		assertTrue(asyncContext.completed);
+		assertEquals("HELLO", response.getContentAsString());
+		assertEquals(0, gateway.afterShutdown());
+	}
+
+	@Test
+	public void asyncRequestCompletedByTimeout() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		HttpRequestHandlingMessagingGateway gateway = this.createAsyncGateway(requestChannel);
+		AsyncMockHttpServletRequest request = this.createAsyncRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+		assertEquals(1, gateway.afterShutdown());
+
+		StubAsyncContext asyncContext = request.asyncContext;
+		asyncContext.listener.onTimeout(new AsyncEvent(asyncContext));
+		assertTrue(asyncContext.completed);
+		assertEquals(200, response.getStatus());
+		assertEquals("", response.getContentAsString());
+		assertEquals(0, gateway.afterShutdown());
+
+		Message<?> requestMessage = requestChannel.receive(0);
+		MessageChannel replyChannel = (MessageChannel) requestMessage.getHeaders().getReplyChannel();
+		assertTrue(replyChannel.send(MessageBuilder.withPayload("late").build()));
+		assertEquals("", response.getContentAsString());
+	}
+
+	@Test
+	public void asyncRequestCompletedByErrorMessage() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		HttpRequestHandlingMessagingGateway gateway = this.createAsyncGateway(requestChannel);
+		AsyncMockHttpServletRequest request = this.createAsyncRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+
+		Message<?> requestMessage = requestChannel.receive(0);
+		MessageChannel errorChannel = (MessageChannel) requestMessage.getHeaders().getErrorChannel();
+		errorChannel.send(new ErrorMessage(new RuntimeException("planned")));
+		assertTrue(request.asyncContext.completed);
+		assertEquals(500, response.getStatus());
+	}
+
+	@Test
+	public void asyncRequestErrorRoutedToErrorChannel() throws Exception {
+		QueueChannel requestChannel = new QueueChannel();
+		DirectChannel errorChannel = new DirectChannel();
+		errorChannel.subscribe(new AbstractReplyProducingMessageHandler() {
+
+			@Override
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				return "handled " + ((Throwable) requestMessage.getPayload()).getMessage();
+			}
+
+		});
+		HttpRequestHandlingMessagingGateway gateway = new HttpRequestHandlingMessagingGateway(true);
+		gateway.setBeanFactory(mock(BeanFactory.class));
+		gateway.setRequestPayloadType(String.class);
+		gateway.setRequestChannel(requestChannel);
+		gateway.setErrorChannel(errorChannel);
+		gateway.setReplyTimeout(5000);
+		gateway.setAsync(true);
+		gateway.afterPropertiesSet();
+		AsyncMockHttpServletRequest request = this.createAsyncRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		gateway.handleRequest(request, response);
+
+		Message<?> requestMessage = requestChannel.receive(0);
+		MessageChannel replyErrorChannel = (MessageChannel) requestMessage.getHeaders().getErrorChannel();
+		replyErrorChannel.send(new ErrorMessage(new RuntimeException("planned")));
+		assertTrue(request.asyncContext.completed);
+		assertEquals(200, response.getStatus());
+		assertEquals("handled planned", response.getContentAsString());
+	}
+
+	@Test
+	public void customEndpointFallsBackToSynchronousResponseCallback() throws Exception {
+		DirectChannel requestChannel = new DirectChannel();
+		requestChannel.subscribe(new AbstractReplyProducingMessageHandler() {
+			@Override
+			protected Object handleRequestMessage(Message<?> requestMessage) {
+				return requestMessage.getPayload().toString().toUpperCase();
+			}
+		});
+		ResponseCallbackEndpoint endpoint = new ResponseCallbackEndpoint();
+		endpoint.setBeanFactory(mock(BeanFactory.class));
+		endpoint.setRequestPayloadType(String.class);
+		endpoint.setRequestChannel(requestChannel);
+		// async is not enabled
+		endpoint.afterPropertiesSet();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setMethod("POST");
+		request.addHeader("Content-Type", "text/plain");
+		request.setContent("hello".getBytes());
+		endpoint.handle(request, new MockHttpServletResponse());
+		assertEquals("[HELLO]", endpoint.replies.toString());
+	}
+
+	private HttpRequestHandlingMessagingGateway createAsyncGateway(QueueChannel requestChannel) {
+		HttpRequestHandlingMessagingGateway gateway = new HttpRequestHandlingMessagingGateway(true);
+		gateway.setBeanFactory(mock(BeanFactory.class));
+		gateway.setRequestPayloadType(String.class);
+		gateway.setRequestChannel(requestChannel);
+		gateway.setReplyTimeout(5000);
+		gateway.setAsync(true);
+		gateway.afterPropertiesSet();
+		return gateway;
+	}
+
+	private AsyncMockHttpServletRequest createAsyncRequest() {
+		AsyncMockHttpServletRequest request = new AsyncMockHttpServletRequest();
+		request.setMethod("POST");
+		request.addHeader("Accept", "x-application/octet-stream");
+		request.addHeader("Content-Type", "text/plain");
+		request.setContent("hello".getBytes());
+		return request;
+	}
+
+	private static class ResponseCallbackEndpoint extends HttpRequestHandlingEndpointSupport {
+
+		private final List<Object> replies = new ArrayList<Object>();
+
+		private ResponseCallbackEndpoint() {
+			super(true);
+		}
+
+		private void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+			this.doHandleRequestAsync(request, response, new ResponseCallback() {
+
+				public void generateResponse(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+						Message<?> reply, Throwable failure) {
+					replies.add(failure != null ? failure : reply.getPayload());
+				}
+
+			});
+		}
+
+	}
+
 	private class ContentTypeCheckingMockHttpServletResponse extends MockHttpServletResponse {
 
 		private final List<String> contentTypeList = new ArrayList<String>();
@@ -314,6 +486,107 @@ public class HttpRequestHandlingMessagingGatewayTests extends AbstractHttpInboun
 
 	}
 
+	/**
+	 * The Spring 3.2 {@link MockHttpServletRequest} does not implement the Servlet 3.0 async methods.
+	 */
+	private static class AsyncMockHttpServletRequest extends MockHttpServletRequest {
+
+		private volatile StubAsyncContext asyncContext;
+
+		public boolean isAsyncSupported() {
+			return true;
+		}
+
+		public boolean isAsyncStarted() {
+			return this.asyncContext != null && !this.asyncContext.completed;
+		}
+
+		public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+			this.asyncContext = new StubAsyncContext(servletRequest, servletResponse);
+			return this.asyncContext;
+		}
+
+		public AsyncContext startAsync() {
+			throw new UnsupportedOperationException();
+		}
+
+		public AsyncContext getAsyncContext() {
+			return this.asyncContext;
+		}
+
+	}
+
+	private static class StubAsyncContext implements AsyncContext {
+
+		private final ServletRequest request;
+
+		private final ServletResponse response;
+
+		private volatile AsyncListener listener;
+
+		private volatile long timeout;
+
+		private volatile boolean completed;
+
+		private StubAsyncContext(ServletRequest request, ServletResponse response) {
+			this.request = request;
+			this.response = response;
+		}
+
+		public ServletRequest getRequest() {
+			return this.request;
+		}
+
+		public ServletResponse getResponse() {
+			return this.response;
+		}
+
+		public boolean hasOriginalRequestAndResponse() {
+			return true;
+		}
+
+		public void dispatch() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void dispatch(String path) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void dispatch(ServletContext context, String path) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void complete() {
+			this.completed = true;
+		}
+
+		public void start(Runnable run) {
+			run.run();
+		}
+
+		public void addListener(AsyncListener listener) {
+			this.listener = listener;
+		}
+
+		public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+			this.listener = listener;
+		}
+
+		public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+			throw new UnsupportedOperationException();
+		}
+
+		public void setTimeout(long timeout) {
+			this.timeout = timeout;
+		}
+
+		public long getTimeout() {
+			return this.timeout;
+		}
+
+	}
+
 	private static class TestHttpMessageConverter extends AbstractHttpMessageConverter<Exception> {
 
 		public TestHttpMessageConverter() {
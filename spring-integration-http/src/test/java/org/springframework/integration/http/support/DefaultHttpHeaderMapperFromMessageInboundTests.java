@@ -17,6 +17,7 @@
 package org.springframework.integration.http.support;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -32,6 +33,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
+import org.junit.Ignore;
 import org.junit.Test;
 
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
@@ -45,6 +47,7 @@ import org.springframework.http.MediaType;
 import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StopWatch;
 
 /**
  * @author Oleg Zhurakousky
@@ -571,6 +574,78 @@ public class DefaultHttpHeaderMapperFromMessageInboundTests {
 		assertEquals(c.getTimeInMillis(), result.get("If-Modified-Since"));
 	}
 
+	@Test
+	public void patternsRecompiledAfterChange() {
+		DefaultHttpHeaderMapper mapper = new DefaultHttpHeaderMapper();
+		mapper.setInboundHeaderNames(new String[] {"foo"});
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("foo", "1");
+		headers.set("bar", "2");
+		Map<String, ?> result = mapper.toHeaders(headers);
+		assertEquals("1", result.get("foo"));
+		assertFalse(result.containsKey("bar"));
+
+		mapper.setInboundHeaderNames(new String[] {"bar"});
+		result = mapper.toHeaders(headers);
+		assertFalse(result.containsKey("foo"));
+		assertEquals("2", result.get("bar"));
+	}
+
+	@Test
+	public void wellKnownHeadersIgnoreCase() {
+		DefaultHttpHeaderMapper mapper = DefaultHttpHeaderMapper.inboundMapper();
+		Map<String, Object> messageHeaders = new HashMap<String, Object>();
+		messageHeaders.put("content-type", "text/plain");
+		messageHeaders.put("CACHE-CONTROL", "no-cache");
+		HttpHeaders headers = new HttpHeaders();
+		mapper.fromHeaders(new MessageHeaders(messageHeaders), headers);
+		assertEquals(MediaType.TEXT_PLAIN, headers.getContentType());
+		assertEquals("no-cache", headers.getCacheControl());
+	}
+
+	@Test
+	@Ignore
+	public void performanceTest() {
+		DefaultHttpHeaderMapper mapper = DefaultHttpHeaderMapper.inboundMapper();
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Arrays.asList(MediaType.TEXT_PLAIN, MediaType.APPLICATION_JSON));
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		headers.setContentLength(1234);
+		headers.setCacheControl("no-cache");
+		headers.setPragma("no-cache");
+		headers.setDate(System.currentTimeMillis());
+		headers.set("Host", "localhost:8080");
+		headers.set("User-Agent", "Mozilla/5.0");
+		headers.set("Accept-Encoding", "gzip, deflate");
+		headers.set("Accept-Language", "en-US,en;q=0.8");
+		headers.set("Connection", "keep-alive");
+		headers.set("Referer", "http://localhost:8080/");
+		headers.set("Cookie", "JSESSIONID=1234");
+		headers.set("Authorization", "Basic Zm9vOmJhcg==");
+		for (int i = 0; i < 16; i++) {
+			headers.set("X-Custom-" + i, "value" + i);
+		}
+		Map<String, Object> replyHeaders = new HashMap<String, Object>();
+		replyHeaders.put("Content-Type", "application/json");
+		replyHeaders.put("Cache-Control", "no-cache");
+		replyHeaders.put("ETag", "\"1234\"");
+		replyHeaders.put("Location", "http://localhost:8080/foo");
+		for (int i = 0; i < 26; i++) {
+			replyHeaders.put("foo" + i, "bar" + i);
+		}
+		MessageHeaders messageHeaders = new MessageHeaders(replyHeaders);
+		int times = 100000;
+		StopWatch watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < times; i++) {
+			mapper.toHeaders(headers);
+			mapper.fromHeaders(messageHeaders, new HttpHeaders());
+		}
+		watch.stop();
+		System.out.println("Mapped " + times + " requests and replies with 30 headers in "
+				+ watch.getTotalTimeSeconds() + " seconds");
+	}
+
 	public static class TestClass {
 
 	}
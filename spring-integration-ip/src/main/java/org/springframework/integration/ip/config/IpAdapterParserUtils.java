@@ -70,6 +70,10 @@ public abstract class IpAdapterParserUtils {
 
 	static final String USING_DIRECT_BUFFERS = "using-direct-buffers";
 
+	static final String READ_SELECTOR_COUNT = "read-selector-count";
+
+	static final String READ_BUFFER_SIZE = "read-buffer-size";
+
 	static final String MESSAGE_FORMAT = "message-format";
 
 	static final String SO_LINGER = "so-linger";
@@ -90,6 +94,8 @@ public abstract class IpAdapterParserUtils {
 
 	static final String SINGLE_USE = "single-use";
 
+	static final String COALESCE_WRITES = "coalesce-writes";
+
 	static final String TCP_CONNECTION_FACTORY = "connection-factory";
 
 	public static final String INTERCEPTOR_FACTORY_CHAIN = "interceptor-factory-chain";
@@ -122,6 +128,16 @@ public abstract class IpAdapterParserUtils {
 
 	public static final String MAPPER = "mapper";
 
+	public static final String MULTIPLEX = "multiplex";
+
+	public static final String CORRELATION_STRATEGY = "correlation-strategy";
+
+	public static final String RECEIVER_COUNT = "receiver-count";
+
+	public static final String BATCH_SIZE = "batch-size";
+
+	public static final String BUFFER_COUNT = "buffer-count";
+
 	private IpAdapterParserUtils() {}
 
 	/**
@@ -87,6 +87,8 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 
 	private volatile boolean singleUse;
 
+	private volatile boolean coalesceWrites;
+
 	private volatile int backlog = 5;
 
 	private volatile TcpConnectionInterceptorFactoryChain interceptorFactoryChain;
@@ -99,6 +101,10 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 
 	private volatile boolean usingDirectBuffers;
 
+	private volatile int readSelectorCount;
+
+	private volatile int readBufferSize;
+
 	private volatile String beanName;
 
 	private volatile boolean applySequence;
@@ -127,6 +133,10 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 				this.setCommonAttributes(connectionFactory);
 				this.setServerAttributes(connectionFactory);
 				connectionFactory.setUsingDirectBuffers(this.usingDirectBuffers);
+				connectionFactory.setReadSelectorCount(this.readSelectorCount);
+				if (this.readBufferSize > 0) {
+					connectionFactory.setReadBufferSize(this.readBufferSize);
+				}
 				connectionFactory.setTcpNioConnectionSupport(this.obtainNioConnectionSupport());
 				this.connectionFactory = connectionFactory;
 			} else {
@@ -163,6 +173,7 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 		factory.setMapper(this.mapper);
 		factory.setSerializer(this.serializer);
 		factory.setSingleUse(this.singleUse);
+		factory.setCoalesceWrites(this.coalesceWrites);
 		factory.setSoKeepAlive(this.soKeepAlive);
 		factory.setSoLinger(this.soLinger);
 		factory.setSoReceiveBufferSize(this.soReceiveBufferSize);
@@ -322,6 +333,22 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 		this.usingDirectBuffers = usingDirectBuffers;
 	}
 
+	/**
+	 * @param readSelectorCount
+	 * @see org.springframework.integration.ip.tcp.connection.TcpNioServerConnectionFactory#setReadSelectorCount(int)
+	 */
+	public void setReadSelectorCount(int readSelectorCount) {
+		this.readSelectorCount = readSelectorCount;
+	}
+
+	/**
+	 * @param readBufferSize
+	 * @see org.springframework.integration.ip.tcp.connection.TcpNioServerConnectionFactory#setReadBufferSize(int)
+	 */
+	public void setReadBufferSize(int readBufferSize) {
+		this.readBufferSize = readBufferSize;
+	}
+
 	/**
 	 * @param taskExecutor
 	 * @see org.springframework.integration.ip.tcp.connection.AbstractConnectionFactory#setTaskExecutor(java.util.concurrent.Executor)
@@ -366,6 +393,14 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 		this.singleUse = singleUse;
 	}
 
+	/**
+	 * @param coalesceWrites
+	 * @see org.springframework.integration.ip.tcp.connection.AbstractConnectionFactory#setCoalesceWrites(boolean)
+	 */
+	public void setCoalesceWrites(boolean coalesceWrites) {
+		this.coalesceWrites = coalesceWrites;
+	}
+
 	/**
 	 * @param backlog
 	 * @see AbstractServerConnectionFactory#setBacklog(int)
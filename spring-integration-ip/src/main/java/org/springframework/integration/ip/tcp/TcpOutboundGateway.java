@@ -16,6 +16,10 @@
 
 package org.springframework.integration.ip.tcp;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -27,6 +31,7 @@ import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.MessageTimeoutException;
 import org.springframework.integration.MessagingException;
+import org.springframework.integration.aggregator.CorrelationStrategy;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
 import org.springframework.integration.ip.IpHeaders;
 import org.springframework.integration.ip.tcp.connection.AbstractClientConnectionFactory;
@@ -41,8 +46,17 @@ import org.springframework.util.Assert;
  * TCP outbound gateway that uses a client connection factory. If the factory is configured
  * for single-use connections, each request is sent on a new connection; if the factory does not use
  * single use connections, each request is blocked until the previous response is received
- * (or times out). Asynchronous requests/responses over the same connection are not
- * supported - use a pair of outbound/inbound adapters for that use case.
+ * (or times out).
+ * <p>
+ * Alternatively, when 'multiplex' is true, requests are not serialized: each request is
+ * written to the shared connection as soon as it arrives, without waiting for the replies
+ * to earlier requests, and each waits independently (up to the remote timeout) for its
+ * own reply. If a {@link CorrelationStrategy} is provided, it is used to obtain a key from
+ * both the request and the reply and replies are matched to requests by key, in any
+ * order; otherwise the server must reply in the order the requests were received, and
+ * replies are matched to requests in that order. When requests are matched in order, a
+ * timeout leaves the connection in an unknown state, so the connection is closed and any
+ * other requests awaiting a reply on it fail.
  * <p>
  * {@link SmartLifecycle} methods delegate to the underlying {@link AbstractConnectionFactory}
  *
@@ -68,6 +82,12 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 
 	private volatile int phase;
 
+	private volatile boolean multiplex;
+
+	private volatile CorrelationStrategy correlationStrategy;
+
+	private final Map<String, PendingReplies> multiplexedReplies = new ConcurrentHashMap<String, PendingReplies>();
+
 	/**
 	 * @param requestTimeout the requestTimeout to set
 	 */
@@ -83,6 +103,28 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 		this.remoteTimeoutSet = true;
 	}
 
+	/**
+	 * Set to true to allow multiple requests to be outstanding on the shared connection
+	 * at the same time. Requires a connection factory that does not use single-use
+	 * connections. Default false.
+	 * @param multiplex true to multiplex requests on the shared connection.
+	 * @since 3.0
+	 */
+	public void setMultiplex(boolean multiplex) {
+		this.multiplex = multiplex;
+	}
+
+	/**
+	 * Provide a strategy to obtain a correlation key from both the request and the reply,
+	 * used to match replies to requests when 'multiplex' is true. If not provided, the
+	 * replies are expected in the same order as the requests.
+	 * @param correlationStrategy the correlation strategy.
+	 * @since 3.0
+	 */
+	public void setCorrelationStrategy(CorrelationStrategy correlationStrategy) {
+		this.correlationStrategy = correlationStrategy;
+	}
+
 	@Override
 	public void setSendTimeout(long sendTimeout) {
 		super.setSendTimeout(sendTimeout);
@@ -100,6 +142,9 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 	protected Object handleRequestMessage(Message<?> requestMessage) {
 		Assert.notNull(connectionFactory, this.getClass().getName() +
 				" requires a client connection factory");
+		if (this.multiplex) {
+			return this.handleMultiplexedRequestMessage(requestMessage);
+		}
 		boolean haveSemaphore = false;
 		String connectionId = null;
 		try {
@@ -156,6 +201,71 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 		}
 	}
 
+	private Object handleMultiplexedRequestMessage(Message<?> requestMessage) {
+		Assert.state(!this.connectionFactory.isSingleUse(),
+				"'multiplex' requires a connection factory that does not use single-use connections");
+		PendingReplies pending = null;
+		Object correlationKey = null;
+		AsyncReply reply = new AsyncReply(false);
+		try {
+			TcpConnection connection = this.connectionFactory.getConnection();
+			pending = this.obtainPendingReplies(connection.getConnectionId());
+			if (this.correlationStrategy != null) {
+				correlationKey = this.correlationStrategy.getCorrelationKey(requestMessage);
+				if (correlationKey == null) {
+					throw new MessagingException(requestMessage, "The correlation strategy returned a null key");
+				}
+				pending.add(correlationKey, reply, requestMessage);
+				connection.send(requestMessage);
+			}
+			else {
+				// the order of the pending replies must be the order the requests are written in
+				synchronized (pending) {
+					pending.add(null, reply, requestMessage);
+					connection.send(requestMessage);
+				}
+			}
+			Message<?> replyMessage = reply.getReply();
+			if (replyMessage == null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Remote Timeout on " + connection.getConnectionId());
+				}
+				if (this.correlationStrategy == null) {
+					// A reply is still due for this request; later replies cannot be matched.
+					this.connectionFactory.forceClose(connection);
+				}
+				throw new MessageTimeoutException(requestMessage, "Timed out waiting for response");
+			}
+			return replyMessage;
+		}
+		catch (Exception e) {
+			logger.error("Tcp Gateway exception", e);
+			if (e instanceof MessagingException) {
+				throw (MessagingException) e;
+			}
+			throw new MessagingException("Failed to send or receive", e);
+		}
+		finally {
+			if (pending != null) {
+				pending.remove(correlationKey, reply);
+			}
+		}
+	}
+
+	private PendingReplies obtainPendingReplies(String connectionId) {
+		PendingReplies pending = this.multiplexedReplies.get(connectionId);
+		if (pending == null) {
+			synchronized (this.multiplexedReplies) {
+				pending = this.multiplexedReplies.get(connectionId);
+				if (pending == null) {
+					pending = new PendingReplies(connectionId);
+					this.multiplexedReplies.put(connectionId, pending);
+				}
+			}
+		}
+		return pending;
+	}
+
 	public boolean onMessage(Message<?> message) {
 		String connectionId = (String) message.getHeaders().get(IpHeaders.CONNECTION_ID);
 		if (connectionId == null) {
@@ -165,6 +275,10 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 		if (logger.isTraceEnabled()) {
 			logger.trace("onMessage: " + connectionId + "(" + message + ")");
 		}
+		if (this.multiplex) {
+			this.onMultiplexedMessage(connectionId, message);
+			return false;
+		}
 		AsyncReply reply = pendingReplies.get(connectionId);
 		if (reply == null) {
 			if (message instanceof ErrorMessage) {
@@ -183,6 +297,35 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 		return false;
 	}
 
+	private void onMultiplexedMessage(String connectionId, Message<?> message) {
+		PendingReplies pending = this.multiplexedReplies.get(connectionId);
+		if (message instanceof ErrorMessage) {
+			// The connection is no longer usable; fail all requests waiting on it.
+			if (pending != null) {
+				this.multiplexedReplies.remove(connectionId);
+				pending.failAll(message);
+			}
+			return;
+		}
+		AsyncReply reply = null;
+		if (pending != null) {
+			if (this.correlationStrategy != null) {
+				Object correlationKey = this.correlationStrategy.getCorrelationKey(message);
+				if (correlationKey != null) {
+					reply = pending.take(correlationKey);
+				}
+			}
+			else {
+				reply = pending.take(null);
+			}
+		}
+		if (reply == null) {
+			logger.error("Cannot correlate response - no pending reply for " + message);
+			return;
+		}
+		reply.setReply(message);
+	}
+
 	public void setConnectionFactory(AbstractConnectionFactory connectionFactory) {
 		// TODO: In 3.0 Change parameter type to AbstractClientConnectionFactory
 		Assert.isTrue(connectionFactory instanceof AbstractClientConnectionFactory,
@@ -197,7 +340,11 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 	}
 
 	public void removeDeadConnection(TcpConnection connection) {
-		// do nothing - no asynchronous multiplexing supported
+		PendingReplies pending = this.multiplexedReplies.remove(connection.getConnectionId());
+		if (pending != null) {
+			pending.failAll(new ErrorMessage(new MessagingException("Connection " + connection.getConnectionId()
+					+ " closed while awaiting reply")));
+		}
 	}
 
 	/**
@@ -263,11 +410,18 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 
 		private final CountDownLatch secondChanceLatch;
 
+		private final boolean waitForMessageAfterError;
+
 		private volatile Message<?> reply;
 
 		public AsyncReply() {
+			this(true);
+		}
+
+		public AsyncReply(boolean waitForMessageAfterError) {
 			this.latch = new CountDownLatch(1);
 			this.secondChanceLatch = new CountDownLatch(1);
+			this.waitForMessageAfterError = waitForMessageAfterError;
 		}
 
 		/**
@@ -284,7 +438,7 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 			catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
 			}
-			boolean waitForMessageAfterError = true;
+			boolean waitForMessageAfterError = this.waitForMessageAfterError;
 			while (reply instanceof ErrorMessage) {
 				if (waitForMessageAfterError) {
 					/*
@@ -322,4 +476,64 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler imp
 		}
 	}
 
+	/**
+	 * The requests awaiting a reply on a multiplexed connection; keyed by correlation
+	 * key or, when there is no correlation strategy, in the order they were sent.
+	 */
+	private class PendingReplies {
+
+		private final String connectionId;
+
+		private final Map<Object, AsyncReply> replies = new HashMap<Object, AsyncReply>();
+
+		private final LinkedList<AsyncReply> orderedReplies = new LinkedList<AsyncReply>();
+
+		private PendingReplies(String connectionId) {
+			this.connectionId = connectionId;
+		}
+
+		private synchronized void add(Object correlationKey, AsyncReply reply, Message<?> requestMessage) {
+			if (correlationKey == null) {
+				this.orderedReplies.add(reply);
+			}
+			else if (this.replies.containsKey(correlationKey)) {
+				throw new MessagingException(requestMessage, "A request with correlation key [" + correlationKey
+						+ "] is already awaiting a reply on connection " + this.connectionId);
+			}
+			else {
+				this.replies.put(correlationKey, reply);
+			}
+		}
+
+		private synchronized AsyncReply take(Object correlationKey) {
+			if (correlationKey == null) {
+				return this.orderedReplies.poll();
+			}
+			return this.replies.remove(correlationKey);
+		}
+
+		private synchronized void remove(Object correlationKey, AsyncReply reply) {
+			if (correlationKey == null) {
+				this.orderedReplies.remove(reply);
+			}
+			else if (this.replies.get(correlationKey) == reply) {
+				this.replies.remove(correlationKey);
+			}
+		}
+
+		private void failAll(Message<?> errorMessage) {
+			List<AsyncReply> replies;
+			synchronized (this) {
+				replies = new ArrayList<AsyncReply>(this.replies.values());
+				replies.addAll(this.orderedReplies);
+				this.replies.clear();
+				this.orderedReplies.clear();
+			}
+			for (AsyncReply reply : replies) {
+				reply.setReply(errorMessage);
+			}
+		}
+
+	}
+
 }
@@ -137,6 +137,7 @@ public abstract class AbstractClientConnectionFactory extends AbstractConnection
 		connection.setDeserializer(this.getDeserializer());
 		connection.setSerializer(this.getSerializer());
 		connection.setSingleUse(this.isSingleUse());
+		connection.setCoalesceWrites(this.isCoalesceWrites());
 	}
 
 	/**
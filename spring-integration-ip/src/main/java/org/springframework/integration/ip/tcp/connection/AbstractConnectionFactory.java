@@ -95,6 +95,8 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 
 	private volatile boolean singleUse;
 
+	private volatile boolean coalesceWrites;
+
 	private volatile boolean active;
 
 	private volatile TcpConnectionInterceptorFactoryChain interceptorFactoryChain;
@@ -376,6 +378,25 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 		this.singleUse = singleUse;
 	}
 
+	/**
+	 * @return true if connections combine messages sent concurrently into a single write.
+	 * @since 3.0
+	 */
+	public boolean isCoalesceWrites() {
+		return this.coalesceWrites;
+	}
+
+	/**
+	 * If true, messages sent concurrently on a connection created by this factory are
+	 * combined into a single write while another write is in progress.
+	 * @param coalesceWrites true to coalesce writes.
+	 * @since 3.0
+	 * @see TcpConnectionSupport#setCoalesceWrites(boolean)
+	 */
+	public void setCoalesceWrites(boolean coalesceWrites) {
+		this.coalesceWrites = coalesceWrites;
+	}
+
 
 	public void setInterceptorFactoryChain(TcpConnectionInterceptorFactoryChain interceptorFactoryChain) {
 		this.interceptorFactoryChain = interceptorFactoryChain;
@@ -409,6 +430,14 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 		this.nioHarvestInterval = nioHarvestInterval;
 	}
 
+	/**
+	 * @return the interval at which closed NIO connections are cleaned up.
+	 * @since 3.0
+	 */
+	protected int getNioHarvestInterval() {
+		return this.nioHarvestInterval;
+	}
+
 	/**
 	 * Closes the server.
 	 */
@@ -524,40 +553,7 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 				now >= this.nextCheckForClosedNioConnections ||
 				selectionCount == 0) {
 			this.nextCheckForClosedNioConnections = now + this.nioHarvestInterval;
-			Iterator<Entry<SocketChannel, TcpNioConnection>> it = connections.entrySet().iterator();
-			while (it.hasNext()) {
-				SocketChannel channel = it.next().getKey();
-				if (!channel.isOpen()) {
-					logger.debug("Removing closed channel");
-					it.remove();
-				}
-				else if (soTimeout > 0) {
-					TcpNioConnection connection = connections.get(channel);
-					if (now - connection.getLastRead() >= this.soTimeout) {
-						/*
-						 * For client connections, we have to wait for 2 timeouts if the last
-						 * send was within the current timeout.
-						 */
-						if (!connection.isServer() &&
-							now - connection.getLastSend() < this.soTimeout &&
-							now - connection.getLastRead() < this.soTimeout * 2)
-						{
-							if (logger.isDebugEnabled()) {
-								logger.debug("Skipping a connection timeout because we have a recent send "
-										+ connection.getConnectionId());
-							}
-						}
-						else {
-							if (logger.isWarnEnabled()) {
-								logger.warn("Timing out TcpNioConnection " +
-										    connection.getConnectionId());
-							}
-							connection.publishConnectionExceptionEvent(new SocketTimeoutException("Timing out connection"));
-							connection.timeout();
-						}
-					}
-				}
-			}
+			this.checkNioConnections(connections, now);
 		}
 		this.harvestClosedConnections();
 		if (logger.isTraceEnabled()) {
@@ -567,6 +563,63 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 				logger.trace("Host " + this.host + " port " + this.port + " SelectionCount: " + selectionCount);
 			}
 		}
+		this.processNioKeys(selectionCount, selector, server, now);
+	}
+
+	/**
+	 * Removes closed channels from the connections map and, if {@code soTimeout > 0},
+	 * times out connections that have not been read within that time.
+	 * @param connections Map of connections
+	 * @param now the current time
+	 * @since 3.0
+	 */
+	protected void checkNioConnections(Map<SocketChannel, TcpNioConnection> connections, long now) {
+		Iterator<Entry<SocketChannel, TcpNioConnection>> it = connections.entrySet().iterator();
+		while (it.hasNext()) {
+			SocketChannel channel = it.next().getKey();
+			if (!channel.isOpen()) {
+				logger.debug("Removing closed channel");
+				it.remove();
+			}
+			else if (soTimeout > 0) {
+				TcpNioConnection connection = connections.get(channel);
+				if (now - connection.getLastRead() >= this.soTimeout) {
+					/*
+					 * For client connections, we have to wait for 2 timeouts if the last
+					 * send was within the current timeout.
+					 */
+					if (!connection.isServer() &&
+						now - connection.getLastSend() < this.soTimeout &&
+						now - connection.getLastRead() < this.soTimeout * 2)
+					{
+						if (logger.isDebugEnabled()) {
+							logger.debug("Skipping a connection timeout because we have a recent send "
+									+ connection.getConnectionId());
+						}
+					}
+					else {
+						if (logger.isWarnEnabled()) {
+							logger.warn("Timing out TcpNioConnection " +
+									    connection.getConnectionId());
+						}
+						connection.publishConnectionExceptionEvent(new SocketTimeoutException("Timing out connection"));
+						connection.timeout();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Processes the selected keys, if {@code selectionCount > 0}; reads are performed
+	 * using the task executor, after which the read interest is restored.
+	 * @param selectionCount Number of IO Events
+	 * @param selector The selector
+	 * @param server The server channel, or null if the selector has no accept interest
+	 * @param now the current time
+	 * @since 3.0
+	 */
+	protected void processNioKeys(int selectionCount, final Selector selector, ServerSocketChannel server, long now) {
 		if (selectionCount > 0) {
 			Set<SelectionKey> keys = selector.selectedKeys();
 			Iterator<SelectionKey> iterator = keys.iterator();
@@ -109,6 +109,7 @@ public abstract class AbstractServerConnectionFactory
 		connection.setDeserializer(this.getDeserializer());
 		connection.setSerializer(this.getSerializer());
 		connection.setSingleUse(this.isSingleUse());
+		connection.setCoalesceWrites(this.isCoalesceWrites());
 		/*
 		 * If we are configured
 		 * for single use; need to enforce a timeout on the socket so we will close
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.connection;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * A pool of {@link ByteBuffer}s of the same size. A {@link TcpNioConnection} with a
+ * pool only holds a read buffer while data is being read, instead of for its whole
+ * life, so the memory used for reading is bounded by the number of concurrent reads
+ * rather than by the number of connections. At most 'maxIdle' released buffers are
+ * retained; others are discarded.
+ * <p>
+ * Unlike {@link org.springframework.integration.util.SimplePool}, buffers are not
+ * tracked while in use, since their equality depends on their content.
+ *
+ * @since 3.0
+ */
+public class ByteBufferPool {
+
+	private final int bufferSize;
+
+	private final boolean direct;
+
+	private final int maxIdle;
+
+	private final Queue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private final AtomicInteger idleCount = new AtomicInteger();
+
+	private final AtomicLong allocationCount = new AtomicLong();
+
+	/**
+	 * @param bufferSize the size of each buffer.
+	 * @param direct true to allocate direct buffers.
+	 * @param maxIdle the maximum number of idle buffers retained.
+	 */
+	public ByteBufferPool(int bufferSize, boolean direct, int maxIdle) {
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be > 0");
+		Assert.isTrue(maxIdle >= 0, "'maxIdle' must be >= 0");
+		this.bufferSize = bufferSize;
+		this.direct = direct;
+		this.maxIdle = maxIdle;
+	}
+
+	/**
+	 * @return an idle buffer, cleared, or a new buffer if none is idle.
+	 */
+	public ByteBuffer obtain() {
+		ByteBuffer buffer = this.idleBuffers.poll();
+		if (buffer != null) {
+			this.idleCount.decrementAndGet();
+			return buffer;
+		}
+		this.allocationCount.incrementAndGet();
+		return this.direct ? ByteBuffer.allocateDirect(this.bufferSize) : ByteBuffer.allocate(this.bufferSize);
+	}
+
+	/**
+	 * Return a buffer to the pool; the buffer must no longer be used by the caller.
+	 * @param buffer the buffer.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer.capacity() != this.bufferSize) {
+			return;
+		}
+		if (this.idleCount.incrementAndGet() > this.maxIdle) {
+			this.idleCount.decrementAndGet();
+			return;
+		}
+		buffer.clear();
+		this.idleBuffers.offer(buffer);
+	}
+
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	/**
+	 * @return the number of idle buffers.
+	 */
+	public int getIdleCount() {
+		return this.idleCount.get();
+	}
+
+	/**
+	 * @return the number of buffers allocated by this pool since it was created.
+	 */
+	public long getAllocationCount() {
+		return this.allocationCount.get();
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.connection;
+
+/**
+ * A snapshot of the activity of one of the selectors of a
+ * {@link TcpNioServerConnectionFactory}. The loop time is the time taken to process
+ * the keys returned by one select operation (including the connection housekeeping
+ * done on the selector thread), and excludes the time spent waiting in the select.
+ *
+ * @since 3.0
+ */
+public class NioSelectorStatistics {
+
+	private final int connectionCount;
+
+	private final long loopCount;
+
+	private final double meanLoopTime;
+
+	private final double maxLoopTime;
+
+	private final int idleBufferCount;
+
+	private final long bufferAllocationCount;
+
+	public NioSelectorStatistics(int connectionCount, long loopCount, double meanLoopTime, double maxLoopTime,
+			int idleBufferCount, long bufferAllocationCount) {
+		this.connectionCount = connectionCount;
+		this.loopCount = loopCount;
+		this.meanLoopTime = meanLoopTime;
+		this.maxLoopTime = maxLoopTime;
+		this.idleBufferCount = idleBufferCount;
+		this.bufferAllocationCount = bufferAllocationCount;
+	}
+
+	/**
+	 * @return the number of connections registered with the selector.
+	 */
+	public int getConnectionCount() {
+		return this.connectionCount;
+	}
+
+	/**
+	 * @return the number of times the selector returned from a select operation.
+	 */
+	public long getLoopCount() {
+		return this.loopCount;
+	}
+
+	/**
+	 * @return the mean loop time in milliseconds.
+	 */
+	public double getMeanLoopTime() {
+		return this.meanLoopTime;
+	}
+
+	/**
+	 * @return the maximum loop time in milliseconds.
+	 */
+	public double getMaxLoopTime() {
+		return this.maxLoopTime;
+	}
+
+	/**
+	 * @return the number of idle read buffers in the selector's pool; 0 if buffers are
+	 * not pooled.
+	 */
+	public int getIdleBufferCount() {
+		return this.idleBufferCount;
+	}
+
+	/**
+	 * @return the number of read buffers allocated by the selector's pool; 0 if buffers
+	 * are not pooled.
+	 */
+	public long getBufferAllocationCount() {
+		return this.bufferAllocationCount;
+	}
+
+	@Override
+	public String toString() {
+		return "NioSelectorStatistics [connectionCount=" + this.connectionCount + ", loopCount=" + this.loopCount
+				+ ", meanLoopTime=" + this.meanLoopTime + ", maxLoopTime=" + this.maxLoopTime
+				+ ", idleBufferCount=" + this.idleBufferCount + ", bufferAllocationCount="
+				+ this.bufferAllocationCount + "]";
+	}
+
+}
@@ -114,6 +114,11 @@ public abstract class TcpConnectionInterceptorSupport extends TcpConnectionSuppo
 		this.theConnection.setSingleUse(singleUse);
 	}
 
+	@Override
+	public void setCoalesceWrites(boolean coalesceWrites) {
+		this.theConnection.setCoalesceWrites(coalesceWrites);
+	}
+
 	@Override
 	public void setMapper(TcpMessageMapper mapper) {
 		this.theConnection.setMapper(mapper);
@@ -16,12 +16,19 @@
 
 package org.springframework.integration.ip.tcp.connection;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -88,6 +95,14 @@ public abstract class TcpConnectionSupport implements TcpConnection {
 
 	private volatile boolean noReadErrorOnClose;
 
+	private volatile boolean coalesceWrites;
+
+	private final Object writeMonitor = new Object();
+
+	private final WriteBuffer writeBuffer = new WriteBuffer();
+
+	private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<PendingWrite>();
+
 	public TcpConnectionSupport() {
 		this(null);
 	}
@@ -139,6 +154,85 @@ public abstract class TcpConnectionSupport implements TcpConnection {
 		}
 	}
 
+	/**
+	 * Serialize the object and write it to the output stream with a single write; the
+	 * serializer writes into a buffer that is reused for each message. When
+	 * 'coalesceWrites' is true, messages sent concurrently while a write is in progress
+	 * are combined and written together by the next writer.
+	 * @param object the object to serialize.
+	 * @param outputStream the output stream of the connection.
+	 * @throws IOException if the serialization or the write fails.
+	 * @since 3.0
+	 */
+	@SuppressWarnings("unchecked")
+	protected void serializeAndWrite(Object object, OutputStream outputStream) throws IOException {
+		Serializer<Object> serializer = (Serializer<Object>) this.getSerializer();
+		if (!this.coalesceWrites) {
+			synchronized (this.writeMonitor) {
+				try {
+					serializer.serialize(object, this.writeBuffer);
+					this.writeBuffer.writeTo(outputStream);
+				}
+				finally {
+					this.writeBuffer.clear();
+				}
+			}
+			return;
+		}
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		serializer.serialize(object, serialized);
+		PendingWrite write = new PendingWrite(serialized.toByteArray());
+		this.pendingWrites.add(write);
+		synchronized (this.writeMonitor) {
+			if (!write.written) {
+				this.writePending(outputStream);
+			}
+		}
+		if (write.exception != null) {
+			throw write.exception;
+		}
+	}
+
+	/**
+	 * Write all the pending writes, including those added by other threads while
+	 * the previous write was in progress. Must be called holding the write monitor.
+	 */
+	private void writePending(OutputStream outputStream) {
+		List<PendingWrite> batch = new ArrayList<PendingWrite>();
+		PendingWrite write;
+		while ((write = this.pendingWrites.poll()) != null) {
+			batch.add(write);
+			this.writeBuffer.write(write.bytes, 0, write.bytes.length);
+		}
+		IOException exception = null;
+		try {
+			this.writeBuffer.writeTo(outputStream);
+		}
+		catch (IOException e) {
+			exception = e;
+		}
+		finally {
+			this.writeBuffer.clear();
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace(this.getConnectionId() + " wrote " + batch.size() + " message(s)");
+		}
+		for (PendingWrite pendingWrite : batch) {
+			pendingWrite.exception = exception;
+			pendingWrite.written = true;
+		}
+	}
+
+	/**
+	 * Set to true to combine messages sent concurrently on this connection into a
+	 * single write. Default false.
+	 * @param coalesceWrites true to coalesce writes.
+	 * @since 3.0
+	 */
+	public void setCoalesceWrites(boolean coalesceWrites) {
+		this.coalesceWrites = coalesceWrites;
+	}
+
 	public void afterSend(Message<?> message) throws Exception {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Message sent " + message);
@@ -394,4 +488,51 @@ public abstract class TcpConnectionSupport implements TcpConnection {
 		}
 	}
 
+
+	/**
+	 * A {@link ByteArrayOutputStream} that is reused for each write; a buffer that has
+	 * grown beyond MAX_RETAINED_SIZE for a large message is discarded after the write.
+	 */
+	private static class WriteBuffer extends ByteArrayOutputStream {
+
+		private static final int INITIAL_SIZE = 1024;
+
+		private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+		public WriteBuffer() {
+			super(INITIAL_SIZE);
+		}
+
+		@Override
+		public synchronized void writeTo(OutputStream outputStream) throws IOException {
+			outputStream.write(this.buf, 0, this.count);
+			outputStream.flush();
+		}
+
+		public synchronized void clear() {
+			this.reset();
+			if (this.buf.length > MAX_RETAINED_SIZE) {
+				this.buf = new byte[INITIAL_SIZE];
+			}
+		}
+
+	}
+
+	/**
+	 * A serialized message waiting to be written when 'coalesceWrites' is true.
+	 */
+	private static class PendingWrite {
+
+		private final byte[] bytes;
+
+		private volatile boolean written;
+
+		private volatile IOException exception;
+
+		private PendingWrite(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+	}
+
 }
@@ -22,7 +22,6 @@ import java.net.SocketTimeoutException;
 
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.serializer.Deserializer;
-import org.springframework.core.serializer.Serializer;
 import org.springframework.integration.Message;
 import org.springframework.integration.ip.tcp.serializer.SoftEndOfStreamException;
 
@@ -91,12 +90,11 @@ public class TcpNetConnection extends TcpConnectionSupport {
 		return !this.socket.isClosed();
 	}
 
-	@SuppressWarnings("unchecked")
-	public synchronized void send(Message<?> message) throws Exception {
+	public void send(Message<?> message) throws Exception {
 		Object object = this.getMapper().fromMessage(message);
 		this.lastSend = System.currentTimeMillis();
 		try {
-			((Serializer<Object>) this.getSerializer()).serialize(object, this.socket.getOutputStream());
+			this.serializeAndWrite(object, this.socket.getOutputStream());
 		}
 		catch (Exception e) {
 			this.publishConnectionExceptionEvent(e);
@@ -34,7 +34,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.core.serializer.Serializer;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.ip.tcp.serializer.SoftEndOfStreamException;
@@ -51,6 +50,8 @@ public class TcpNioConnection extends TcpConnectionSupport {
 
 	private static final long DEFAULT_PIPE_TIMEOUT = 60000;
 
+	static final int DEFAULT_READ_BUFFER_SIZE = 60 * 1024;
+
 	private final SocketChannel socketChannel;
 
 	private final ChannelOutputStream channelOutputStream;
@@ -63,7 +64,9 @@ public class TcpNioConnection extends TcpConnectionSupport {
 
 	private volatile ByteBuffer rawBuffer;
 
-	private volatile int maxMessageSize = 60 * 1024;
+	private volatile ByteBufferPool bufferPool;
+
+	private volatile int maxMessageSize = DEFAULT_READ_BUFFER_SIZE;
 
 	private volatile long lastRead;
 
@@ -132,21 +135,18 @@ public class TcpNioConnection extends TcpConnectionSupport {
 		return this.socketChannel.isOpen();
 	}
 
-	@SuppressWarnings("unchecked")
 	public void send(Message<?> message) throws Exception {
-		synchronized(this.socketChannel) {
-			Object object = this.getMapper().fromMessage(message);
-			this.lastSend = System.currentTimeMillis();
-			try {
-				((Serializer<Object>) this.getSerializer()).serialize(object, this.getChannelOutputStream());
-			}
-			catch (Exception e) {
-				this.publishConnectionExceptionEvent(e);
-				this.closeConnection(true);
-				throw e;
-			}
-			this.afterSend(message);
+		Object object = this.getMapper().fromMessage(message);
+		this.lastSend = System.currentTimeMillis();
+		try {
+			this.serializeAndWrite(object, this.getChannelOutputStream());
+		}
+		catch (Exception e) {
+			this.publishConnectionExceptionEvent(e);
+			this.closeConnection(true);
+			throw e;
 		}
+		this.afterSend(message);
 	}
 
 	public Object getPayload() throws Exception {
@@ -321,7 +321,7 @@ public class TcpNioConnection extends TcpConnectionSupport {
 
 	private void doRead() throws Exception {
 		if (this.rawBuffer == null) {
-			this.rawBuffer = allocate(maxMessageSize);
+			this.rawBuffer = (this.bufferPool != null ? this.bufferPool.obtain() : allocate(maxMessageSize));
 		}
 
 		this.writingToPipe = true;
@@ -372,6 +372,12 @@ public class TcpNioConnection extends TcpConnectionSupport {
 				throw new MessagingException("Timed out writing to ChannelInputStream, probably due to insufficient threads in " +
 						"a fixed thread pool; consider increasing this task executor pool size");
 			}
+			if (this.bufferPool != null && this.rawBuffer.position() == 0) {
+				// nothing is left over for the next read (such as a partial SSL packet)
+				ByteBuffer buffer = this.rawBuffer;
+				this.rawBuffer = null;
+				this.bufferPool.release(buffer);
+			}
 		}
 		catch (Exception e) {
 			this.publishConnectionExceptionEvent(e);
@@ -458,6 +464,16 @@ public class TcpNioConnection extends TcpConnectionSupport {
 		return usingDirectBuffers;
 	}
 
+	/**
+	 * Set a pool from which the read buffer is obtained before each read, and to which
+	 * it is returned when all the data read has been consumed.
+	 * @param bufferPool the pool.
+	 * @since 3.0
+	 */
+	public void setBufferPool(ByteBufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
 	protected ChannelOutputStream getChannelOutputStream() {
 		return channelOutputStream;
 	}
@@ -495,12 +511,14 @@ public class TcpNioConnection extends TcpConnectionSupport {
 
 		private int soTimeout;
 
+		private final ByteBuffer singleByte = ByteBuffer.allocate(1);
+
 		@Override
-		public void write(int b) throws IOException {
-			byte[] bytes = new byte[1];
-			bytes[0] = (byte) b;
-			ByteBuffer buffer = ByteBuffer.wrap(bytes);
-			doWrite(buffer);
+		public synchronized void write(int b) throws IOException {
+			this.singleByte.clear();
+			this.singleByte.put((byte) b);
+			this.singleByte.flip();
+			doWrite(this.singleByte);
 		}
 
 		@Override
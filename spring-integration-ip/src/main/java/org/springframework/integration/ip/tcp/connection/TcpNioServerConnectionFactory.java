@@ -27,15 +27,30 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.util.Assert;
 
-/**
 /**
  * Implements a server connection factory that produces {@link TcpNioConnection}s using
  * a {@link ServerSocketChannel}. Must have a {@link TcpListener} registered.
+ * <p>
+ * By default, a single selector thread accepts new connections and detects data to
+ * read on all the connections. When 'readSelectorCount' is greater than 0, that thread
+ * only accepts connections, and each new connection is registered with the read
+ * selector that has the fewest connections; each read selector runs on its own
+ * thread and has its own pool of read buffers, so that a connection only holds a
+ * read buffer while it is reading. The selector threads are obtained from the task
+ * executor, which therefore needs 'readSelectorCount' + 1 threads in addition to those
+ * used for reading and assembling messages. The accepting thread then also removes
+ * closed connections from the factory, so that the read selectors never contend for it.
  * @author Gary Russell
  * @since 2.0
  *
@@ -52,6 +67,16 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 
 	private volatile TcpNioConnectionSupport tcpNioConnectionSupport = new DefaultTcpNioConnectionSupport();
 
+	private volatile int readSelectorCount;
+
+	private volatile int maxIdleBuffers = 64;
+
+	private volatile int readBufferSize = TcpNioConnection.DEFAULT_READ_BUFFER_SIZE;
+
+	private volatile List<ReadSelector> readSelectors = Collections.emptyList();
+
+	private final SelectorMetrics selectorMetrics = new SelectorMetrics();
+
 	/**
 	 * Listens for incoming connections on the port.
 	 * @param port The port.
@@ -90,6 +115,7 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 			}
 			final Selector selector = Selector.open();
 			this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+			this.startReadSelectors();
 			this.setListening(true);
 			this.selector = selector;
 			doSelect(this.serverChannel, selector);
@@ -103,6 +129,29 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 		finally {
 			this.setListening(false);
 			this.setActive(false);
+			for (ReadSelector readSelector : this.readSelectors) {
+				readSelector.selector.wakeup();
+			}
+		}
+	}
+
+	private void startReadSelectors() throws IOException {
+		List<ReadSelector> readSelectors = new ArrayList<ReadSelector>(this.readSelectorCount);
+		try {
+			for (int i = 0; i < this.readSelectorCount; i++) {
+				readSelectors.add(new ReadSelector(Selector.open(), new ByteBufferPool(
+						this.readBufferSize, this.usingDirectBuffers, this.maxIdleBuffers)));
+			}
+		}
+		catch (IOException e) {
+			for (ReadSelector readSelector : readSelectors) {
+				readSelector.selector.close();
+			}
+			throw e;
+		}
+		this.readSelectors = readSelectors;
+		for (ReadSelector readSelector : readSelectors) {
+			this.getTaskExecutor().execute(readSelector);
 		}
 	}
 
@@ -122,17 +171,35 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 	 */
 	private void doSelect(ServerSocketChannel server, final Selector selector)
 			throws IOException, ClosedChannelException, SocketException {
+		long nextHarvest = 0;
 		while (this.isActive()) {
+			boolean accepting = !this.readSelectors.isEmpty();
 			int soTimeout = this.getSoTimeout();
 			int selectionCount = 0;
 			try {
-				selectionCount = selector.select(soTimeout < 0 ? 0 : soTimeout);
+				selectionCount = selector.select(accepting ? this.getNioHarvestInterval() : (soTimeout < 0 ? 0 : soTimeout));
 			} catch (CancelledKeyException cke) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("CancelledKeyException during Selector.select()");
 				}
 			}
-			this.processNioSelections(selectionCount, selector, server, this.channelMap);
+			long start = System.nanoTime();
+			if (!accepting) {
+				this.processNioSelections(selectionCount, selector, server, this.channelMap);
+			}
+			else {
+				/*
+				 * The read selectors time out their own connections; closed connections are
+				 * removed from the factory here only, so that they don't contend for its lock.
+				 */
+				long now = System.currentTimeMillis();
+				if (now >= nextHarvest) {
+					nextHarvest = now + this.getNioHarvestInterval();
+					this.harvestClosedConnections();
+				}
+				this.processNioKeys(selectionCount, selector, server, now);
+			}
+			this.selectorMetrics.loopCompleted(System.nanoTime() - start);
 		}
 	}
 
@@ -166,8 +233,13 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 				}
 				connection.setTaskExecutor(this.getTaskExecutor());
 				connection.setLastRead(now);
-				this.channelMap.put(channel, connection);
-				channel.register(selector, SelectionKey.OP_READ, connection);
+				if (this.readSelectors.isEmpty()) {
+					this.channelMap.put(channel, connection);
+					channel.register(selector, SelectionKey.OP_READ, connection);
+				}
+				else {
+					this.leastLoadedReadSelector().register(channel, connection);
+				}
 				connection.publishConnectionOpenEvent();
 			}
 			catch (Exception e) {
@@ -192,11 +264,27 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 		}
 	}
 
+	private ReadSelector leastLoadedReadSelector() {
+		ReadSelector leastLoaded = null;
+		int fewestConnections = Integer.MAX_VALUE;
+		for (ReadSelector readSelector : this.readSelectors) {
+			int connectionCount = readSelector.getConnectionCount();
+			if (connectionCount < fewestConnections) {
+				leastLoaded = readSelector;
+				fewestConnections = connectionCount;
+			}
+		}
+		return leastLoaded;
+	}
+
 	@Override
 	public void close() {
 		if (this.selector != null) {
 			this.selector.wakeup();
 		}
+		for (ReadSelector readSelector : this.readSelectors) {
+			readSelector.selector.wakeup();
+		}
 		if (this.serverChannel == null) {
 			return;
 		}
@@ -210,6 +298,61 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 		this.usingDirectBuffers = usingDirectBuffers;
 	}
 
+	/**
+	 * Set the number of selectors used to detect data to read, each on its own thread;
+	 * when 0 (default), a single selector is used to accept connections and to detect
+	 * data to read.
+	 * @param readSelectorCount the number of read selectors.
+	 * @since 3.0
+	 */
+	public void setReadSelectorCount(int readSelectorCount) {
+		Assert.isTrue(readSelectorCount >= 0, "'readSelectorCount' must be >= 0");
+		this.readSelectorCount = readSelectorCount;
+	}
+
+	/**
+	 * Set the maximum number of idle read buffers retained by each read selector,
+	 * when 'readSelectorCount' is greater than 0. Default 64.
+	 * @param maxIdleBuffers the maximum number of idle buffers.
+	 * @since 3.0
+	 */
+	public void setMaxIdleBuffers(int maxIdleBuffers) {
+		this.maxIdleBuffers = maxIdleBuffers;
+	}
+
+	/**
+	 * Set the size of the pooled read buffers, when 'readSelectorCount' is greater than 0;
+	 * the data available on a connection is read in chunks of at most this size.
+	 * Default 60KB.
+	 * @param readBufferSize the buffer size in bytes.
+	 * @since 3.0
+	 */
+	public void setReadBufferSize(int readBufferSize) {
+		Assert.isTrue(readBufferSize > 0, "'readBufferSize' must be > 0");
+		this.readBufferSize = readBufferSize;
+	}
+
+	/**
+	 * Return statistics for each selector that detects data to read: the read selectors
+	 * when 'readSelectorCount' is greater than 0, or the single selector otherwise.
+	 * @return the statistics.
+	 * @since 3.0
+	 */
+	public List<NioSelectorStatistics> getSelectorStatistics() {
+		List<NioSelectorStatistics> statistics = new ArrayList<NioSelectorStatistics>();
+		List<ReadSelector> readSelectors = this.readSelectors;
+		if (readSelectors.isEmpty()) {
+			statistics.add(this.selectorMetrics.toStatistics(this.channelMap.size(), null));
+		}
+		else {
+			for (ReadSelector readSelector : readSelectors) {
+				statistics.add(readSelector.metrics.toStatistics(readSelector.getConnectionCount(),
+						readSelector.bufferPool));
+			}
+		}
+		return statistics;
+	}
+
 	public void setTcpNioConnectionSupport(TcpNioConnectionSupport tcpNioSupport) {
 		Assert.notNull(tcpNioSupport, "TcpNioSupport must not be null");
 		this.tcpNioConnectionSupport = tcpNioSupport;
@@ -233,7 +376,144 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 	 * @return the connections
 	 */
 	protected Map<SocketChannel, TcpNioConnection> getConnections() {
-		return channelMap;
+		List<ReadSelector> readSelectors = this.readSelectors;
+		if (readSelectors.isEmpty()) {
+			return channelMap;
+		}
+		Map<SocketChannel, TcpNioConnection> connections = new HashMap<SocketChannel, TcpNioConnection>();
+		for (ReadSelector readSelector : readSelectors) {
+			connections.putAll(readSelector.connections);
+		}
+		return connections;
+	}
+
+
+	/**
+	 * A selector, and its thread, that detects data to read on a subset of the
+	 * connections.
+	 */
+	private class ReadSelector implements Runnable {
+
+		private final Selector selector;
+
+		private final ByteBufferPool bufferPool;
+
+		private final Map<SocketChannel, TcpNioConnection> connections =
+				new ConcurrentHashMap<SocketChannel, TcpNioConnection>();
+
+		private final Map<SocketChannel, TcpNioConnection> newConnections =
+				new ConcurrentHashMap<SocketChannel, TcpNioConnection>();
+
+		private final SelectorMetrics metrics = new SelectorMetrics();
+
+		private long nextCheckForClosedConnections;
+
+		private ReadSelector(Selector selector, ByteBufferPool bufferPool) {
+			this.selector = selector;
+			this.bufferPool = bufferPool;
+		}
+
+		/**
+		 * Called on the accepting thread; the channel is registered on this selector's
+		 * thread, since registration blocks while a select is in progress.
+		 */
+		private void register(SocketChannel channel, TcpNioConnection connection) {
+			connection.setBufferPool(this.bufferPool);
+			this.newConnections.put(channel, connection);
+			this.selector.wakeup();
+		}
+
+		private int getConnectionCount() {
+			return this.connections.size() + this.newConnections.size();
+		}
+
+		public void run() {
+			try {
+				while (isActive()) {
+					int soTimeout = getSoTimeout();
+					int selectionCount = 0;
+					try {
+						selectionCount = this.selector.select(soTimeout < 0 ? 0 : soTimeout);
+					}
+					catch (CancelledKeyException cke) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("CancelledKeyException during Selector.select()");
+						}
+					}
+					long start = System.nanoTime();
+					long now = System.currentTimeMillis();
+					this.registerNewConnections();
+					if (soTimeout > 0 || now >= this.nextCheckForClosedConnections || selectionCount == 0) {
+						this.nextCheckForClosedConnections = now + getNioHarvestInterval();
+						checkNioConnections(this.connections, now);
+					}
+					processNioKeys(selectionCount, this.selector, null, now);
+					this.metrics.loopCompleted(System.nanoTime() - start);
+				}
+			}
+			catch (Exception e) {
+				if (isActive()) {
+					logger.error("Error on read selector", e);
+				}
+			}
+			finally {
+				try {
+					this.selector.close();
+				}
+				catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+
+		private void registerNewConnections() {
+			Iterator<Entry<SocketChannel, TcpNioConnection>> iterator = this.newConnections.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry<SocketChannel, TcpNioConnection> entry = iterator.next();
+				iterator.remove();
+				SocketChannel channel = entry.getKey();
+				TcpNioConnection connection = entry.getValue();
+				try {
+					this.connections.put(channel, connection);
+					channel.register(this.selector, SelectionKey.OP_READ, connection);
+				}
+				catch (ClosedChannelException e) {
+					logger.debug("Channel closed before registration");
+					this.connections.remove(channel);
+				}
+			}
+		}
+
+	}
+
+
+	/**
+	 * Loop time statistics for a selector; only updated by the selector's thread.
+	 */
+	private static class SelectorMetrics {
+
+		private volatile long loopCount;
+
+		private volatile long totalLoopTime;
+
+		private volatile long maxLoopTime;
+
+		private void loopCompleted(long nanos) {
+			this.loopCount++;
+			this.totalLoopTime += nanos;
+			if (nanos > this.maxLoopTime) {
+				this.maxLoopTime = nanos;
+			}
+		}
+
+		private NioSelectorStatistics toStatistics(int connectionCount, ByteBufferPool bufferPool) {
+			long loopCount = this.loopCount;
+			double meanLoopTime = (loopCount == 0 ? 0 : this.totalLoopTime / 1000000.0 / loopCount);
+			return new NioSelectorStatistics(connectionCount, loopCount, meanLoopTime, this.maxLoopTime / 1000000.0,
+					bufferPool == null ? 0 : bufferPool.getIdleCount(),
+					bufferPool == null ? 0 : bufferPool.getAllocationCount());
+		}
+
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.net.InetAddress;
 import java.net.MulticastSocket;
 
 import org.springframework.integration.MessagingException;
+import org.springframework.util.Assert;
 
 /**
  * Channel adapter that joins a multicast group and receives incoming packets and
@@ -59,6 +60,14 @@ public class MulticastReceivingChannelAdapter extends UnicastReceivingChannelAda
 		this.group = group;
 	}
 
+	/**
+	 * Joining a multicast group requires a {@link MulticastSocket}; NIO is not supported.
+	 */
+	@Override
+	public void setUsingNio(boolean usingNio) {
+		Assert.isTrue(!usingNio, "NIO is not supported by the multicast receiving channel adapter");
+	}
+
 	@Override
 	protected synchronized DatagramSocket getSocket() {
 		if (this.getTheSocket() == null) {
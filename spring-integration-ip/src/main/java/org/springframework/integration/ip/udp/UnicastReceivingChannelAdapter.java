@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,8 +21,23 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,11 +46,19 @@ import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.ip.AbstractInternetProtocolReceivingChannelAdapter;
 import org.springframework.integration.ip.IpHeaders;
+import org.springframework.integration.ip.tcp.connection.ByteBufferPool;
+import org.springframework.util.Assert;
 
 /**
  * A channel adapter to receive incoming UDP packets. Packets can optionally be preceded by a
  * 4 byte length field, used to validate that all data was received. Packets may also contain
  * information indicating an acknowledgment needs to be sent.
+ * <p>
+ * By default, a single thread receives each packet into a new buffer, using a blocking
+ * {@link DatagramSocket}, and each packet is then sent on a thread from the task executor.
+ * When 'usingNio' is true, a {@link DatagramChannel} is used instead: 'receiverCount'
+ * threads read packets into a pool of 'bufferCount' reusable direct buffers and hand
+ * them to the task executor in batches of up to 'batchSize' packets.
  *
  * @author Gary Russell
  * @since 2.0
@@ -50,6 +73,30 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 
 	private static Pattern addressPattern = Pattern.compile("([^:]*):([0-9]*)");
 
+	private volatile boolean usingNio;
+
+	private volatile int receiverCount = 1;
+
+	private volatile int batchSize = 16;
+
+	private volatile int bufferCount = 64;
+
+	private volatile DatagramChannel channel;
+
+	private volatile ByteBufferPool bufferPool;
+
+	private volatile Semaphore bufferPermits;
+
+	private final Queue<Selector> receiverSelectors = new ConcurrentLinkedQueue<Selector>();
+
+	private final AtomicInteger activeReceivers = new AtomicInteger();
+
+	private final AtomicLong receivedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong bufferExhaustedCount = new AtomicLong();
+
 
 	/**
 	 * Constructs a UnicastReceivingChannelAdapter that listens on the specified port.
@@ -73,11 +120,23 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 	}
 
 
+	@Override
+	protected void onInit() {
+		super.onInit();
+		Assert.isTrue(!this.usingNio || this.bufferCount >= this.receiverCount * this.batchSize,
+				"'bufferCount' must be at least 'receiverCount' * 'batchSize' when using NIO");
+	}
+
 	public void run() {
 		if (logger.isDebugEnabled()) {
 			logger.debug("UDP Receiver running on port:" + this.getPort());
 		}
 
+		if (this.usingNio) {
+			this.runNio();
+			return;
+		}
+
 		this.setListening(true);
 
 		// Do as little as possible here so we can loop around and catch the next packet.
@@ -134,34 +193,229 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 	protected boolean asyncSendMessage(final DatagramPacket packet) {
 		this.getTaskExecutor().execute(new Runnable(){
 			public void run() {
-				Message<byte[]> message = null;
-				try {
-					message = mapper.toMessage(packet);
-					if (logger.isDebugEnabled()) {
-						logger.debug("Received:" + message);
-					}
-				}
-				catch (Exception e) {
-					logger.error("Failed to map packet to message ", e);
-				}
-				if (message != null) {
-					if (message.getHeaders().containsKey(IpHeaders.ACK_ADDRESS)) {
-						sendAck(message);
-					}
-					sendMessage(message);
-				}
+				processPacket(packet);
 			}});
 		return true;
 	}
 
+	private void processPacket(DatagramPacket packet) {
+		Message<byte[]> message = null;
+		try {
+			message = mapper.toMessage(packet);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Received:" + message);
+			}
+		}
+		catch (Exception e) {
+			this.droppedCount.incrementAndGet();
+			logger.error("Failed to map packet to message ", e);
+		}
+		if (message != null) {
+			if (message.getHeaders().containsKey(IpHeaders.ACK_ADDRESS)) {
+				sendAck(message);
+			}
+			sendMessage(message);
+		}
+	}
+
 	protected DatagramPacket receive() throws Exception {
 		DatagramSocket socket = this.getSocket();
 		final byte[] buffer = new byte[this.getReceiveBufferSize()];
 		DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
 		socket.receive(packet);
+		this.receivedCount.incrementAndGet();
 		return packet;
 	}
 
+	/**
+	 * Opens the channel then runs the first receiver on this thread; the others are
+	 * run on the task executor.
+	 */
+	private void runNio() {
+		final DatagramChannel channel;
+		try {
+			channel = this.getChannel();
+		}
+		catch (MessagingException e) {
+			this.doStop();
+			throw e;
+		}
+		for (int i = 1; i < this.receiverCount; i++) {
+			this.getTaskExecutor().execute(new Runnable() {
+				public void run() {
+					receivePackets(channel);
+				}
+			});
+		}
+		this.receivePackets(channel);
+	}
+
+	/**
+	 * Waits for the channel to become readable, then reads packets until there are
+	 * no more, or a batch is complete, and hands them to the task executor. If no
+	 * buffer is available, the packets already read are handed over before waiting for
+	 * one, so that a receiver never waits while holding buffers.
+	 */
+	private void receivePackets(DatagramChannel channel) {
+		Selector selector = null;
+		this.activeReceivers.incrementAndGet();
+		try {
+			selector = Selector.open();
+			this.receiverSelectors.add(selector);
+			channel.register(selector, SelectionKey.OP_READ);
+			this.setListening(true);
+			List<ReceivedPacket> batch = new ArrayList<ReceivedPacket>(this.batchSize);
+			while (this.isActive()) {
+				selector.select(1000);
+				selector.selectedKeys().clear();
+				while (batch.size() < this.batchSize) {
+					ByteBuffer buffer = this.pollBuffer();
+					if (buffer == null) {
+						if (batch.size() > 0) {
+							this.dispatch(batch);
+							batch = new ArrayList<ReceivedPacket>(this.batchSize);
+						}
+						buffer = this.obtainBuffer();
+						if (buffer == null) {
+							break;
+						}
+					}
+					SocketAddress address;
+					try {
+						address = channel.receive(buffer);
+					}
+					catch (IOException e) {
+						this.releaseBuffer(buffer);
+						throw e;
+					}
+					if (address == null) {
+						this.releaseBuffer(buffer);
+						break;
+					}
+					this.receivedCount.incrementAndGet();
+					buffer.flip();
+					batch.add(new ReceivedPacket(buffer, address));
+				}
+				if (batch.size() > 0) {
+					this.dispatch(batch);
+					batch = new ArrayList<ReceivedPacket>(this.batchSize);
+				}
+			}
+		}
+		catch (ClosedChannelException e) {
+			// stopped
+		}
+		catch (IOException e) {
+			if (this.isActive()) {
+				logger.error("Failed to receive DatagramPacket", e);
+				this.doStop();
+			}
+		}
+		finally {
+			if (this.activeReceivers.decrementAndGet() == 0) {
+				this.setListening(false);
+			}
+			if (selector != null) {
+				this.receiverSelectors.remove(selector);
+				try {
+					selector.close();
+				}
+				catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a buffer from the pool, or null if 'bufferCount' buffers are in use.
+	 */
+	private ByteBuffer pollBuffer() {
+		return this.bufferPermits.tryAcquire() ? this.bufferPool.obtain() : null;
+	}
+
+	/**
+	 * @return a buffer from the pool, waiting if 'bufferCount' buffers are in use,
+	 * or null if the adapter has been stopped.
+	 */
+	private ByteBuffer obtainBuffer() {
+		this.bufferExhaustedCount.incrementAndGet();
+		if (logger.isDebugEnabled()) {
+			logger.debug("All " + this.bufferCount + " receive buffers are in use");
+		}
+		try {
+			while (!this.bufferPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+				if (!this.isActive()) {
+					return null;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		return this.bufferPool.obtain();
+	}
+
+	private void releaseBuffer(ByteBuffer buffer) {
+		this.bufferPool.release(buffer);
+		this.bufferPermits.release();
+	}
+
+	private void dispatch(final List<ReceivedPacket> batch) {
+		try {
+			this.getTaskExecutor().execute(new Runnable() {
+				public void run() {
+					for (ReceivedPacket receivedPacket : batch) {
+						ByteBuffer buffer = receivedPacket.buffer;
+						byte[] data = new byte[buffer.remaining()];
+						buffer.get(data);
+						releaseBuffer(buffer);
+						try {
+							processPacket(new DatagramPacket(data, data.length, receivedPacket.address));
+						}
+						catch (Exception e) {
+							logger.error("Failed to send message for packet from " + receivedPacket.address, e);
+						}
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			this.droppedCount.addAndGet(batch.size());
+			logger.error("Task executor rejected " + batch.size() + " packet(s)", e);
+			for (ReceivedPacket receivedPacket : batch) {
+				this.releaseBuffer(receivedPacket.buffer);
+			}
+		}
+	}
+
+	protected synchronized DatagramChannel getChannel() {
+		if (this.channel == null) {
+			try {
+				DatagramChannel channel = DatagramChannel.open();
+				DatagramSocket socket = channel.socket();
+				setSocketAttributes(socket);
+				String localAddress = this.getLocalAddress();
+				if (localAddress == null) {
+					socket.bind(new InetSocketAddress(this.getPort()));
+				}
+				else {
+					socket.bind(new InetSocketAddress(InetAddress.getByName(localAddress), this.getPort()));
+				}
+				channel.configureBlocking(false);
+				this.bufferPool = new ByteBufferPool(this.getReceiveBufferSize(), true, this.bufferCount);
+				this.bufferPermits = new Semaphore(this.bufferCount);
+				this.socket = socket;
+				this.channel = channel;
+			}
+			catch (IOException e) {
+				throw new MessagingException("failed to create DatagramChannel", e);
+			}
+		}
+		return this.channel;
+	}
+
 	/**
 	 * @param socket the socket to set
 	 */
@@ -212,6 +466,19 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 	@Override
 	protected void doStop() {
 		super.doStop();
+		try {
+			DatagramChannel channel = this.channel;
+			this.channel = null;
+			if (channel != null) {
+				channel.close();
+			}
+			for (Selector selector : this.receiverSelectors) {
+				selector.wakeup();
+			}
+		}
+		catch (Exception e) {
+			// ignore
+		}
 		try {
 			DatagramSocket socket = this.socket;
 			this.socket = null;
@@ -230,8 +497,96 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 		this.mapper.setLookupHost(lookupHost);
 	}
 
+	/**
+	 * Set to true to receive packets with a {@link DatagramChannel}, using pooled
+	 * direct buffers, instead of a blocking {@link DatagramSocket}. Default false.
+	 * @param usingNio true to use NIO.
+	 * @since 3.0
+	 */
+	public void setUsingNio(boolean usingNio) {
+		this.usingNio = usingNio;
+	}
+
+	/**
+	 * The number of threads receiving packets when using NIO; these threads are taken
+	 * from the task executor, which must also have threads to send the messages.
+	 * Default 1.
+	 * @param receiverCount the number of receiver threads.
+	 * @since 3.0
+	 */
+	public void setReceiverCount(int receiverCount) {
+		Assert.isTrue(receiverCount > 0, "'receiverCount' must be > 0");
+		this.receiverCount = receiverCount;
+	}
+
+	/**
+	 * The maximum number of packets, already received when using NIO, handed to the
+	 * task executor together. Default 16.
+	 * @param batchSize the batch size.
+	 * @since 3.0
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be > 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * The number of receive buffers, each of 'receiveBufferSize' bytes, when using NIO.
+	 * A buffer is in use from the time a packet is received until it has been copied
+	 * into a message; when all buffers are in use, receivers wait until one is
+	 * released and the packets queue up in (and may overflow) the socket's receive
+	 * buffer. Must be at least 'receiverCount' * 'batchSize'. Default 64.
+	 * @param bufferCount the number of buffers.
+	 * @since 3.0
+	 */
+	public void setBufferCount(int bufferCount) {
+		Assert.isTrue(bufferCount > 0, "'bufferCount' must be > 0");
+		this.bufferCount = bufferCount;
+	}
+
+	/**
+	 * @return the number of packets received.
+	 * @since 3.0
+	 */
+	public long getReceivedCount() {
+		return this.receivedCount.get();
+	}
+
+	/**
+	 * @return the number of packets received that could not be converted to a
+	 * message or could not be handed to the task executor.
+	 * @since 3.0
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * @return the number of times a receiver had to wait for a buffer because all
+	 * 'bufferCount' buffers were in use.
+	 * @since 3.0
+	 */
+	public long getBufferExhaustedCount() {
+		return this.bufferExhaustedCount.get();
+	}
+
 	@Override
 	public String getComponentType(){
 		return "ip:udp-inbound-channel-adapter";
 	}
+
+
+	private static class ReceivedPacket {
+
+		private final ByteBuffer buffer;
+
+		private final SocketAddress address;
+
+		private ReceivedPacket(ByteBuffer buffer, SocketAddress address) {
+			this.buffer = buffer;
+			this.address = address;
+		}
+
+	}
+
 }
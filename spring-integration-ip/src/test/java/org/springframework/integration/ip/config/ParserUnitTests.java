@@ -42,6 +42,7 @@ import org.springframework.core.serializer.Serializer;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageChannel;
+import org.springframework.integration.aggregator.CorrelationStrategy;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.core.MessageHandler;
@@ -274,6 +275,9 @@ public class ParserUnitTests {
 	@Autowired
 	QueueChannel eventChannel;
 
+	@Autowired
+	CorrelationStrategy correlationStrategy;
+
 	private static volatile int adviceCalled;
 
 	@Test
@@ -295,6 +299,10 @@ public class ParserUnitTests {
 		assertFalse((Boolean)mapperAccessor.getPropertyValue("lookupHost"));
 		assertFalse(TestUtils.getPropertyValue(udpIn, "autoStartup", Boolean.class));
 		assertEquals(1234, dfa.getPropertyValue("phase"));
+		assertTrue((Boolean) dfa.getPropertyValue("usingNio"));
+		assertEquals(2, dfa.getPropertyValue("receiverCount"));
+		assertEquals(8, dfa.getPropertyValue("batchSize"));
+		assertEquals(33, dfa.getPropertyValue("bufferCount"));
 	}
 
 	@Test
@@ -487,6 +495,8 @@ public class ParserUnitTests {
 		assertEquals(24, dfa.getPropertyValue("order"));
 		assertFalse(tcpOutboundGateway.isAutoStartup());
 		assertEquals(127, tcpOutboundGateway.getPhase());
+		assertEquals(Boolean.TRUE, dfa.getPropertyValue("multiplex"));
+		assertSame(correlationStrategy, dfa.getPropertyValue("correlationStrategy"));
 	}
 
 	@Test
@@ -526,6 +536,9 @@ public class ParserUnitTests {
 		assertSame(taskExecutor, dfa.getPropertyValue("taskExecutor"));
 		assertEquals(123, dfa.getPropertyValue("backlog"));
 		assertEquals(true, dfa.getPropertyValue("usingDirectBuffers"));
+		assertEquals(2, dfa.getPropertyValue("readSelectorCount"));
+		assertEquals(4096, dfa.getPropertyValue("readBufferSize"));
+		assertTrue(server1.isCoalesceWrites());
 		assertNotNull(dfa.getPropertyValue("interceptorFactoryChain"));
 	}
 
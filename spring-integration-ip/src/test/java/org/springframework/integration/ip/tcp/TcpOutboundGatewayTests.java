@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -41,6 +41,7 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -58,6 +59,7 @@ import org.springframework.core.serializer.DefaultDeserializer;
 import org.springframework.core.serializer.DefaultSerializer;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageTimeoutException;
+import org.springframework.integration.aggregator.CorrelationStrategy;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.core.PollableChannel;
 import org.springframework.integration.ip.tcp.connection.AbstractClientConnectionFactory;
@@ -686,4 +688,156 @@ public class TcpOutboundGatewayTests {
 		done.set(true);
 		ccf.getConnection();
 	}
+
+	@Test
+	public void testMultiplexInOrder() throws Exception {
+		final int port = SocketUtils.findAvailableServerSocket();
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicBoolean done = new AtomicBoolean();
+		this.startPipelineServer(port, 10, false, null, latch, done);
+		assertTrue(latch.await(10000, TimeUnit.MILLISECONDS));
+		TcpOutboundGateway gateway = this.createMultiplexGateway(port, null, 10000);
+		List<Future<Message<?>>> replies = this.sendConcurrently(gateway, 10);
+		for (int i = 0; i < 10; i++) {
+			assertEquals("Reply:Test" + i, replies.get(i).get(10, TimeUnit.SECONDS).getPayload());
+		}
+		done.set(true);
+		gateway.stop();
+	}
+
+	@Test
+	public void testMultiplexCorrelated() throws Exception {
+		final int port = SocketUtils.findAvailableServerSocket();
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicBoolean done = new AtomicBoolean();
+		this.startPipelineServer(port, 10, true, null, latch, done);
+		assertTrue(latch.await(10000, TimeUnit.MILLISECONDS));
+		TcpOutboundGateway gateway = this.createMultiplexGateway(port, new TestCorrelationStrategy(), 10000);
+		List<Future<Message<?>>> replies = this.sendConcurrently(gateway, 10);
+		for (int i = 0; i < 10; i++) {
+			assertEquals("Reply:Test" + i, replies.get(i).get(10, TimeUnit.SECONDS).getPayload());
+		}
+		done.set(true);
+		gateway.stop();
+	}
+
+	@Test
+	public void testMultiplexCorrelatedTimeout() throws Exception {
+		final int port = SocketUtils.findAvailableServerSocket();
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicBoolean done = new AtomicBoolean();
+		this.startPipelineServer(port, 4, false, "Test1", latch, done);
+		assertTrue(latch.await(10000, TimeUnit.MILLISECONDS));
+		TcpOutboundGateway gateway = this.createMultiplexGateway(port, new TestCorrelationStrategy(), 1000);
+		// the second batch shows that the connection is still usable after a timeout
+		for (int batch = 0; batch < 2; batch++) {
+			List<Future<Message<?>>> replies = this.sendConcurrently(gateway, 4);
+			try {
+				replies.get(1).get(10, TimeUnit.SECONDS);
+				fail("Expected timeout");
+			}
+			catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof MessageTimeoutException);
+			}
+			for (int i = 0; i < 4; i++) {
+				if (i != 1) {
+					assertEquals("Reply:Test" + i, replies.get(i).get(10, TimeUnit.SECONDS).getPayload());
+				}
+			}
+		}
+		done.set(true);
+		gateway.stop();
+	}
+
+	/**
+	 * Reads a batch of requests before replying to any of them, so the requests must all be
+	 * in flight at the same time.
+	 */
+	private void startPipelineServer(final int port, final int batchSize, final boolean reverse,
+			final String noReplyFor, final CountDownLatch latch, final AtomicBoolean done) {
+		Executors.newSingleThreadExecutor().execute(new Runnable() {
+			public void run() {
+				try {
+					ServerSocket server = ServerSocketFactory.getDefault().createServerSocket(port, 10);
+					latch.countDown();
+					Socket socket = server.accept();
+					while (true) {
+						List<String> requests = new ArrayList<String>();
+						for (int i = 0; i < batchSize; i++) {
+							ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
+							requests.add((String) ois.readObject());
+						}
+						if (reverse) {
+							Collections.reverse(requests);
+						}
+						for (String request : requests) {
+							if (!request.equals(noReplyFor)) {
+								ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
+								oos.writeObject("Reply:" + request);
+							}
+						}
+					}
+				}
+				catch (Exception e) {
+					if (!done.get()) {
+						e.printStackTrace();
+					}
+				}
+			}
+		});
+	}
+
+	private TcpOutboundGateway createMultiplexGateway(int port, CorrelationStrategy correlationStrategy,
+			long remoteTimeout) {
+		AbstractConnectionFactory ccf = new TcpNetClientConnectionFactory("localhost", port);
+		ccf.setSerializer(new DefaultSerializer());
+		ccf.setDeserializer(new DefaultDeserializer());
+		ccf.setSoTimeout(10000);
+		ccf.setSingleUse(false);
+		ccf.start();
+		TcpOutboundGateway gateway = new TcpOutboundGateway();
+		gateway.setConnectionFactory(ccf);
+		gateway.setMultiplex(true);
+		gateway.setCorrelationStrategy(correlationStrategy);
+		gateway.setRemoteTimeout(remoteTimeout);
+		gateway.setRequiresReply(true);
+		return gateway;
+	}
+
+	/**
+	 * Sends "Test0" to "Test(count - 1)" in that order, each from its own thread, without
+	 * waiting for the replies.
+	 */
+	private List<Future<Message<?>>> sendConcurrently(final TcpOutboundGateway gateway, int count)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(count);
+		List<Future<Message<?>>> replies = new ArrayList<Future<Message<?>>>();
+		for (int i = 0; i < count; i++) {
+			final String payload = "Test" + i;
+			final QueueChannel replyChannel = new QueueChannel();
+			final CountDownLatch sent = new CountDownLatch(1);
+			replies.add(executor.submit(new Callable<Message<?>>() {
+				public Message<?> call() throws Exception {
+					sent.countDown();
+					gateway.handleMessage(MessageBuilder.withPayload(payload).setReplyChannel(replyChannel).build());
+					return replyChannel.receive(0);
+				}
+			}));
+			assertTrue(sent.await(10, TimeUnit.SECONDS));
+			// give the request time to be written before the next one
+			Thread.sleep(50);
+		}
+		executor.shutdown();
+		return replies;
+	}
+
+	private static class TestCorrelationStrategy implements CorrelationStrategy {
+
+		public Object getCorrelationKey(Message<?> message) {
+			String payload = (String) message.getPayload();
+			return payload.substring(payload.indexOf("Test"));
+		}
+
+	}
+
 }
@@ -346,6 +346,7 @@ public class CachingClientConnectionFactoryTests {
 		when(socket.isClosed()).thenReturn(true); // closed when next retrieved
 		OutputStream stream = mock(OutputStream.class);
 		doThrow(new IOException("Foo")).when(stream).write(Mockito.any(byte[].class));
+		doThrow(new IOException("Foo")).when(stream).write(Mockito.any(byte[].class), Mockito.anyInt(), Mockito.anyInt());
 		when(socket.getOutputStream()).thenReturn(stream);
 		TcpNetConnection conn = new TcpNetConnection(socket, false, false, new ApplicationEventPublisher() {
 
@@ -17,16 +17,27 @@ package org.springframework.integration.ip.tcp.connection;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.net.Socket;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
@@ -40,6 +51,7 @@ import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.integration.Message;
 import org.springframework.integration.ip.tcp.connection.TcpNioConnection.ChannelInputStream;
+import org.springframework.integration.ip.tcp.serializer.ByteArrayLengthHeaderSerializer;
 import org.springframework.integration.ip.tcp.serializer.ByteArrayStxEtxSerializer;
 import org.springframework.integration.ip.tcp.serializer.MapJsonSerializer;
 import org.springframework.integration.message.ErrorMessage;
@@ -145,4 +157,102 @@ public class TcpNetConnectionTests {
 		assertEquals("foo", inboundMessage.get().getPayload());
 		assertEquals("baz", inboundMessage.get().getHeaders().get("bar"));
 	}
+
+	@Test
+	public void testSingleWritePerMessage() throws Exception {
+		Socket socket = mock(Socket.class);
+		RecordingOutputStream outputStream = new RecordingOutputStream(null);
+		when(socket.getOutputStream()).thenReturn(outputStream);
+		TcpNetConnection connection = new TcpNetConnection(socket, false, false, nullPublisher, null);
+		connection.setMapper(new TcpMessageMapper());
+		connection.setSerializer(new ByteArrayLengthHeaderSerializer());
+		connection.send(MessageBuilder.withPayload("foo").build());
+		connection.send(MessageBuilder.withPayload("barbaz").build());
+		// the header and the payload are written together
+		assertEquals(2, outputStream.writes.size());
+		assertEquals(7, outputStream.writes.get(0).length);
+		assertEquals(10, outputStream.writes.get(1).length);
+		assertEquals("barbaz", new String(outputStream.writes.get(1), 4, 6));
+	}
+
+	@Test
+	public void testCoalescedWrites() throws Exception {
+		Socket socket = mock(Socket.class);
+		CountDownLatch firstWriteLatch = new CountDownLatch(1);
+		RecordingOutputStream outputStream = new RecordingOutputStream(firstWriteLatch);
+		when(socket.getOutputStream()).thenReturn(outputStream);
+		final TcpNetConnection connection = new TcpNetConnection(socket, false, false, nullPublisher, null);
+		connection.setMapper(new TcpMessageMapper());
+		connection.setSerializer(new ByteArrayLengthHeaderSerializer());
+		connection.setCoalesceWrites(true);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		for (int i = 0; i < 3; i++) {
+			final String payload = "foo" + i;
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						connection.send(MessageBuilder.withPayload(payload).build());
+					}
+					catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			});
+			if (i == 0) {
+				assertTrue(outputStream.writeStarted.await(10, TimeUnit.SECONDS));
+			}
+		}
+		// the second and third messages wait while the first is written
+		Queue<?> pendingWrites = TestUtils.getPropertyValue(connection, "pendingWrites", Queue.class);
+		int n = 0;
+		while (n++ < 100 && pendingWrites.size() < 2) {
+			Thread.sleep(100);
+		}
+		assertEquals(2, pendingWrites.size());
+		firstWriteLatch.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(2, outputStream.writes.size());
+		assertEquals(8, outputStream.writes.get(0).length);
+		assertEquals(16, outputStream.writes.get(1).length);
+	}
+
+	/**
+	 * Records each write; optionally blocks the first write until the latch is counted down.
+	 */
+	private static class RecordingOutputStream extends OutputStream {
+
+		private final List<byte[]> writes = Collections.synchronizedList(new ArrayList<byte[]>());
+
+		private final CountDownLatch firstWriteLatch;
+
+		private final CountDownLatch writeStarted = new CountDownLatch(1);
+
+		private RecordingOutputStream(CountDownLatch firstWriteLatch) {
+			this.firstWriteLatch = firstWriteLatch;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.writeStarted.countDown();
+			if (this.firstWriteLatch != null && this.writes.isEmpty()) {
+				try {
+					this.firstWriteLatch.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			byte[] bytes = new byte[len];
+			System.arraycopy(b, off, bytes, 0, len);
+			this.writes.add(bytes);
+		}
+
+	}
+
 }
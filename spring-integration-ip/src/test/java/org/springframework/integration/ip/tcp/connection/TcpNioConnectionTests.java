@@ -28,6 +28,7 @@ import static org.mockito.Mockito.when;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.ServerSocket;
@@ -52,6 +53,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.net.ServerSocketFactory;
 
+import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -64,11 +66,13 @@ import org.springframework.integration.Message;
 import org.springframework.integration.ip.tcp.connection.TcpNioConnection.ChannelInputStream;
 import org.springframework.integration.ip.tcp.serializer.ByteArrayCrLfSerializer;
 import org.springframework.integration.ip.tcp.serializer.MapJsonSerializer;
+import org.springframework.integration.ip.util.TestingUtilities;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.support.converter.MapMessageConverter;
 import org.springframework.integration.test.util.SocketUtils;
 import org.springframework.integration.test.util.TestUtils;
 import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StopWatch;
 import org.springframework.util.ReflectionUtils.FieldCallback;
 import org.springframework.util.ReflectionUtils.FieldFilter;
 
@@ -519,6 +523,91 @@ public class TcpNioConnectionTests {
 		assertEquals("baz", inboundMessage.get().getHeaders().get("bar"));
 	}
 
+	@Test
+	public void testReadSelectors() throws Exception {
+		int port = SocketUtils.findAvailableServerSocket();
+		final CountDownLatch latch = new CountDownLatch(20);
+		TcpNioServerConnectionFactory scf = this.createReadSelectorServer(port, 2, latch);
+		List<Socket> sockets = new ArrayList<Socket>();
+		for (int i = 0; i < 20; i++) {
+			Socket socket = new Socket("localhost", port);
+			socket.getOutputStream().write("foo\r\n".getBytes());
+			sockets.add(socket);
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals(20, scf.getOpenConnectionIds().size());
+		List<NioSelectorStatistics> statistics = scf.getSelectorStatistics();
+		assertEquals(2, statistics.size());
+		int n = 0;
+		while (n++ < 100 && (statistics.get(0).getIdleBufferCount() == 0 || statistics.get(1).getIdleBufferCount() == 0)) {
+			Thread.sleep(100);
+			statistics = scf.getSelectorStatistics();
+		}
+		for (NioSelectorStatistics selectorStatistics : statistics) {
+			// connections are balanced and only hold a buffer while reading
+			assertEquals(10, selectorStatistics.getConnectionCount());
+			assertTrue(selectorStatistics.getLoopCount() > 0);
+			assertTrue(selectorStatistics.getIdleBufferCount() > 0);
+			assertTrue(selectorStatistics.getBufferAllocationCount() <= 10);
+		}
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		scf.stop();
+	}
+
+	@Test
+	@Ignore
+	public void readSelectorLoadTest() throws Exception {
+		int connections = 5000;
+		int messagesPerConnection = 10;
+		for (int readSelectorCount = 0; readSelectorCount <= 4; readSelectorCount += 4) {
+			int port = SocketUtils.findAvailableServerSocket();
+			CountDownLatch latch = new CountDownLatch(connections * messagesPerConnection);
+			TcpNioServerConnectionFactory scf = this.createReadSelectorServer(port, readSelectorCount, latch);
+			List<Socket> sockets = new ArrayList<Socket>();
+			for (int i = 0; i < connections; i++) {
+				sockets.add(new Socket("localhost", port));
+			}
+			StopWatch watch = new StopWatch();
+			watch.start();
+			for (int i = 0; i < messagesPerConnection; i++) {
+				for (Socket socket : sockets) {
+					OutputStream outputStream = socket.getOutputStream();
+					outputStream.write(("message " + i + "\r\n").getBytes());
+				}
+			}
+			assertTrue(latch.await(120, TimeUnit.SECONDS));
+			watch.stop();
+			System.out.println(connections + " connections, " + readSelectorCount + " read selectors: "
+					+ connections * messagesPerConnection + " messages in " + watch.getTotalTimeSeconds()
+					+ " seconds");
+			for (NioSelectorStatistics statistics : scf.getSelectorStatistics()) {
+				System.out.println(statistics);
+			}
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+			scf.stop();
+		}
+	}
+
+	private TcpNioServerConnectionFactory createReadSelectorServer(int port, int readSelectorCount,
+			final CountDownLatch latch) throws Exception {
+		TcpNioServerConnectionFactory scf = new TcpNioServerConnectionFactory(port);
+		scf.setReadSelectorCount(readSelectorCount);
+		scf.setBacklog(1000);
+		scf.registerListener(new TcpListener() {
+			public boolean onMessage(Message<?> message) {
+				latch.countDown();
+				return false;
+			}
+		});
+		scf.start();
+		TestingUtilities.waitListening(scf, null);
+		return scf;
+	}
+
 	private void readFully(InputStream is, byte[] buff) throws IOException {
 		for (int i = 0; i < buff.length; i++) {
 			buff[i] = (byte) is.read();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 package org.springframework.integration.ip.udp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -24,6 +26,8 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.Inet4Address;
 import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -70,6 +74,86 @@ public class UdpChannelAdapterTests {
 		assertEquals(new String(message.getPayload()), new String(receivedMessage.getPayload()));
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testUnicastReceiverNio() throws Exception {
+		QueueChannel channel = new QueueChannel(100);
+		int port = SocketUtils.findAvailableUdpSocket();
+		UnicastReceivingChannelAdapter adapter = new UnicastReceivingChannelAdapter(port);
+		adapter.setOutputChannel(channel);
+		adapter.setUsingNio(true);
+		adapter.setReceiverCount(2);
+		adapter.setBatchSize(4);
+		adapter.setBufferCount(8);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		SocketTestUtils.waitListening(adapter);
+
+		DatagramSocket socket = new DatagramSocket(SocketUtils.findAvailableUdpSocket());
+		DatagramPacketMessageMapper mapper = new DatagramPacketMessageMapper();
+		Set<String> expected = new HashSet<String>();
+		for (int i = 0; i < 50; i++) {
+			DatagramPacket packet = mapper.fromMessage(MessageBuilder.withPayload("ABCD" + i).build());
+			packet.setSocketAddress(new InetSocketAddress("localhost", port));
+			socket.send(packet);
+			expected.add("ABCD" + i);
+		}
+		socket.close();
+		Set<String> received = new HashSet<String>();
+		for (int i = 0; i < 50; i++) {
+			Message<byte[]> receivedMessage = (Message<byte[]>) channel.receive(10000);
+			assertNotNull(receivedMessage);
+			assertNotNull(receivedMessage.getHeaders().get(IpHeaders.IP_ADDRESS));
+			received.add(new String(receivedMessage.getPayload()));
+		}
+		assertEquals(expected, received);
+		assertEquals(50, adapter.getReceivedCount());
+		assertEquals(0, adapter.getDroppedCount());
+		adapter.stop();
+		int n = 0;
+		while (n++ < 100 && adapter.isListening()) {
+			Thread.sleep(100);
+		}
+		assertFalse(adapter.isListening());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnicastReceiverNioTooFewBuffers() throws Exception {
+		UnicastReceivingChannelAdapter adapter = new UnicastReceivingChannelAdapter(0);
+		adapter.setOutputChannel(new QueueChannel());
+		adapter.setUsingNio(true);
+		adapter.setReceiverCount(2);
+		adapter.setBatchSize(4);
+		adapter.setBufferCount(7);
+		adapter.afterPropertiesSet();
+	}
+
+	@Test
+	public void testUnicastReceiverNioDroppedPacket() throws Exception {
+		QueueChannel channel = new QueueChannel(2);
+		int port = SocketUtils.findAvailableUdpSocket();
+		UnicastReceivingChannelAdapter adapter = new UnicastReceivingChannelAdapter(port, true);
+		adapter.setOutputChannel(channel);
+		adapter.setUsingNio(true);
+		adapter.start();
+		SocketTestUtils.waitListening(adapter);
+
+		// no length field
+		DatagramPacket packet = new DatagramPacket("ABCDEFGH".getBytes(), 8);
+		packet.setSocketAddress(new InetSocketAddress("localhost", port));
+		DatagramSocket socket = new DatagramSocket(SocketUtils.findAvailableUdpSocket());
+		socket.send(packet);
+		socket.close();
+		int n = 0;
+		while (n++ < 100 && adapter.getDroppedCount() == 0) {
+			Thread.sleep(100);
+		}
+		assertEquals(1, adapter.getReceivedCount());
+		assertEquals(1, adapter.getDroppedCount());
+		assertNull(channel.receive(0));
+		adapter.stop();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testUnicastReceiverWithReply() throws Exception {
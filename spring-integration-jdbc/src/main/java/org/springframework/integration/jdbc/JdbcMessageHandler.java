@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,24 +13,46 @@
 
 package org.springframework.integration.jdbc;
 
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageDeliveryException;
 import org.springframework.integration.MessageHandlingException;
 import org.springframework.integration.MessageRejectedException;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
 import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 
 /**
@@ -44,11 +66,24 @@ import org.springframework.util.LinkedCaseInsensitiveMap;
  *
  * N.B. do not use quotes to escape the header keys. The default SQL parameter source (from Spring JDBC) can also handle
  * headers with dotted names (e.g. <code>business.id</code>)
+ * <p>
+ * When the 'batchSize' is greater than 1, messages are accumulated and the update is executed for up to
+ * 'batchSize' messages at a time, as a single JDBC batch. A batch is executed when it is full, on the thread
+ * sending the last message, or when its first message has waited for 'batchTimeout' milliseconds, on a thread
+ * of the {@link TaskScheduler}. The parameters of a message are bound when it is sent, so a message whose parameters
+ * cannot be bound is rejected with an exception and never added to a batch. Since a message is otherwise only added
+ * to a batch, later failures are not thrown to the sender; instead, a {@link MessageHandlingException} for each
+ * message that could not be applied is sent to the message's error channel header, or to the default error channel.
+ * <p>
+ * A batch executed on a sender's thread participates in that thread's transaction, if any, so the rows of the
+ * other messages in the batch are committed or rolled back with it, and a batch executed by the
+ * {@link TaskScheduler} is not executed in any sender's transaction. Batching should therefore only be used when
+ * the updates do not need to be part of the senders' transactions.
  *
  * @author Dave Syer
  * @since 2.0
  */
-public class JdbcMessageHandler extends AbstractMessageHandler {
+public class JdbcMessageHandler extends AbstractMessageHandler implements DisposableBean {
 
 	private final NamedParameterJdbcOperations jdbcOperations;
 
@@ -58,6 +93,18 @@ public class JdbcMessageHandler extends AbstractMessageHandler {
 
 	private volatile boolean keysGenerated;
 
+	private volatile int batchSize = 1;
+
+	private volatile long batchTimeout = 1000;
+
+	private volatile ErrorHandler errorHandler = new MessagePublishingErrorHandler();
+
+	private final Object batchMonitor = new Object();
+
+	private volatile ParsedSql parsedUpdateSql;
+
+	private List<BatchedUpdate> batch = new ArrayList<BatchedUpdate>();
+
 	/**
 	 * Constructor taking {@link DataSource} from which the DB Connection can be obtained and the select query to
 	 * execute to retrieve new rows.
@@ -92,18 +139,68 @@ public class JdbcMessageHandler extends AbstractMessageHandler {
 
 	public void setUpdateSql(String updateSql) {
 		this.updateSql = updateSql;
+		this.parsedUpdateSql = null;
 	}
 
 	public void setSqlParameterSourceFactory(SqlParameterSourceFactory sqlParameterSourceFactory) {
 		this.sqlParameterSourceFactory = sqlParameterSourceFactory;
 	}
 
+	/**
+	 * The maximum number of messages for which the update is executed as a single JDBC batch. Default 1 (no
+	 * batching). Batching cannot be combined with 'keysGenerated'. A batch may be executed on any sender's thread,
+	 * and within its transaction, if any, so batching must not be used when the updates need to be part of each
+	 * sender's own transaction.
+	 * @param batchSize the batch size.
+	 * @since 3.0
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be > 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * The maximum time, in milliseconds, that a message waits for its batch to be filled before the batch is
+	 * executed anyway. Requires a {@link TaskScheduler}. Default 1000.
+	 * @param batchTimeout the batch timeout.
+	 * @since 3.0
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout > 0, "'batchTimeout' must be > 0");
+		this.batchTimeout = batchTimeout;
+	}
+
+	@Override
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		super.setTaskScheduler(taskScheduler);
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		if (this.batchSize > 1) {
+			Assert.isTrue(!this.keysGenerated, "'keysGenerated' is not supported with a 'batchSize' greater than 1");
+			if (this.getBeanFactory() != null) {
+				MessagePublishingErrorHandler errorHandler = new MessagePublishingErrorHandler(
+						new BeanFactoryChannelResolver(this.getBeanFactory()));
+				this.errorHandler = errorHandler;
+			}
+			if (this.getTaskScheduler() == null && logger.isWarnEnabled()) {
+				logger.warn("No TaskScheduler is available; batches will only be executed when they are full");
+			}
+		}
+	}
+
 	/**
 	 * Executes the update, passing the message into the {@link SqlParameterSourceFactory}.
 	 */
 	@Override
 	protected void handleMessageInternal(Message<?> message) throws MessageRejectedException, MessageHandlingException,
 			MessageDeliveryException {
+		if (this.batchSize > 1) {
+			this.addToBatch(message);
+			return;
+		}
 		List<? extends Map<String, Object>> keys = executeUpdateQuery(message, keysGenerated);
 		if (logger.isDebugEnabled() && !keys.isEmpty()) {
 			logger.debug("Generated keys: "+keys);
@@ -130,4 +227,232 @@ public class JdbcMessageHandler extends AbstractMessageHandler {
 
 	}
 
+	/**
+	 * Execute the update for the messages in the current batch, if any.
+	 * @since 3.0
+	 */
+	public void flush() {
+		List<BatchedUpdate> updates;
+		synchronized (this.batchMonitor) {
+			updates = this.batch;
+			if (updates.isEmpty()) {
+				return;
+			}
+			this.batch = new ArrayList<BatchedUpdate>(this.batchSize);
+		}
+		this.executeBatch(updates);
+	}
+
+	/**
+	 * Executes any pending batch.
+	 */
+	public void destroy() {
+		this.flush();
+	}
+
+	/**
+	 * Binds the parameters of the message on the sender's thread, so that a message that cannot be bound is
+	 * rejected rather than added to the batch, then adds it to the batch.
+	 */
+	private void addToBatch(Message<?> message) {
+		BatchedUpdate update;
+		try {
+			update = new BatchedUpdate(message, this.getParsedUpdateSql(), this.sqlParameterSourceFactory != null
+					? this.sqlParameterSourceFactory.createParameterSource(message)
+					: new MapSqlParameterSource());
+		}
+		catch (RuntimeException e) {
+			throw new MessageHandlingException(message, "failed to bind the parameters of a batched update", e);
+		}
+		List<BatchedUpdate> fullBatch = null;
+		synchronized (this.batchMonitor) {
+			this.batch.add(update);
+			if (this.batch.size() >= this.batchSize) {
+				fullBatch = this.batch;
+				this.batch = new ArrayList<BatchedUpdate>(this.batchSize);
+			}
+			else if (this.batch.size() == 1) {
+				this.scheduleTimeout(this.batch);
+			}
+		}
+		if (fullBatch != null) {
+			this.executeBatch(fullBatch);
+		}
+	}
+
+	private ParsedSql getParsedUpdateSql() {
+		ParsedSql parsedSql = this.parsedUpdateSql;
+		if (parsedSql == null) {
+			parsedSql = NamedParameterUtils.parseSqlStatement(this.updateSql);
+			this.parsedUpdateSql = parsedSql;
+		}
+		return parsedSql;
+	}
+
+	private void scheduleTimeout(final List<BatchedUpdate> updates) {
+		TaskScheduler taskScheduler = this.getTaskScheduler();
+		if (taskScheduler == null) {
+			return;
+		}
+		taskScheduler.schedule(new Runnable() {
+			public void run() {
+				synchronized (batchMonitor) {
+					if (batch != updates) {
+						// already executed
+						return;
+					}
+					batch = new ArrayList<BatchedUpdate>(batchSize);
+				}
+				executeBatch(updates);
+			}
+		}, new Date(System.currentTimeMillis() + this.batchTimeout));
+	}
+
+	/**
+	 * Execute the update for all the messages as a single batch. If the batch fails, the update counts of the
+	 * {@link BatchUpdateException} identify the failed messages; when the driver stopped at the first failure, the
+	 * remaining messages are executed as a new batch.
+	 */
+	private void executeBatch(List<BatchedUpdate> updates) {
+		BatchResult result;
+		try {
+			result = this.jdbcOperations.getJdbcOperations().execute(new BatchUpdateCallback(updates));
+		}
+		catch (DataAccessException e) {
+			// the batch could not be executed at all
+			for (BatchedUpdate update : updates) {
+				this.handleBatchFailure(update.message, e);
+			}
+			return;
+		}
+		for (Map.Entry<BatchedUpdate, Exception> failure : result.failures.entrySet()) {
+			this.handleBatchFailure(failure.getKey().message, failure.getValue());
+		}
+		if (!result.notExecuted.isEmpty()) {
+			this.executeBatch(result.notExecuted);
+		}
+	}
+
+	private void handleBatchFailure(Message<?> message, Exception e) {
+		this.errorHandler.handleError(new MessageHandlingException(message, "failed to execute batched update", e));
+	}
+
+
+
+	/**
+	 * Sets the parameters of each message and executes the batch, recording the messages that failed and those
+	 * that were not executed because the driver stopped at the first failure.
+	 */
+	private class BatchUpdateCallback implements ConnectionCallback<BatchResult> {
+
+		private final List<BatchedUpdate> updates;
+
+		private BatchUpdateCallback(List<BatchedUpdate> updates) {
+			this.updates = updates;
+		}
+
+		public BatchResult doInConnection(Connection connection) throws SQLException, DataAccessException {
+			BatchResult result = new BatchResult();
+			BatchedUpdate first = this.updates.get(0);
+			String sql = NamedParameterUtils.substituteNamedParameters(first.parsedSql, first.parameterSource);
+			boolean batchSupported = JdbcUtils.supportsBatchUpdates(connection);
+			List<BatchedUpdate> batchUpdates = new ArrayList<BatchedUpdate>(this.updates.size());
+			PreparedStatement statement = connection.prepareStatement(sql);
+			try {
+				for (BatchedUpdate update : this.updates) {
+					try {
+						this.setParameters(statement, update);
+						if (batchSupported) {
+							statement.addBatch();
+							batchUpdates.add(update);
+						}
+						else {
+							statement.executeUpdate();
+						}
+					}
+					catch (SQLException e) {
+						statement.clearParameters();
+						result.failures.put(update, e);
+					}
+				}
+				if (batchUpdates.isEmpty()) {
+					return result;
+				}
+				try {
+					int[] updateCounts = statement.executeBatch();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Executed a batch of " + updateCounts.length + " update(s)");
+					}
+				}
+				catch (BatchUpdateException e) {
+					int[] updateCounts = e.getUpdateCounts();
+					for (int i = 0; i < updateCounts.length && i < batchUpdates.size(); i++) {
+						if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+							result.failures.put(batchUpdates.get(i), e);
+						}
+					}
+					if (updateCounts.length < batchUpdates.size()) {
+						result.failures.put(batchUpdates.get(updateCounts.length), e);
+						result.notExecuted.addAll(batchUpdates.subList(updateCounts.length + 1, batchUpdates.size()));
+					}
+				}
+				return result;
+			}
+			finally {
+				JdbcUtils.closeStatement(statement);
+			}
+		}
+
+		private void setParameters(PreparedStatement statement, BatchedUpdate update) throws SQLException {
+			Object[] values = update.values;
+			int[] sqlTypes = update.sqlTypes;
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] instanceof SqlParameterValue) {
+					SqlParameterValue parameterValue = (SqlParameterValue) values[i];
+					StatementCreatorUtils.setParameterValue(statement, i + 1, parameterValue, parameterValue.getValue());
+				}
+				else {
+					int sqlType = (i < sqlTypes.length ? sqlTypes[i] : SqlTypeValue.TYPE_UNKNOWN);
+					StatementCreatorUtils.setParameterValue(statement, i + 1, sqlType, values[i]);
+				}
+			}
+		}
+
+	}
+
+
+	/**
+	 * A message of a batch and its parameter values, obtained when the message was sent.
+	 */
+	private static class BatchedUpdate {
+
+		private final Message<?> message;
+
+		private final ParsedSql parsedSql;
+
+		private final SqlParameterSource parameterSource;
+
+		private final Object[] values;
+
+		private final int[] sqlTypes;
+
+		private BatchedUpdate(Message<?> message, ParsedSql parsedSql, SqlParameterSource parameterSource) {
+			this.message = message;
+			this.parsedSql = parsedSql;
+			this.parameterSource = parameterSource;
+			this.values = NamedParameterUtils.buildValueArray(parsedSql, parameterSource, null);
+			this.sqlTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, parameterSource);
+		}
+
+	}
+
+
+	private static class BatchResult {
+
+		private final Map<BatchedUpdate, Exception> failures = new LinkedHashMap<BatchedUpdate, Exception>();
+
+		private final List<BatchedUpdate> notExecuted = new ArrayList<BatchedUpdate>();
+
+	}
+
 }
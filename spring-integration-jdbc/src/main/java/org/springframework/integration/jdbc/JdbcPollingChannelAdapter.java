@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -98,6 +98,13 @@ public class JdbcPollingChannelAdapter extends IntegrationObjectSupport implemen
 		this.updateSql = updateSql;
 	}
 
+	/**
+	 * If true, the update is executed with each row, rather than once with the
+	 * list of rows; the updates for the rows of a poll are executed as a single
+	 * JDBC batch.
+	 *
+	 * @param updatePerRow the flag value to set
+	 */
 	public void setUpdatePerRow(boolean updatePerRow) {
 		this.updatePerRow = updatePerRow;
 	}
@@ -162,9 +169,7 @@ public class JdbcPollingChannelAdapter extends IntegrationObjectSupport implemen
 		}
 		if (payload != null && updateSql != null) {
 			if (this.updatePerRow) {
-				for (Object row : payload) {
-					executeUpdateQuery(row);
-				}
+				executeBatchUpdateQuery(payload);
 			}
 			else {
 				executeUpdateQuery(payload);
@@ -178,6 +183,17 @@ public class JdbcPollingChannelAdapter extends IntegrationObjectSupport implemen
 		this.jdbcOperations.update(this.updateSql, updateParamaterSource);
 	}
 
+	/**
+	 * Execute the update for each row as a single JDBC batch.
+	 */
+	private void executeBatchUpdateQuery(List<?> rows) {
+		SqlParameterSource[] updateParameterSources = new SqlParameterSource[rows.size()];
+		for (int i = 0; i < updateParameterSources.length; i++) {
+			updateParameterSources[i] = this.sqlParameterSourceFactory.createParameterSource(rows.get(i));
+		}
+		this.jdbcOperations.batchUpdate(this.updateSql, updateParameterSources);
+	}
+
 	protected List<?> doPoll(SqlParameterSource sqlQueryParameterSource) {
 
 		List<?> payload = null;
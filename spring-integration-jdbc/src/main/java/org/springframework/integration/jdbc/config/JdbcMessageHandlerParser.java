@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -67,6 +67,8 @@ public class JdbcMessageHandlerParser extends AbstractOutboundChannelAdapterPars
 			builder.addConstructorArgReference(jdbcOperationsRef);
 		}
 		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "sql-parameter-source-factory");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "batch-size");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "batch-timeout");
 		builder.addConstructorArgValue(query);
 		return builder.getBeanDefinition();
 	}
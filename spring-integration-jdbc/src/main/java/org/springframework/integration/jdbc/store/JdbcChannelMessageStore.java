@@ -40,6 +40,7 @@ import org.springframework.core.serializer.support.DeserializingConverter;
 import org.springframework.core.serializer.support.SerializingConverter;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageHeaders;
+import org.springframework.integration.codec.MessageCodec;
 import org.springframework.integration.jdbc.JdbcMessageStore;
 import org.springframework.integration.jdbc.store.channel.ChannelMessageStoreQueryProvider;
 import org.springframework.integration.jdbc.store.channel.DerbyChannelMessageStoreQueryProvider;
@@ -139,6 +140,8 @@ public class JdbcChannelMessageStore extends AbstractMessageGroupStore implement
 
 	private volatile SerializingConverter serializer;
 
+	private volatile MessageCodec codec;
+
 	private volatile LobHandler lobHandler = new DefaultLobHandler();
 
 	private volatile MessageRowMapper messageRowMapper;
@@ -285,7 +288,9 @@ public class JdbcChannelMessageStore extends AbstractMessageGroupStore implement
 	}
 
 	/**
-	 * A converter for serializing messages to byte arrays for storage.
+	 * A converter for serializing messages to byte arrays for storage. When it is a
+	 * {@link MessageCodec}, the saved headers are encoded with each message without first
+	 * building a copy of the message.
 	 *
 	 * @param serializer The serializer to set
 	 */
@@ -293,6 +298,7 @@ public class JdbcChannelMessageStore extends AbstractMessageGroupStore implement
 	public void setSerializer(Serializer<? super Message<?>> serializer) {
 		Assert.notNull(serializer, "The provided serializer must not be null.");
 		this.serializer = new SerializingConverter((Serializer<Object>) serializer);
+		this.codec = (serializer instanceof MessageCodec) ? (MessageCodec) serializer : null;
 	}
 
 	/**
@@ -400,15 +406,26 @@ public class JdbcChannelMessageStore extends AbstractMessageGroupStore implement
 		final String groupKey = getKey(groupId);
 
 		final long createdDate = System.currentTimeMillis();
-		final Message<?> result = MessageBuilder.fromMessage(message).setHeader(SAVED_KEY, Boolean.TRUE)
-				.setHeader(CREATED_DATE_KEY, new Long(createdDate)).build();
+		final String messageId = getKey(message.getHeaders().getId());
+		final byte[] messageBytes;
+
+		MessageCodec codec = this.codec;
+		if (codec != null) {
+			Map<String, Object> savedHeaders = new HashMap<String, Object>(4);
+			savedHeaders.put(SAVED_KEY, Boolean.TRUE);
+			savedHeaders.put(CREATED_DATE_KEY, new Long(createdDate));
+			messageBytes = codec.encode(message, savedHeaders);
+		}
+		else {
+			final Message<?> result = MessageBuilder.fromMessage(message).setHeader(SAVED_KEY, Boolean.TRUE)
+					.setHeader(CREATED_DATE_KEY, new Long(createdDate)).build();
 
-		final Map innerMap = (Map) new DirectFieldAccessor(result.getHeaders()).getPropertyValue("headers");
-		// using reflection to set ID since it is immutable through MessageHeaders
-		innerMap.put(MessageHeaders.ID, message.getHeaders().get(MessageHeaders.ID));
+			final Map innerMap = (Map) new DirectFieldAccessor(result.getHeaders()).getPropertyValue("headers");
+			// using reflection to set ID since it is immutable through MessageHeaders
+			innerMap.put(MessageHeaders.ID, message.getHeaders().get(MessageHeaders.ID));
 
-		final String messageId = getKey(result.getHeaders().getId());
-		final byte[] messageBytes = serializer.convert(result);
+			messageBytes = serializer.convert(result);
+		}
 
 		jdbcTemplate.update(getQuery(channelMessageStoreQueryProvider.getCreateMessageQuery()), new PreparedStatementSetter() {
 			@Override
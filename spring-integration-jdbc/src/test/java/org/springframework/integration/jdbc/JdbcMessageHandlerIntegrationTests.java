@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,9 @@
 package org.springframework.integration.jdbc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import java.util.Map;
 
@@ -24,12 +27,17 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.integration.Message;
+import org.springframework.integration.MessageHandlingException;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.message.ErrorMessage;
 import org.springframework.integration.message.GenericMessage;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * @author Dave Syer
@@ -96,4 +104,136 @@ public class JdbcMessageHandlerIntegrationTests {
 		assertEquals("Wrong name", "foo", map.get("NAME"));
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testBatchInsert() {
+		JdbcMessageHandler handler = new JdbcMessageHandler(jdbcTemplate,
+				"insert into foos (id, status, name) values (:headers[business.id], 0, :payload)");
+		handler.setBatchSize(3);
+		handler.afterPropertiesSet();
+		for (int i = 0; i < 7; i++) {
+			handler.handleMessage(MessageBuilder.withPayload("foo" + i).setHeader("business.id", "FOO" + i).build());
+		}
+		assertEquals(6, countFoos());
+		handler.flush();
+		assertEquals(7, countFoos());
+		Map<String, Object> map = jdbcTemplate.queryForMap("SELECT * FROM FOOS WHERE ID=?", "FOO6");
+		assertEquals("Wrong name", "foo6", map.get("NAME"));
+	}
+
+	@Test
+	public void testBatchInsertReportsFailedMessages() {
+		JdbcMessageHandler handler = new JdbcMessageHandler(jdbcTemplate,
+				"insert into foos (id, status, name) values (:headers[business.id], :headers[status], :payload)");
+		handler.setBatchSize(3);
+		handler.afterPropertiesSet();
+		QueueChannel errorChannel = new QueueChannel();
+		handler.handleMessage(MessageBuilder.withPayload("foo").setHeader("business.id", "FOO1").setHeader("status", 0)
+				.setErrorChannel(errorChannel).build());
+		// not a number
+		Message<String> invalid = MessageBuilder.withPayload("baz").setHeader("business.id", "FOO2").setHeader("status", "x")
+				.setErrorChannel(errorChannel).build();
+		handler.handleMessage(invalid);
+		handler.handleMessage(MessageBuilder.withPayload("bar").setHeader("business.id", "FOO3").setHeader("status", 0)
+				.setErrorChannel(errorChannel).build());
+		assertEquals(2, countFoos());
+		assertEquals("foo", jdbcTemplate.queryForMap("SELECT * FROM FOOS WHERE ID=?", "FOO1").get("NAME"));
+		assertEquals("bar", jdbcTemplate.queryForMap("SELECT * FROM FOOS WHERE ID=?", "FOO3").get("NAME"));
+		ErrorMessage error = (ErrorMessage) errorChannel.receive(0);
+		assertNotNull(error);
+		assertEquals(invalid, ((MessagingException) error.getPayload()).getFailedMessage());
+		assertNull(errorChannel.receive(0));
+	}
+
+	@Test
+	public void testBatchInsertRejectsUnboundMessages() {
+		JdbcMessageHandler handler = new JdbcMessageHandler(jdbcTemplate,
+				"insert into foos (id, status, name) values (:headers[business.id], 0, :payload.name)");
+		handler.setBatchSize(2);
+		handler.afterPropertiesSet();
+		QueueChannel errorChannel = new QueueChannel();
+		try {
+			handler.handleMessage(MessageBuilder.withPayload("foo").setHeader("business.id", "FOO1")
+					.setErrorChannel(errorChannel).build());
+			fail("Expected MessageHandlingException");
+		}
+		catch (MessageHandlingException e) {
+			assertEquals("foo", e.getFailedMessage().getPayload());
+		}
+		handler.handleMessage(MessageBuilder.withPayload(new Named("bar")).setHeader("business.id", "FOO2")
+				.setErrorChannel(errorChannel).build());
+		assertEquals(0, countFoos());
+		handler.handleMessage(MessageBuilder.withPayload(new Named("baz")).setHeader("business.id", "FOO3")
+				.setErrorChannel(errorChannel).build());
+		assertEquals(2, countFoos());
+		assertNull(errorChannel.receive(0));
+	}
+
+	@Test
+	public void testBatchInsertReportsFailedMessagesFromUpdateCounts() {
+		EmbeddedDatabase h2Database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+				.addScript("classpath:org/springframework/integration/jdbc/messageHandlerIntegrationTest.sql").build();
+		try {
+			JdbcTemplate h2Template = new JdbcTemplate(h2Database);
+			JdbcMessageHandler handler = new JdbcMessageHandler(h2Template,
+					"insert into foos (id, status, name) values (:headers[business.id], 0, :payload)");
+			handler.setBatchSize(3);
+			handler.afterPropertiesSet();
+			QueueChannel errorChannel = new QueueChannel();
+			handler.handleMessage(MessageBuilder.withPayload("foo").setHeader("business.id", "FOO1")
+					.setErrorChannel(errorChannel).build());
+			// too long for the column
+			Message<String> tooLong = MessageBuilder.withPayload("foofoofoofoofoofoofoofoo")
+					.setHeader("business.id", "FOO2").setErrorChannel(errorChannel).build();
+			handler.handleMessage(tooLong);
+			handler.handleMessage(MessageBuilder.withPayload("bar").setHeader("business.id", "FOO3")
+					.setErrorChannel(errorChannel).build());
+			assertEquals(Integer.valueOf(2), h2Template.queryForObject("SELECT COUNT(*) FROM FOOS", Integer.class));
+			ErrorMessage error = (ErrorMessage) errorChannel.receive(0);
+			assertNotNull(error);
+			assertEquals(tooLong, ((MessagingException) error.getPayload()).getFailedMessage());
+			assertNull(errorChannel.receive(0));
+		}
+		finally {
+			h2Database.shutdown();
+		}
+	}
+
+	@Test
+	public void testBatchTimeout() throws Exception {
+		JdbcMessageHandler handler = new JdbcMessageHandler(jdbcTemplate,
+				"insert into foos (id, status, name) values (:headers[business.id], 0, :payload)");
+		handler.setBatchSize(100);
+		handler.setBatchTimeout(100);
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.afterPropertiesSet();
+		handler.setTaskScheduler(taskScheduler);
+		handler.afterPropertiesSet();
+		handler.handleMessage(MessageBuilder.withPayload("foo").setHeader("business.id", "FOO").build());
+		int n = 0;
+		while (n++ < 100 && countFoos() == 0) {
+			Thread.sleep(100);
+		}
+		assertEquals(1, countFoos());
+		taskScheduler.destroy();
+	}
+
+	private int countFoos() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FOOS", Integer.class);
+	}
+
+
+	public static class Named {
+
+		private final String name;
+
+		public Named(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+	}
+
+}
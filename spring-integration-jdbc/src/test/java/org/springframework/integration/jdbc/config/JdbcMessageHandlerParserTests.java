@@ -67,6 +67,21 @@ public class JdbcMessageHandlerParserTests {
 		assertEquals(1, adviceCalled);
 	}
 
+	@Test
+	public void testBatchOutboundChannelAdapter() throws Exception {
+		setUp("handlingBatchJdbcOutboundChannelAdapterTest.xml", getClass());
+		JdbcMessageHandler handler = context.getBean(JdbcMessageHandler.class);
+		assertEquals(3, TestUtils.getPropertyValue(handler, "batchSize"));
+		assertEquals(100L, TestUtils.getPropertyValue(handler, "batchTimeout"));
+		channel.send(MessageBuilder.withPayload("foo").setHeader("business.key", "FOO").build());
+		channel.send(MessageBuilder.withPayload("bar").setHeader("business.key", "BAR").build());
+		int n = 0;
+		while (n++ < 100 && this.jdbcTemplate.queryForObject("SELECT COUNT(*) from FOOS", Integer.class) < 2) {
+			Thread.sleep(100);
+		}
+		assertEquals(Integer.valueOf(2), this.jdbcTemplate.queryForObject("SELECT COUNT(*) from FOOS", Integer.class));
+	}
+
 	@Test
 	public void testDollarHeaderOutboundChannelAdapter(){
 		setUp("handlingDollarHeaderJdbcOutboundChannelAdapterTest.xml", getClass());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.integration.Message;
+import org.springframework.integration.codec.MessageCodec;
 import org.springframework.integration.jdbc.store.JdbcChannelMessageStore;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -90,4 +91,32 @@ public class AbstractJdbcChannelMessageStoreTests {
 		assertNotNull(messageFromDb.getHeaders().get(JdbcChannelMessageStore.CREATED_DATE_KEY));
 	}
 
+	public void testAddAndGetWithCodec() throws Exception {
+		MessageCodec codec = new MessageCodec();
+		messageStore = new JdbcChannelMessageStore(dataSource);
+		messageStore.setRegion("AbstractJdbcChannelMessageStoreTests");
+		messageStore.setChannelMessageStoreQueryProvider(queryProvider);
+		messageStore.setSerializer(codec);
+		messageStore.setDeserializer(codec);
+		messageStore.afterPropertiesSet();
+		final Message<String> message = MessageBuilder.withPayload("Cartman and Kenny")
+				.setHeader("homeTown", "Southpark")
+				.setCorrelationId("kids")
+				.build();
+
+		messageStore.addMessageToGroup(TEST_MESSAGE_GROUP, message);
+
+		Message<?> messageFromDb = messageStore.pollMessageFromGroup(TEST_MESSAGE_GROUP);
+
+		assertNotNull(messageFromDb);
+		assertEquals(message.getHeaders().getId(), messageFromDb.getHeaders().getId());
+		assertEquals(message.getHeaders().getTimestamp(), messageFromDb.getHeaders().getTimestamp());
+		assertEquals("Southpark", messageFromDb.getHeaders().get("homeTown"));
+		assertEquals("kids", messageFromDb.getHeaders().getCorrelationId());
+		assertEquals("Cartman and Kenny", messageFromDb.getPayload());
+
+		assertEquals(Boolean.TRUE, messageFromDb.getHeaders().get(JdbcChannelMessageStore.SAVED_KEY));
+		assertNotNull(messageFromDb.getHeaders().get(JdbcChannelMessageStore.CREATED_DATE_KEY));
+	}
+
 }
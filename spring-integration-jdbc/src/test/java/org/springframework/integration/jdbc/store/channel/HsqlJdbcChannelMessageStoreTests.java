@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,4 +47,10 @@ public class HsqlJdbcChannelMessageStoreTests extends AbstractJdbcChannelMessage
 		super.testAddAndGet();
 	}
 
+	@Test
+	@Override
+	public void testAddAndGetWithCodec() throws Exception {
+		super.testAddAndGetWithCodec();
+	}
+
 }
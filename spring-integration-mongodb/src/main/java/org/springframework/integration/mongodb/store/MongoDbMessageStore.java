@@ -27,22 +27,29 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 
 import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.annotation.Transient;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.IndexOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.convert.CustomConversions;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Order;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.integration.Message;
@@ -67,6 +74,12 @@ import com.mongodb.DBObject;
 /**
  * An implementation of both the {@link MessageStore} and {@link MessageGroupStore}
  * strategies that relies upon MongoDB for persistence.
+ * <p>
+ * Grouped messages are stored in the messages collection with their group id only;
+ * the metadata of each group (timestamps, completion, last released sequence number)
+ * is kept in one document per group in a companion collection named
+ * '{collectionName}.groups', so that a group mutation is a single atomic update of that
+ * document and groups can be enumerated and expired without loading their messages.
  *
  * @author Mark Fisher
  * @author Oleg Zhurakousky
@@ -76,7 +89,8 @@ import com.mongodb.DBObject;
  * @author Artem Bilan
  * @since 2.1
  */
-public class MongoDbMessageStore extends AbstractMessageGroupStore implements MessageStore, BeanClassLoaderAware {
+public class MongoDbMessageStore extends AbstractMessageGroupStore
+		implements MessageStore, BeanClassLoaderAware, InitializingBean {
 
 	private final static String DEFAULT_COLLECTION_NAME = "messages";
 
@@ -94,11 +108,17 @@ public class MongoDbMessageStore extends AbstractMessageGroupStore implements Me
 
 	private final static String CREATED_DATE = "_createdDate";
 
+	private final static String MESSAGE_ID_KEY = "headers.id._value";
+
+	private final static String GROUP_COLLECTION_SUFFIX = ".groups";
+
 
 	private final MongoTemplate template;
 
 	private final String collectionName;
 
+	private final String groupCollectionName;
+
 	private volatile ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
 
 
@@ -118,6 +138,7 @@ public class MongoDbMessageStore extends AbstractMessageGroupStore implements Me
 		converter.afterPropertiesSet();
 		this.template = new MongoTemplate(mongoDbFactory, converter);
 		this.collectionName = (StringUtils.hasText(collectionName)) ? collectionName : DEFAULT_COLLECTION_NAME;
+		this.groupCollectionName = this.collectionName + GROUP_COLLECTION_SUFFIX;
 	}
 
 
@@ -126,6 +147,22 @@ public class MongoDbMessageStore extends AbstractMessageGroupStore implements Me
 		this.classLoader = classLoader;
 	}
 
+	/**
+	 * Ensure the indexes used by the message and group queries exist and, when the group
+	 * collection is empty, create the metadata documents of groups stored by a previous
+	 * version.
+	 * @since 3.0
+	 */
+	public void afterPropertiesSet() {
+		IndexOperations messageIndexes = this.template.indexOps(this.collectionName);
+		messageIndexes.ensureIndex(new Index(MESSAGE_ID_KEY, Order.ASCENDING));
+		messageIndexes.ensureIndex(new Index(GROUP_ID_KEY, Order.ASCENDING).on(CREATED_DATE, Order.ASCENDING));
+		this.template.indexOps(this.groupCollectionName).ensureIndex(new Index(GROUP_ID_KEY, Order.ASCENDING).unique());
+		if (this.template.count(new Query(), this.groupCollectionName) == 0) {
+			this.createMissingGroupDocuments();
+		}
+	}
+
 	public <T> Message<T> addMessage(Message<T> message) {
 		Assert.notNull(message, "'message' must not be null");
 		this.template.insert(new MessageWrapper(message), this.collectionName);
@@ -151,22 +188,22 @@ public class MongoDbMessageStore extends AbstractMessageGroupStore implements Me
 
 	public MessageGroup getMessageGroup(Object groupId) {
 		Assert.notNull(groupId, "'groupId' must not be null");
-		List<MessageWrapper> messageWrappers = this.template.find(whereGroupIdIs(groupId), MessageWrapper.class, this.collectionName);
+		DBObject groupDocument = this.template.findOne(whereGroupIdIs(groupId), DBObject.class, this.groupCollectionName);
+		List<MessageWrapper> messageWrappers = this.template.find(whereGroupIdIsOrdered(groupId), MessageWrapper.class, this.collectionName);
 		List<Message<?>> messages = new ArrayList<Message<?>>();
+		for (MessageWrapper messageWrapper : messageWrappers) {
+			messages.add(messageWrapper.getMessage());
+		}
+
 		long timestamp = 0;
 		long lastmodified = 0;
 		int lastReleasedSequenceNumber = 0;
 		boolean completeGroup = false;
-		if (messageWrappers.size() > 0){
-			MessageWrapper messageWrapper = messageWrappers.get(0);
-			timestamp = messageWrapper.get_Group_timestamp();
-			lastmodified = messageWrapper.get_Group_update_timestamp();
-			completeGroup = messageWrapper.get_Group_complete();
-			lastReleasedSequenceNumber = messageWrapper.get_LastReleasedSequenceNumber();
-		}
-
-		for (MessageWrapper messageWrapper : messageWrappers) {
-			messages.add(messageWrapper.getMessage());
+		if (groupDocument != null) {
+			timestamp = getNumber(groupDocument, GROUP_TIMESTAMP_KEY).longValue();
+			lastmodified = getNumber(groupDocument, GROUP_UPDATE_TIMESTAMP_KEY).longValue();
+			lastReleasedSequenceNumber = getNumber(groupDocument, LAST_RELEASED_SEQUENCE_NUMBER).intValue();
+			completeGroup = Boolean.TRUE.equals(groupDocument.get(GROUP_COMPLETE_KEY));
 		}
 
 		SimpleMessageGroup messageGroup = new SimpleMessageGroup(messages, groupId, timestamp, completeGroup);
@@ -181,70 +218,77 @@ public class MongoDbMessageStore extends AbstractMessageGroupStore implements Me
 	public MessageGroup addMessageToGroup(Object groupId, Message<?> message) {
 		Assert.notNull(groupId, "'groupId' must not be null");
 		Assert.notNull(message, "'message' must not be null");
-		MessageGroup messageGroup = this.getMessageGroup(groupId);
-
-		long messageGroupTimestamp = messageGroup.getTimestamp();
-		long lastModified = messageGroup.getLastModified();
-
-		if (messageGroupTimestamp == 0){
-			messageGroupTimestamp = System.currentTimeMillis();
-			lastModified = messageGroupTimestamp;
-		}
-		else {
-			lastModified = System.currentTimeMillis();
-		}
-
 		MessageWrapper wrapper = new MessageWrapper(message);
 		wrapper.set_GroupId(groupId);
-		wrapper.set_Group_timestamp(messageGroupTimestamp);
-		wrapper.set_Group_update_timestamp(lastModified);
-		wrapper.set_Group_complete(messageGroup.isComplete());
-		wrapper.set_LastReleasedSequenceNumber(messageGroup.getLastReleasedMessageSequenceNumber());
-
 		this.template.insert(wrapper, this.collectionName);
+		this.updateGroup(groupId, new Update(), true);
 		return this.getMessageGroup(groupId);
 	}
 
 	public MessageGroup removeMessageFromGroup(Object groupId, Message<?> messageToRemove) {
 		Assert.notNull(groupId, "'groupId' must not be null");
 		Assert.notNull(messageToRemove, "'messageToRemove' must not be null");
-		this.template.findAndRemove(whereMessageIdIsAndGroupIdIs(
-				messageToRemove.getHeaders().getId(), groupId), MessageWrapper.class, this.collectionName);
-		this.updateGroup(groupId);
+		this.template.remove(whereMessageIdIsAndGroupIdIs(messageToRemove.getHeaders().getId(), groupId), this.collectionName);
+		this.updateGroup(groupId, new Update(), false);
 		return this.getMessageGroup(groupId);
 	}
 
 	public void removeMessageGroup(Object groupId) {
-		List<MessageWrapper> messageWrappers = this.template.find(whereGroupIdIs(groupId), MessageWrapper.class, this.collectionName);
-		for (MessageWrapper messageWrapper : messageWrappers) {
-			this.removeMessageFromGroup(groupId, messageWrapper.getMessage());
-		}
+		Assert.notNull(groupId, "'groupId' must not be null");
+		this.template.remove(whereGroupIdIs(groupId), this.collectionName);
+		this.template.remove(whereGroupIdIs(groupId), this.groupCollectionName);
 	}
 
+	/**
+	 * Return an iterator over all groups; only the group ids are read up front and the
+	 * messages of each group are loaded when the iterator reaches it.
+	 */
 	public Iterator<MessageGroup> iterator() {
-		List<MessageWrapper> groupedMessages = this.template.find(whereGroupIdExists(), MessageWrapper.class, this.collectionName);
-		Map<Object, MessageGroup> messageGroups = new HashMap<Object, MessageGroup>();
-		for (MessageWrapper groupedMessage : groupedMessages) {
-			Object groupId = groupedMessage.get_GroupId();
-			if (!messageGroups.containsKey(groupId)) {
-				messageGroups.put(groupId, this.getMessageGroup(groupId));
-			}
+		Query query = new Query();
+		query.fields().include(GROUP_ID_KEY);
+		List<DBObject> groupDocuments = this.template.find(query, DBObject.class, this.groupCollectionName);
+		return new MessageGroupIterator(groupDocuments.iterator());
+	}
+
+	/**
+	 * Select the expired groups with a query on the group metadata, so only those groups
+	 * have their messages loaded.
+	 */
+	@Override
+	public int expireMessageGroups(long timeout) {
+		long threshold = System.currentTimeMillis() - timeout;
+		String timestampKey = this.isTimeoutOnIdle() ? GROUP_UPDATE_TIMESTAMP_KEY : GROUP_TIMESTAMP_KEY;
+		Query query = new Query(where(timestampKey).lte(threshold));
+		query.fields().include(GROUP_ID_KEY);
+		List<DBObject> groupDocuments = this.template.find(query, DBObject.class, this.groupCollectionName);
+		for (DBObject groupDocument : groupDocuments) {
+			this.expire(this.getMessageGroup(this.readGroupId(groupDocument.get(GROUP_ID_KEY))));
 		}
-		return messageGroups.values().iterator();
+		return groupDocuments.size();
+	}
+
+	@Override
+	@ManagedAttribute
+	public int getMessageCountForAllMessageGroups() {
+		long lCount = this.template.count(new Query(where(GROUP_ID_KEY).exists(true)), this.collectionName);
+		Assert.isTrue(lCount <= Integer.MAX_VALUE, "Message count is out of Integer's range");
+		return (int) lCount;
+	}
+
+	@Override
+	@ManagedAttribute
+	public int getMessageGroupCount() {
+		long lCount = this.template.count(new Query(), this.groupCollectionName);
+		Assert.isTrue(lCount <= Integer.MAX_VALUE, "Group count is out of Integer's range");
+		return (int) lCount;
 	}
 
 	public void completeGroup(Object groupId) {
-		Update update = Update.update(GROUP_COMPLETE_KEY, true);
-		Query q = whereGroupIdIs(groupId);
-		this.template.updateFirst(q, update, this.collectionName);
-		this.updateGroup(groupId);
+		this.updateGroup(groupId, Update.update(GROUP_COMPLETE_KEY, true), true);
 	}
 
 	public void setLastReleasedSequenceNumberForGroup(Object groupId, int sequenceNumber) {
-		Update update = Update.update(LAST_RELEASED_SEQUENCE_NUMBER, sequenceNumber);
-		Query q = whereGroupIdIs(groupId);
-		this.template.updateFirst(q, update, this.collectionName);
-		this.updateGroup(groupId);
+		this.updateGroup(groupId, Update.update(LAST_RELEASED_SEQUENCE_NUMBER, sequenceNumber), true);
 	}
 
 	public Message<?> pollMessageFromGroup(Object groupId) {
@@ -253,51 +297,143 @@ public class MongoDbMessageStore extends AbstractMessageGroupStore implements Me
 		Message<?> message = null;
 		if (messageWrapper != null) {
 			message = messageWrapper.getMessage();
+			this.updateGroup(groupId, new Update(), false);
 		}
-		this.updateGroup(groupId);
 		return message;
 	}
 
 	public int messageGroupSize(Object groupId) {
-		long lCount = this.template.count(new Query(where(GROUP_ID_KEY).is(groupId)), this.collectionName);
+		long lCount = this.template.count(whereGroupIdIs(groupId), this.collectionName);
 		Assert.isTrue(lCount <= Integer.MAX_VALUE, "Message count is out of Integer's range");
 		return (int) lCount;
 	}
 
+	/**
+	 * Apply the update and a new last modified time to the metadata document of the group
+	 * in a single atomic operation. When 'create' is true, a missing document is created
+	 * and its creation timestamp set.
+	 */
+	private void updateGroup(Object groupId, Update update, boolean create) {
+		long now = System.currentTimeMillis();
+		update.set(GROUP_UPDATE_TIMESTAMP_KEY, now);
+		if (!create) {
+			this.template.updateFirst(whereGroupIdIs(groupId), update, this.groupCollectionName);
+			return;
+		}
+		FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+		DBObject groupDocument;
+		try {
+			groupDocument = this.template.findAndModify(whereGroupIdIs(groupId), update, options, DBObject.class, this.groupCollectionName);
+		}
+		catch (DuplicateKeyException e) {
+			// the document was created concurrently; this time the update will match it
+			groupDocument = this.template.findAndModify(whereGroupIdIs(groupId), update, options, DBObject.class, this.groupCollectionName);
+		}
+		if (groupDocument != null && !groupDocument.containsField(GROUP_TIMESTAMP_KEY)) {
+			Query query = whereGroupIdIs(groupId).addCriteria(where(GROUP_TIMESTAMP_KEY).exists(false));
+			this.template.updateFirst(query, Update.update(GROUP_TIMESTAMP_KEY, now), this.groupCollectionName);
+		}
+	}
+
+	/**
+	 * Create the metadata documents of groups stored by a previous version, which kept the
+	 * metadata in each grouped message.
+	 */
+	private void createMissingGroupDocuments() {
+		List<?> groupIds = this.template.getCollection(this.collectionName).distinct(GROUP_ID_KEY);
+		for (Object groupId : groupIds) {
+			// the previous version read the metadata from the most recently updated message
+			MessageWrapper messageWrapper = this.template.findOne(whereGroupIdIsMostRecentlyUpdatedFirst(groupId),
+					MessageWrapper.class, this.collectionName);
+			if (messageWrapper != null) {
+				Update update = Update.update(GROUP_TIMESTAMP_KEY, messageWrapper.get_Group_timestamp())
+						.set(GROUP_UPDATE_TIMESTAMP_KEY, messageWrapper.get_Group_update_timestamp())
+						.set(GROUP_COMPLETE_KEY, messageWrapper.get_Group_complete())
+						.set(LAST_RELEASED_SEQUENCE_NUMBER, messageWrapper.get_LastReleasedSequenceNumber());
+				this.template.upsert(whereGroupIdIs(groupId), update, this.groupCollectionName);
+			}
+		}
+	}
+
+	/**
+	 * Convert a group id read from a document back to its type, as the query mapping
+	 * stores some types (such as {@link UUID}) as a document.
+	 */
+	private Object readGroupId(Object groupId) {
+		if (groupId instanceof DBObject && ((DBObject) groupId).containsField("_class")) {
+			Object type = ((DBObject) groupId).get("_class");
+			try {
+				Class<?> groupIdClass = ClassUtils.forName(type.toString(), this.classLoader);
+				return this.template.getConverter().read(groupIdClass, (DBObject) groupId);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException("failed to load class: " + type, e);
+			}
+		}
+		return groupId;
+	}
+
+	private static Number getNumber(DBObject document, String key) {
+		Object value = document.get(key);
+		return (value instanceof Number) ? (Number) value : Integer.valueOf(0);
+	}
+
 	/*
 	 * Common Queries
 	 */
 
 	private static Query whereMessageIdIs(UUID id) {
-		return new Query(where("headers.id._value").is(id.toString()));
+		return new Query(where(MESSAGE_ID_KEY).is(id.toString()));
 	}
 
 	private static Query whereMessageIdIsAndGroupIdIs(UUID id, Object groupId) {
-		return new Query(where("headers.id._value").is(id.toString()).and(GROUP_ID_KEY).is(groupId));
+		return new Query(where(MESSAGE_ID_KEY).is(id.toString()).and(GROUP_ID_KEY).is(groupId));
 	}
 
 	private static Query whereGroupIdIs(Object groupId) {
+		return new Query(where(GROUP_ID_KEY).is(groupId));
+	}
+
+	private static Query whereGroupIdIsMostRecentlyUpdatedFirst(Object groupId) {
 		Query q = new Query(where(GROUP_ID_KEY).is(groupId));
 		q.with(new Sort(Direction.DESC, GROUP_UPDATE_TIMESTAMP_KEY));
 		return q;
 	}
 
-	private static Query whereGroupIdExists() {
-		return new Query(where(GROUP_ID_KEY).exists(true));
-	}
-
 	private static Query whereGroupIdIsOrdered(Object groupId) {
-		Query q = new Query(where(GROUP_ID_KEY).is(groupId)).limit(1);
+		Query q = new Query(where(GROUP_ID_KEY).is(groupId));
 		q.with(new Sort(Direction.ASC, CREATED_DATE));
 		return q;
 	}
 
-	private void updateGroup(Object groupId) {
-		Update update = Update.update(GROUP_UPDATE_TIMESTAMP_KEY, System.currentTimeMillis());
-		Query q = whereGroupIdIs(groupId);
-		this.template.updateFirst(q, update, this.collectionName);
-	}
 
+	/**
+	 * Loads each group when the iterator reaches it.
+	 */
+	private class MessageGroupIterator implements Iterator<MessageGroup> {
+
+		private final Iterator<DBObject> groupDocuments;
+
+		private MessageGroupIterator(Iterator<DBObject> groupDocuments) {
+			this.groupDocuments = groupDocuments;
+		}
+
+		public boolean hasNext() {
+			return this.groupDocuments.hasNext();
+		}
+
+		public MessageGroup next() {
+			if (!this.groupDocuments.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return getMessageGroup(readGroupId(this.groupDocuments.next().get(GROUP_ID_KEY)));
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+	}
 
 	/**
 	 * Custom implementation of the {@link MappingMongoConverter} strategy.
@@ -499,12 +635,18 @@ public class MongoDbMessageStore extends AbstractMessageGroupStore implements Me
 		@SuppressWarnings("unused")
 		private final String _payloadType;
 
+		// group metadata is only read from documents stored by a previous version
+
+		@Transient
 		private volatile long _group_timestamp;
 
+		@Transient
 		private volatile long _group_update_timestamp;
 
+		@Transient
 		private volatile int _last_released_sequence;
 
+		@Transient
 		private volatile boolean _group_complete;
 
 		public MessageWrapper(Message<?> message) {
@@ -15,12 +15,34 @@
  */
 package org.springframework.integration.mongodb.store;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
 import org.junit.Test;
 
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.integration.Message;
+import org.springframework.integration.message.GenericMessage;
 import org.springframework.integration.mongodb.rules.MongoDbAvailable;
+import org.springframework.integration.store.MessageGroup;
+import org.springframework.integration.store.MessageGroupStore;
+import org.springframework.integration.store.MessageGroupStore.MessageGroupCallback;
 import org.springframework.integration.store.MessageStore;
 
+import com.mongodb.DBObject;
 import com.mongodb.Mongo;
 
 /**
@@ -46,4 +68,94 @@ public class MongoDbMessageGroupStoreTests extends AbstractMongoDbMessageGroupSt
 	public void testWithAggregatorWithShutdown() throws Exception {
 		super.testWithAggregatorWithShutdown("mongo-aggregator-config.xml");
 	}
+
+	@Test
+	@MongoDbAvailable
+	public void testGroupMetadataDocument() throws Exception {
+		MongoDbFactory mongoDbFactory = this.prepareMongoFactory();
+		MongoDbMessageStore store = new MongoDbMessageStore(mongoDbFactory);
+		store.afterPropertiesSet();
+		UUID groupId = UUID.randomUUID();
+		store.addMessageToGroup(groupId, new GenericMessage<String>("A"));
+		store.addMessageToGroup(groupId, new GenericMessage<String>("B"));
+		store.setLastReleasedSequenceNumberForGroup(groupId, 2);
+		store.completeGroup(groupId);
+
+		MongoTemplate template = new MongoTemplate(mongoDbFactory);
+		assertEquals(1, template.getCollection("messages.groups").count());
+		for (DBObject message : template.getCollection("messages").find()) {
+			assertFalse(message.containsField("_group_complete"));
+		}
+		Set<String> indexes = new HashSet<String>();
+		for (DBObject index : template.getCollection("messages").getIndexInfo()) {
+			indexes.addAll(((DBObject) index.get("key")).keySet());
+		}
+		assertTrue(indexes.contains("headers.id._value"));
+		assertTrue(indexes.contains("_groupId"));
+		assertTrue(indexes.contains("_createdDate"));
+
+		Iterator<MessageGroup> groups = store.iterator();
+		MessageGroup group = groups.next();
+		assertFalse(groups.hasNext());
+		assertEquals(groupId, group.getGroupId());
+		assertEquals(2, group.size());
+		assertTrue(group.isComplete());
+		assertEquals(2, group.getLastReleasedMessageSequenceNumber());
+		assertEquals(2, store.getMessageCountForAllMessageGroups());
+		assertEquals(1, store.getMessageGroupCount());
+
+		final List<Object> expired = new ArrayList<Object>();
+		store.registerMessageGroupExpiryCallback(new MessageGroupCallback() {
+			public void execute(MessageGroupStore messageGroupStore, MessageGroup group) {
+				expired.add(group.getGroupId());
+				messageGroupStore.removeMessageGroup(group.getGroupId());
+			}
+		});
+		assertEquals(0, store.expireMessageGroups(60000));
+		assertEquals(1, store.expireMessageGroups(-1000));
+		assertEquals(groupId, expired.get(0));
+		assertEquals(0, store.getMessageGroupCount());
+		assertEquals(0, store.getMessageCountForAllMessageGroups());
+	}
+
+	@Test
+	@MongoDbAvailable
+	public void testGroupMetadataIsMigratedFromMostRecentlyUpdatedMessage() throws Exception {
+		MongoDbFactory mongoDbFactory = this.prepareMongoFactory();
+		MongoDbMessageStore store = new MongoDbMessageStore(mongoDbFactory);
+		store.afterPropertiesSet();
+		UUID groupId = UUID.randomUUID();
+		GenericMessage<String> older = new GenericMessage<String>("A");
+		GenericMessage<String> newer = new GenericMessage<String>("B");
+		GenericMessage<String> oldest = new GenericMessage<String>("C");
+		store.addMessageToGroup(groupId, older);
+		store.addMessageToGroup(groupId, newer);
+		store.addMessageToGroup(groupId, oldest);
+
+		// turn the messages into those of a previous version, each with its own copy of the metadata
+		MongoTemplate template = new MongoTemplate(mongoDbFactory);
+		template.dropCollection("messages.groups");
+		this.setLegacyGroupMetadata(template, older, 2000, false, 1);
+		this.setLegacyGroupMetadata(template, newer, 3000, true, 2);
+		this.setLegacyGroupMetadata(template, oldest, 1000, false, 0);
+
+		store = new MongoDbMessageStore(mongoDbFactory);
+		store.afterPropertiesSet();
+		MessageGroup group = store.getMessageGroup(groupId);
+		assertEquals(3, group.size());
+		assertEquals(100, group.getTimestamp());
+		assertEquals(3000, group.getLastModified());
+		assertTrue(group.isComplete());
+		assertEquals(2, group.getLastReleasedMessageSequenceNumber());
+	}
+
+	private void setLegacyGroupMetadata(MongoTemplate template, Message<?> message, long updateTimestamp,
+			boolean complete, int lastReleasedSequence) {
+		template.updateFirst(new Query(where("headers.id._value").is(message.getHeaders().getId().toString())),
+				Update.update("_group_timestamp", 100L)
+						.set("_group_update_timestamp", updateTimestamp)
+						.set("_group_complete", complete)
+						.set("_last_released_sequence", lastReleasedSequence),
+				"messages");
+	}
 }
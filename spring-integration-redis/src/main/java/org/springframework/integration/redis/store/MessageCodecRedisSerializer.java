@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.redis.store;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.integration.Message;
+import org.springframework.integration.codec.MessageCodec;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link RedisSerializer} for the values of a {@link RedisMessageStore} that encodes
+ * messages with a {@link MessageCodec}, and the other values stored (the metadata of
+ * message groups) with Java serialization. Set it with
+ * {@link RedisMessageStore#setValueSerializer(RedisSerializer)}.
+ *
+ * @since 3.0
+ */
+public class MessageCodecRedisSerializer implements RedisSerializer<Object> {
+
+	private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+	private final MessageCodec codec;
+
+	public MessageCodecRedisSerializer() {
+		this(new MessageCodec());
+	}
+
+	public MessageCodecRedisSerializer(MessageCodec codec) {
+		Assert.notNull(codec, "'codec' must not be null");
+		this.codec = codec;
+	}
+
+	public byte[] serialize(Object object) throws SerializationException {
+		if (object instanceof Message) {
+			try {
+				return this.codec.encode((Message<?>) object);
+			}
+			catch (Exception e) {
+				throw new SerializationException("Failed to encode message", e);
+			}
+		}
+		return this.jdkSerializer.serialize(object);
+	}
+
+	public Object deserialize(byte[] bytes) throws SerializationException {
+		if (this.codec.isEncodedMessage(bytes)) {
+			try {
+				return this.codec.decode(bytes);
+			}
+			catch (Exception e) {
+				throw new SerializationException("Failed to decode message", e);
+			}
+		}
+		return this.jdkSerializer.deserialize(bytes);
+	}
+
+}
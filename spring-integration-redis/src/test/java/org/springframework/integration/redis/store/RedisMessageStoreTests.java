@@ -33,6 +33,7 @@ import org.springframework.integration.history.MessageHistory;
 import org.springframework.integration.message.GenericMessage;
 import org.springframework.integration.redis.rules.RedisAvailable;
 import org.springframework.integration.redis.rules.RedisAvailableTests;
+import org.springframework.integration.support.MessageBuilder;
 
 /**
  * @author Oleg Zhurakousky
@@ -143,6 +144,23 @@ public class RedisMessageStoreTests extends RedisAvailableTests {
 		assertEquals("channel", fooChannelHistory.get("type"));
 	}
 
+	@Test
+	@RedisAvailable
+	public void testAddAndGetMessagesAndGroupsWithCodec() {
+		RedisConnectionFactory jcf = this.getConnectionFactoryForTest();
+		RedisMessageStore store = new RedisMessageStore(jcf);
+		store.setValueSerializer(new MessageCodecRedisSerializer());
+		Message<String> message = MessageBuilder.withPayload("Hello Redis").setHeader("foo", 42).build();
+		store.addMessage(message);
+		Message<?> retrievedMessage = store.getMessage(message.getHeaders().getId());
+		assertEquals(message, retrievedMessage);
+		assertEquals(message, store.removeMessage(message.getHeaders().getId()));
+
+		store.addMessageToGroup("codecGroup", message);
+		assertEquals(message, store.getMessageGroup("codecGroup").getOne());
+		store.removeMessageGroup("codecGroup");
+	}
+
 	@SuppressWarnings("serial")
 	public static class Person implements Serializable{
 		private Address address;
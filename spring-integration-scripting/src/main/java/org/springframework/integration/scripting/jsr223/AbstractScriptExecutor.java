@@ -14,9 +14,16 @@ package org.springframework.integration.scripting.jsr223;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 
 import org.apache.commons.logging.Log;
@@ -29,6 +36,15 @@ import org.springframework.util.Assert;
 
 /**
  * Base Class for {@link ScriptExecutor}
+ * <p>
+ * When the engine is {@link Compilable}, a script is compiled once and the compiled
+ * form is evaluated until the {@link ScriptSource} returns a different script (for
+ * example, when a {@link org.springframework.integration.scripting.RefreshableResourceScriptSource}
+ * detects a change), when it is compiled again. An engine whose factory does not
+ * declare a 'THREADING' parameter is not thread-safe; in that case concurrent
+ * executions each use their own engine, created by the {@link ScriptEngineManager}
+ * (so that it has the manager's global bindings) when no idle engine is available.
+ * At most 'maxIdleEngines' idle engines are retained for later executions.
  *
  * @author David Turanski
  * @author Mark Fisher
@@ -43,11 +59,21 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 
 	protected final String language;
 
+	private final ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
+
+	private final ScriptEngineHolder sharedEngine;
+
+	private final Queue<ScriptEngineHolder> idleEngines = new ConcurrentLinkedQueue<ScriptEngineHolder>();
+
+	private final AtomicInteger idleEngineCount = new AtomicInteger();
+
+	private volatile int maxIdleEngines = Runtime.getRuntime().availableProcessors();
+
 	public AbstractScriptExecutor(String language) {
 		Assert.hasText(language, "language must not be empty");
 		this.language = language;
 
-		scriptEngine = new ScriptEngineManager().getEngineByName(this.language);
+		scriptEngine = this.scriptEngineManager.getEngineByName(this.language);
 
 		if (logger.isDebugEnabled()) {
 
@@ -58,6 +84,29 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 				logger.debug("using script engine : " + scriptEngine.getFactory().getEngineName());
 			}
 		}
+
+		if (scriptEngine != null && scriptEngine.getFactory().getParameter("THREADING") != null) {
+			this.sharedEngine = new ScriptEngineHolder(scriptEngine);
+		}
+		else {
+			this.sharedEngine = null;
+			if (scriptEngine != null) {
+				this.idleEngines.add(new ScriptEngineHolder(scriptEngine));
+				this.idleEngineCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Set the maximum number of idle engines retained for later executions, when the
+	 * engine is not thread-safe; an engine released when that many are already idle is
+	 * discarded. Default: the number of available processors.
+	 * @param maxIdleEngines the maximum number of idle engines.
+	 * @since 3.0
+	 */
+	public void setMaxIdleEngines(int maxIdleEngines) {
+		Assert.isTrue(maxIdleEngines > 0, "'maxIdleEngines' must be > 0");
+		this.maxIdleEngines = maxIdleEngines;
 	}
 
 	public Object executeScript(ScriptSource scriptSource) {
@@ -68,21 +117,22 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 		Object result = null;
 
 		try {
+			Assert.state(scriptEngine != null, invlalidLanguageMessage(this.language));
 			String script = scriptSource.getScriptAsString();
 			Date start = new Date();
 			if (logger.isDebugEnabled()) {
 				logger.debug("executing script: " + script);
 			}
 
-			if (variables != null) {
-				result = scriptEngine.eval(script, new SimpleBindings(variables));
+			ScriptEngineHolder engineHolder = this.obtainEngine();
+			try {
+				result = engineHolder.eval(script, (variables != null) ? new SimpleBindings(variables) : null);
+				result = postProcess(result, engineHolder.engine, script);
 			}
-			else {
-				result = scriptEngine.eval(script);
+			finally {
+				this.releaseEngine(engineHolder);
 			}
 
-			result = postProcess(result, scriptEngine, script);
-
 			if (logger.isDebugEnabled()) {
 				logger.debug("script executed in " + (new Date().getTime() - start.getTime()) + " ms");
 			}
@@ -98,16 +148,95 @@ abstract class AbstractScriptExecutor implements ScriptExecutor {
 	/**
 	 * Subclasses may implement this to provide any special handling required
 	 * @param result
-	 * @param scriptEngine
+	 * @param scriptEngine the engine that executed the script
 	 * @param script
 	 * @return modified result
 	 */
 	protected abstract Object postProcess(Object result, ScriptEngine scriptEngine, String script);
 
+	/**
+	 * Subclasses may override this to evaluate the script source every time for an
+	 * engine whose compiled scripts cannot be evaluated with different variables.
+	 * @return whether scripts are compiled when the engine is {@link Compilable}
+	 * @since 3.0
+	 */
+	protected boolean isCompilationSupported() {
+		return true;
+	}
+
+	private ScriptEngineHolder obtainEngine() {
+		if (this.sharedEngine != null) {
+			return this.sharedEngine;
+		}
+		ScriptEngineHolder engineHolder = this.idleEngines.poll();
+		if (engineHolder != null) {
+			this.idleEngineCount.decrementAndGet();
+		}
+		else {
+			if (logger.isDebugEnabled()) {
+				logger.debug("creating an additional script engine for concurrent execution");
+			}
+			engineHolder = new ScriptEngineHolder(this.scriptEngineManager.getEngineByName(this.language));
+		}
+		return engineHolder;
+	}
+
+	private void releaseEngine(ScriptEngineHolder engineHolder) {
+		if (engineHolder != this.sharedEngine) {
+			if (this.idleEngineCount.incrementAndGet() <= this.maxIdleEngines) {
+				this.idleEngines.offer(engineHolder);
+			}
+			else {
+				this.idleEngineCount.decrementAndGet();
+			}
+		}
+	}
+
 	private static String invlalidLanguageMessage(String language) {
 		return new StringBuilder().append(ScriptEngineManager.class.getName())
 				.append(" is unable to create a script engine for language '").append(language).append("'.\n")
 				.append("This may be due to a missing language implementation or an invalid language name.").toString();
 	}
 
+
+	/**
+	 * A {@link ScriptEngine} with the compiled form of the last script it executed.
+	 */
+	private class ScriptEngineHolder {
+
+		private final ScriptEngine engine;
+
+		private volatile CompiledScriptHolder compiledScript;
+
+		private ScriptEngineHolder(ScriptEngine engine) {
+			this.engine = engine;
+		}
+
+		private Object eval(String script, Bindings bindings) throws ScriptException {
+			if (!(this.engine instanceof Compilable) || !isCompilationSupported()) {
+				return (bindings != null) ? this.engine.eval(script, bindings) : this.engine.eval(script);
+			}
+			CompiledScriptHolder compiledScript = this.compiledScript;
+			if (compiledScript == null || !compiledScript.script.equals(script)) {
+				compiledScript = new CompiledScriptHolder(script, ((Compilable) this.engine).compile(script));
+				this.compiledScript = compiledScript;
+			}
+			return (bindings != null) ? compiledScript.compiled.eval(bindings) : compiledScript.compiled.eval();
+		}
+
+	}
+
+	private static class CompiledScriptHolder {
+
+		private final String script;
+
+		private final CompiledScript compiled;
+
+		private CompiledScriptHolder(String script, CompiledScript compiled) {
+			this.script = script;
+			this.compiled = compiled;
+		}
+
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  * 
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -32,4 +32,13 @@ import org.springframework.util.ClassUtils;
 	public RubyScriptExecutor() {
 		super("ruby");
 	}
+
+	/**
+	 * JRuby resolves the variables of a compiled script when it is compiled, so it
+	 * cannot be evaluated again with other variables.
+	 */
+	@Override
+	protected boolean isCompilationSupported() {
+		return false;
+	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,15 +13,30 @@
 package org.springframework.integration.scripting.jsr223;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.script.ScriptEngineManager;
 
 import org.junit.Test;
 
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.integration.scripting.RefreshableResourceScriptSource;
 import org.springframework.integration.scripting.ScriptExecutor;
 import org.springframework.integration.scripting.ScriptingException;
+import org.springframework.integration.test.util.TestUtils;
 import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.scripting.support.StaticScriptSource;
 
@@ -71,6 +86,94 @@ public class Jsr223ScriptExecutorTests {
 		assertEquals(2,obj);
 	}
 
+	@Test
+	public void testRefreshedScriptIsRecompiled() throws Exception {
+		File file = File.createTempFile("script", ".js");
+		file.deleteOnExit();
+		writeScript(file, "'foo' + x");
+		RefreshableResourceScriptSource source = new RefreshableResourceScriptSource(new FileSystemResource(file), 0);
+		ScriptExecutor executor = ScriptExecutorFactory.getScriptExecutor("js");
+		Map<String, Object> variables = new HashMap<String, Object>();
+		variables.put("x", 1);
+		assertEquals("foo1", executor.executeScript(source, variables).toString());
+		variables.put("x", 2);
+		assertEquals("foo2", executor.executeScript(source, variables).toString());
+		writeScript(file, "'bar' + x");
+		file.setLastModified(file.lastModified() + 10000);
+		Thread.sleep(10);
+		assertEquals("bar2", executor.executeScript(source, variables).toString());
+		file.delete();
+	}
+
+	@Test
+	public void testConcurrentExecution() throws Exception {
+		final ScriptExecutor executor = ScriptExecutorFactory.getScriptExecutor("js");
+		final StaticScriptSource source = new StaticScriptSource("var y = x; for (var i = 0; i < 1000; i++) { y = y + 1; } y - 1000");
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < 4; i++) {
+			final int thread = i;
+			results.add(exec.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					for (int j = 0; j < 200; j++) {
+						Map<String, Object> variables = new HashMap<String, Object>();
+						variables.put("x", thread * 1000 + j);
+						Object result = executor.executeScript(source, variables);
+						if (((Number) result).intValue() != thread * 1000 + j) {
+							return false;
+						}
+					}
+					return true;
+				}
+			}));
+		}
+		for (Future<Boolean> result : results) {
+			assertEquals(Boolean.TRUE, result.get());
+		}
+		exec.shutdown();
+	}
+
+	@Test
+	public void testAdditionalEnginesHaveGlobalBindingsAndIdleEnginesAreBounded() throws Exception {
+		final DefaultScriptExecutor executor = new DefaultScriptExecutor("js");
+		executor.setMaxIdleEngines(1);
+		TestUtils.getPropertyValue(executor, "scriptEngineManager", ScriptEngineManager.class).put("z", 1000);
+		final StaticScriptSource source = new StaticScriptSource("x + z");
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < 4; i++) {
+			final int thread = i;
+			results.add(exec.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					for (int j = 0; j < 100; j++) {
+						Map<String, Object> variables = new HashMap<String, Object>();
+						variables.put("x", thread * 100 + j);
+						Object result = executor.executeScript(source, variables);
+						if (((Number) result).intValue() != thread * 100 + j + 1000) {
+							return false;
+						}
+					}
+					return true;
+				}
+			}));
+		}
+		for (Future<Boolean> result : results) {
+			assertEquals(Boolean.TRUE, result.get());
+		}
+		exec.shutdown();
+		assertTrue(TestUtils.getPropertyValue(executor, "idleEngines", Queue.class).size() <= 1);
+	}
+
+	private static void writeScript(File file, String script) throws Exception {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(script);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
 	@Test(expected = ScriptingException.class)
 	public void testInvalidLanguageThrowsScriptingException() {
 		ScriptExecutor executor = ScriptExecutorFactory.getScriptExecutor("foo");
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.scripting.jsr223;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.integration.scripting.ScriptExecutor;
+import org.springframework.scripting.support.StaticScriptSource;
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of the JSR-223 script executors, per language, from one and several threads.
+ *
+ * @since 3.0
+ */
+public class ScriptExecutorPerformanceTests {
+
+	private static final int ITERATIONS = 20000;
+
+	private static final int THREADS = 4;
+
+	@Test
+	@Ignore
+	public void javascriptPerformanceTest() throws Exception {
+		run("js", "payload.length + headers.get('one')");
+	}
+
+	@Test
+	@Ignore
+	public void rubyPerformanceTest() throws Exception {
+		run("ruby", "payload.length + headers['one']");
+	}
+
+	@Test
+	@Ignore
+	public void pythonPerformanceTest() throws Exception {
+		run("python", "len(payload) + headers['one']");
+	}
+
+	private static void run(String language, String script) throws Exception {
+		final ScriptExecutor executor = ScriptExecutorFactory.getScriptExecutor(language);
+		final StaticScriptSource source = new StaticScriptSource(script);
+		for (int i = 0; i < 1000; i++) {
+			executor.executeScript(source, createVariables());
+		}
+		StopWatch watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < ITERATIONS; i++) {
+			executor.executeScript(source, createVariables());
+		}
+		watch.stop();
+		report(language, 1, ITERATIONS, watch);
+
+		ExecutorService exec = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		watch = new StopWatch();
+		watch.start();
+		for (int i = 0; i < THREADS; i++) {
+			exec.execute(new Runnable() {
+				public void run() {
+					for (int j = 0; j < ITERATIONS; j++) {
+						executor.executeScript(source, createVariables());
+					}
+					latch.countDown();
+				}
+			});
+		}
+		latch.await();
+		watch.stop();
+		exec.shutdown();
+		report(language, THREADS, THREADS * ITERATIONS, watch);
+	}
+
+	private static Map<String, Object> createVariables() {
+		Map<String, Object> variables = new HashMap<String, Object>();
+		Map<String, Object> headers = new HashMap<String, Object>();
+		headers.put("one", 1);
+		variables.put("payload", "payload");
+		variables.put("headers", headers);
+		return variables;
+	}
+
+	private static void report(String language, int threads, int executions, StopWatch watch) {
+		System.out.println(language + ": " + executions + " executions on " + threads + " thread(s) in "
+				+ watch.getTotalTimeSeconds() + " seconds");
+	}
+
+}
@@ -16,7 +16,6 @@
 package org.springframework.integration.syslog;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -45,16 +44,14 @@ public class DefaultMessageConverter implements MessageConverter {
 	@Override
 	public Message<?> fromSyslog(Message<?> message) throws Exception {
 		Map<String, ?> map = this.transformer.doTransform(message);
-		Map<String, Object> out = new HashMap<String, Object>();
+		MessageBuilder<Map<String, ?>> builder = MessageBuilder.<Map<String, ?>> withPayload(map);
 		for (Entry<String, ?> entry : map.entrySet()) {
 			String key = entry.getKey();
 			if (!SYSLOG_PAYLOAD_ENTRIES.contains(key)) {
-				out.put(SyslogHeaders.PREFIX + entry.getKey(), entry.getValue());
+				builder.setHeader(SyslogHeaders.PREFIX + key, entry.getValue());
 			}
 		}
-		return MessageBuilder.withPayload(map)
-				.copyHeaders(out)
-				.build();
+		return builder.build();
 	}
 
 }
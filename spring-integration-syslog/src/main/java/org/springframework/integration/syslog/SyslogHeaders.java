@@ -38,4 +38,14 @@ public class SyslogHeaders {
 
 	public static final String TAG = PREFIX + SyslogToMapTransformer.TAG;
 
+	public static final String VERSION = PREFIX + SyslogToMapTransformer.VERSION;
+
+	public static final String APP_NAME = PREFIX + SyslogToMapTransformer.APP_NAME;
+
+	public static final String PROCID = PREFIX + SyslogToMapTransformer.PROCID;
+
+	public static final String MSGID = PREFIX + SyslogToMapTransformer.MSGID;
+
+	public static final String STRUCTURED_DATA = PREFIX + SyslogToMapTransformer.STRUCTURED_DATA;
+
 }
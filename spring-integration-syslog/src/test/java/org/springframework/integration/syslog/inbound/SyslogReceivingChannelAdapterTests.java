@@ -26,6 +26,7 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -40,8 +41,10 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.integration.Message;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.core.PollableChannel;
+import org.springframework.integration.syslog.SyslogHeaders;
 import org.springframework.integration.syslog.config.SyslogReceivingChannelAdapterFactoryBean;
 import org.springframework.integration.test.util.SocketUtils;
+import org.springframework.integration.transformer.SyslogToMapTransformer;
 
 /**
  * @author Gary Russell
@@ -73,6 +76,33 @@ public class SyslogReceivingChannelAdapterTests {
 		adapter.stop();
 	}
 
+	@Test
+	public void testUdpRfc5424() throws Exception {
+		SyslogReceivingChannelAdapterFactoryBean factory = new SyslogReceivingChannelAdapterFactoryBean(
+				SyslogReceivingChannelAdapterFactoryBean.Protocol.udp);
+		int port = SocketUtils.findAvailableUdpSocket(1514);
+		factory.setPort(port);
+		PollableChannel outputChannel = new QueueChannel();
+		factory.setOutputChannel(outputChannel);
+		factory.afterPropertiesSet();
+		factory.start();
+		UdpSyslogReceivingChannelAdapter adapter = (UdpSyslogReceivingChannelAdapter) factory.getObject();
+		Thread.sleep(1000);
+		byte[] buf = ("<165>1 2003-10-11T22:14:15.003Z mymachine.example.com evntslog - ID47 "
+				+ "[exampleSDID@32473 iut=\"3\"] An application event").getBytes("UTF-8");
+		DatagramPacket packet = new DatagramPacket(buf, buf.length, new InetSocketAddress("localhost", port));
+		DatagramSocket socket = new DatagramSocket();
+		socket.send(packet);
+		socket.close();
+		Message<?> message = outputChannel.receive(10000);
+		assertNotNull(message);
+		assertEquals("mymachine.example.com", message.getHeaders().get(SyslogHeaders.HOST));
+		assertEquals("evntslog", message.getHeaders().get(SyslogHeaders.APP_NAME));
+		assertEquals("ID47", message.getHeaders().get(SyslogHeaders.MSGID));
+		assertEquals("An application event", ((Map<?, ?>) message.getPayload()).get(SyslogToMapTransformer.MESSAGE));
+		adapter.stop();
+	}
+
 	@Test
 	public void testTcp() throws Exception {
 		SyslogReceivingChannelAdapterFactoryBean factory = new SyslogReceivingChannelAdapterFactoryBean(
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,11 +30,15 @@ import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 
 import org.springframework.integration.MessagingException;
+import org.springframework.integration.util.SimplePool;
 import org.springframework.xml.transform.StringSource;
 
 /**
  * Default implementation of {@link XmlPayloadConverter}. Supports
  * {@link Document}, {@link File} and {@link String} payloads.
+ * <p>
+ * {@link DocumentBuilder}s are pooled and reused, rather than being created for
+ * every payload.
  * 
  * @author Jonas Partner
  */
@@ -42,6 +46,22 @@ public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 
 	private DocumentBuilderFactory documentBuilderFactory;
 
+	private final SimplePool<DocumentBuilder> documentBuilderPool =
+			new SimplePool<DocumentBuilder>(0, new SimplePool.PoolItemCallback<DocumentBuilder>() {
+
+				public DocumentBuilder createForPool() {
+					return getDocumentBuilder();
+				}
+
+				public boolean isStale(DocumentBuilder item) {
+					return false;
+				}
+
+				public void removedFromPool(DocumentBuilder item) {
+				}
+
+			});
+
 
 	public DefaultXmlPayloadConverter() {
 		this.documentBuilderFactory = DocumentBuilderFactory.newInstance();
@@ -59,7 +79,7 @@ public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 		}
 		if (object instanceof File) {
 			try {
-				return getDocumentBuilder().parse((File) object);
+				return parse(new InputSource(((File) object).toURI().toASCIIString()));
 			}
 			catch (Exception e) {
 				throw new MessagingException("failed to parse File payload '" + object + "'", e);
@@ -67,7 +87,7 @@ public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 		}
 		if (object instanceof String) {
 			try {
-				return getDocumentBuilder().parse(new InputSource(new StringReader((String) object)));
+				return parse(new InputSource(new StringReader((String) object)));
 			}
 			catch (Exception e) {
 				throw new MessagingException("failed to parse String payload '" + object + "'", e);
@@ -107,6 +127,21 @@ public class DefaultXmlPayloadConverter implements XmlPayloadConverter {
 		return source;
 	}
 
+	private Document parse(InputSource inputSource) throws Exception {
+		DocumentBuilder documentBuilder = this.documentBuilderPool.getItem();
+		try {
+			return documentBuilder.parse(inputSource);
+		}
+		finally {
+			this.documentBuilderPool.releaseItem(documentBuilder);
+		}
+	}
+
+	/**
+	 * Create a new {@link DocumentBuilder}. Builders are pooled and reused for later
+	 * payloads, keeping any configuration (such as an EntityResolver or ErrorHandler)
+	 * applied to the returned builder; each is used by one thread at a time.
+	 */
 	protected synchronized DocumentBuilder getDocumentBuilder() {
 		try {
 			return this.documentBuilderFactory.newDocumentBuilder();
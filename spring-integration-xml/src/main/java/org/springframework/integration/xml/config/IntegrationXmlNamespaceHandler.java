@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ public class IntegrationXmlNamespaceHandler extends AbstractIntegrationNamespace
 		registerBeanDefinitionParser("xpath-filter", new XPathFilterParser());
 		registerBeanDefinitionParser("xpath-expression", new XPathExpressionParser());
 		registerBeanDefinitionParser("xpath-splitter", new XPathMessageSplitterParser());
+		registerBeanDefinitionParser("stax-splitter", new StaxMessageSplitterParser());
 		registerBeanDefinitionParser("validating-filter", new XmlPayloadValidatingFilterParser());
 	}
 
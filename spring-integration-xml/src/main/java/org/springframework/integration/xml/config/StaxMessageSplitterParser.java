@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml.config;
+
+import org.w3c.dom.Element;
+
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.integration.config.xml.AbstractConsumerEndpointParser;
+import org.springframework.integration.config.xml.IntegrationNamespaceUtils;
+import org.springframework.integration.xml.splitter.StaxMessageSplitter;
+import org.springframework.util.StringUtils;
+
+/**
+ * Parser for the &lt;stax-splitter&gt; element.
+ *
+ * @since 3.0
+ */
+public class StaxMessageSplitterParser extends AbstractConsumerEndpointParser {
+
+	@Override
+	protected BeanDefinitionBuilder parseHandler(Element element, ParserContext parserContext) {
+		BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(StaxMessageSplitter.class);
+		builder.addConstructorArgValue(element.getAttribute("path"));
+		String namespaceMap = element.getAttribute("namespace-map");
+		if (StringUtils.hasText(namespaceMap)) {
+			builder.addConstructorArgReference(namespaceMap);
+		}
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "apply-sequence");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "count-fragments");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "send-timeout");
+		return builder;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,6 +47,7 @@ public class XPathFilterParser extends AbstractConsumerEndpointParser {
 		final BeanDefinitionBuilder selectorBuilder = BeanDefinitionBuilder.genericBeanDefinition();
 		selectorBuilder.getBeanDefinition().setBeanClass(BooleanTestXPathMessageSelector.class);
 		this.configureXPathExpression(element, selectorBuilder, parserContext);
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(selectorBuilder, element, "converter");
 		if (element.hasAttribute("match-value")) {
 			selectorBuilder.addConstructorArgValue(element.getAttribute("match-value"));
 			String matchType = element.getAttribute("match-type");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -79,6 +79,7 @@ public class XPathHeaderEnricherParser extends AbstractTransformerParser {
 					}
 					IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, headerElement, "evaluation-type");
 					IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, headerElement, "overwrite");
+					IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "converter");
 					String headerName = headerElement.getAttribute("name");
 					headers.put(headerName, builder.getBeanDefinition());
 				}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -53,6 +53,7 @@ public class XPathMessageSplitterParser extends AbstractConsumerEndpointParser {
 		}
 		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "doc-builder-factory", "documentBuilder");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "create-documents");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "converter", "xmlPayloadConverter");
 		return builder;
 	}
 
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml.splitter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.transform.Source;
+import javax.xml.transform.stax.StAXSource;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Message Splitter that streams a {@link File}, {@link InputStream}, {@link Source}
+ * or {@link String} payload through a StAX reader and sends each element matching
+ * a simple path as a String Message, as soon as the element has been read: the
+ * fragments are returned as a lazy {@link Iterator}. Unlike
+ * the {@link XPathMessageSplitter}, the payload is never loaded as a whole, so
+ * memory use is bounded by the size of a single fragment.
+ * <p>
+ * The path is a list of element names separated by '/': an absolute path, such as
+ * "/orders/order", matches from the root element; a path starting with '//', such
+ * as "//order" or "//orders/order", matches at any depth. A name may be '*', may
+ * be unqualified, in which case it matches the local name in any namespace, or may
+ * use a prefix declared in the namespaces map. Matching elements nested inside a
+ * fragment are part of that fragment and are not sent separately.
+ * <p>
+ * Each Message has the sequence number of its fragment. The number of fragments is
+ * not known until the end of the document, so the sequence size is 0, unless
+ * 'countFragments' is enabled and the payload is a {@link File}, which is then
+ * read twice: once to count the fragments and once to send them.
+ *
+ * @since 3.0
+ */
+public class StaxMessageSplitter extends AbstractMessageSplitter {
+
+	private final List<QName> path;
+
+	private final boolean descendant;
+
+	private final XMLInputFactory inputFactory;
+
+	private final XMLOutputFactory outputFactory;
+
+	private volatile boolean countFragments;
+
+
+	public StaxMessageSplitter(String path) {
+		this(path, Collections.<String, String> emptyMap());
+	}
+
+	public StaxMessageSplitter(String path, Map<String, String> namespaces) {
+		Assert.hasText(path, "'path' must not be empty");
+		Assert.isTrue(path.startsWith("/"), "'path' must start with '/'");
+		this.descendant = path.startsWith("//");
+		String[] names = StringUtils.tokenizeToStringArray(path.substring(this.descendant ? 2 : 1), "/");
+		Assert.notEmpty(names, "'path' must contain at least one element name");
+		Map<String, String> namespaceMap = (namespaces != null ? namespaces : new HashMap<String, String>());
+		List<QName> qNames = new ArrayList<QName>(names.length);
+		for (String name : names) {
+			int colon = name.indexOf(':');
+			if (colon > 0) {
+				String prefix = name.substring(0, colon);
+				String namespaceUri = namespaceMap.get(prefix);
+				Assert.notNull(namespaceUri, "no namespace is registered for the prefix '" + prefix + "'");
+				qNames.add(new QName(namespaceUri, name.substring(colon + 1), prefix));
+			}
+			else {
+				qNames.add(new QName(null, name));
+			}
+		}
+		this.path = qNames;
+		this.inputFactory = XMLInputFactory.newInstance();
+		this.inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		this.outputFactory = XMLOutputFactory.newInstance();
+		this.outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+	}
+
+
+	/**
+	 * Specify whether a {@link File} payload should be read twice - once to count the
+	 * fragments and once to send them - so that the sequence size can be set. When
+	 * false, the sequence size is 0, as it is for other payload types. Default false.
+	 */
+	public void setCountFragments(boolean countFragments) {
+		this.countFragments = countFragments;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "xml:stax-splitter";
+	}
+
+	@Override
+	protected Object splitMessage(Message<?> message) {
+		return this.openFragments(message.getPayload(), message, true);
+	}
+
+	@Override
+	protected int obtainSizeIfPossible(Iterator<?> iterator) {
+		FragmentIterator fragments = (FragmentIterator) iterator;
+		if (!this.countFragments || !(fragments.payload instanceof File)) {
+			return 0;
+		}
+		FragmentIterator counter = this.openFragments(fragments.payload, fragments.message, false);
+		try {
+			int count = 0;
+			while (counter.hasNext()) {
+				counter.next();
+				count++;
+			}
+			return count;
+		}
+		finally {
+			counter.close();
+		}
+	}
+
+	private FragmentIterator openFragments(Object payload, Message<?> message, boolean serialize) {
+		InputStream inputStream = null;
+		try {
+			XMLEventReader reader;
+			synchronized (this.inputFactory) {
+				if (payload instanceof File) {
+					inputStream = new FileInputStream((File) payload);
+					reader = this.inputFactory.createXMLEventReader(inputStream);
+				}
+				else if (payload instanceof InputStream) {
+					reader = this.inputFactory.createXMLEventReader((InputStream) payload);
+				}
+				else if (payload instanceof StAXSource && ((StAXSource) payload).getXMLEventReader() != null) {
+					reader = ((StAXSource) payload).getXMLEventReader();
+				}
+				else if (payload instanceof StAXSource) {
+					reader = this.inputFactory.createXMLEventReader(((StAXSource) payload).getXMLStreamReader());
+				}
+				else if (payload instanceof Source) {
+					reader = this.inputFactory.createXMLEventReader((Source) payload);
+				}
+				else if (payload instanceof String) {
+					reader = this.inputFactory.createXMLEventReader(new StringReader((String) payload));
+				}
+				else {
+					throw new MessagingException(message, "unsupported payload type [" + payload.getClass().getName() + "]");
+				}
+			}
+			return new FragmentIterator(payload, reader, inputStream, message, serialize);
+		}
+		catch (MessagingException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			closeQuietly(inputStream);
+			throw new MessagingException(message, "failed to read Message payload", e);
+		}
+	}
+
+	private boolean matches(List<QName> elements) {
+		int offset = elements.size() - this.path.size();
+		if (offset < 0 || (offset > 0 && !this.descendant)) {
+			return false;
+		}
+		for (int i = 0; i < this.path.size(); i++) {
+			QName expected = this.path.get(i);
+			QName actual = elements.get(offset + i);
+			if ("*".equals(expected.getLocalPart())) {
+				continue;
+			}
+			if (!expected.getLocalPart().equals(actual.getLocalPart())) {
+				return false;
+			}
+			if (StringUtils.hasLength(expected.getPrefix())
+					&& !expected.getNamespaceURI().equals(actual.getNamespaceURI())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void closeQuietly(InputStream inputStream) {
+		if (inputStream != null) {
+			try {
+				inputStream.close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+
+	/**
+	 * Reads ahead to the next matching element and, unless only counting, writes it
+	 * to a String.
+	 */
+	private class FragmentIterator implements Iterator<String>, Closeable {
+
+		private final Object payload;
+
+		private final XMLEventReader reader;
+
+		private final InputStream inputStream;
+
+		private final Message<?> message;
+
+		private final boolean serialize;
+
+		private final List<QName> elements = new ArrayList<QName>();
+
+		private String fragment;
+
+		private boolean found;
+
+		private FragmentIterator(Object payload, XMLEventReader reader, InputStream inputStream, Message<?> message,
+				boolean serialize) {
+			this.payload = payload;
+			this.reader = reader;
+			this.inputStream = inputStream;
+			this.message = message;
+			this.serialize = serialize;
+		}
+
+		public boolean hasNext() {
+			if (!this.found) {
+				try {
+					this.found = this.advance();
+				}
+				catch (XMLStreamException e) {
+					throw new MessagingException(this.message, "failed to split Message payload", e);
+				}
+			}
+			return this.found;
+		}
+
+		public String next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.found = false;
+			String fragment = this.fragment;
+			this.fragment = null;
+			return fragment;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() {
+			try {
+				this.reader.close();
+			}
+			catch (XMLStreamException e) {
+				// ignore
+			}
+			closeQuietly(this.inputStream);
+		}
+
+		private boolean advance() throws XMLStreamException {
+			while (this.reader.hasNext()) {
+				XMLEvent event = this.reader.nextEvent();
+				if (event.isStartElement()) {
+					this.elements.add(event.asStartElement().getName());
+					if (matches(this.elements)) {
+						this.fragment = this.readFragment(event);
+						this.elements.remove(this.elements.size() - 1);
+						return true;
+					}
+				}
+				else if (event.isEndElement()) {
+					this.elements.remove(this.elements.size() - 1);
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Consume the events up to the end of the element started by the given event.
+		 */
+		private String readFragment(XMLEvent startElement) throws XMLStreamException {
+			StringWriter stringWriter = null;
+			XMLEventWriter writer = null;
+			if (this.serialize) {
+				stringWriter = new StringWriter();
+				synchronized (outputFactory) {
+					writer = outputFactory.createXMLEventWriter(stringWriter);
+				}
+				writer.add(startElement);
+			}
+			int depth = 1;
+			while (depth > 0) {
+				XMLEvent event = this.reader.nextEvent();
+				if (event.isStartElement()) {
+					depth++;
+				}
+				else if (event.isEndElement()) {
+					depth--;
+				}
+				if (writer != null) {
+					writer.add(event);
+				}
+			}
+			if (writer == null) {
+				return null;
+			}
+			writer.close();
+			return stringWriter.toString();
+		}
+
+	}
+
+}
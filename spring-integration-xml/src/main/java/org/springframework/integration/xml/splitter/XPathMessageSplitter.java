@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 
@@ -36,6 +37,7 @@ import org.w3c.dom.NodeList;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.integration.util.SimplePool;
 import org.springframework.integration.xml.DefaultXmlPayloadConverter;
 import org.springframework.integration.xml.XmlPayloadConverter;
 import org.springframework.util.Assert;
@@ -49,6 +51,8 @@ import org.springframework.xml.xpath.XPathExpressionFactory;
  * The return value will be either Strings or {@link Node}s depending on the
  * received payload type. Additionally, node types will be converted to
  * Documents if the 'createDocuments' property is set to <code>true</code>.
+ * The {@link Transformer}s used to serialize the split nodes and the
+ * {@link DocumentBuilder}s used to create the Documents are pooled.
  * 
  * @author Jonas Partner
  * @author Mark Fisher
@@ -63,6 +67,52 @@ public class XPathMessageSplitter extends AbstractMessageSplitter {
 
 	private volatile XmlPayloadConverter xmlPayloadConverter = new DefaultXmlPayloadConverter();
 
+	private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+	private final SimplePool<Transformer> transformerPool =
+			new SimplePool<Transformer>(0, new SimplePool.PoolItemCallback<Transformer>() {
+
+				public Transformer createForPool() {
+					synchronized (transformerFactory) {
+						try {
+							return transformerFactory.newTransformer();
+						}
+						catch (TransformerConfigurationException e) {
+							throw new MessagingException("failed to create a new Transformer", e);
+						}
+					}
+				}
+
+				public boolean isStale(Transformer item) {
+					return false;
+				}
+
+				public void removedFromPool(Transformer item) {
+				}
+
+			});
+
+	private final SimplePool<DocumentBuilder> documentBuilderPool =
+			new SimplePool<DocumentBuilder>(0, new SimplePool.PoolItemCallback<DocumentBuilder>() {
+
+				public DocumentBuilder createForPool() {
+					try {
+						return getNewDocumentBuilder();
+					}
+					catch (ParserConfigurationException e) {
+						throw new MessagingException("failed to create DocumentBuilder", e);
+					}
+				}
+
+				public boolean isStale(DocumentBuilder item) {
+					return false;
+				}
+
+				public void removedFromPool(DocumentBuilder item) {
+				}
+
+			});
+
 
 	public XPathMessageSplitter(String expression) {
 		this(expression, new HashMap<String, String>());
@@ -90,6 +140,7 @@ public class XPathMessageSplitter extends AbstractMessageSplitter {
 	public void setDocumentBuilder(DocumentBuilderFactory documentBuilderFactory) {
 		Assert.notNull(documentBuilderFactory, "DocumentBuilderFactory must not be null");
 		this.documentBuilderFactory = documentBuilderFactory;
+		this.documentBuilderPool.removeAllIdleItems();
 	}
 
 	public void setXmlPayloadConverter(XmlPayloadConverter xmlPayloadConverter) {
@@ -122,14 +173,20 @@ public class XPathMessageSplitter extends AbstractMessageSplitter {
 
 	private Object splitDocument(Document document) throws Exception {
 		List<Node> nodes = splitNode(document);
-		Transformer transformer = TransformerFactory.newInstance().newTransformer();
-		List<String> splitStrings = new ArrayList<String>(nodes.size());
-		for (Node nodeFromList : nodes) {
-			StringResult result = new StringResult();
-			transformer.transform(new DOMSource(nodeFromList), result);
-			splitStrings.add(result.toString());
+		Transformer transformer = this.transformerPool.getItem();
+		try {
+			List<String> splitStrings = new ArrayList<String>(nodes.size());
+			for (Node nodeFromList : nodes) {
+				StringResult result = new StringResult();
+				transformer.transform(new DOMSource(nodeFromList), result);
+				splitStrings.add(result.toString());
+			}
+			return splitStrings;
+		}
+		finally {
+			transformer.reset();
+			this.transformerPool.releaseItem(transformer);
 		}
-		return splitStrings;
 	}
 
 	private List<Node> splitNode(Node node) throws ParserConfigurationException {
@@ -144,14 +201,19 @@ public class XPathMessageSplitter extends AbstractMessageSplitter {
 	}
 
 	private List<Node> convertNodesToDocuments(List<Node> nodes) throws ParserConfigurationException {
-		DocumentBuilder documentBuilder = this.getNewDocumentBuilder();
-		List<Node> documents = new ArrayList<Node>(nodes.size());
-		for (Node node : nodes) {
-			Document document = documentBuilder.newDocument();
-			document.appendChild(document.importNode(node, true));
-			documents.add(document);
+		DocumentBuilder documentBuilder = this.documentBuilderPool.getItem();
+		try {
+			List<Node> documents = new ArrayList<Node>(nodes.size());
+			for (Node node : nodes) {
+				Document document = documentBuilder.newDocument();
+				document.appendChild(document.importNode(node, true));
+				documents.add(document);
+			}
+			return documents;
+		}
+		finally {
+			this.documentBuilderPool.releaseItem(documentBuilder);
 		}
-		return documents;
 	}
 
 	private DocumentBuilder getNewDocumentBuilder() throws ParserConfigurationException {
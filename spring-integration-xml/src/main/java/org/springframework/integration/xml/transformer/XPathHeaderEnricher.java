@@ -71,6 +71,11 @@ public class XPathHeaderEnricher extends HeaderEnricher {
 			this.expression = expression;
 		}
 
+		public void setConverter(XmlPayloadConverter converter) {
+			Assert.notNull(converter, "converter must not be null");
+			this.converter = converter;
+		}
+
 		public void setEvaluationType(XPathEvaluationType evaluationType) {
 			this.evaluationType = evaluationType;
 		}
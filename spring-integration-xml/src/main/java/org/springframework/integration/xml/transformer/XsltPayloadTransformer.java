@@ -23,6 +23,7 @@ import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
@@ -40,6 +41,7 @@ import org.springframework.integration.MessageHeaders;
 import org.springframework.integration.MessagingException;
 import org.springframework.integration.expression.ExpressionUtils;
 import org.springframework.integration.transformer.AbstractTransformer;
+import org.springframework.integration.util.SimplePool;
 import org.springframework.integration.xml.result.DomResultFactory;
 import org.springframework.integration.xml.result.ResultFactory;
 import org.springframework.integration.xml.source.DomSourceFactory;
@@ -69,6 +71,10 @@ import org.springframework.xml.transform.StringSource;
  * payload and the {@link Result} to pass into the transformer. An instance of
  * {@link ResultTransformer} can also be provided to convert the Result prior to
  * returning.
+ * <p>
+ * {@link Transformer} instances are created from the {@link Templates} on demand,
+ * pooled, and {@link Transformer#reset() reset} after each use, rather than being
+ * created for every message.
  *
  * @author Jonas Partner
  * @author Mark Fisher
@@ -85,6 +91,8 @@ public class XsltPayloadTransformer extends AbstractTransformer implements BeanC
 
 	private volatile Templates templates;
 
+	private volatile SimplePool<Transformer> transformerPool;
+
 	private String transformerFactoryClassName;
 
 	private volatile StandardEvaluationContext evaluationContext;
@@ -204,11 +212,44 @@ public class XsltPayloadTransformer extends AbstractTransformer implements BeanC
 			}
 			this.templates = transformerFactory.newTemplates(createStreamSourceOnResource(this.xslResource));
 		}
+		final Templates templates = this.templates;
+		this.transformerPool = new SimplePool<Transformer>(0, new SimplePool.PoolItemCallback<Transformer>() {
+
+			public Transformer createForPool() {
+				try {
+					return templates.newTransformer();
+				}
+				catch (TransformerConfigurationException e) {
+					throw new MessagingException("failed to create a new Transformer", e);
+				}
+			}
+
+			public boolean isStale(Transformer item) {
+				return false;
+			}
+
+			public void removedFromPool(Transformer item) {
+			}
+
+		});
 	}
 
 	@Override
 	protected Object doTransform(Message<?> message) throws Exception {
-		Transformer transformer = buildTransformer(message);
+		Transformer transformer = this.transformerPool.getItem();
+		try {
+			configureTransformer(transformer, message);
+			return transformPayload(message, transformer);
+		}
+		finally {
+			// reset() alone does not clear the parameters of an XSLTC transformer
+			transformer.clearParameters();
+			transformer.reset();
+			this.transformerPool.releaseItem(transformer);
+		}
+	}
+
+	private Object transformPayload(Message<?> message, Transformer transformer) throws Exception {
 		Object payload;
 		if (this.alwaysUseSourceFactory) {
 			payload = sourceFactory.createSource(message.getPayload());
@@ -303,9 +344,8 @@ public class XsltPayloadTransformer extends AbstractTransformer implements BeanC
 	}
 
 
-	private Transformer buildTransformer(Message<?> message) throws TransformerException {
+	private void configureTransformer(Transformer transformer, Message<?> message) {
 		// process individual mappings
-		Transformer transformer = this.templates.newTransformer();
 		if (this.xslParameterMappings != null) {
 			for (String parameterName : this.xslParameterMappings.keySet()) {
 				Expression expression = this.xslParameterMappings.get(parameterName);
@@ -332,7 +372,6 @@ public class XsltPayloadTransformer extends AbstractTransformer implements BeanC
 				}
 			}
 		}
-		return transformer;
 	}
 
 	/**
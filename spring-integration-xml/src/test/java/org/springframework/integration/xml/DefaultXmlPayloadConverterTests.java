@@ -19,7 +19,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
@@ -34,6 +36,7 @@ import org.springframework.integration.MessagingException;
 import org.springframework.xml.transform.StringSource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
+import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 
 /**
@@ -113,6 +116,33 @@ public class DefaultXmlPayloadConverterTests {
 		converter.convertToSource(12);
 	}
 
+	@Test
+	public void testDocumentBuilderConfigurationIsKept() {
+		final AtomicInteger resolved = new AtomicInteger();
+		converter = new DefaultXmlPayloadConverter() {
+
+			@Override
+			protected DocumentBuilder getDocumentBuilder() {
+				DocumentBuilder documentBuilder = super.getDocumentBuilder();
+				documentBuilder.setEntityResolver(new EntityResolver() {
+
+					public InputSource resolveEntity(String publicId, String systemId) {
+						resolved.incrementAndGet();
+						return new InputSource(new StringReader("<!ENTITY foo 'bar'>"));
+					}
+
+				});
+				return documentBuilder;
+			}
+
+		};
+		String payload = "<!DOCTYPE test SYSTEM 'http://unresolvable.invalid/test.dtd'><test>&foo;</test>";
+		for (int i = 0; i < 2; i++) {
+			assertEquals("bar", converter.convertToDocument(payload).getDocumentElement().getTextContent());
+		}
+		assertEquals(2, resolved.get());
+	}
+
     @Test
     public void testGetNodePassingDOMSource(){
         Node element = testDocument.getElementsByTagName("test").item(0);
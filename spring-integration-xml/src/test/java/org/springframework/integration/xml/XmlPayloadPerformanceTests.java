@@ -0,0 +1,147 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.integration.Message;
+import org.springframework.integration.channel.NullChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.xml.selector.BooleanTestXPathMessageSelector;
+import org.springframework.integration.xml.splitter.StaxMessageSplitter;
+import org.springframework.integration.xml.splitter.XPathMessageSplitter;
+import org.springframework.integration.xml.transformer.XPathTransformer;
+import org.springframework.integration.xml.transformer.XsltPayloadTransformer;
+import org.springframework.util.StopWatch;
+
+/**
+ * Throughput of the XML components for small, medium and large String payloads.
+ *
+ * @since 3.0
+ */
+public class XmlPayloadPerformanceTests {
+
+	private static final int[] ITEMS = { 10, 1000, 20000 };
+
+	private static final int[] ITERATIONS = { 20000, 500, 20 };
+
+	private static final String XSL = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+			+ "<xsl:template match=\"/order\"><total><xsl:value-of select=\"sum(item/@price)\"/></total></xsl:template>"
+			+ "</xsl:stylesheet>";
+
+	@Test
+	@Ignore
+	public void xsltPerformanceTest() throws Exception {
+		XsltPayloadTransformer transformer = new XsltPayloadTransformer(new ByteArrayResource(XSL.getBytes("UTF-8")));
+		transformer.afterPropertiesSet();
+		for (int i = 0; i < ITEMS.length; i++) {
+			Message<String> message = MessageBuilder.withPayload(createDocument(ITEMS[i])).build();
+			StopWatch watch = new StopWatch();
+			watch.start();
+			for (int j = 0; j < ITERATIONS[i]; j++) {
+				transformer.transform(message);
+			}
+			watch.stop();
+			report("xslt-transformer", ITEMS[i], ITERATIONS[i], watch);
+		}
+	}
+
+	@Test
+	@Ignore
+	public void xpathPerformanceTest() throws Exception {
+		for (int i = 0; i < ITEMS.length; i++) {
+			Message<String> message = MessageBuilder.withPayload(createDocument(ITEMS[i])).build();
+			XPathTransformer transformer = new XPathTransformer("count(/order/item)");
+			BooleanTestXPathMessageSelector selector = new BooleanTestXPathMessageSelector("/order/@region = 'north'");
+			StopWatch watch = new StopWatch();
+			watch.start();
+			for (int j = 0; j < ITERATIONS[i]; j++) {
+				transformer.transform(message);
+				selector.accept(message);
+			}
+			watch.stop();
+			report("xpath-transformer + xpath-filter", ITEMS[i], ITERATIONS[i], watch);
+		}
+	}
+
+	@Test
+	@Ignore
+	public void splitterPerformanceTest() throws Exception {
+		XPathMessageSplitter splitter = new XPathMessageSplitter("/order/item");
+		splitter.setOutputChannel(new NullChannel());
+		for (int i = 0; i < ITEMS.length; i++) {
+			Message<String> message = MessageBuilder.withPayload(createDocument(ITEMS[i])).build();
+			StopWatch watch = new StopWatch();
+			watch.start();
+			for (int j = 0; j < ITERATIONS[i]; j++) {
+				splitter.handleMessage(message);
+			}
+			watch.stop();
+			report("xpath-splitter", ITEMS[i], ITERATIONS[i], watch);
+		}
+	}
+
+	@Test
+	@Ignore
+	public void staxSplitterPerformanceTest() throws Exception {
+		int items = 2000000;
+		File file = File.createTempFile("orders", ".xml");
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)), "UTF-8");
+		try {
+			writer.write("<order region=\"north\">");
+			for (int i = 0; i < items; i++) {
+				writer.write("<item id=\"" + i + "\" price=\"1.5\">item " + i + "</item>");
+			}
+			writer.write("</order>");
+		}
+		finally {
+			writer.close();
+		}
+		StaxMessageSplitter splitter = new StaxMessageSplitter("/order/item");
+		splitter.setOutputChannel(new NullChannel());
+		StopWatch watch = new StopWatch();
+		watch.start();
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+		watch.stop();
+		report("stax-splitter (" + file.length() / 1024 / 1024 + "MB file)", items, 1, watch);
+		file.delete();
+	}
+
+	private static String createDocument(int items) {
+		StringBuilder builder = new StringBuilder("<order region=\"north\">");
+		for (int i = 0; i < items; i++) {
+			builder.append("<item id=\"").append(i).append("\" price=\"1.5\">item ").append(i).append("</item>");
+		}
+		return builder.append("</order>").toString();
+	}
+
+	private static void report(String component, int items, int iterations, StopWatch watch) {
+		System.out.println(component + ": " + iterations + " documents of " + items + " items in "
+				+ watch.getTotalTimeSeconds() + " seconds");
+	}
+
+}
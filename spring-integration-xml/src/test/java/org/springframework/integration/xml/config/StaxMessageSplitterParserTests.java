@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml.config;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.integration.Message;
+import org.springframework.integration.MessageChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.endpoint.EventDrivenConsumer;
+import org.springframework.integration.message.GenericMessage;
+
+/**
+ * @since 3.0
+ */
+public class StaxMessageSplitterParserTests {
+
+	private final String channelDefinitions = "<si:channel id='test-input' /><si:channel id='test-output'><si:queue capacity='10'/></si:channel>";
+
+	@Test
+	public void testStaxSplitter() throws Exception {
+		TestXmlApplicationContext ctx = TestXmlApplicationContextHelper.getTestAppContext(channelDefinitions
+				+ "<util:map id='namespaces'><entry key='n' value='urn:names'/></util:map>"
+				+ "<si-xml:stax-splitter id='splitter' input-channel='test-input' output-channel='test-output' "
+				+ "path='/n:names/n:name' namespace-map='namespaces' apply-sequence='false' count-fragments='true' send-timeout='123'/>");
+		EventDrivenConsumer consumer = (EventDrivenConsumer) ctx.getBean("splitter");
+		DirectFieldAccessor accessor = new DirectFieldAccessor(new DirectFieldAccessor(consumer).getPropertyValue("handler"));
+		assertEquals(false, accessor.getPropertyValue("applySequence"));
+		assertEquals(true, accessor.getPropertyValue("countFragments"));
+		assertEquals(123L, new DirectFieldAccessor(accessor.getPropertyValue("messagingTemplate")).getPropertyValue("sendTimeout"));
+		consumer.start();
+		ctx.getBean("test-input", MessageChannel.class).send(new GenericMessage<String>(
+				"<names xmlns='urn:names'><name>Bob</name><name>John</name></names>"));
+		QueueChannel output = ctx.getBean("test-output", QueueChannel.class);
+		assertEquals(2, output.getQueueSize());
+		Message<?> message = output.receive(0);
+		assertEquals("<name xmlns=\"urn:names\">Bob</name>", message.getPayload());
+		ctx.close();
+	}
+
+}
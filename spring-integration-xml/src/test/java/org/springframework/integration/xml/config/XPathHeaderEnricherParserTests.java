@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2013 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,11 @@
 package org.springframework.integration.xml.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -143,6 +145,20 @@ public class XPathHeaderEnricherParserTests {
 		assertEquals("bar", reply.getHeaders().get("foo"));
 	}
 
+	@Test
+	public void customConverter() {
+		Object endpoint = this.context.getBean("converterHeaderEnricher");
+		Object handler = new DirectFieldAccessor(endpoint).getPropertyValue("handler");
+		Object enricher = new DirectFieldAccessor(handler).getPropertyValue("transformer");
+		Map<?, ?> headersToAdd = (Map<?, ?>) new DirectFieldAccessor(enricher).getPropertyValue("headersToAdd");
+		assertSame(this.context.getBean("xmlConverter"),
+				new DirectFieldAccessor(headersToAdd.get("foo")).getPropertyValue("converter"));
+		QueueChannel replyChannel = new QueueChannel();
+		this.context.getBean("converterInput", MessageChannel.class).send(
+				MessageBuilder.fromMessage(this.message).setReplyChannel(replyChannel).build());
+		assertEquals("John Doe", replyChannel.receive(0).getHeaders().get("foo"));
+	}
+
 
 	private Message<?> getResultMessage() {
 		this.input.send(message);
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.xml.splitter;
+
+import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.Message;
+import org.springframework.integration.MessagingException;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.message.GenericMessage;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.xml.transform.StringSource;
+
+/**
+ * @since 3.0
+ */
+public class StaxMessageSplitterTests {
+
+	private static final String ORDERS = "<orders><order id=\"1\">one</order><order id=\"2\"><item>two</item></order>"
+			+ "<other/><order id=\"3\">three</order></orders>";
+
+	private final QueueChannel outputChannel = new QueueChannel();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@Test
+	public void splitString() throws Exception {
+		List<Message<?>> messages = this.split(new StaxMessageSplitter("/orders/order"), ORDERS);
+		assertEquals(3, messages.size());
+		assertXMLEqual("<order id=\"1\">one</order>", (String) messages.get(0).getPayload());
+		assertXMLEqual("<order id=\"2\"><item>two</item></order>", (String) messages.get(1).getPayload());
+		assertXMLEqual("<order id=\"3\">three</order>", (String) messages.get(2).getPayload());
+		assertEquals(Integer.valueOf(3), messages.get(2).getHeaders().getSequenceNumber());
+		assertEquals(Integer.valueOf(0), messages.get(2).getHeaders().getSequenceSize());
+	}
+
+	@Test
+	public void splitFileWithSequenceSize() throws Exception {
+		File file = this.temporaryFolder.newFile("orders.xml");
+		FileCopyUtils.copy(ORDERS.getBytes("UTF-8"), new FileOutputStream(file));
+		Message<File> message = new GenericMessage<File>(file);
+		assertEquals(Integer.valueOf(0),
+				this.split(new StaxMessageSplitter("/orders/order"), message).get(0).getHeaders().getSequenceSize());
+		StaxMessageSplitter splitter = new StaxMessageSplitter("/orders/order");
+		splitter.setCountFragments(true);
+		List<Message<?>> messages = this.split(splitter, message);
+		assertEquals(3, messages.size());
+		for (int i = 0; i < messages.size(); i++) {
+			assertEquals(Integer.valueOf(i + 1), messages.get(i).getHeaders().getSequenceNumber());
+			assertEquals(Integer.valueOf(3), messages.get(i).getHeaders().getSequenceSize());
+			assertEquals(message.getHeaders().getId(), messages.get(i).getHeaders().getCorrelationId());
+		}
+	}
+
+	@Test
+	public void splitInputStreamAndSource() throws Exception {
+		StaxMessageSplitter splitter = new StaxMessageSplitter("//item");
+		assertEquals(1, this.split(splitter, new ByteArrayInputStream(ORDERS.getBytes("UTF-8"))).size());
+		assertEquals(1, this.split(splitter, new StringSource(ORDERS)).size());
+	}
+
+	@Test
+	public void descendantAndWildcardPaths() throws Exception {
+		assertEquals(3, this.split(new StaxMessageSplitter("//order"), ORDERS).size());
+		assertEquals(4, this.split(new StaxMessageSplitter("/orders/*"), ORDERS).size());
+		assertEquals(0, this.split(new StaxMessageSplitter("/order"), ORDERS).size());
+	}
+
+	@Test
+	public void namespacesFromAncestorsAreDeclared() throws Exception {
+		String xml = "<o:orders xmlns:o=\"urn:orders\" xmlns:x=\"urn:x\"><o:order x:id=\"1\">one</o:order>"
+				+ "<order>none</order></o:orders>";
+		StaxMessageSplitter splitter = new StaxMessageSplitter("/p:orders/p:order",
+				Collections.singletonMap("p", "urn:orders"));
+		List<Message<?>> messages = this.split(splitter, xml);
+		assertEquals(1, messages.size());
+		assertXMLEqual("<o:order xmlns:o=\"urn:orders\" xmlns:x=\"urn:x\" x:id=\"1\">one</o:order>",
+				(String) messages.get(0).getPayload());
+	}
+
+	@Test
+	public void noSequence() throws Exception {
+		StaxMessageSplitter splitter = new StaxMessageSplitter("/orders/order");
+		splitter.setApplySequence(false);
+		List<Message<?>> messages = this.split(splitter, ORDERS);
+		assertEquals(3, messages.size());
+		assertNull(messages.get(0).getHeaders().getCorrelationId());
+	}
+
+	@Test
+	public void malformedDocument() throws Exception {
+		StaxMessageSplitter splitter = new StaxMessageSplitter("/orders/order");
+		splitter.setOutputChannel(this.outputChannel);
+		try {
+			splitter.handleMessage(new GenericMessage<String>("<orders><order>one</order><order>"));
+			fail("Expected MessagingException");
+		}
+		catch (MessagingException e) {
+			assertTrue(e.getMessage().contains("failed to split Message payload"));
+		}
+		// the first fragment was sent before the error was detected
+		assertEquals(1, this.outputChannel.clear().size());
+	}
+
+
+	private List<Message<?>> split(StaxMessageSplitter splitter, Object payload) {
+		Message<?> message = (payload instanceof Message ? (Message<?>) payload : new GenericMessage<Object>(payload));
+		splitter.setOutputChannel(this.outputChannel);
+		splitter.handleMessage(message);
+		return this.outputChannel.clear();
+	}
+
+}
@@ -194,6 +194,18 @@ public class XsltPayloadTransformerTests {
 		assertEquals("Wrong content in string", "hello world", returned.toString());
 	}
 
+	@Test
+	public void pooledTransformerParametersReset() throws Exception {
+		String xsl = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"><xsl:output method=\"text\" encoding=\"UTF-8\" /><xsl:param name=\"name\" select=\"'none'\"/><xsl:template match=\"order\"><xsl:value-of select=\"$name\"/></xsl:template></xsl:stylesheet>";
+		transformer = new XsltPayloadTransformer(new ByteArrayResource(xsl.getBytes("UTF-8")));
+		transformer.setXsltParamHeaders(new String[] {"name"});
+		transformer.afterPropertiesSet();
+		Object returned = transformer.doTransform(MessageBuilder.withPayload(docAsString).setHeader("name", "foo").build());
+		assertEquals("foo", returned);
+		returned = transformer.doTransform(buildMessage(docAsString));
+		assertEquals("none", returned);
+	}
+
 	protected Message<?> buildMessage(Object payload) {
 		return MessageBuilder.withPayload(payload).build();
 	}